@@ -0,0 +1,472 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.applications.datamodeling;
+
+import com.datumbox.framework.applications.nlp.TextClassifier;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.common.text.StringCleaner;
+import com.datumbox.framework.core.common.text.extractors.AbstractTextExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-process inference engine which serves the predictions of a trained Modeler
+ * (or TextClassifier) to concurrent callers. The single-record requests are queued
+ * and a dedicated worker coalesces them into small batches, bounded by a maximum
+ * batch size and a maximum waiting time. The records of a batch are scored with
+ * the single-record path of the Modeler, so no Dataframe or storage is created
+ * while serving.
+ *
+ * The model is only accessed by the worker thread and it is never modified, so
+ * the callers can share it without any synchronization. The engine does not own
+ * the model; closing the engine does not close the Modeler.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <I>
+ */
+public class InferenceEngine<I> implements AutoCloseable {
+
+    private static final AtomicInteger ENGINE_COUNTER = new AtomicInteger(0);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Modeler modeler;
+
+    private final Function<I, AssociativeArray> featureExtractor;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Request<I>> queue = new LinkedBlockingQueue<>();
+
+    private final Request<I> shutdownSignal = new Request<>(null);
+
+    private final Metrics metrics = new Metrics();
+
+    private final Thread worker;
+
+    private boolean closed = false;
+
+    /**
+     * A pending prediction request.
+     *
+     * @param <I>
+     */
+    private static class Request<I> {
+        private final I input;
+        private final long submittedAt = System.nanoTime();
+        private final CompletableFuture<Record> future = new CompletableFuture<>();
+
+        private Request(I input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * Metrics of the engine. The latency of a request is measured from its
+     * submission until its future is completed; the percentiles are estimated
+     * on a sliding window which holds the latencies of the most recent requests.
+     */
+    public static class Metrics {
+
+        private static final int WINDOW_SIZE = 4096;
+
+        private final long[] latencies = new long[WINDOW_SIZE];
+
+        private int samples = 0;
+
+        private int position = 0;
+
+        private final AtomicLong requestCount = new AtomicLong(0L);
+
+        private final AtomicLong failedCount = new AtomicLong(0L);
+
+        private final AtomicLong batchCount = new AtomicLong(0L);
+
+        /**
+         * Protected constructor.
+         */
+        protected Metrics() {
+
+        }
+
+        /**
+         * Records the completion of a request.
+         *
+         * @param latencyNanos
+         * @param failed
+         */
+        private synchronized void recordRequest(long latencyNanos, boolean failed) {
+            latencies[position] = latencyNanos;
+            position = (position+1)%WINDOW_SIZE;
+            if(samples<WINDOW_SIZE) {
+                samples++;
+            }
+            requestCount.incrementAndGet();
+            if(failed) {
+                failedCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * Records the execution of a batch.
+         */
+        private void recordBatch() {
+            batchCount.incrementAndGet();
+        }
+
+        /**
+         * Returns the number of completed requests, including the failed ones.
+         *
+         * @return
+         */
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        /**
+         * Returns the number of requests that completed exceptionally.
+         *
+         * @return
+         */
+        public long getFailedCount() {
+            return failedCount.get();
+        }
+
+        /**
+         * Returns the number of batches that were executed.
+         *
+         * @return
+         */
+        public long getBatchCount() {
+            return batchCount.get();
+        }
+
+        /**
+         * Returns the average number of requests per batch.
+         *
+         * @return
+         */
+        public double getAverageBatchSize() {
+            long batches = batchCount.get();
+            return batches>0?requestCount.get()/(double)batches:0.0;
+        }
+
+        /**
+         * Returns the requested percentile (between 0 and 100) of the latency in
+         * milliseconds, estimated with the nearest-rank method over the recent
+         * requests. If no request has completed yet, it returns 0.
+         *
+         * @param percentile
+         * @return
+         */
+        public double getLatencyPercentile(double percentile) {
+            if(percentile<0.0 || percentile>100.0) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+            }
+
+            long[] sorted;
+            synchronized(this) {
+                sorted = Arrays.copyOf(latencies, samples);
+            }
+            if(sorted.length==0) {
+                return 0.0;
+            }
+            Arrays.sort(sorted);
+
+            int rank = (int)Math.ceil(percentile/100.0*sorted.length);
+            return sorted[Math.max(rank-1, 0)]/1e6;
+        }
+    }
+
+    /**
+     * Creates an engine which serves the predictions of a Modeler for the
+     * provided feature vectors.
+     *
+     * @param modeler
+     * @param maxBatchSize
+     * @param maxWaitMillis
+     * @return
+     */
+    public static InferenceEngine<AssociativeArray> newInstance(Modeler modeler, int maxBatchSize, long maxWaitMillis) {
+        return new InferenceEngine<>(modeler, Function.identity(), maxBatchSize, maxWaitMillis);
+    }
+
+    /**
+     * Creates an engine which serves the predictions of a TextClassifier for the
+     * provided texts. The text is cleaned and its features are extracted by the
+     * worker, using the Text Extractor of the TextClassifier.
+     *
+     * @param textClassifier
+     * @param maxBatchSize
+     * @param maxWaitMillis
+     * @return
+     */
+    public static InferenceEngine<String> newInstance(TextClassifier textClassifier, int maxBatchSize, long maxWaitMillis) {
+        AbstractTextExtractor<?, ?, ?> textExtractor = AbstractTextExtractor.newInstance(((TextClassifier.TrainingParameters) textClassifier.getTrainingParameters()).getTextExtractorParameters());
+        return new InferenceEngine<>(textClassifier, text -> new AssociativeArray(new HashMap<>(textExtractor.extract(StringCleaner.clear(text)))), maxBatchSize, maxWaitMillis);
+    }
+
+    /**
+     * Public constructor of the engine. The featureExtractor converts the inputs
+     * of the requests to the feature vectors of the Modeler and it is only called
+     * by the worker thread.
+     *
+     * @param modeler
+     * @param featureExtractor
+     * @param maxBatchSize
+     * @param maxWaitMillis
+     */
+    public InferenceEngine(Modeler modeler, Function<I, AssociativeArray> featureExtractor, int maxBatchSize, long maxWaitMillis) {
+        if(maxBatchSize<=0) {
+            throw new IllegalArgumentException("The max batch size must be positive.");
+        }
+        else if(maxWaitMillis<0) {
+            throw new IllegalArgumentException("The max wait can not be negative.");
+        }
+
+        this.modeler = modeler;
+        this.featureExtractor = featureExtractor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        worker = new Thread(this::serve, "datumbox-inference-" + ENGINE_COUNTER.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Getter for the max number of requests which are scored together.
+     *
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Getter for the max time in milliseconds that the worker waits for more
+     * requests before scoring a batch which is not full.
+     *
+     * @return
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    /**
+     * Getter for the metrics of the engine.
+     *
+     * @return
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Submits a prediction request. The returned future is completed with a
+     * Record which contains the features, the predicted value and probabilities.
+     *
+     * @param input
+     * @return
+     */
+    public CompletableFuture<Record> submit(I input) {
+        Request<I> request = new Request<>(input);
+        synchronized(queue) {
+            if(closed) {
+                throw new IllegalStateException("The InferenceEngine is closed.");
+            }
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Stops accepting new requests, waits for the queued ones to be served and
+     * terminates the worker. When it is called by a callback of a future, which
+     * runs on the worker thread, it does not wait; the queued requests are still
+     * served after the callback returns.
+     */
+    @Override
+    public void close() {
+        synchronized(queue) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            queue.add(shutdownSignal);
+        }
+
+        if(Thread.currentThread() == worker) {
+            return; //joining itself would block forever
+        }
+
+        try {
+            worker.join();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * The loop of the worker thread which collects and scores the batches. A
+     * failure while scoring a record fails only the future of its request. If
+     * the worker is interrupted or an Error is thrown, the engine is closed and
+     * all the pending requests are failed.
+     */
+    private void serve() {
+        List<Request<I>> batch = new ArrayList<>(maxBatchSize);
+        boolean running = true;
+        try {
+            while(running) {
+                Request<I> request = queue.take();
+                if(request == shutdownSignal) {
+                    break;
+                }
+                batch.add(request);
+
+                long deadline = request.submittedAt + maxWaitNanos;
+                while(batch.size()<maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    request = remaining>0?queue.poll(remaining, TimeUnit.NANOSECONDS):queue.poll();
+                    if(request == null) {
+                        break;
+                    }
+                    else if(request == shutdownSignal) {
+                        running = false;
+                        break;
+                    }
+                    batch.add(request);
+                }
+
+                try {
+                    score(batch);
+                }
+                catch (RuntimeException ex) {
+                    logger.error("Failed to score a batch of {} requests.", batch.size(), ex);
+                    failPending(batch, ex);
+                }
+                batch.clear();
+            }
+        }
+        catch (InterruptedException ex) {
+            logger.warn("The InferenceEngine worker was interrupted.");
+            shutdown(batch, ex);
+        }
+        catch (Throwable ex) {
+            logger.error("The InferenceEngine worker failed and the engine is closed.", ex);
+            shutdown(batch, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes the engine after an unrecoverable failure of the worker and fails
+     * the current batch and all the queued requests.
+     *
+     * @param batch
+     * @param ex
+     */
+    private void shutdown(List<Request<I>> batch, Throwable ex) {
+        List<Request<I>> pending = new ArrayList<>();
+        synchronized(queue) {
+            closed = true;
+            queue.drainTo(pending);
+        }
+        pending.remove(shutdownSignal);
+        failPending(batch, ex);
+        failPending(pending, ex);
+    }
+
+    /**
+     * Scores the provided batch of requests and completes their futures.
+     *
+     * @param batch
+     */
+    private void score(List<Request<I>> batch) {
+        List<Request<I>> valid = new ArrayList<>(batch.size());
+        List<Record> records = new ArrayList<>(batch.size());
+        for(Request<I> request : batch) {
+            try {
+                records.add(new Record(featureExtractor.apply(request.input), null));
+                valid.add(request);
+            }
+            catch (RuntimeException ex) {
+                fail(request, ex);
+            }
+        }
+        if(valid.isEmpty()) {
+            return;
+        }
+
+        metrics.recordBatch();
+        for(int i=0;i<valid.size();i++) {
+            Request<I> request = valid.get(i);
+            Record prediction;
+            try {
+                prediction = modeler.predict(records.get(i));
+            }
+            catch (RuntimeException ex) {
+                fail(request, ex);
+                continue;
+            }
+            metrics.recordRequest(System.nanoTime() - request.submittedAt, false);
+            request.future.complete(prediction);
+        }
+    }
+
+    /**
+     * Completes exceptionally the future of the request.
+     *
+     * @param request
+     * @param ex
+     */
+    private void fail(Request<I> request, Throwable ex) {
+        metrics.recordRequest(System.nanoTime() - request.submittedAt, true);
+        request.future.completeExceptionally(ex);
+    }
+
+    /**
+     * Completes exceptionally the futures of the requests which are not done yet.
+     *
+     * @param requests
+     * @param ex
+     */
+    private void failPending(List<Request<I>> requests, Throwable ex) {
+        for(Request<I> request : requests) {
+            if(!request.future.isDone()) {
+                fail(request, ex);
+            }
+        }
+    }
+
+}
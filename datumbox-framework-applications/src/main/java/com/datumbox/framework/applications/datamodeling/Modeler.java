@@ -17,6 +17,7 @@ package com.datumbox.framework.applications.datamodeling;
 
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
@@ -30,6 +31,7 @@ import com.datumbox.framework.core.machinelearning.common.interfaces.Paralleliza
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Modeler is a convenience class which can be used to train Machine Learning
@@ -244,6 +246,45 @@ public class Modeler extends AbstractModeler<Modeler.ModelParameters, Modeler.Tr
         }
     }
     
+    /** {@inheritDoc} */
+    @Override
+    protected Record _predict(Record r) {
+        //load all trainables on the bundles
+        initBundle();
+
+        //run the pipeline on the record without creating a Dataframe
+        for(String step : pipeline) {
+            switch (step) {
+                case NS_KEY:
+                    AbstractScaler<?, ?> numericalScaler = (AbstractScaler<?, ?>) bundle.get(NS_KEY);
+                    if(numericalScaler != null) {
+                        r = numericalScaler.transform(r);
+                    }
+                    break;
+                case CE_KEY:
+                    AbstractEncoder<?, ?> categoricalEncoder = (AbstractEncoder<?, ?>) bundle.get(CE_KEY);
+                    if(categoricalEncoder != null) {
+                        r = categoricalEncoder.transform(r);
+                    }
+                    break;
+                case FS_KEY:
+                    int numOfFS = getTrainingParameters().getFeatureSelectorTrainingParametersList().size();
+                    for(int i=0;i<numOfFS;i++) {
+                        AbstractFeatureSelector<?, ?> featureSelector = (AbstractFeatureSelector<?, ?>) bundle.get(FS_KEY+i);
+                        r = featureSelector.transform(r);
+                    }
+                    break;
+                case ML_KEY:
+                    AbstractModeler<?, ?> modeler = (AbstractModeler<?, ?>) bundle.get(ML_KEY);
+                    r = modeler.predict(r);
+                    break;
+                default:
+                    throw new RuntimeException("Invalid Pipeline Step");
+            }
+        }
+        return r;
+    }
+    
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
@@ -321,6 +362,26 @@ public class Modeler extends AbstractModeler<Modeler.ModelParameters, Modeler.Tr
         bundle.save(knowledgeBaseName);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        initBundle();
+        CompletableFuture<Void> future = super.saveAsync(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        return CompletableFuture.allOf(future, bundle.saveAsync(knowledgeBaseName));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveSnapshot(String storageName) {
+        initBundle();
+        super.saveSnapshot(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        bundle.saveSnapshot(knowledgeBaseName);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void delete() {
@@ -173,23 +173,11 @@ public class TextClassifier extends Modeler {
     public Record predict(String text) {
         TrainingParameters trainingParameters = (TrainingParameters) knowledgeBase.getTrainingParameters();
         
-        Dataframe testDataset = new Dataframe(knowledgeBase.getConfiguration());
-        testDataset.add(
-            new Record(
-                new AssociativeArray(
-                    AbstractTextExtractor.newInstance(trainingParameters.getTextExtractorParameters()).extract(StringCleaner.clear(text))
-                ),
-                null
-            )
+        AssociativeArray x = new AssociativeArray(
+            AbstractTextExtractor.newInstance(trainingParameters.getTextExtractorParameters()).extract(StringCleaner.clear(text))
         );
         
-        predict(testDataset);
-        
-        Record r = testDataset.iterator().next();
-        
-        testDataset.close();
-        
-        return r;
+        return predict(x);
     }
 
     /**
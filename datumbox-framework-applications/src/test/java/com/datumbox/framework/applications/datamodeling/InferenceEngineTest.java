@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.applications.datamodeling;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.core.machinelearning.classification.SoftMaxRegression;
+import com.datumbox.framework.core.machinelearning.preprocessing.MinMaxScaler;
+import com.datumbox.framework.core.machinelearning.preprocessing.OneHotEncoder;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for InferenceEngine.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class InferenceEngineTest extends AbstractTest {
+
+    /**
+     * Test of submit method, of class InferenceEngine.
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        logger.info("testSubmit");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsCategorical(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        Modeler.TrainingParameters trainingParameters = new Modeler.TrainingParameters();
+        trainingParameters.setNumericalScalerTrainingParameters(new MinMaxScaler.TrainingParameters());
+        trainingParameters.setCategoricalEncoderTrainingParameters(new OneHotEncoder.TrainingParameters());
+
+        SoftMaxRegression.TrainingParameters modelTrainingParameters = new SoftMaxRegression.TrainingParameters();
+        modelTrainingParameters.setTotalIterations(200);
+        modelTrainingParameters.setL2(0.001);
+        trainingParameters.setModelerTrainingParameters(modelTrainingParameters);
+
+        Modeler modeler = MLBuilder.create(trainingParameters, configuration);
+        modeler.fit(trainingData);
+
+        Map<Integer, CompletableFuture<Record>> futures = new HashMap<>();
+        try (InferenceEngine<AssociativeArray> instance = InferenceEngine.newInstance(modeler, 4, 10)) {
+            for(Map.Entry<Integer, Record> e : validationData.entries()) {
+                futures.put(e.getKey(), instance.submit(e.getValue().getX()));
+            }
+
+            for(CompletableFuture<Record> future : futures.values()) {
+                future.get();
+            }
+
+            InferenceEngine.Metrics metrics = instance.getMetrics();
+            assertEquals(validationData.size(), metrics.getRequestCount());
+            assertEquals(0L, metrics.getFailedCount());
+            assertTrue(metrics.getBatchCount() <= metrics.getRequestCount());
+            assertTrue(metrics.getLatencyPercentile(50.0) <= metrics.getLatencyPercentile(99.0));
+        }
+
+        modeler.predict(validationData);
+
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record expResult = e.getValue();
+            Record result = futures.get(e.getKey()).get();
+            assertEquals(expResult.getYPredicted(), result.getYPredicted());
+            AssociativeArray expProbabilities = expResult.getYPredictedProbabilities();
+            AssociativeArray probabilities = result.getYPredictedProbabilities();
+            assertEquals(expProbabilities.keySet(), probabilities.keySet());
+            for(Object theClass : expProbabilities.keySet()) {
+                assertEquals(expProbabilities.getDouble(theClass), probabilities.getDouble(theClass), Constants.DOUBLE_ACCURACY_HIGH);
+            }
+        }
+
+        modeler.close();
+        trainingData.close();
+        validationData.close();
+    }
+
+    /**
+     * Test of close method, of class InferenceEngine.
+     */
+    @Test
+    public void testClose() throws Exception {
+        logger.info("testClose");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsNumeric(configuration);
+
+        Modeler.TrainingParameters trainingParameters = new Modeler.TrainingParameters();
+        trainingParameters.setModelerTrainingParameters(new SoftMaxRegression.TrainingParameters());
+
+        Modeler modeler = MLBuilder.create(trainingParameters, configuration);
+        modeler.fit(data[0]);
+
+        //closing from a callback, which runs on the worker thread, does not wait for the worker itself
+        InferenceEngine<AssociativeArray> instance = InferenceEngine.newInstance(modeler, 4, 10);
+        instance.submit(data[1].iterator().next().getX()).thenRun(instance::close).get(10, TimeUnit.SECONDS);
+        instance.close();
+
+        TestUtils.assertThrows(IllegalStateException.class, () -> instance.submit(new AssociativeArray()));
+
+        modeler.close();
+        data[0].close();
+        data[1].close();
+    }
+
+    /**
+     * Test of the failure handling of the worker, of class InferenceEngine. A
+     * failed request does not affect the rest, while an Error closes the engine.
+     */
+    @Test
+    public void testFailure() throws Exception {
+        logger.info("testFailure");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsNumeric(configuration);
+
+        Modeler.TrainingParameters trainingParameters = new Modeler.TrainingParameters();
+        trainingParameters.setModelerTrainingParameters(new SoftMaxRegression.TrainingParameters());
+
+        Modeler modeler = MLBuilder.create(trainingParameters, configuration);
+        modeler.fit(data[0]);
+
+        AssociativeArray xData = data[1].iterator().next().getX();
+        InferenceEngine<String> instance = new InferenceEngine<>(modeler, input -> {
+            if("exception".equals(input)) {
+                throw new IllegalArgumentException("Invalid input.");
+            }
+            else if("error".equals(input)) {
+                throw new AssertionError("Unrecoverable failure.");
+            }
+            return xData;
+        }, 4, 10);
+
+        boolean failed = false;
+        try {
+            instance.submit("exception").get();
+        }
+        catch (ExecutionException ex) {
+            failed = ex.getCause() instanceof IllegalArgumentException;
+        }
+        assertTrue(failed);
+        assertNotNull(instance.submit("valid").get().getYPredicted());
+
+        failed = false;
+        try {
+            instance.submit("error").get();
+        }
+        catch (ExecutionException ex) {
+            failed = ex.getCause() instanceof AssertionError;
+        }
+        assertTrue(failed);
+
+        TestUtils.assertThrows(IllegalStateException.class, () -> instance.submit("valid"));
+        instance.close();
+
+        modeler.close();
+        data[0].close();
+        data[1].close();
+    }
+
+}
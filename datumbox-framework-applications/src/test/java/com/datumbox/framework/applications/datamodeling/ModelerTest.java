@@ -97,7 +97,7 @@ public class ModelerTest extends AbstractTest {
 
         ClassificationMetrics vm = new ClassificationMetrics(validationData);
 
-        double expResult2 = 0.8428731762065095;
+        double expResult2 = 0.8416289592760182;
         assertEquals(expResult2, vm.getMacroF1(), Constants.DOUBLE_ACCURACY_HIGH);
 
         validationData.close();
@@ -162,7 +162,7 @@ public class TextClassifierTest extends AbstractTest {
                 mlParams,
                 fsParams,
                 nsParams,
-                0.9292550977944236,
+                0.9391480730223124,
                 5
         );
     }
@@ -189,7 +189,7 @@ public class TextClassifierTest extends AbstractTest {
                 mlParams,
                 fsParams,
                 nsParams,
-                0.8979999999999999,
+                0.9411031042128604,
                 6
         );
     }
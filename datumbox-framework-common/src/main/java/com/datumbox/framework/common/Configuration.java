@@ -85,6 +85,17 @@ public class Configuration implements Configurable {
         this.concurrencyConfiguration = concurrencyConfiguration;
     }
     
+    /**
+     * Releases eagerly the resources (such as the thread pools) that are held
+     * by the configuration. Calling it is optional since the pools use daemon
+     * threads which terminate when idle. The configuration remains usable.
+     */
+    public void close() {
+        if(concurrencyConfiguration != null) {
+            concurrencyConfiguration.close();
+        }
+    }
+    
     /** {@inheritDoc} */
     @Override
     public void load(Properties properties) {
@@ -91,6 +91,15 @@ public class ConcurrencyConfiguration implements Configurable {
         }
     }
     
+    /**
+     * Releases the thread pool which is associated with this configuration. 
+     * The configuration remains usable; a new pool will be initialized the 
+     * next time a parallel task is executed.
+     */
+    public void close() {
+        ForkJoinPoolRegistry.shutdown(this);
+    }
+    
     /** {@inheritDoc} */
     @Override
     public void load(Properties properties) {
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry which keeps one long-lived ForkJoinPool per ConcurrencyConfiguration.
+ * The pools are created lazily on first use and they are reused by all the
+ * subsequent executions that share the same configuration. The workers of the
+ * pools are daemon threads which terminate on their own after being idle, so
+ * an unused pool does not keep the JVM alive or hold any threads. Calling 
+ * close() on the configuration is optional; it releases the pool eagerly. The
+ * entries of garbage collected configurations are dropped automatically.
+ *
+ * When the parallelism of a configuration changes, its old pool is shut down
+ * as soon as it is replaced. The tasks which are already queued on it are
+ * allowed to finish, and the executions of ThreadMethods which obtained it
+ * before it was replaced resubmit their task to the new pool.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class ForkJoinPoolRegistry {
+
+    private static final Map<ConcurrencyConfiguration, ForkJoinPool> POOLS = new WeakHashMap<>();
+
+    private static final AtomicLong POOLS_CREATED = new AtomicLong(0L);
+
+    private static final AtomicLong TASKS_EXECUTED = new AtomicLong(0L);
+    
+    private static final ForkJoinPool.ForkJoinWorkerThreadFactory DAEMON_THREAD_FACTORY = pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /**
+     * Private constructor; this class contains only static methods.
+     */
+    private ForkJoinPoolRegistry() {
+
+    }
+
+    /**
+     * Returns the pool associated with the provided configuration. If no pool
+     * exists or if the max number of threads of the configuration changed since
+     * the pool was created, a new pool is initialized. A replaced pool is shut
+     * down; the tasks which are already queued on it are allowed to finish.
+     *
+     * @param concurrencyConfiguration
+     * @return
+     */
+    public static ForkJoinPool getPool(ConcurrencyConfiguration concurrencyConfiguration) {
+        int parallelism = concurrencyConfiguration.getMaxNumberOfThreadsPerTask();
+        ForkJoinPool replacedPool = null;
+        ForkJoinPool pool;
+        synchronized(POOLS) {
+            pool = POOLS.get(concurrencyConfiguration);
+            if(pool == null || pool.getParallelism() != parallelism || pool.isShutdown()) {
+                replacedPool = pool;
+                pool = new ForkJoinPool(parallelism, DAEMON_THREAD_FACTORY, null, false);
+                POOLS.put(concurrencyConfiguration, pool);
+                POOLS_CREATED.incrementAndGet();
+            }
+        }
+        if(replacedPool != null) {
+            replacedPool.shutdown();
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts down the pool of the provided configuration. Tasks which are already
+     * submitted are allowed to finish. Any subsequent execution with the same
+     * configuration will initialize a new pool.
+     *
+     * @param concurrencyConfiguration
+     */
+    public static void shutdown(ConcurrencyConfiguration concurrencyConfiguration) {
+        ForkJoinPool pool;
+        synchronized(POOLS) {
+            pool = POOLS.remove(concurrencyConfiguration);
+        }
+        if(pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks whether the current thread is a worker of the provided pool.
+     *
+     * @param pool
+     * @return
+     */
+    static boolean isWorkerOf(ForkJoinPool pool) {
+        Thread currentThread = Thread.currentThread();
+        return currentThread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread)currentThread).getPool() == pool;
+    }
+
+    /**
+     * Increases the counter of executed tasks.
+     */
+    static void incrementTasksExecuted() {
+        TASKS_EXECUTED.incrementAndGet();
+    }
+
+    /**
+     * Returns the total number of pools that were created by the registry.
+     *
+     * @return
+     */
+    public static long getPoolsCreated() {
+        return POOLS_CREATED.get();
+    }
+
+    /**
+     * Returns the total number of tasks that were executed on the registered pools.
+     *
+     * @return
+     */
+    public static long getTasksExecuted() {
+        return TASKS_EXECUTED.get();
+    }
+
+    /**
+     * Returns the number of pools that are currently alive.
+     *
+     * @return
+     */
+    public static int getActivePools() {
+        synchronized(POOLS) {
+            return POOLS.size();
+        }
+    }
+
+    /**
+     * Returns an estimate of the total number of tasks and submissions which
+     * are currently queued on the registered pools.
+     *
+     * @return
+     */
+    public static long getQueueDepth() {
+        List<ForkJoinPool> pools;
+        synchronized(POOLS) {
+            pools = new ArrayList<>(POOLS.values());
+        }
+        long queueDepth = 0L;
+        for(ForkJoinPool pool : pools) {
+            queueDepth += pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+        }
+        return queueDepth;
+    }
+
+}
@@ -18,10 +18,15 @@ package com.datumbox.framework.common.concurrency;
 import java.util.Comparator;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -56,6 +61,19 @@ public class ForkJoinStream {
         ThreadMethods.forkJoinExecution(runnable, concurrencyConfiguration, stream.isParallel());
     }
     
+    /**
+     * Executes forEach on the provided IntStream. If the Stream is parallel, it
+     * is executed using the custom pool, else it is executed directly from the
+     * main thread.
+     * 
+     * @param stream
+     * @param action 
+     */
+    public void forEach(IntStream stream, IntConsumer action) {
+        Runnable runnable = () -> stream.forEach(action);
+        ThreadMethods.forkJoinExecution(runnable, concurrencyConfiguration, stream.isParallel());
+    }
+    
     /**
      * Executes map on the provided stream. If the Stream is parallel, it is
      * executed using the custom pool, else it is executed directly from the
@@ -90,6 +108,31 @@ public class ForkJoinStream {
         return ThreadMethods.forkJoinExecution(callable, concurrencyConfiguration, stream.isParallel());
     }
     
+    /**
+     * Executes collect on the provided IntStream without boxing its elements.
+     * Every worker accumulates in its own container and the containers are
+     * combined with the combiner, which returns the one that holds the result.
+     * If the Stream is parallel, it is executed using the custom pool, else it
+     * is executed directly from the main thread.
+     * 
+     * @param <R>
+     * @param stream
+     * @param supplier
+     * @param accumulator
+     * @param combiner
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R collect(IntStream stream, Supplier<R> supplier, ObjIntConsumer<R> accumulator, BinaryOperator<R> combiner) {
+        //the containers are kept in holders since the combiner may return either of them
+        Callable<R> callable = () -> (R) stream.collect(
+                () -> new Object[]{supplier.get()}, 
+                (holder, i) -> accumulator.accept((R) holder[0], i), 
+                (left, right) -> left[0] = combiner.apply((R) left[0], (R) right[0])
+        )[0];
+        return ThreadMethods.forkJoinExecution(callable, concurrencyConfiguration, stream.isParallel());
+    }
+    
     /**
      * Executes min on the provided stream using the provided collector. 
      * If the Stream is parallel, it is executed using the custom pool, else it 
@@ -19,6 +19,7 @@ import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Spliterator;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -70,6 +71,22 @@ public class StreamMethods {
         }
     }
     
+    /**
+     * Converts an IntStream to parallel or sequential.
+     * 
+     * @param stream
+     * @param parallel
+     * @return 
+     */
+    public static IntStream stream(IntStream stream, boolean parallel) {
+        if(parallel) {
+            return stream.parallel();
+        }
+        else {
+            return stream.sequential();
+        }
+    }
+    
     /**
      * Converts an iterator to a stream.
      * 
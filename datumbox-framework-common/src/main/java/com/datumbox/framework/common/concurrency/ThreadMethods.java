@@ -66,7 +66,8 @@ public class ThreadMethods {
     
     /**
      * Alternative to parallelStreams() which executes a callable in a separate
-     * pool.
+     * pool. The pool is shared among all the executions of the same 
+     * configuration and it is obtained from the ForkJoinPoolRegistry.
      * 
      * @param <T>
      * @param callable 
@@ -76,48 +77,140 @@ public class ThreadMethods {
      */
     public static <T> T forkJoinExecution(Callable<T> callable, ConcurrencyConfiguration concurrencyConfiguration, boolean parallelStream) {
         if(parallelStream && concurrencyConfiguration.isParallelized()) {
+            ForkJoinPool pool = ForkJoinPoolRegistry.getPool(concurrencyConfiguration);
+            ForkJoinPoolRegistry.incrementTasksExecuted();
+            if(ForkJoinPoolRegistry.isWorkerOf(pool)) {
+                //we are already inside the pool; the stream will use it directly
+                return call(callable);
+            }
+            //the original exception is kept because the ForkJoinTask replaces it with a copy
+            Throwable[] failure = new Throwable[1];
+            Callable<T> task = () -> {
+                try {
+                    return callable.call();
+                }
+                catch (Exception | Error ex) {
+                    failure[0] = ex;
+                    throw ex;
+                }
+            };
             try {
-                ForkJoinPool pool = new ForkJoinPool(concurrencyConfiguration.getMaxNumberOfThreadsPerTask());
-                
-                T results = pool.submit(callable).get();
-                pool.shutdown();
-                return results;
+                return submit(pool, task, concurrencyConfiguration).get();
             } 
-            catch (InterruptedException | ExecutionException ex) {
+            catch (InterruptedException ex) {
                 throw new RuntimeException(ex);
             }
+            catch (ExecutionException ex) {
+                throw rethrow(failure[0] != null ? failure[0] : ex.getCause());
+            }
         }
         else {
-            try {
-                return callable.call();
-            } 
-            catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
+            return call(callable);
         }
     }
     
     /**
      * Alternative to parallelStreams() which executes a runnable in a separate
-     * pool.
+     * pool. The pool is shared among all the executions of the same 
+     * configuration and it is obtained from the ForkJoinPoolRegistry.
      * 
      * @param runnable 
      * @param concurrencyConfiguration
      * @param parallelStream 
      */
     public static void forkJoinExecution(Runnable runnable, ConcurrencyConfiguration concurrencyConfiguration, boolean parallelStream) {
-        if(parallelStream && concurrencyConfiguration.isParallelized()) {
+        forkJoinExecution(() -> {
+            runnable.run();
+            return null;
+        }, concurrencyConfiguration, parallelStream);
+    }
+    
+    /**
+     * Submits the callable to the pool. If the pool was shut down because it 
+     * was replaced after the caller obtained it, the callable is submitted to 
+     * the current pool of the configuration.
+     * 
+     * @param <T>
+     * @param pool
+     * @param callable
+     * @param concurrencyConfiguration
+     * @return 
+     */
+    private static <T> Future<T> submit(ForkJoinPool pool, Callable<T> callable, ConcurrencyConfiguration concurrencyConfiguration) {
+        while(true) {
             try {
-                ForkJoinPool pool = new ForkJoinPool(concurrencyConfiguration.getMaxNumberOfThreadsPerTask());
-                pool.submit(runnable).get();
-                pool.shutdown();
-            } 
-            catch (InterruptedException | ExecutionException ex) {
-                throw new RuntimeException(ex);
+                return pool.submit(callable);
+            }
+            catch (RejectedExecutionException ex) {
+                if(!pool.isShutdown()) {
+                    throw ex;
+                }
+                pool = ForkJoinPoolRegistry.getPool(concurrencyConfiguration);
             }
         }
-        else {
-            runnable.run();
+    }
+    
+    /**
+     * Calls the callable and rethrows the unchecked exceptions as they are. 
+     * Checked exceptions are wrapped in a RuntimeException.
+     * 
+     * @param <T>
+     * @param callable
+     * @return 
+     */
+    private static <T> T call(Callable<T> callable) {
+        try {
+            return callable.call();
+        }
+        catch (RuntimeException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Returns an exception of the same type as the unchecked exception that was
+     * thrown by the task, with the original one as its cause, so that the stack
+     * trace covers both the caller and the worker. If the type can't be
+     * instantiated, the original exception is returned. Checked exceptions are
+     * wrapped in a RuntimeException and Errors are rethrown in the same way.
+     * 
+     * @param cause
+     * @return 
+     */
+    private static RuntimeException rethrow(Throwable cause) {
+        if(cause instanceof RuntimeException) {
+            return (RuntimeException) withCause(cause);
+        }
+        else if(cause instanceof Error) {
+            throw (Error) withCause(cause);
+        }
+        return new RuntimeException(cause);
+    }
+    
+    /**
+     * Creates a new exception of the same type and message which is caused by 
+     * the provided one, or returns the provided one if that is not possible.
+     * 
+     * @param cause
+     * @return 
+     */
+    private static Throwable withCause(Throwable cause) {
+        try {
+            return cause.getClass().getConstructor(String.class, Throwable.class).newInstance(cause.getMessage(), cause);
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            //the type has no such constructor; try the message-only one
+        }
+        try {
+            Throwable copy = cause.getClass().getConstructor(String.class).newInstance(cause.getMessage());
+            copy.initCause(cause);
+            return copy;
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            return cause;
         }
     }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.dataobjects;
+
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+import com.datumbox.framework.common.storage.serialization.Codec;
+import com.datumbox.framework.common.storage.serialization.CodecProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Registers the codecs of the data structures of the framework in the BinarySerializer.
+ * The codecs write the internal Map or Collection of the data structures, so the
+ * type of the internal data (for example an unmodifiable or a concurrent map) is
+ * preserved.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class DataStructureCodecProvider implements CodecProvider {
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void registerCodecs() {
+        BinarySerializer.register(1, TypeInference.DataType.class, new DataTypeCodec());
+        BinarySerializer.register(2, AssociativeArray.class, new InternalDataCodec<>(data -> new AssociativeArray((Map<Object, Object>) data)));
+        BinarySerializer.register(3, AssociativeArray2D.class, new InternalDataCodec<>(data -> new AssociativeArray2D((Map<Object, AssociativeArray>) data)));
+        BinarySerializer.register(4, DataTable2D.class, new InternalDataCodec<>(data -> new DataTable2D((Map<Object, AssociativeArray>) data)));
+        BinarySerializer.register(5, FlatDataList.class, new InternalDataCodec<>(data -> new FlatDataList((List<Object>) data)));
+        BinarySerializer.register(6, FlatDataCollection.class, new InternalDataCodec<>(data -> new FlatDataCollection((Collection<Object>) data)));
+        BinarySerializer.register(7, TransposeDataList.class, new InternalDataCodec<>(data -> new TransposeDataList((Map<Object, FlatDataList>) data)));
+        BinarySerializer.register(8, TransposeDataCollection.class, new InternalDataCodec<>(data -> new TransposeDataCollection((Map<Object, FlatDataCollection>) data)));
+        BinarySerializer.register(9, TransposeDataCollection2D.class, new InternalDataCodec<>(data -> new TransposeDataCollection2D((Map<Object, TransposeDataCollection>) data)));
+    }
+
+    /**
+     * Writes the DataTypes by their ordinal.
+     */
+    private static class DataTypeCodec implements Codec<TypeInference.DataType> {
+        private static final TypeInference.DataType[] VALUES = TypeInference.DataType.values();
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, TypeInference.DataType value) throws IOException {
+            BinarySerializer.writeVarInt(out, value.ordinal());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public TypeInference.DataType read(DataInput in) throws IOException {
+            return VALUES[BinarySerializer.readVarInt(in)];
+        }
+    }
+
+    /**
+     * Writes the internal data of a data structure and wraps them back on read.
+     *
+     * @param <T>
+     */
+    private static class InternalDataCodec<T extends AbstractDataStructure<?>> implements Codec<T> {
+        private final Function<Object, T> constructor;
+
+        private InternalDataCodec(Function<Object, T> constructor) {
+            this.constructor = constructor;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, T value) throws IOException {
+            BinarySerializer.writeObject(out, value.internalData);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public T read(DataInput in) throws IOException {
+            return constructor.apply(BinarySerializer.readObject(in));
+        }
+    }
+
+}
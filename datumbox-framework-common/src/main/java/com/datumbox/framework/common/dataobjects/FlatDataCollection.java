@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 
 /**
  * The FlatDataCollection is a data structure that stores internally a {@literal Collection<Object>}. 
@@ -92,6 +93,12 @@ public class FlatDataCollection extends AbstractDataStructureCollection<Collecti
         return internalData.iterator();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Spliterator<Object> spliterator() {
+        return internalData.spliterator();
+    }
+
     /** {@inheritDoc} */
     @Override
     public <T> T[] toArray(T[] a) {
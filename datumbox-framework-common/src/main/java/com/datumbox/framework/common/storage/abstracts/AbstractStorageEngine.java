@@ -15,6 +15,7 @@
  */
 package com.datumbox.framework.common.storage.abstracts;
 
+import com.datumbox.framework.common.storage.collections.SegmentedArrayMap;
 import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
@@ -99,6 +100,13 @@ public abstract class AbstractStorageEngine<SC extends StorageConfiguration> imp
         isClosed.set(true);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public <K,V> void putAll(Map<K,V> map, Map<? extends K, ? extends V> entries) {
+        assertConnectionOpen();
+        map.putAll(entries);
+    }
+    
     /**
      * Ensures the connection is not closed.
      */
@@ -108,6 +116,23 @@ public abstract class AbstractStorageEngine<SC extends StorageConfiguration> imp
         }
     }
 
+    /**
+     * Creates a new in-memory Map of ARRAYMAP type. The ARRAYMAP type supports
+     * only Integer keys.
+     *
+     * @param keyClass
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected <K,V> Map<K,V> newArrayMap(Class<K> keyClass) {
+        if(keyClass != Integer.class) {
+            throw new IllegalArgumentException("The ARRAYMAP type supports only Integer keys.");
+        }
+        return (Map<K,V>) new SegmentedArrayMap<V>();
+    }
+
     /**
      * This method is called before serializing the objects. It extracts all the not-serializable BigMap references
      * of the provided object and stores them in a Map. Then it replaces all the references of the provided object
@@ -0,0 +1,714 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.collections;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Write-behind LRU cache of deserialized objects which sits in front of a Map of
+ * a StorageEngine. The cache is bounded by the estimated size of its entries in
+ * bytes and it is split in segments with separate locks. The reads are served from
+ * the cache when possible, the writes update only the cache and the modified
+ * entries are written to the underlying Map in batches when they are evicted or
+ * when the cache is flushed.
+ *
+ * Since the underlying Map is not read on writes, the put() returns the previous
+ * value only if it is cached. Whether a modified key is new to the underlying Map
+ * is resolved lazily by the size(), which looks up only the keys that were written
+ * since their last write back, so it does not need to flush the cache. The evicted
+ * entries are written back after the lock of their segment is released and they
+ * remain readable from the cache until the write completes. The iterators flush
+ * the cache first; they walk the keys of the underlying Map and read the values
+ * through the cache. The putAll() writes directly to the underlying Map with one
+ * call.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <K>
+ * @param <V>
+ */
+public class CachedMap<K,V> extends AbstractMap<K,V> {
+
+    /**
+     * The estimated overhead of every cached entry in bytes.
+     */
+    private static final long ENTRY_OVERHEAD = 64L;
+
+    private final Map<K,V> map;
+
+    private final Segment<K,V>[] segments;
+
+    private final ToLongFunction<Object> weigher;
+
+    private final Metrics metrics = new Metrics();
+
+    private Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Public constructor which weighs the entries with an estimate of their heap
+     * size. The estimate is sampled per class, so only some of the objects of
+     * every class are measured.
+     *
+     * @param map
+     * @param maxBytes
+     * @param concurrencyLevel
+     */
+    public CachedMap(Map<K,V> map, long maxBytes, int concurrencyLevel) {
+        this(map, maxBytes, concurrencyLevel, ObjectSizeEstimator.sampled());
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param map the underlying Map
+     * @param maxBytes the maximum total weight of the cached entries
+     * @param concurrencyLevel the number of segments of the cache
+     * @param weigher estimates the size of the keys and values in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public CachedMap(Map<K,V> map, long maxBytes, int concurrencyLevel, ToLongFunction<Object> weigher) {
+        if(maxBytes <= 0L || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("The max bytes and the concurrency level must be positive.");
+        }
+        this.map = map;
+        this.weigher = weigher;
+
+        segments = (Segment<K,V>[]) new Segment<?,?>[concurrencyLevel];
+        for(int i=0;i<concurrencyLevel;i++) {
+            segments[i] = new Segment<>(Math.max(1L, maxBytes/concurrencyLevel));
+        }
+    }
+
+    /**
+     * Getter for the metrics of the cache.
+     *
+     * @return
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the estimated size of the cached entries in bytes.
+     *
+     * @return
+     */
+    public long getWeightedSize() {
+        long bytes = 0L;
+        for(Segment<K,V> segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes all the modified entries to the underlying Map.
+     */
+    public void flush() {
+        for(Segment<K,V> segment : segments) {
+            boolean pending;
+            synchronized (segment) {
+                for(Map.Entry<K, Node<V>> e : segment.entries.entrySet()) {
+                    Node<V> node = e.getValue();
+                    if(node.dirty) {
+                        segment.pendingWrites.put(e.getKey(), node.value);
+                        clean(segment, node);
+                    }
+                }
+                pending = !segment.pendingWrites.isEmpty();
+            }
+            if(pending) {
+                writeBack(segment);
+            }
+        }
+    }
+
+    /**
+     * Empties the cache without writing the modified entries to the underlying Map.
+     * It should be used only when the underlying Map is deleted.
+     */
+    public void discard() {
+        for(Segment<K,V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.pendingWrites.clear();
+                segment.bytes = 0L;
+                segment.pendingInserts = 0L;
+                segment.unresolved = 0L;
+                segment.writes++;
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        long pendingInserts = 0L;
+        for(Segment<K,V> segment : segments) {
+            resolve(segment);
+            synchronized (segment) {
+                pendingInserts += segment.pendingInserts;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, map.size() + pendingInserts);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        Segment<K,V> segment = segmentOf(key);
+        synchronized (segment) {
+            if(segment.entries.containsKey(key) || segment.pendingWrites.containsKey(key)) {
+                return true;
+            }
+        }
+        return map.containsKey(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Segment<K,V> segment = segmentOf(key);
+        long stamp;
+        synchronized (segment) {
+            Node<V> node = segment.entries.get(key);
+            if(node != null) {
+                metrics.hitCount.incrementAndGet();
+                return node.value;
+            }
+            //the evicted entries are served until they are written back
+            V pending = segment.pendingWrites.get(key);
+            if(pending != null) {
+                metrics.hitCount.incrementAndGet();
+                return pending;
+            }
+            stamp = segment.writes;
+        }
+        metrics.missCount.incrementAndGet();
+
+        //read the underlying map without holding the lock
+        V value = map.get(key);
+        if(value != null) {
+            boolean evicted = false;
+            synchronized (segment) {
+                //cache it only if the segment was not modified in the meantime
+                if(segment.writes == stamp && !segment.entries.containsKey(key)) {
+                    evicted = insert(segment, (K) key, value, false, false, false);
+                }
+            }
+            if(evicted) {
+                writeBack(segment);
+            }
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V put(K key, V value) {
+        Segment<K,V> segment = segmentOf(key);
+        V previousValue;
+        boolean evicted;
+        synchronized (segment) {
+            segment.writes++;
+            Node<V> previous = segment.entries.get(key);
+            if(previous != null) {
+                previousValue = previous.value;
+                evicted = insert(segment, key, value, true, previous.pendingInsert, previous.unresolved);
+            }
+            else {
+                //a key which waits to be written back is known to be stored, any other is resolved by the size()
+                previousValue = segment.pendingWrites.get(key);
+                evicted = insert(segment, key, value, true, false, previousValue == null);
+            }
+        }
+        if(evicted) {
+            writeBack(segment);
+        }
+        return previousValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V remove(Object key) {
+        Segment<K,V> segment = segmentOf(key);
+        //wait for any write back of the key so that it does not restore it after the removal
+        segment.writeLock.lock();
+        try {
+            synchronized (segment) {
+                segment.writes++;
+                Node<V> node = segment.entries.remove(key);
+                if(node != null) {
+                    unlink(segment, node);
+                }
+                V pending = segment.pendingWrites.remove(key);
+                V previous = map.remove(key);
+                return node!=null?node.value:(pending!=null?pending:previous);
+            }
+        }
+        finally {
+            segment.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the entries directly to the underlying Map with a single putAll()
+     * and invalidates their cached values.
+     *
+     * @param m
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        lockWrites();
+        try {
+            //invalidate before the write so that no older modified value is written back after it
+            invalidate(m.keySet());
+            map.putAll(m);
+            //invalidate again any value that was read from the underlying map during the write
+            invalidate(m.keySet());
+        }
+        finally {
+            unlockWrites();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        lockWrites();
+        try {
+            discard();
+            map.clear();
+        }
+        finally {
+            unlockWrites();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        if(entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K,V>>() {
+                @Override
+                public int size() {
+                    return CachedMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    CachedMap.this.clear();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K,V>> iterator() {
+                    flush();
+                    Iterator<K> keys = map.keySet().iterator();
+                    return new Iterator<Map.Entry<K,V>>() {
+                        private Map.Entry<K,V> next = advance();
+                        private K lastKey;
+
+                        private Map.Entry<K,V> advance() {
+                            while(keys.hasNext()) {
+                                K key = keys.next();
+                                V value = CachedMap.this.get(key);
+                                if(value != null) {
+                                    return new AbstractMap.SimpleEntry<K,V>(key, value) {
+                                        private static final long serialVersionUID = 1L;
+
+                                        @Override
+                                        public V setValue(V value) {
+                                            CachedMap.this.put(getKey(), value);
+                                            return super.setValue(value);
+                                        }
+                                    };
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Map.Entry<K,V> next() {
+                            if(next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<K,V> current = next;
+                            lastKey = current.getKey();
+                            next = advance();
+                            return current;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if(lastKey == null) {
+                                throw new IllegalStateException();
+                            }
+                            CachedMap.this.remove(lastKey);
+                            lastKey = null;
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Returns the segment of the key.
+     *
+     * @param key
+     * @return
+     */
+    private Segment<K,V> segmentOf(Object key) {
+        if(segments.length == 1) {
+            return segments[0];
+        }
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * Removes the keys from the cache without writing them to the underlying Map.
+     *
+     * @param keys
+     */
+    private void invalidate(Collection<?> keys) {
+        for(Object key : keys) {
+            Segment<K,V> segment = segmentOf(key);
+            synchronized (segment) {
+                segment.writes++;
+                Node<V> node = segment.entries.remove(key);
+                if(node != null) {
+                    unlink(segment, node);
+                }
+                segment.pendingWrites.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Acquires the write locks of all the segments in order, so that no batch is
+     * written back until they are released.
+     */
+    private void lockWrites() {
+        for(Segment<K,V> segment : segments) {
+            segment.writeLock.lock();
+        }
+    }
+
+    /**
+     * Releases the write locks of all the segments.
+     */
+    private void unlockWrites() {
+        for(int i=segments.length-1;i>=0;i--) {
+            segments[i].writeLock.unlock();
+        }
+    }
+
+    /**
+     * Looks up in the underlying Map the modified keys of the segment which are
+     * not known to be stored in it and counts the missing ones as pending inserts.
+     * The lookups are done without holding the lock of the segment.
+     *
+     * @param segment
+     */
+    private void resolve(Segment<K,V> segment) {
+        Map<K, Node<V>> unresolved = new HashMap<>();
+        synchronized (segment) {
+            if(segment.unresolved == 0L) {
+                return;
+            }
+            for(Map.Entry<K, Node<V>> e : segment.entries.entrySet()) {
+                if(e.getValue().unresolved) {
+                    unresolved.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+
+        Map<K, Boolean> stored = new HashMap<>();
+        for(K key : unresolved.keySet()) {
+            stored.put(key, map.containsKey(key));
+        }
+
+        synchronized (segment) {
+            for(Map.Entry<K, Node<V>> e : unresolved.entrySet()) {
+                Node<V> node = e.getValue();
+                //the nodes which were replaced, removed or written back in the meantime are already resolved
+                if(node.unresolved) {
+                    node.unresolved = false;
+                    segment.unresolved--;
+                    if(!stored.get(e.getKey())) {
+                        node.pendingInsert = true;
+                        segment.pendingInserts++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the entry in the segment and evicts the least recently used entries
+     * if the segment exceeds its size. The modified entries which are evicted are
+     * queued for write back and the caller must call writeBack() after releasing
+     * the lock of the segment, which must be held while calling this method.
+     *
+     * @param segment
+     * @param key
+     * @param value
+     * @param dirty
+     * @param pendingInsert
+     * @param unresolved
+     * @return whether modified entries were evicted
+     */
+    private boolean insert(Segment<K,V> segment, K key, V value, boolean dirty, boolean pendingInsert, boolean unresolved) {
+        long weight = ENTRY_OVERHEAD + weigher.applyAsLong(key) + weigher.applyAsLong(value);
+        Node<V> previous = segment.entries.put(key, new Node<>(value, weight, dirty, pendingInsert, unresolved));
+        if(previous != null) {
+            unlink(segment, previous);
+        }
+        segment.bytes += weight;
+        if(pendingInsert) {
+            segment.pendingInserts++;
+        }
+        if(unresolved) {
+            segment.unresolved++;
+        }
+
+        boolean evicted = false;
+        if(segment.bytes > segment.maxBytes) {
+            Iterator<Map.Entry<K, Node<V>>> it = segment.entries.entrySet().iterator();
+            while(segment.bytes > segment.maxBytes && it.hasNext()) {
+                Map.Entry<K, Node<V>> eldest = it.next();
+                Node<V> node = eldest.getValue();
+                if(node.dirty) {
+                    segment.pendingWrites.put(eldest.getKey(), node.value);
+                    clean(segment, node);
+                    evicted = true;
+                }
+                it.remove();
+                segment.bytes -= node.weight;
+                metrics.evictionCount.incrementAndGet();
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Marks the node as written to the underlying Map. It must be called while
+     * holding the lock of the segment.
+     *
+     * @param segment
+     * @param node
+     */
+    private void clean(Segment<K,V> segment, Node<V> node) {
+        node.dirty = false;
+        settle(segment, node);
+    }
+
+    /**
+     * Updates the size, the pending inserts and the unresolved keys of the
+     * segment after the node was removed from it. It must be called while
+     * holding the lock of the segment.
+     *
+     * @param segment
+     * @param node
+     */
+    private void unlink(Segment<K,V> segment, Node<V> node) {
+        segment.bytes -= node.weight;
+        settle(segment, node);
+    }
+
+    /**
+     * Clears the pending insert and unresolved flags of the node and updates
+     * the counters of the segment. It must be called while holding the lock of
+     * the segment.
+     *
+     * @param segment
+     * @param node
+     */
+    private void settle(Segment<K,V> segment, Node<V> node) {
+        if(node.pendingInsert) {
+            node.pendingInsert = false;
+            segment.pendingInserts--;
+        }
+        if(node.unresolved) {
+            node.unresolved = false;
+            segment.unresolved--;
+        }
+    }
+
+    /**
+     * Writes the queued entries of the segment to the underlying Map. The batch
+     * is copied under the lock of the segment and written after releasing it;
+     * the write lock keeps the batches of the segment in order. The entries are
+     * dequeued after the write unless they were queued again in the meantime.
+     *
+     * @param segment
+     */
+    private void writeBack(Segment<K,V> segment) {
+        segment.writeLock.lock();
+        try {
+            Map<K,V> batch;
+            synchronized (segment) {
+                if(segment.pendingWrites.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(segment.pendingWrites);
+            }
+
+            map.putAll(batch);
+            metrics.writeBackCount.addAndGet(batch.size());
+
+            synchronized (segment) {
+                for(Map.Entry<K,V> e : batch.entrySet()) {
+                    segment.pendingWrites.remove(e.getKey(), e.getValue());
+                }
+            }
+        }
+        finally {
+            segment.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Segment of the cache with its own LRU order and size.
+     *
+     * @param <K>
+     * @param <V>
+     */
+    private static class Segment<K,V> {
+        private final LinkedHashMap<K, Node<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<K,V> pendingWrites = new HashMap<>();
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final long maxBytes;
+        private long bytes = 0L;
+        private long writes = 0L;
+        private long pendingInserts = 0L;
+        private long unresolved = 0L;
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * Cached value with its weight, its modification flag, whether its key is
+     * missing from the underlying Map and whether this is not yet known.
+     *
+     * @param <V>
+     */
+    private static class Node<V> {
+        private final V value;
+        private final long weight;
+        private boolean dirty;
+        private boolean pendingInsert;
+        private boolean unresolved;
+
+        private Node(V value, long weight, boolean dirty, boolean pendingInsert, boolean unresolved) {
+            this.value = value;
+            this.weight = weight;
+            this.dirty = dirty;
+            this.pendingInsert = pendingInsert;
+            this.unresolved = unresolved;
+        }
+    }
+
+    /**
+     * The metrics of the cache.
+     */
+    public static class Metrics {
+
+        private final AtomicLong hitCount = new AtomicLong(0L);
+
+        private final AtomicLong missCount = new AtomicLong(0L);
+
+        private final AtomicLong evictionCount = new AtomicLong(0L);
+
+        private final AtomicLong writeBackCount = new AtomicLong(0L);
+
+        /**
+         * Protected constructor.
+         */
+        protected Metrics() {
+
+        }
+
+        /**
+         * Returns the number of reads which were served from the cache.
+         *
+         * @return
+         */
+        public long getHitCount() {
+            return hitCount.get();
+        }
+
+        /**
+         * Returns the number of reads which were served from the underlying Map.
+         *
+         * @return
+         */
+        public long getMissCount() {
+            return missCount.get();
+        }
+
+        /**
+         * Returns the ratio of reads which were served from the cache.
+         *
+         * @return
+         */
+        public double getHitRate() {
+            long hits = hitCount.get();
+            long total = hits + missCount.get();
+            return total>0?hits/(double)total:0.0;
+        }
+
+        /**
+         * Returns the number of entries which were evicted from the cache.
+         *
+         * @return
+         */
+        public long getEvictionCount() {
+            return evictionCount.get();
+        }
+
+        /**
+         * Returns the number of modified entries which were written to the underlying Map.
+         *
+         * @return
+         */
+        public long getWriteBackCount() {
+            return writeBackCount.get();
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.collections;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Estimates the heap size of objects in bytes, assuming a 64-bit JVM with
+ * compressed references. The framework classes are measured by walking their
+ * fields, while the JDK Collections and Maps are measured through their public
+ * API; the large ones are sampled and their size is extrapolated. The estimate
+ * is meant for weighing cached objects and not for exact accounting.
+ *
+ * Walking the fields of every object is expensive, so the sampled() weigher
+ * measures only some of the objects of every class and uses the average size
+ * of the class for the rest.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int MAP_ENTRY = 32 + REFERENCE;
+
+    private static final int COLLECTION_NODE = 24;
+
+    private static final int MAX_SAMPLES = 64;
+
+    /**
+     * The number of objects of every class which are always measured by the sampled weigher.
+     */
+    private static final long MEASURED_OBJECTS = 16L;
+
+    /**
+     * After the first objects, the sampled weigher measures one in every this many objects of a class.
+     */
+    private static final long SAMPLING_INTERVAL = 64L;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> klass) {
+            List<Field> fields = new ArrayList<>();
+            for(Class<?> c = klass; c != null && !isJdkClass(c); c = c.getSuperclass()) {
+                for(Field field : c.getDeclaredFields()) {
+                    if(!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[fields.size()]);
+        }
+    };
+
+    /**
+     * Returns the estimated size of the object and of all the objects it references.
+     *
+     * @param obj
+     * @return
+     */
+    static long estimate(Object obj) {
+        return estimate(obj, new IdentityHashMap<>());
+    }
+
+    /**
+     * Returns a weigher which measures the first objects of every class and
+     * then one in every SAMPLING_INTERVAL objects; the rest get the average
+     * size of the measured objects of their class. The Strings, the boxed
+     * primitives and the primitive arrays are cheap to measure and they are
+     * always measured.
+     *
+     * @return
+     */
+    static ToLongFunction<Object> sampled() {
+        Map<Class<?>, AtomicLong[]> statistics = new ConcurrentHashMap<>();
+        return obj -> {
+            if(obj == null || isCheap(obj)) {
+                return estimate(obj);
+            }
+
+            //the counters are the number of objects seen, the number of measured objects and their total size
+            AtomicLong[] counters = statistics.computeIfAbsent(obj.getClass(), k -> new AtomicLong[]{new AtomicLong(), new AtomicLong(), new AtomicLong()});
+            long seen = counters[0].getAndIncrement();
+            if(seen < MEASURED_OBJECTS || seen % SAMPLING_INTERVAL == 0L) {
+                long size = estimate(obj);
+                counters[2].addAndGet(size);
+                counters[1].incrementAndGet();
+                return size;
+            }
+            return counters[2].get() / Math.max(1L, counters[1].get());
+        };
+    }
+
+    private static boolean isCheap(Object obj) {
+        return obj instanceof String || obj instanceof Number || obj instanceof Boolean || obj instanceof Character || obj instanceof Enum || (obj.getClass().isArray() && obj.getClass().getComponentType().isPrimitive());
+    }
+
+    private static long estimate(Object obj, Map<Object, Boolean> visited) {
+        if(obj == null || obj instanceof Enum || visited.put(obj, Boolean.TRUE) != null) {
+            return 0L;
+        }
+
+        if(obj instanceof String) {
+            //compact strings of LATIN1 characters
+            return align(OBJECT_HEADER + 8 + REFERENCE) + align(ARRAY_HEADER + ((String) obj).length());
+        }
+        else if(obj instanceof Number || obj instanceof Boolean || obj instanceof Character) {
+            return align(OBJECT_HEADER + 8);
+        }
+
+        Class<?> klass = obj.getClass();
+        if(klass.isArray()) {
+            int length = Array.getLength(obj);
+            Class<?> component = klass.getComponentType();
+            if(component.isPrimitive()) {
+                return align(ARRAY_HEADER + (long)length * primitiveSize(component));
+            }
+            return align(ARRAY_HEADER + (long)length * REFERENCE) + sample(Arrays.asList((Object[]) obj), length, visited);
+        }
+        else if(obj instanceof Map) {
+            Map<?,?> map = (Map<?,?>) obj;
+            int size = map.size();
+            long total = 0L;
+            int samples = 0;
+            for(Map.Entry<?,?> entry : map.entrySet()) {
+                if(samples++ >= MAX_SAMPLES) {
+                    break;
+                }
+                total += estimate(entry.getKey(), visited) + estimate(entry.getValue(), visited);
+            }
+            return align(OBJECT_HEADER + 40) + align(ARRAY_HEADER + (long)size * 2 * REFERENCE) + (long)size * MAP_ENTRY + extrapolate(total, samples, size);
+        }
+        else if(obj instanceof Collection) {
+            Collection<?> collection = (Collection<?>) obj;
+            int size = collection.size();
+            return align(OBJECT_HEADER + 24) + (long)size * COLLECTION_NODE + sample(collection, size, visited);
+        }
+        else if(isJdkClass(klass)) {
+            //opaque JDK object
+            return align(OBJECT_HEADER + 4 * REFERENCE);
+        }
+
+        long shallow = OBJECT_HEADER;
+        long deep = 0L;
+        for(Field field : FIELDS.get(klass)) {
+            Class<?> type = field.getType();
+            if(type.isPrimitive()) {
+                shallow += primitiveSize(type);
+            }
+            else {
+                shallow += REFERENCE;
+                try {
+                    deep += estimate(field.get(obj), visited);
+                }
+                catch (IllegalAccessException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+        return align(shallow) + deep;
+    }
+
+    private static long sample(Iterable<?> elements, int size, Map<Object, Boolean> visited) {
+        long total = 0L;
+        int samples = 0;
+        for(Object element : elements) {
+            if(samples++ >= MAX_SAMPLES) {
+                break;
+            }
+            total += estimate(element, visited);
+        }
+        return extrapolate(total, samples, size);
+    }
+
+    private static long extrapolate(long total, int samples, int size) {
+        samples = Math.min(samples, MAX_SAMPLES);
+        if(samples == 0 || samples >= size) {
+            return total;
+        }
+        return total * size / samples;
+    }
+
+    private static boolean isJdkClass(Class<?> klass) {
+        String name = klass.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.");
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if(type == long.class || type == double.class) {
+            return 8;
+        }
+        else if(type == int.class || type == float.class) {
+            return 4;
+        }
+        else if(type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Map with non-negative Integer keys which stores its values in a growable list
+ * of fixed-size array segments, using the key as the position of the value. It is
+ * designed for dense, monotonically assigned ids (such as the record ids of a
+ * Dataframe): lookups and updates are O(1), no tree or hash nodes are allocated
+ * and the keys are iterated in ascending order (similar to a TreeMap).
+ *
+ * The reads and writes of single keys are thread-safe and lock-free once the
+ * segment of the key is allocated. The iterators are weakly consistent. Null
+ * keys, null values and negative keys are not supported.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <V>
+ */
+public class SegmentedArrayMap<V> extends AbstractMap<Integer, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SEGMENT_BITS = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private transient volatile AtomicReferenceArray<AtomicReferenceArray<V>> segments;
+
+    private transient AtomicInteger size;
+
+    /**
+     * Public constructor.
+     */
+    public SegmentedArrayMap() {
+        init();
+    }
+
+    /**
+     * Initializes the internal structures of the map.
+     */
+    private void init() {
+        segments = new AtomicReferenceArray<>(1);
+        size = new AtomicInteger(0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V get(Object key) {
+        if(!(key instanceof Integer)) {
+            return null;
+        }
+        int k = (Integer) key;
+        if(k < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V> segment = getSegment(k >>> SEGMENT_BITS, false);
+        if(segment == null) {
+            return null;
+        }
+        return segment.get(k & SEGMENT_MASK);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V put(Integer key, V value) {
+        if(key == null || value == null) {
+            throw new NullPointerException("Null keys and values are not supported.");
+        }
+        int k = key;
+        if(k < 0) {
+            throw new IllegalArgumentException("Negative keys are not supported.");
+        }
+
+        V previous = getSegment(k >>> SEGMENT_BITS, true).getAndSet(k & SEGMENT_MASK, value);
+        if(previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Puts all the entries of the provided map. The segment lookups are shared
+     * by the consecutive keys and the size is updated once for the whole batch.
+     *
+     * @param m
+     */
+    @Override
+    public void putAll(Map<? extends Integer, ? extends V> m) {
+        int added = 0;
+        int segmentId = -1;
+        AtomicReferenceArray<V> segment = null;
+        try {
+            for(Map.Entry<? extends Integer, ? extends V> entry : m.entrySet()) {
+                Integer key = entry.getKey();
+                V value = entry.getValue();
+                if(key == null || value == null) {
+                    throw new NullPointerException("Null keys and values are not supported.");
+                }
+                int k = key;
+                if(k < 0) {
+                    throw new IllegalArgumentException("Negative keys are not supported.");
+                }
+
+                if(k >>> SEGMENT_BITS != segmentId) {
+                    segmentId = k >>> SEGMENT_BITS;
+                    segment = getSegment(segmentId, true);
+                }
+                if(segment.getAndSet(k & SEGMENT_MASK, value) == null) {
+                    added++;
+                }
+            }
+        }
+        finally {
+            size.addAndGet(added);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V remove(Object key) {
+        if(!(key instanceof Integer)) {
+            return null;
+        }
+        int k = (Integer) key;
+        if(k < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V> segment = getSegment(k >>> SEGMENT_BITS, false);
+        if(segment == null) {
+            return null;
+        }
+        V previous = segment.getAndSet(k & SEGMENT_MASK, null);
+        if(previous != null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void clear() {
+        init();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<Integer>() {
+            /** {@inheritDoc} */
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SegmentIterator<Integer>() {
+                    /** {@inheritDoc} */
+                    @Override
+                    protected Integer element(int key, V value) {
+                        return key;
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public boolean contains(Object o) {
+                return SegmentedArrayMap.this.containsKey(o);
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return SegmentedArrayMap.this.size();
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            /** {@inheritDoc} */
+            @Override
+            public Iterator<V> iterator() {
+                return new SegmentIterator<V>() {
+                    /** {@inheritDoc} */
+                    @Override
+                    protected V element(int key, V value) {
+                        return value;
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return SegmentedArrayMap.this.size();
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, V>>() {
+            /** {@inheritDoc} */
+            @Override
+            public Iterator<Map.Entry<Integer, V>> iterator() {
+                return new SegmentIterator<Map.Entry<Integer, V>>() {
+                    /** {@inheritDoc} */
+                    @Override
+                    protected Map.Entry<Integer, V> element(int key, V value) {
+                        return new AbstractMap.SimpleImmutableEntry<>(key, value);
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return SegmentedArrayMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the segment with the provided id. If the segment does not exist
+     * it is either allocated or null is returned depending on the create flag.
+     *
+     * @param segmentId
+     * @param create
+     * @return
+     */
+    private AtomicReferenceArray<V> getSegment(int segmentId, boolean create) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> s = segments;
+        AtomicReferenceArray<V> segment = segmentId < s.length() ? s.get(segmentId) : null;
+        if(segment != null || create == false) {
+            return segment;
+        }
+
+        synchronized(this) {
+            s = segments;
+            if(segmentId >= s.length()) {
+                AtomicReferenceArray<AtomicReferenceArray<V>> grown = new AtomicReferenceArray<>(Math.max(segmentId + 1, 2 * s.length()));
+                for(int i=0;i<s.length();i++) {
+                    grown.set(i, s.get(i));
+                }
+                s = grown;
+            }
+            if(s.get(segmentId) == null) {
+                s.set(segmentId, new AtomicReferenceArray<>(SEGMENT_SIZE));
+            }
+            segments = s; //publish the changes
+            return s.get(segmentId);
+        }
+    }
+
+    /**
+     * Iterator which scans the segments in ascending key order and skips the
+     * empty positions.
+     *
+     * @param <E>
+     */
+    private abstract class SegmentIterator<E> implements Iterator<E> {
+        private final AtomicReferenceArray<AtomicReferenceArray<V>> s = segments;
+        private int nextKey = -1;
+        private V nextValue = null;
+        private int lastKey = -1;
+
+        /**
+         * Protected constructor.
+         */
+        protected SegmentIterator() {
+            advance();
+        }
+
+        /**
+         * Builds the element which is returned by the iterator.
+         *
+         * @param key
+         * @param value
+         * @return
+         */
+        protected abstract E element(int key, V value);
+
+        /**
+         * Moves the iterator to the next non-empty position.
+         */
+        private void advance() {
+            nextValue = null;
+            long k = nextKey + 1L;
+            long maxKey = ((long) s.length()) << SEGMENT_BITS;
+            while(k < maxKey) {
+                AtomicReferenceArray<V> segment = s.get((int) (k >>> SEGMENT_BITS));
+                if(segment == null) {
+                    k = ((k >>> SEGMENT_BITS) + 1L) << SEGMENT_BITS; //skip the entire segment
+                    continue;
+                }
+                V value = segment.get((int) (k & SEGMENT_MASK));
+                if(value != null) {
+                    nextKey = (int) k;
+                    nextValue = value;
+                    return;
+                }
+                k++;
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNext() {
+            return nextValue != null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public E next() {
+            if(nextValue == null) {
+                throw new NoSuchElementException();
+            }
+            E e = element(nextKey, nextValue);
+            lastKey = nextKey;
+            advance();
+            return e;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void remove() {
+            if(lastKey < 0) {
+                throw new IllegalStateException();
+            }
+            SegmentedArrayMap.this.remove(lastKey);
+            lastKey = -1;
+        }
+    }
+
+    /**
+     * Serializes the map by storing only the non-empty positions.
+     *
+     * @param out
+     * @throws IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        List<Map.Entry<Integer, V>> entries = new ArrayList<>(entrySet()); //snapshot to keep the size consistent
+        out.writeInt(entries.size());
+        for(Map.Entry<Integer, V> e : entries) {
+            out.writeInt(e.getKey());
+            out.writeObject(e.getValue());
+        }
+    }
+
+    /**
+     * Deserializes the map.
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+
+        int n = in.readInt();
+        for(int i=0;i<n;i++) {
+            int key = in.readInt();
+            put(key, (V) in.readObject());
+        }
+    }
+}
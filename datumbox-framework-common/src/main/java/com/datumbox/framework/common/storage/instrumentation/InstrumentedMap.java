@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import com.datumbox.framework.common.storage.instrumentation.MapMetrics.Operation;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Map decorator which records the latency of every operation of the wrapped
+ * map. Iterations are measured per step. All the calls, including the atomic
+ * methods of concurrent maps, are delegated to the wrapped map.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <K>
+ * @param <V>
+ */
+class InstrumentedMap<K,V> extends AbstractMap<K,V> {
+
+    private final Map<K,V> map;
+
+    private final MapMetrics metrics;
+
+    /**
+     * Package-private constructor.
+     *
+     * @param map
+     * @param metrics
+     */
+    InstrumentedMap(Map<K,V> map, MapMetrics metrics) {
+        this.map = map;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the wrapped map.
+     *
+     * @return
+     */
+    Map<K,V> getMap() {
+        return map;
+    }
+
+    /**
+     * Returns the metrics of the map.
+     *
+     * @return
+     */
+    MapMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the wrapped map if the provided map is instrumented or the map itself otherwise.
+     *
+     * @param map
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Map<?, ?>> T unwrap(T map) {
+        return map instanceof InstrumentedMap?(T)((InstrumentedMap<?, ?>)map).getMap():map;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        long start = System.nanoTime();
+        try {
+            return map.containsKey(key);
+        }
+        finally {
+            metrics.record(Operation.CONTAINS, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V get(Object key) {
+        long start = System.nanoTime();
+        try {
+            return map.get(key);
+        }
+        finally {
+            metrics.record(Operation.GET, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        long start = System.nanoTime();
+        try {
+            return map.getOrDefault(key, defaultValue);
+        }
+        finally {
+            metrics.record(Operation.GET, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V put(K key, V value) {
+        metrics.sampleWrite(value);
+        long start = System.nanoTime();
+        try {
+            return map.put(key, value);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        metrics.sampleWrite(value);
+        long start = System.nanoTime();
+        try {
+            return map.putIfAbsent(key, value);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        metrics.sampleWrite(value);
+        long start = System.nanoTime();
+        try {
+            return map.merge(key, value, remappingFunction);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long start = System.nanoTime();
+        try {
+            return map.compute(key, remappingFunction);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        long start = System.nanoTime();
+        try {
+            return map.computeIfAbsent(key, mappingFunction);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long start = System.nanoTime();
+        try {
+            return map.computeIfPresent(key, remappingFunction);
+        }
+        finally {
+            metrics.record(Operation.PUT, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V remove(Object key) {
+        long start = System.nanoTime();
+        try {
+            return map.remove(key);
+        }
+        finally {
+            metrics.record(Operation.REMOVE, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for(V value : m.values()) {
+            metrics.sampleWrite(value);
+        }
+        long start = System.nanoTime();
+        try {
+            map.putAll(m);
+        }
+        finally {
+            metrics.record(Operation.PUT_ALL, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        long start = System.nanoTime();
+        try {
+            map.clear();
+        }
+        finally {
+            metrics.record(Operation.CLEAR, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for(Map.Entry<K,V> e : entrySet()) {
+            action.accept(e.getKey(), e.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<K> keySet() {
+        Set<K> keySet = map.keySet();
+        return new AbstractSet<K>() {
+            @Override
+            public int size() {
+                return keySet.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return InstrumentedMap.this.containsKey(o);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new InstrumentedIterator<>(keySet.iterator());
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection<V> values() {
+        Collection<V> values = map.values();
+        return new AbstractCollection<V>() {
+            @Override
+            public int size() {
+                return values.size();
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                return new InstrumentedIterator<>(values.iterator());
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> entrySet = map.entrySet();
+        return new AbstractSet<Map.Entry<K,V>>() {
+            @Override
+            public int size() {
+                return entrySet.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return entrySet.contains(o);
+            }
+
+            @Override
+            public Iterator<Map.Entry<K,V>> iterator() {
+                return new InstrumentedIterator<>(entrySet.iterator());
+            }
+        };
+    }
+
+    /**
+     * Iterator which records the latency of every step.
+     *
+     * @param <E>
+     */
+    private class InstrumentedIterator<E> implements Iterator<E> {
+
+        private final Iterator<E> iterator;
+
+        private InstrumentedIterator(Iterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public E next() {
+            long start = System.nanoTime();
+            try {
+                return iterator.next();
+            }
+            finally {
+                metrics.record(Operation.ITERATE, System.nanoTime()-start);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void remove() {
+            long start = System.nanoTime();
+            try {
+                iterator.remove();
+            }
+            finally {
+                metrics.record(Operation.REMOVE, System.nanoTime()-start);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import com.datumbox.framework.common.ConfigurableFactory;
+import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The InstrumentedStorageConfiguration wraps the configuration of any storage
+ * and generates InstrumentedStorageEngines, which measure the operations of
+ * the storage engines of the wrapped configuration.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class InstrumentedStorageConfiguration implements StorageConfiguration {
+
+    private StorageConfiguration storageConfiguration;
+
+    private boolean jmxEnabled = true;
+
+    private final Set<StorageMetrics> activeMetrics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Protected constructor. Use the ConfigurableFactory instead.
+     */
+    protected InstrumentedStorageConfiguration() {
+
+    }
+
+    /**
+     * Public constructor, which receives the wrapped storage configuration as argument.
+     *
+     * @param storageConfiguration
+     */
+    public InstrumentedStorageConfiguration(StorageConfiguration storageConfiguration) {
+        this.storageConfiguration = storageConfiguration;
+    }
+
+    /**
+     * Getter for the wrapped storage configuration.
+     *
+     * @return
+     */
+    public StorageConfiguration getStorageConfiguration() {
+        return storageConfiguration;
+    }
+
+    /**
+     * Setter for the wrapped storage configuration.
+     *
+     * @param storageConfiguration
+     */
+    public void setStorageConfiguration(StorageConfiguration storageConfiguration) {
+        this.storageConfiguration = storageConfiguration;
+    }
+
+    /**
+     * Getter for whether the metrics are registered as MXBeans.
+     *
+     * @return
+     */
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Setter for whether the metrics are registered as MXBeans.
+     *
+     * @param jmxEnabled
+     */
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * Returns snapshots of the metrics of all the open storage engines that
+     * were created by this configuration.
+     *
+     * @return
+     */
+    public List<StorageMetrics> getStorageMetrics() {
+        List<StorageMetrics> snapshots = new ArrayList<>();
+        for(StorageMetrics metrics : activeMetrics) {
+            snapshots.add(metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getStorageNameSeparator() {
+        return storageConfiguration.getStorageNameSeparator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends StorageConfiguration> T unwrap(Class<T> klass) {
+        return klass.isInstance(this)?klass.cast(this):storageConfiguration.unwrap(klass);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public StorageEngine createStorageEngine(String storageName) {
+        InstrumentedStorageEngine storageEngine = new InstrumentedStorageEngine(storageConfiguration.createStorageEngine(storageName), this);
+        activeMetrics.add(storageEngine.getMetrics());
+        return storageEngine;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void load(Properties properties) {
+        String storageConfigurationClassName = properties.getProperty("instrumentedStorageConfiguration.storageConfiguration");
+        try {
+            storageConfiguration = ConfigurableFactory.getConfiguration((Class<StorageConfiguration>) Class.forName(storageConfigurationClassName));
+        }
+        catch (ClassNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+        jmxEnabled = "true".equalsIgnoreCase(properties.getProperty("instrumentedStorageConfiguration.jmxEnabled"));
+    }
+
+    /**
+     * Stops tracking the metrics of a closed storage engine.
+     *
+     * @param metrics
+     */
+    void removeMetrics(StorageMetrics metrics) {
+        activeMetrics.remove(metrics);
+    }
+
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import com.datumbox.framework.common.storage.collections.CachedMap;
+import com.datumbox.framework.common.storage.instrumentation.MapMetrics.Operation;
+import com.datumbox.framework.common.storage.interfaces.BigMap;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.utilities.ReflectionMethods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StorageEngine decorator which measures the operations of the wrapped engine
+ * and of its BigMaps. The metrics are kept per map and stored object and are
+ * exposed programmatically via getMetrics() and, if enabled, as an MXBean.
+ *
+ * Every map records the count and the log-linear LatencyHistogram of each
+ * map Operation, the serialized size of a sample of the written values and,
+ * when the map is a write-behind CachedMap, its hit ratio.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class InstrumentedStorageEngine implements StorageEngine {
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(0L);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final StorageEngine storageEngine;
+
+    private final InstrumentedStorageConfiguration storageConfiguration;
+
+    private final StorageMetrics metrics;
+
+    private final long id;
+
+    private ObjectName objectName;
+
+    /**
+     * Protected constructor of the engine.
+     *
+     * @param storageEngine
+     * @param storageConfiguration
+     */
+    protected InstrumentedStorageEngine(StorageEngine storageEngine, InstrumentedStorageConfiguration storageConfiguration) {
+        this.storageEngine = storageEngine;
+        this.storageConfiguration = storageConfiguration;
+        this.metrics = new StorageMetrics(storageEngine.getStorageName());
+        this.id = ID_SEQUENCE.incrementAndGet();
+        registerMBean();
+    }
+
+    /**
+     * Returns the live metrics of the storage.
+     *
+     * @return
+     */
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the wrapped storage engine.
+     *
+     * @return
+     */
+    public StorageEngine getStorageEngine() {
+        return storageEngine;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean rename(String newStorageName) {
+        boolean renamed = storageEngine.rename(newStorageName);
+        if(renamed) {
+            unregisterMBean();
+            metrics.setStorageName(newStorageName);
+            registerMBean();
+        }
+        return renamed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isClosed() {
+        return storageEngine.isClosed();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        try {
+            storageEngine.close();
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        finally {
+            unregisterMBean();
+            storageConfiguration.removeMetrics(metrics);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        storageEngine.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean existsObject(String name) {
+        return storageEngine.existsObject(name);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Serializable> void saveObject(String name, T serializableObject) throws NoSuchElementException {
+        //the wrapped engine must see its own maps, otherwise it can't tell which of them are serializable
+        Map<Field, Object> wrappers = new HashMap<>();
+        for(Field field : getBigMapFields(serializableObject)) {
+            Object value = getValue(field, serializableObject);
+            if(value instanceof InstrumentedMap) {
+                wrappers.put(field, value);
+                setValue(field, serializableObject, ((InstrumentedMap) value).getMap());
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            storageEngine.saveObject(name, serializableObject);
+        }
+        finally {
+            metrics.getOrCreate(name).record(Operation.SAVE_OBJECT, System.nanoTime()-start);
+            for(Map.Entry<Field, Object> e : wrappers.entrySet()) {
+                setValue(e.getKey(), serializableObject, e.getValue());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> T loadObject(String name, Class<T> klass) throws NoSuchElementException {
+        T serializableObject;
+        long start = System.nanoTime();
+        try {
+            serializableObject = storageEngine.loadObject(name, klass);
+        }
+        finally {
+            metrics.getOrCreate(name).record(Operation.LOAD_OBJECT, System.nanoTime()-start);
+        }
+
+        //the BigMaps of the loaded object are named after their fields
+        for(Field field : getBigMapFields(serializableObject)) {
+            Object value = getValue(field, serializableObject);
+            if(value instanceof Map && !(value instanceof InstrumentedMap)) {
+                setValue(field, serializableObject, wrap(field.getName(), (Map<Object, Object>) value));
+            }
+        }
+        return serializableObject;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <K, V> Map<K, V> getBigMap(String name, Class<K> keyClass, Class<V> valueClass, MapType type, StorageHint storageHint, boolean isConcurrent, boolean isTemporary) {
+        return wrap(name, storageEngine.getBigMap(name, keyClass, valueClass, type, storageHint, isConcurrent, isTemporary));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <K, V> void putAll(Map<K, V> map, Map<? extends K, ? extends V> entries) {
+        if(!(map instanceof InstrumentedMap)) {
+            storageEngine.putAll(map, entries);
+            return;
+        }
+
+        MapMetrics mapMetrics = ((InstrumentedMap<K, V>) map).getMetrics();
+        for(V value : entries.values()) {
+            mapMetrics.sampleWrite(value);
+        }
+        long start = System.nanoTime();
+        try {
+            storageEngine.putAll(InstrumentedMap.unwrap(map), entries);
+        }
+        finally {
+            mapMetrics.record(Operation.PUT_ALL, System.nanoTime()-start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public <T extends Map> void dropBigMap(String name, T map) {
+        storageEngine.dropBigMap(name, InstrumentedMap.unwrap(map));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getStorageName() {
+        return storageEngine.getStorageName();
+    }
+
+    /**
+     * Wraps the provided map with an InstrumentedMap which records its operations
+     * in the metrics of the map name. The hit ratio of a CachedMap is also exposed.
+     *
+     * @param name
+     * @param map
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    private <K, V> Map<K, V> wrap(String name, Map<K, V> map) {
+        MapMetrics mapMetrics = metrics.getOrCreate(name);
+        if(map instanceof CachedMap) {
+            mapMetrics.setCacheMetrics(((CachedMap<K, V>) map).getMetrics());
+        }
+        return new InstrumentedMap<>(map, mapMetrics);
+    }
+
+    /**
+     * Returns the accessible fields of the object which are annotated with BigMap.
+     *
+     * @param serializableObject
+     * @return
+     */
+    private List<Field> getBigMapFields(Object serializableObject) {
+        List<Field> fields = new LinkedList<>();
+        for(Field field : ReflectionMethods.getAllFields(new LinkedList<>(), serializableObject.getClass())) {
+            if(field.isAnnotationPresent(BigMap.class)) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Reads the value of the field of the provided object.
+     *
+     * @param field
+     * @param obj
+     * @return
+     */
+    private Object getValue(Field field, Object obj) {
+        try {
+            return field.get(obj);
+        }
+        catch (IllegalArgumentException | IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Sets the value of the field of the provided object.
+     *
+     * @param field
+     * @param obj
+     * @param value
+     */
+    private void setValue(Field field, Object obj, Object value) {
+        try {
+            field.set(obj, value);
+        }
+        catch (IllegalArgumentException | IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Registers the metrics of the storage as an MXBean on the platform MBeanServer,
+     * if JMX is enabled by the configuration. Failures are logged and ignored.
+     */
+    private void registerMBean() {
+        if(!storageConfiguration.isJmxEnabled()) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.datumbox.framework:type=StorageMetrics,name=" + ObjectName.quote(metrics.getStorageName()) + ",id=" + id);
+            server.registerMBean(metrics, name);
+            objectName = name;
+        }
+        catch (JMException ex) {
+            logger.warn("Unable to register the metrics of storage {}: {}", metrics.getStorageName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the MXBean of the storage, if it was registered.
+     */
+    private void unregisterMBean() {
+        if(objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (JMException ex) {
+            logger.warn("Unable to unregister the metrics of storage {}: {}", metrics.getStorageName(), ex.getMessage());
+        }
+        objectName = null;
+    }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. The values are stored in
+ * log-linear buckets (four buckets per power of two), so the percentiles are
+ * estimated with a relative error of at most 12.5%.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+
+    private final AtomicLongArray totals;
+
+    /**
+     * Public constructor.
+     */
+    public LatencyHistogram() {
+        buckets = new AtomicLongArray(BUCKETS);
+        totals = new AtomicLongArray(2); //count and sum
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param histogram
+     */
+    private LatencyHistogram(LatencyHistogram histogram) {
+        this();
+        for(int i=0;i<BUCKETS;i++) {
+            buckets.set(i, histogram.buckets.get(i));
+        }
+        totals.set(0, histogram.totals.get(0));
+        totals.set(1, histogram.totals.get(1));
+    }
+
+    /**
+     * Records a latency in nanoseconds.
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        if(nanos < 0L) {
+            nanos = 0L;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, nanos);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return
+     */
+    public long getCount() {
+        return totals.get(0);
+    }
+
+    /**
+     * Returns the sum of the recorded latencies in nanoseconds.
+     *
+     * @return
+     */
+    public long getTotal() {
+        return totals.get(1);
+    }
+
+    /**
+     * Returns the mean latency in nanoseconds or 0 if nothing was recorded.
+     *
+     * @return
+     */
+    public double getMean() {
+        long count = totals.get(0);
+        return count>0?totals.get(1)/(double)count:0.0;
+    }
+
+    /**
+     * Returns the estimated percentile (between 0 and 100) of the latencies in
+     * nanoseconds or 0 if nothing was recorded.
+     *
+     * @param percentile
+     * @return
+     */
+    public double getPercentile(double percentile) {
+        if(percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        long count = 0L;
+        for(int i=0;i<BUCKETS;i++) {
+            count += buckets.get(i);
+        }
+        if(count == 0L) {
+            return 0.0;
+        }
+
+        long rank = Math.max(1L, (long)Math.ceil(percentile/100.0*count));
+        long seen = 0L;
+        for(int i=0;i<BUCKETS;i++) {
+            seen += buckets.get(i);
+            if(seen >= rank) {
+                return (lowerBound(i) + lowerBound(i+1))/2.0;
+            }
+        }
+        return lowerBound(BUCKETS);
+    }
+
+    /**
+     * Returns a copy of the histogram.
+     *
+     * @return
+     */
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(this);
+    }
+
+    private static int bucketOf(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static double lowerBound(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return (double)(SUB_BUCKETS + subBucket) * Math.pow(2.0, exponent - SUB_BUCKET_BITS);
+    }
+
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import com.datumbox.framework.common.storage.collections.CachedMap;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The metrics of a single BigMap or stored object: a latency histogram per
+ * operation, the estimated serialized bytes written and the hit ratio of its
+ * object cache, when one is available.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MapMetrics {
+
+    /**
+     * The operations which are measured.
+     */
+    public enum Operation {
+        /**
+         * Map get.
+         */
+        GET,
+
+        /**
+         * Map put.
+         */
+        PUT,
+
+        /**
+         * Map remove.
+         */
+        REMOVE,
+
+        /**
+         * Map containsKey.
+         */
+        CONTAINS,
+
+        /**
+         * Bulk insert of entries.
+         */
+        PUT_ALL,
+
+        /**
+         * A single step of an iterator.
+         */
+        ITERATE,
+
+        /**
+         * Map clear.
+         */
+        CLEAR,
+
+        /**
+         * StorageEngine saveObject.
+         */
+        SAVE_OBJECT,
+
+        /**
+         * StorageEngine loadObject.
+         */
+        LOAD_OBJECT;
+    }
+
+    /**
+     * Only one out of SAMPLE_RATE written values is serialized to estimate the bytes.
+     */
+    private static final int SAMPLE_RATE = 64;
+
+    private final String name;
+
+    private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(Operation.values().length);
+
+    private final AtomicLong writes = new AtomicLong(0L);
+
+    private final AtomicLong serializedBytes = new AtomicLong(0L);
+
+    private volatile CachedMap.Metrics cacheMetrics;
+
+    /**
+     * Protected constructor.
+     *
+     * @param name
+     */
+    protected MapMetrics(String name) {
+        this.name = name;
+        reset();
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param metrics
+     */
+    private MapMetrics(MapMetrics metrics) {
+        this.name = metrics.name;
+        for(Operation op : Operation.values()) {
+            histograms.set(op.ordinal(), metrics.histograms.get(op.ordinal()).copy());
+        }
+        writes.set(metrics.writes.get());
+        serializedBytes.set(metrics.serializedBytes.get());
+        cacheMetrics = metrics.cacheMetrics;
+    }
+
+    /**
+     * Getter for the name of the map or object.
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the latency histogram of the operation.
+     *
+     * @param operation
+     * @return
+     */
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation.ordinal());
+    }
+
+    /**
+     * Returns the number of times the operation was executed.
+     *
+     * @param operation
+     * @return
+     */
+    public long getCount(Operation operation) {
+        return getHistogram(operation).getCount();
+    }
+
+    /**
+     * Returns the estimated number of bytes of the values that were written
+     * to the map, measured on their BinarySerializer representation.
+     *
+     * @return
+     */
+    public long getSerializedBytes() {
+        return serializedBytes.get();
+    }
+
+    /**
+     * Returns the hit ratio of the object cache of the map or NaN if the map
+     * is not cached.
+     *
+     * @return
+     */
+    public double getCacheHitRatio() {
+        CachedMap.Metrics metrics = cacheMetrics;
+        return metrics!=null?metrics.getHitRate():Double.NaN;
+    }
+
+    /**
+     * Returns a point-in-time copy of the metrics.
+     *
+     * @return
+     */
+    public MapMetrics snapshot() {
+        return new MapMetrics(this);
+    }
+
+    /**
+     * Resets the latencies and the serialized bytes.
+     */
+    public void reset() {
+        for(Operation op : Operation.values()) {
+            histograms.set(op.ordinal(), new LatencyHistogram());
+        }
+        writes.set(0L);
+        serializedBytes.set(0L);
+    }
+
+    /**
+     * Records the latency of an operation.
+     *
+     * @param operation
+     * @param nanos
+     */
+    protected void record(Operation operation, long nanos) {
+        getHistogram(operation).record(nanos);
+    }
+
+    /**
+     * Samples the serialized size of a written value.
+     *
+     * @param value
+     */
+    protected void sampleWrite(Object value) {
+        if(writes.incrementAndGet() % SAMPLE_RATE == 0 && value != null) {
+            serializedBytes.addAndGet((long) BinarySerializer.serialize(value).length * SAMPLE_RATE);
+        }
+    }
+
+    /**
+     * Sets the metrics of the object cache that backs the map.
+     *
+     * @param cacheMetrics
+     */
+    protected void setCacheMetrics(CachedMap.Metrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
+}
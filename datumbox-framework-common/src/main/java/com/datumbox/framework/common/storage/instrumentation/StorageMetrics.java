@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The metrics of an InstrumentedStorageEngine, kept per BigMap and stored
+ * object. They can be read programmatically or through JMX.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class StorageMetrics implements StorageMetricsMXBean {
+
+    private volatile String storageName;
+
+    private final Map<String, MapMetrics> metrics;
+
+    /**
+     * Protected constructor.
+     *
+     * @param storageName
+     */
+    protected StorageMetrics(String storageName) {
+        this.storageName = storageName;
+        this.metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param storageMetrics
+     */
+    private StorageMetrics(StorageMetrics storageMetrics) {
+        this.storageName = storageMetrics.storageName;
+        Map<String, MapMetrics> copy = new TreeMap<>();
+        for(MapMetrics m : storageMetrics.metrics.values()) {
+            copy.put(m.getName(), m.snapshot());
+        }
+        this.metrics = Collections.unmodifiableMap(copy);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getStorageName() {
+        return storageName;
+    }
+
+    /**
+     * Returns the metrics of a map or object or null if it was never accessed.
+     *
+     * @param name
+     * @return
+     */
+    public MapMetrics getMapMetrics(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Returns the metrics of all the maps and objects.
+     *
+     * @return
+     */
+    public Map<String, MapMetrics> getMapMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Returns a point-in-time copy of the metrics.
+     *
+     * @return
+     */
+    public StorageMetrics snapshot() {
+        return new StorageMetrics(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for(MapMetrics m : metrics.values()) {
+            for(MapMetrics.Operation op : MapMetrics.Operation.values()) {
+                long count = m.getCount(op);
+                if(count>0) {
+                    result.put(m.getName() + "." + op, count);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Double> getMeanLatencies() {
+        return latencies(h -> h.getMean()/1e3);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Double> getP99Latencies() {
+        return latencies(h -> h.getPercentile(99.0)/1e3);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Long> getSerializedBytes() {
+        Map<String, Long> result = new TreeMap<>();
+        for(MapMetrics m : metrics.values()) {
+            result.put(m.getName(), m.getSerializedBytes());
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Double> getCacheHitRatios() {
+        Map<String, Double> result = new TreeMap<>();
+        for(MapMetrics m : metrics.values()) {
+            double ratio = m.getCacheHitRatio();
+            if(!Double.isNaN(ratio)) {
+                result.put(m.getName(), ratio);
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() {
+        for(MapMetrics m : metrics.values()) {
+            m.reset();
+        }
+    }
+
+    /**
+     * Returns the metrics of a map or object, creating them if necessary.
+     *
+     * @param name
+     * @return
+     */
+    protected MapMetrics getOrCreate(String name) {
+        return metrics.computeIfAbsent(name, MapMetrics::new);
+    }
+
+    /**
+     * Setter for the name of the storage.
+     *
+     * @param storageName
+     */
+    protected void setStorageName(String storageName) {
+        this.storageName = storageName;
+    }
+
+    private Map<String, Double> latencies(ToDoubleFunction<LatencyHistogram> statistic) {
+        Map<String, Double> result = new TreeMap<>();
+        for(MapMetrics m : metrics.values()) {
+            for(MapMetrics.Operation op : MapMetrics.Operation.values()) {
+                LatencyHistogram histogram = m.getHistogram(op);
+                if(histogram.getCount()>0) {
+                    result.put(m.getName() + "." + op, statistic.applyAsDouble(histogram));
+                }
+            }
+        }
+        return result;
+    }
+
+}
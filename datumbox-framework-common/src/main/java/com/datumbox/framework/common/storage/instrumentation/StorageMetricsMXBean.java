@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.instrumentation;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the StorageMetrics. The keys of the returned maps have the
+ * form "mapName.OPERATION" for the operation metrics and "mapName" for the rest.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public interface StorageMetricsMXBean {
+
+    /**
+     * Returns the name of the instrumented storage.
+     *
+     * @return
+     */
+    public String getStorageName();
+
+    /**
+     * Returns the number of executions of every operation.
+     *
+     * @return
+     */
+    public Map<String, Long> getOperationCounts();
+
+    /**
+     * Returns the mean latency of every operation in microseconds.
+     *
+     * @return
+     */
+    public Map<String, Double> getMeanLatencies();
+
+    /**
+     * Returns the 99th percentile of the latency of every operation in microseconds.
+     *
+     * @return
+     */
+    public Map<String, Double> getP99Latencies();
+
+    /**
+     * Returns the estimated serialized bytes written in every map.
+     *
+     * @return
+     */
+    public Map<String, Long> getSerializedBytes();
+
+    /**
+     * Returns the hit ratio of the maps which are backed by an object cache.
+     *
+     * @return
+     */
+    public Map<String, Double> getCacheHitRatios();
+
+    /**
+     * Resets all the metrics.
+     */
+    public void reset();
+
+}
@@ -42,4 +42,17 @@ public interface StorageConfiguration extends Configurable {
      */
     public StorageEngine createStorageEngine(String storageName);
     
+    /**
+     * Returns this configuration, or the one it decorates, if it is an instance
+     * of the provided class. Otherwise it returns null. Decorators should
+     * override the method and delegate to the wrapped configuration.
+     * 
+     * @param <T>
+     * @param klass
+     * @return 
+     */
+    default <T extends StorageConfiguration> T unwrap(Class<T> klass) {
+        return klass.isInstance(this)?klass.cast(this):null;
+    }
+    
 }
@@ -40,7 +40,16 @@ public interface StorageEngine extends AutoCloseable {
         /**
          * TreeMap Type.
          */
-        TREEMAP;
+        TREEMAP,
+        
+        /**
+         * ArrayMap Type. It supports only non-negative Integer keys and it is 
+         * optimized for dense, monotonically assigned ids. The keys are iterated
+         * in ascending order. Engines which can't store it natively fall back
+         * to the TREEMAP type; this is the case for the on-disk maps of MapDB
+         * which are stored as BTreeMaps.
+         */
+        ARRAYMAP;
     }
     
     /**
@@ -132,6 +141,21 @@ public interface StorageEngine extends AutoCloseable {
      */
     public <K,V> Map<K,V> getBigMap(String name, Class<K> keyClass, Class<V> valueClass, MapType type, StorageHint storageHint, boolean isConcurrent, boolean isTemporary);
     
+    /**
+     * Writes a batch of entries in a Big Map which was created by the storage
+     * engine. The engines may apply the batch with a cheaper bulk operation than
+     * individual puts; passing the entries in ascending key order helps the
+     * engines which store the maps in trees. The MapDB engine applies the batch
+     * with individual puts, because the data pump of MapDB can only build a new
+     * BTreeMap and not fill a map which already exists.
+     *
+     * @param <K>
+     * @param <V>
+     * @param map
+     * @param entries
+     */
+    public <K,V> void putAll(Map<K,V> map, Map<? extends K, ? extends V> entries);
+    
     /**
      * Drops the Big Map.
      * 
@@ -0,0 +1,821 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.serialization;
+
+import com.datumbox.framework.common.storage.collections.SegmentedArrayMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Compact binary serializer which replaces the Java serialization of the storage
+ * engines. The common JDK types (boxed primitives, Strings, primitive arrays and
+ * the standard Lists, Sets and Maps) are written with fixed tags and the classes
+ * of the framework are written with the Codecs that are registered under a numeric
+ * id. The codecs are registered by the CodecProvider services of the modules,
+ * including the one of the common module.
+ *
+ * Any other Serializable object is written with Java serialization. The registered
+ * objects which are nested in it are still written with their codecs, so a model
+ * which holds its data in framework data structures gets most of the benefit
+ * without having to provide a codec. The streams which were written by Java
+ * serialization are detected and read as before.
+ *
+ * Unlike Java serialization, the objects which are encoded with the tags and the
+ * codecs are not tracked by identity; they are written once per occurrence. An
+ * object which is referenced twice is read back as two equal copies, and a cycle
+ * which passes only through such objects (for example a List that contains itself)
+ * is not supported and fails with a StackOverflowError. Shared references and
+ * cycles are preserved only inside the Java serialized parts, where a nested
+ * registered object is also written once per stream. Objects which depend on the
+ * identity of their parts should keep them in the fields of a Serializable class
+ * without a codec.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class BinarySerializer {
+
+    /**
+     * The ids below this value are reserved for the codecs of the framework.
+     */
+    public static final int RESERVED_IDS = 100;
+
+    private static final byte MAGIC = (byte) 0xDB;
+    private static final byte VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INTEGER = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int FLOAT = 6;
+    private static final int SHORT = 7;
+    private static final int BYTE = 8;
+    private static final int CHARACTER = 9;
+    private static final int STRING = 10;
+    private static final int DOUBLE_ARRAY = 11;
+    private static final int INT_ARRAY = 12;
+    private static final int LONG_ARRAY = 13;
+    private static final int BYTE_ARRAY = 14;
+    private static final int BOOLEAN_ARRAY = 15;
+    private static final int OBJECT_ARRAY = 16;
+    private static final int ARRAY_LIST = 17;
+    private static final int LINKED_LIST = 18;
+    private static final int FIXED_SIZE_LIST = 19;
+    private static final int UNMODIFIABLE_LIST = 20;
+    private static final int HASH_SET = 21;
+    private static final int LINKED_HASH_SET = 22;
+    private static final int TREE_SET = 23;
+    private static final int UNMODIFIABLE_SET = 24;
+    private static final int HASH_MAP = 25;
+    private static final int LINKED_HASH_MAP = 26;
+    private static final int TREE_MAP = 27;
+    private static final int CONCURRENT_HASH_MAP = 28;
+    private static final int CONCURRENT_SKIP_LIST_MAP = 29;
+    private static final int UNMODIFIABLE_MAP = 30;
+    private static final int JAVA = 31;
+    private static final int FIRST_REGISTERED_TAG = 64;
+
+    private static final Class<?> FIXED_SIZE_LIST_CLASS = Arrays.asList().getClass();
+    private static final Class<?> UNMODIFIABLE_LIST_CLASS = Collections.unmodifiableList(new ArrayList<>()).getClass();
+    private static final Class<?> UNMODIFIABLE_SEQUENTIAL_LIST_CLASS = Collections.unmodifiableList(new LinkedList<>()).getClass();
+    private static final Class<?> UNMODIFIABLE_SET_CLASS = Collections.unmodifiableSet(new HashSet<>()).getClass();
+    private static final Class<?> UNMODIFIABLE_MAP_CLASS = Collections.unmodifiableMap(new HashMap<>()).getClass();
+
+    private static final Logger logger = LoggerFactory.getLogger(BinarySerializer.class);
+
+    private static final Map<Class<?>, Registration<?>> REGISTRATIONS_BY_CLASS = new ConcurrentHashMap<>();
+    private static final Map<Integer, Registration<?>> REGISTRATIONS_BY_ID = new ConcurrentHashMap<>();
+
+    static {
+        register(0, SegmentedArrayMap.class, new SegmentedArrayMapCodec());
+        Iterator<CodecProvider> it = ServiceLoader.load(CodecProvider.class, BinarySerializer.class.getClassLoader()).iterator();
+        while(true) {
+            try {
+                if(!it.hasNext()) {
+                    break;
+                }
+                it.next().registerCodecs();
+            }
+            catch (ServiceConfigurationError | RuntimeException ex) {
+                //a broken provider must not prevent the class from loading; its objects fall back to Java serialization
+                logger.warn("Failed to load a CodecProvider", ex);
+            }
+        }
+    }
+
+    /**
+     * Registers the codec of a class under the provided id. The codec is used
+     * only for objects of the exact class; for enums it is used for all of their
+     * constants. The ids must be stable across versions since they are written
+     * in the output. If the id or the class is already registered, a warning is
+     * logged and the existing registration is kept.
+     *
+     * @param <T>
+     * @param id
+     * @param klass
+     * @param codec
+     * @return true if the codec was registered and false if it was skipped
+     */
+    public static synchronized <T> boolean register(int id, Class<T> klass, Codec<T> codec) {
+        if(id < 0) {
+            throw new IllegalArgumentException("The id must be non-negative.");
+        }
+        else if(REGISTRATIONS_BY_ID.containsKey(id)) {
+            logger.warn("The id {} is already registered; the codec of {} is skipped.", id, klass.getName());
+            return false;
+        }
+        else if(REGISTRATIONS_BY_CLASS.containsKey(klass)) {
+            logger.warn("The class {} is already registered; the codec with id {} is skipped.", klass.getName(), id);
+            return false;
+        }
+
+        Registration<T> registration = new Registration<>(id, codec);
+        REGISTRATIONS_BY_CLASS.put(klass, registration);
+        REGISTRATIONS_BY_ID.put(id, registration);
+        return true;
+    }
+
+    /**
+     * Checks whether the class has a registered codec.
+     *
+     * @param klass
+     * @return
+     */
+    public static boolean isRegistered(Class<?> klass) {
+        return REGISTRATIONS_BY_CLASS.containsKey(klass);
+    }
+
+    /**
+     * Serializes the object to a byte array.
+     *
+     * @param obj
+     * @return
+     */
+    public static byte[] serialize(Object obj) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serialize(obj, bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Serializes the object to the output stream. The stream is flushed but it
+     * is not closed.
+     *
+     * @param obj
+     * @param outputStream
+     */
+    public static void serialize(Object obj, OutputStream outputStream) {
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            writeObject(out, obj);
+            out.flush();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Deserializes the byte array.
+     *
+     * @param arr
+     * @return
+     */
+    public static Object deserialize(byte[] arr) {
+        return deserialize(new ByteArrayInputStream(arr));
+    }
+
+    /**
+     * Deserializes an object from the input stream. It reads both the output of
+     * the serialize() method and of the Java serialization.
+     *
+     * @param inputStream
+     * @return
+     */
+    public static Object deserialize(InputStream inputStream) {
+        try {
+            BufferedInputStream bis = new BufferedInputStream(inputStream);
+            bis.mark(2);
+            int first = bis.read();
+            int second = bis.read();
+            if(first == (MAGIC & 0xFF)) {
+                if(second != VERSION) {
+                    throw new IllegalArgumentException("Unsupported serialization version " + second + ".");
+                }
+                return readObject(new DataInputStream(bis));
+            }
+            else if(first == 0xAC && second == 0xED) {
+                bis.reset();
+                return readJava(bis);
+            }
+            throw new IllegalArgumentException("The stream was not written by a known serializer.");
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes the object in the output.
+     *
+     * @param out
+     * @param obj
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeObject(DataOutput out, Object obj) throws IOException {
+        if(obj == null) {
+            writeVarInt(out, NULL);
+            return;
+        }
+
+        Class<?> klass = obj.getClass();
+        if(klass == String.class) {
+            writeVarInt(out, STRING);
+            writeString(out, (String) obj);
+        }
+        else if(klass == Double.class) {
+            writeVarInt(out, DOUBLE);
+            out.writeDouble((Double) obj);
+        }
+        else if(klass == Integer.class) {
+            writeVarInt(out, INTEGER);
+            writeVarInt(out, zigZag((Integer) obj));
+        }
+        else if(klass == Boolean.class) {
+            writeVarInt(out, (Boolean) obj ? TRUE : FALSE);
+        }
+        else if(klass == Long.class) {
+            writeVarInt(out, LONG);
+            writeVarLong(out, zigZag((Long) obj));
+        }
+        else if(klass == Short.class) {
+            writeVarInt(out, SHORT);
+            out.writeShort((Short) obj);
+        }
+        else if(klass == Float.class) {
+            writeVarInt(out, FLOAT);
+            out.writeFloat((Float) obj);
+        }
+        else if(klass == Byte.class) {
+            writeVarInt(out, BYTE);
+            out.writeByte((Byte) obj);
+        }
+        else if(klass == Character.class) {
+            writeVarInt(out, CHARACTER);
+            out.writeChar((Character) obj);
+        }
+        else if(klass == double[].class) {
+            double[] arr = (double[]) obj;
+            writeVarInt(out, DOUBLE_ARRAY);
+            writeVarInt(out, arr.length);
+            for(double v : arr) {
+                out.writeDouble(v);
+            }
+        }
+        else if(klass == int[].class) {
+            int[] arr = (int[]) obj;
+            writeVarInt(out, INT_ARRAY);
+            writeVarInt(out, arr.length);
+            for(int v : arr) {
+                writeVarInt(out, zigZag(v));
+            }
+        }
+        else if(klass == long[].class) {
+            long[] arr = (long[]) obj;
+            writeVarInt(out, LONG_ARRAY);
+            writeVarInt(out, arr.length);
+            for(long v : arr) {
+                writeVarLong(out, zigZag(v));
+            }
+        }
+        else if(klass == byte[].class) {
+            byte[] arr = (byte[]) obj;
+            writeVarInt(out, BYTE_ARRAY);
+            writeVarInt(out, arr.length);
+            out.write(arr);
+        }
+        else if(klass == boolean[].class) {
+            boolean[] arr = (boolean[]) obj;
+            writeVarInt(out, BOOLEAN_ARRAY);
+            writeVarInt(out, arr.length);
+            for(boolean v : arr) {
+                out.writeBoolean(v);
+            }
+        }
+        else if(klass == Object[].class) {
+            Object[] arr = (Object[]) obj;
+            writeVarInt(out, OBJECT_ARRAY);
+            writeVarInt(out, arr.length);
+            for(Object v : arr) {
+                writeObject(out, v);
+            }
+        }
+        else if(klass == ArrayList.class) {
+            writeCollection(out, ARRAY_LIST, (Collection<?>) obj);
+        }
+        else if(klass == FIXED_SIZE_LIST_CLASS) {
+            writeCollection(out, FIXED_SIZE_LIST, (Collection<?>) obj);
+        }
+        else if(klass == LinkedList.class) {
+            writeCollection(out, LINKED_LIST, (Collection<?>) obj);
+        }
+        else if(klass == UNMODIFIABLE_LIST_CLASS || klass == UNMODIFIABLE_SEQUENTIAL_LIST_CLASS) {
+            writeCollection(out, UNMODIFIABLE_LIST, (Collection<?>) obj);
+        }
+        else if(klass == HashSet.class) {
+            writeCollection(out, HASH_SET, (Collection<?>) obj);
+        }
+        else if(klass == LinkedHashSet.class) {
+            writeCollection(out, LINKED_HASH_SET, (Collection<?>) obj);
+        }
+        else if(klass == TreeSet.class && ((TreeSet<?>) obj).comparator() == null) {
+            writeCollection(out, TREE_SET, (Collection<?>) obj);
+        }
+        else if(klass == UNMODIFIABLE_SET_CLASS) {
+            writeCollection(out, UNMODIFIABLE_SET, (Collection<?>) obj);
+        }
+        else if(klass == HashMap.class) {
+            writeMap(out, HASH_MAP, (Map<?, ?>) obj);
+        }
+        else if(klass == LinkedHashMap.class) {
+            writeMap(out, LINKED_HASH_MAP, (Map<?, ?>) obj);
+        }
+        else if(klass == TreeMap.class && ((TreeMap<?, ?>) obj).comparator() == null) {
+            writeMap(out, TREE_MAP, (Map<?, ?>) obj);
+        }
+        else if(klass == ConcurrentHashMap.class) {
+            writeMap(out, CONCURRENT_HASH_MAP, (Map<?, ?>) obj);
+        }
+        else if(klass == ConcurrentSkipListMap.class && ((ConcurrentSkipListMap<?, ?>) obj).comparator() == null) {
+            writeMap(out, CONCURRENT_SKIP_LIST_MAP, (Map<?, ?>) obj);
+        }
+        else if(klass == UNMODIFIABLE_MAP_CLASS) {
+            writeMap(out, UNMODIFIABLE_MAP, (Map<?, ?>) obj);
+        }
+        else {
+            Registration<Object> registration = (Registration<Object>) getRegistration(obj);
+            if(registration != null) {
+                writeVarInt(out, FIRST_REGISTERED_TAG + registration.id);
+                registration.codec.write(out, obj);
+            }
+            else {
+                writeVarInt(out, JAVA);
+                writeJava(out, obj);
+            }
+        }
+    }
+
+    /**
+     * Reads an object from the input.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static Object readObject(DataInput in) throws IOException {
+        int tag = readVarInt(in);
+        switch(tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INTEGER:
+                return unZigZag(readVarInt(in));
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return in.readChar();
+            case STRING:
+                return readString(in);
+            case DOUBLE_ARRAY: {
+                double[] arr = new double[readVarInt(in)];
+                for(int i=0;i<arr.length;i++) {
+                    arr[i] = in.readDouble();
+                }
+                return arr;
+            }
+            case INT_ARRAY: {
+                int[] arr = new int[readVarInt(in)];
+                for(int i=0;i<arr.length;i++) {
+                    arr[i] = unZigZag(readVarInt(in));
+                }
+                return arr;
+            }
+            case LONG_ARRAY: {
+                long[] arr = new long[readVarInt(in)];
+                for(int i=0;i<arr.length;i++) {
+                    arr[i] = unZigZag(readVarLong(in));
+                }
+                return arr;
+            }
+            case BYTE_ARRAY: {
+                byte[] arr = new byte[readVarInt(in)];
+                in.readFully(arr);
+                return arr;
+            }
+            case BOOLEAN_ARRAY: {
+                boolean[] arr = new boolean[readVarInt(in)];
+                for(int i=0;i<arr.length;i++) {
+                    arr[i] = in.readBoolean();
+                }
+                return arr;
+            }
+            case OBJECT_ARRAY:
+                return readArray(in);
+            case ARRAY_LIST:
+                return new ArrayList<>(Arrays.asList(readArray(in)));
+            case FIXED_SIZE_LIST:
+                return Arrays.asList(readArray(in));
+            case LINKED_LIST:
+                return new LinkedList<>(Arrays.asList(readArray(in)));
+            case UNMODIFIABLE_LIST:
+                return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(readArray(in))));
+            case HASH_SET: {
+                int size = readVarInt(in);
+                return readCollection(in, size, new HashSet<>(capacity(size)));
+            }
+            case LINKED_HASH_SET: {
+                int size = readVarInt(in);
+                return readCollection(in, size, new LinkedHashSet<>(capacity(size)));
+            }
+            case TREE_SET:
+                return readCollection(in, readVarInt(in), new TreeSet<>());
+            case UNMODIFIABLE_SET: {
+                int size = readVarInt(in);
+                return Collections.unmodifiableSet(readCollection(in, size, new LinkedHashSet<>(capacity(size))));
+            }
+            case HASH_MAP: {
+                int size = readVarInt(in);
+                return readMap(in, size, new HashMap<>(capacity(size)));
+            }
+            case LINKED_HASH_MAP: {
+                int size = readVarInt(in);
+                return readMap(in, size, new LinkedHashMap<>(capacity(size)));
+            }
+            case TREE_MAP:
+                return readMap(in, readVarInt(in), new TreeMap<>());
+            case CONCURRENT_HASH_MAP: {
+                int size = readVarInt(in);
+                return readMap(in, size, new ConcurrentHashMap<>(capacity(size)));
+            }
+            case CONCURRENT_SKIP_LIST_MAP:
+                return readMap(in, readVarInt(in), new ConcurrentSkipListMap<>());
+            case UNMODIFIABLE_MAP: {
+                int size = readVarInt(in);
+                return Collections.unmodifiableMap(readMap(in, size, new LinkedHashMap<>(capacity(size))));
+            }
+            case JAVA:
+                return readJava(in);
+            default:
+                Registration<?> registration = REGISTRATIONS_BY_ID.get(tag - FIRST_REGISTERED_TAG);
+                if(registration == null) {
+                    throw new IllegalArgumentException("Unknown serialization tag " + tag + ".");
+                }
+                return registration.codec.read(in);
+        }
+    }
+
+    /**
+     * Writes a non-negative int using 1 to 5 bytes.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int which was written with writeVarInt().
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for(int shift=0;shift<32;shift+=7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length int.");
+    }
+
+    /**
+     * Writes a non-negative long using 1 to 10 bytes.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a long which was written with writeVarLong().
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0L;
+        for(int shift=0;shift<64;shift+=7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length long.");
+    }
+
+    /**
+     * Writes the String as UTF-8 without the 64KB limit of DataOutput.writeUTF().
+     *
+     * @param out
+     * @param s
+     * @throws IOException
+     */
+    public static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String which was written with writeString().
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the expected capacity of a hash based collection with the provided
+     * number of elements.
+     *
+     * @param size
+     * @return
+     */
+    public static int capacity(int size) {
+        return (int) Math.min(Integer.MAX_VALUE, size / 0.75 + 1.0);
+    }
+
+    //private methods
+
+    private static Registration<?> getRegistration(Object obj) {
+        Registration<?> registration = REGISTRATIONS_BY_CLASS.get(obj.getClass());
+        if(registration == null && obj instanceof Enum) {
+            registration = REGISTRATIONS_BY_CLASS.get(((Enum<?>) obj).getDeclaringClass());
+        }
+        return registration;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private static void writeCollection(DataOutput out, int tag, Collection<?> collection) throws IOException {
+        writeVarInt(out, tag);
+        writeVarInt(out, collection.size());
+        for(Object o : collection) {
+            writeObject(out, o);
+        }
+    }
+
+    private static <C extends Collection<Object>> C readCollection(DataInput in, int size, C collection) throws IOException {
+        for(int i=0;i<size;i++) {
+            collection.add(readObject(in));
+        }
+        return collection;
+    }
+
+    private static void writeMap(DataOutput out, int tag, Map<?, ?> map) throws IOException {
+        writeVarInt(out, tag);
+        writeVarInt(out, map.size());
+        for(Map.Entry<?, ?> entry : map.entrySet()) {
+            writeObject(out, entry.getKey());
+            writeObject(out, entry.getValue());
+        }
+    }
+
+    private static <M extends Map<Object, Object>> M readMap(DataInput in, int size, M map) throws IOException {
+        for(int i=0;i<size;i++) {
+            Object key = readObject(in);
+            map.put(key, readObject(in));
+        }
+        return map;
+    }
+
+    private static Object[] readArray(DataInput in) throws IOException {
+        Object[] arr = new Object[readVarInt(in)];
+        for(int i=0;i<arr.length;i++) {
+            arr[i] = readObject(in);
+        }
+        return arr;
+    }
+
+    private static void writeJava(DataOutput out, Object obj) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try(ObjectOutputStream oos = new CodecObjectOutputStream(bos)) {
+            oos.writeObject(obj);
+        }
+        writeVarInt(out, bos.size());
+        bos.writeTo(new DataOutputAdapter(out));
+    }
+
+    private static Object readJava(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return readJava(new ByteArrayInputStream(bytes));
+    }
+
+    private static Object readJava(InputStream inputStream) throws IOException {
+        try {
+            return new ObjectInputStream(inputStream).readObject();
+        }
+        catch (ClassNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Object stream which writes the registered objects that are nested in a
+     * Java serialized object with their codecs.
+     */
+    private static class CodecObjectOutputStream extends ObjectOutputStream {
+
+        private CodecObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if(obj != null && !(obj instanceof Enum) && REGISTRATIONS_BY_CLASS.containsKey(obj.getClass())) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                BinarySerializer.writeObject(new DataOutputStream(bos), obj);
+                return new EncodedObject(bos.toByteArray());
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Serializable envelope of an object which was written with its codec. It
+     * is replaced by the decoded object when the Java stream is read.
+     */
+    private static class EncodedObject implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        private EncodedObject(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            try {
+                return BinarySerializer.readObject(new DataInputStream(new ByteArrayInputStream(bytes)));
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Adapts a DataOutput to an OutputStream.
+     */
+    private static class DataOutputAdapter extends OutputStream {
+        private final DataOutput out;
+
+        private DataOutputAdapter(DataOutput out) {
+            this.out = out;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+    }
+
+    /**
+     * The codec of a class along with its id.
+     *
+     * @param <T>
+     */
+    private static class Registration<T> {
+        private final int id;
+        private final Codec<T> codec;
+
+        private Registration(int id, Codec<T> codec) {
+            this.id = id;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * Codec of the SegmentedArrayMap which holds the records of the Dataframes.
+     */
+    @SuppressWarnings("rawtypes")
+    private static class SegmentedArrayMapCodec implements Codec<SegmentedArrayMap> {
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, SegmentedArrayMap value) throws IOException {
+            @SuppressWarnings("unchecked")
+            Set<Map.Entry<Integer, Object>> entries = value.entrySet();
+            writeVarInt(out, value.size());
+            for(Map.Entry<Integer, Object> entry : entries) {
+                writeVarInt(out, entry.getKey());
+                writeObject(out, entry.getValue());
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        @SuppressWarnings("unchecked")
+        public SegmentedArrayMap read(DataInput in) throws IOException {
+            SegmentedArrayMap<Object> map = new SegmentedArrayMap<>();
+            int size = readVarInt(in);
+            for(int i=0;i<size;i++) {
+                int key = readVarInt(in);
+                map.put(key, readObject(in));
+            }
+            return map;
+        }
+    }
+}
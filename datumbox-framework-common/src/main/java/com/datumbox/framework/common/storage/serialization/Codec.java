@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.serialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Hand-written binary encoding of a single class. The codecs are registered in
+ * the BinarySerializer under a numeric id and they can write their nested objects
+ * by calling BinarySerializer.writeObject() and BinarySerializer.readObject().
+ * The nested objects are copied, so a codec should not be used for classes whose
+ * parts are shared with other objects or reference the value itself.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <T>
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes the value in the output.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public void write(DataOutput out, T value) throws IOException;
+
+    /**
+     * Reads a value from the input.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public T read(DataInput in) throws IOException;
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.serialization;
+
+/**
+ * Service which registers the codecs of a module in the BinarySerializer. The
+ * providers are discovered with the ServiceLoader, so every module lists its
+ * implementation in the META-INF/services directory.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public interface CodecProvider {
+
+    /**
+     * Registers the codecs by calling BinarySerializer.register().
+     */
+    public void registerCodecs();
+
+}
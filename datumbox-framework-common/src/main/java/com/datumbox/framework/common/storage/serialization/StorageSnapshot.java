@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.serialization;
+
+import com.datumbox.framework.common.storage.interfaces.BigMap;
+import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.utilities.RandomGenerator;
+import com.datumbox.framework.common.utilities.ReflectionMethods;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Captures objects which hold BigMaps and writes them to a new storage, so
+ * that they can be persisted without renaming or reloading the storage they
+ * live in. When an object is added, its fields which are not BigMaps are
+ * copied in memory and its BigMaps are copied entry by entry to a temporary
+ * storage, so the captured objects can be modified as soon as addObject()
+ * returns. The snapshot is published under its final name only after all the
+ * objects are stored.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class StorageSnapshot {
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger(0);
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "datumbox-storage-writer-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StorageEngine storageEngine;
+
+    private final Map<String, Serializable> objects = new LinkedHashMap<>();
+
+    /**
+     * Serializes the object graph replacing the provided maps with nulls.
+     */
+    private static class CaptureOutputStream extends ObjectOutputStream {
+
+        private final Set<Object> excluded;
+
+        /**
+         * Private constructor which enables the replacement of the excluded objects.
+         *
+         * @param out
+         * @param excluded
+         * @throws IOException
+         */
+        private CaptureOutputStream(OutputStream out, Set<Object> excluded) throws IOException {
+            super(out);
+            this.excluded = excluded;
+            enableReplaceObject(true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            return excluded.contains(obj)?null:obj;
+        }
+    }
+
+    /**
+     * Public constructor which opens the temporary storage of the snapshot.
+     *
+     * @param storageConfiguration
+     */
+    public StorageSnapshot(StorageConfiguration storageConfiguration) {
+        storageEngine = storageConfiguration.createStorageEngine("snp" + RandomGenerator.getThreadLocalRandomUnseeded().nextLong());
+    }
+
+    /**
+     * Captures an object of the snapshot. Its non-BigMap state and its BigMaps
+     * are copied before the method returns. If the copy fails, the snapshot is
+     * discarded.
+     *
+     * @param name
+     * @param serializableObject
+     * @param <T>
+     */
+    public <T extends Serializable> void addObject(String name, T serializableObject) {
+        try {
+            objects.put(name, capture(serializableObject));
+        }
+        catch (RuntimeException ex) {
+            discard();
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the captured objects to the storage with the provided name,
+     * replacing any existing storage with the same name.
+     *
+     * @param storageName
+     */
+    public void write(String storageName) {
+        boolean renamed = false;
+        try {
+            for(Map.Entry<String, Serializable> e : objects.entrySet()) {
+                storageEngine.saveObject(e.getKey(), e.getValue());
+            }
+            renamed = storageEngine.rename(storageName);
+        }
+        finally {
+            if(!renamed) {
+                discard();
+            }
+            else {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Writes the captured objects in the background. The returned future
+     * completes when the storage is published under its final name.
+     *
+     * @param storageName
+     * @return
+     */
+    public CompletableFuture<Void> writeAsync(String storageName) {
+        return CompletableFuture.runAsync(() -> write(storageName), EXECUTOR);
+    }
+
+    /**
+     * Copies the object without its BigMaps and points the BigMaps of the copy
+     * to copies on the temporary storage.
+     *
+     * @param serializableObject
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private Serializable capture(Serializable serializableObject) {
+        Map<String, Map<?, ?>> bigMaps = new HashMap<>();
+        Set<Object> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Field field : getBigMapFields(serializableObject.getClass())) {
+            Map<?, ?> map = (Map<?, ?>) getValue(field, serializableObject);
+            if(map != null) {
+                bigMaps.put(field.getName(), map);
+                excluded.add(map);
+            }
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new CaptureOutputStream(bos, excluded)) {
+            oos.writeObject(serializableObject);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        Serializable copy;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            copy = (Serializable) ois.readObject();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        catch (ClassNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        for(Field field : getBigMapFields(copy.getClass())) {
+            Map<Object, Object> source = (Map<Object, Object>) bigMaps.get(field.getName());
+            if(source == null) {
+                continue;
+            }
+
+            BigMap a = field.getAnnotation(BigMap.class);
+            Map<Object, Object> target = storageEngine.getBigMap(field.getName(), (Class<Object>) a.keyClass(), (Class<Object>) a.valueClass(), a.mapType(), a.storageHint(), a.concurrent(), false);
+
+            Map<Object, Object> batch = new LinkedHashMap<>();
+            for(Map.Entry<Object, Object> e : source.entrySet()) {
+                batch.put(e.getKey(), e.getValue());
+                if(batch.size() >= BATCH_SIZE) {
+                    storageEngine.putAll(target, batch);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            if(!batch.isEmpty()) {
+                storageEngine.putAll(target, batch);
+            }
+
+            try {
+                field.set(copy, target);
+            }
+            catch (IllegalArgumentException | IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Deletes the temporary storage of the snapshot.
+     */
+    private void discard() {
+        try {
+            storageEngine.clear();
+        }
+        finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the storage engine of the snapshot.
+     */
+    private void close() {
+        try {
+            storageEngine.close();
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the accessible fields of the class which are annotated with BigMap.
+     *
+     * @param klass
+     * @return
+     */
+    private static List<Field> getBigMapFields(Class<?> klass) {
+        List<Field> fields = new ArrayList<>();
+        for(Field field : ReflectionMethods.getAllFields(new LinkedList<>(), klass)) {
+            if(field.isAnnotationPresent(BigMap.class)) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Reads the value of the field of the provided object.
+     *
+     * @param field
+     * @param obj
+     * @return
+     */
+    private static Object getValue(Field field, Object obj) {
+        try {
+            return field.get(obj);
+        }
+        catch (IllegalArgumentException | IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
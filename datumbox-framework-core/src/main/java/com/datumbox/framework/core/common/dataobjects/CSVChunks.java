@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.common.dataobjects;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a UTF-8 CSV file into chunks of whole records, so that the chunks can
+ * be parsed in parallel. The file is scanned once through memory-mapped windows;
+ * the scan tracks only the quotes and the line endings, which is enough to find
+ * the record boundaries (including the line breaks inside quoted values) and
+ * to number the records of every chunk.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+class CSVChunks {
+
+    /**
+     * Size of the memory-mapped windows used while scanning.
+     */
+    private static final int WINDOW_SIZE = 64*1024*1024;
+
+    /**
+     * A range of whole records in the file.
+     */
+    static class Chunk {
+        private final long start;
+        private final long length;
+        private final int firstRecord;
+        private final int records;
+
+        private Chunk(long start, long length, int firstRecord, int records) {
+            this.start = start;
+            this.length = length;
+            this.firstRecord = firstRecord;
+            this.records = records;
+        }
+
+        /**
+         * Getter for the index of the first record of the chunk; the header
+         * is not counted.
+         *
+         * @return
+         */
+        int getFirstRecord() {
+            return firstRecord;
+        }
+
+        /**
+         * Getter for the number of records in the chunk.
+         *
+         * @return
+         */
+        int getRecords() {
+            return records;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long chunkSize;
+    private final List<Chunk> chunks = new ArrayList<>();
+
+    private long headerLength = -1L;
+    private long chunkStart = 0L;
+    private long lineStart = 0L;
+    private int firstRecord = 0;
+    private int chunkRecords = 0;
+
+    /**
+     * Scans the file and splits it in chunks of at least chunkSize bytes.
+     *
+     * @param channel
+     * @param quote
+     * @param chunkSize
+     * @throws IOException
+     */
+    CSVChunks(FileChannel channel, char quote, long chunkSize) throws IOException {
+        if(quote > 127) {
+            throw new IllegalArgumentException("The quote must be an ASCII character.");
+        }
+        else if(chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        }
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+
+        byte quoteByte = (byte) quote;
+        long size = channel.size();
+        boolean inQuotes = false;
+        boolean previousCR = false;
+        for(long windowStart=0L;windowStart<size;windowStart+=WINDOW_SIZE) {
+            int windowLength = (int) Math.min(WINDOW_SIZE, size-windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for(int i=0;i<windowLength;i++) {
+                byte b = window.get(i);
+                if(previousCR) {
+                    //a CR which is not followed by LF ends the line by itself
+                    previousCR = false;
+                    if(b != '\n') {
+                        endLine(windowStart+i);
+                    }
+                }
+
+                if(b == quoteByte) {
+                    inQuotes = !inQuotes;
+                }
+                else if(!inQuotes) {
+                    if(b == '\n') {
+                        endLine(windowStart+i+1);
+                    }
+                    else if(b == '\r') {
+                        previousCR = true;
+                    }
+                }
+            }
+        }
+        if(previousCR || lineStart < size) {
+            endLine(size);
+        }
+        if(chunkRecords > 0) {
+            chunks.add(new Chunk(chunkStart, size-chunkStart, firstRecord, chunkRecords));
+        }
+        if(headerLength < 0) {
+            headerLength = size;
+        }
+    }
+
+    /**
+     * Returns a Reader with the header of the file.
+     *
+     * @return
+     * @throws IOException
+     */
+    Reader readHeader() throws IOException {
+        return read(0L, headerLength);
+    }
+
+    /**
+     * Returns the chunks of the file in order.
+     *
+     * @return
+     */
+    List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * Returns a Reader with the records of the chunk.
+     *
+     * @param chunk
+     * @return
+     * @throws IOException
+     */
+    Reader read(Chunk chunk) throws IOException {
+        return read(chunk.start, chunk.length);
+    }
+
+    private Reader read(long start, long length) throws IOException {
+        if(length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The record is too large to be read.");
+        }
+        CharBuffer chars = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+        return new CharArrayReader(chars.array(), chars.arrayOffset()+chars.position(), chars.remaining());
+    }
+
+    private void endLine(long end) {
+        if(headerLength < 0) {
+            headerLength = end;
+            chunkStart = end;
+        }
+        else {
+            chunkRecords++;
+            if(end - chunkStart >= chunkSize) {
+                chunks.add(new Chunk(chunkStart, end-chunkStart, firstRecord, chunkRecords));
+                firstRecord += chunkRecords;
+                chunkStart = end;
+                chunkRecords = 0;
+            }
+        }
+        lineStart = end;
+    }
+
+}
@@ -0,0 +1,651 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.common.dataobjects;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar (struct-of-arrays) storage of the Records of a Dataframe. Instead of
+ * keeping one Map per Record, the X values are decomposed into columns which are
+ * indexed by the record id. The column names are dictionary-encoded once and
+ * shared by all the rows. Double columns are stored in primitive double arrays,
+ * Boolean columns in bitsets and all the other columns (categorical, ordinal etc)
+ * as int codes of a per-column value dictionary. The Record objects are
+ * materialized only when they are requested.
+ *
+ * The layout is designed for dense datasets with a moderate number of columns
+ * and non-negative record ids. It is not a good choice for sparse datasets (such
+ * as the bag-of-words representations of texts) because the materialization of
+ * a Record costs O(number of columns).
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+class ColumnarRecordMap extends AbstractMap<Integer, Record> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The dictionary of the column names; the position of the name is its code.
+     */
+    private final List<Object> columnNames = new ArrayList<>();
+
+    /**
+     * Reverse dictionary which maps the column names to their codes.
+     */
+    private final Map<Object, Integer> columnCodes = new HashMap<>();
+
+    /**
+     * The storage of each column, indexed by the column code.
+     */
+    private final List<Column> columns = new ArrayList<>();
+
+    private Object[] y = new Object[0];
+    private Object[] yPredicted = new Object[0];
+    private AssociativeArray[] yPredictedProbabilities = new AssociativeArray[0];
+
+    /**
+     * The ids of the stored rows.
+     */
+    private final BitSet rows = new BitSet();
+
+    private int size = 0;
+
+    /**
+     * Counter which is increased every time a row is added or removed.
+     */
+    private int rowsVersion = 0;
+
+    private transient ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Package-private constructor.
+     */
+    ColumnarRecordMap() {
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        if(!(key instanceof Integer) || (Integer) key < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return rows.get((Integer) key);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Record get(Object key) {
+        if(!(key instanceof Integer) || (Integer) key < 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return materialize((Integer) key);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Record put(Integer key, Record r) {
+        if(key == null || r == null) {
+            throw new NullPointerException("Null keys and values are not supported.");
+        }
+        int row = key;
+        if(row < 0) {
+            throw new IllegalArgumentException("Negative keys are not supported.");
+        }
+
+        lock.writeLock().lock();
+        try {
+            Record previous = materialize(row);
+            if(previous != null) {
+                clearRow(row);
+            }
+            else {
+                rows.set(row);
+                size++;
+                rowsVersion++;
+            }
+
+            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                Object columnName = entry.getKey();
+                Object value = entry.getValue();
+
+                Integer code = columnCodes.get(columnName);
+                if(code == null) {
+                    code = columnNames.size();
+                    columnNames.add(columnName);
+                    columnCodes.put(columnName, code);
+                    columns.add(Column.newColumn(value));
+                }
+
+                Column column = columns.get(code);
+                if(value != null && !column.accepts(value)) {
+                    //the type of the column changed; fall back to the dictionary encoding
+                    column = column.toDictionaryColumn();
+                    columns.set(code, column);
+                }
+                column.set(row, value);
+            }
+
+            ensureCapacity(row);
+            y[row] = r.getY();
+            yPredicted[row] = r.getYPredicted();
+            yPredictedProbabilities[row] = r.getYPredictedProbabilities();
+
+            return previous;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Record remove(Object key) {
+        if(!(key instanceof Integer) || (Integer) key < 0) {
+            return null;
+        }
+        int row = (Integer) key;
+        lock.writeLock().lock();
+        try {
+            Record previous = materialize(row);
+            if(previous != null) {
+                clearRow(row);
+                rows.clear(row);
+                size--;
+                rowsVersion++;
+            }
+            return previous;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            columnNames.clear();
+            columnCodes.clear();
+            columns.clear();
+            y = new Object[0];
+            yPredicted = new Object[0];
+            yPredictedProbabilities = new AssociativeArray[0];
+            rows.clear();
+            size = 0;
+            rowsVersion++;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<Integer, Record>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, Record>>() {
+            /** {@inheritDoc} */
+            @Override
+            public Iterator<Map.Entry<Integer, Record>> iterator() {
+                return new Iterator<Map.Entry<Integer, Record>>() {
+                    private int nextRow = nextRow(0);
+                    private int lastRow = -1;
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public boolean hasNext() {
+                        return nextRow >= 0;
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public Map.Entry<Integer, Record> next() {
+                        Record r = null;
+                        while(nextRow >= 0 && (r = ColumnarRecordMap.this.get(nextRow)) == null) {
+                            nextRow = nextRow(nextRow + 1); //the row was removed concurrently
+                        }
+                        if(r == null) {
+                            throw new NoSuchElementException();
+                        }
+                        lastRow = nextRow;
+                        nextRow = nextRow(nextRow + 1);
+                        return new AbstractMap.SimpleImmutableEntry<>(lastRow, r);
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public void remove() {
+                        if(lastRow < 0) {
+                            throw new IllegalStateException();
+                        }
+                        ColumnarRecordMap.this.remove(lastRow);
+                        lastRow = -1;
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return ColumnarRecordMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns a read-only view of the values of the provided column, in the
+     * order of the record ids. Records which don't contain the column have a
+     * null value. The values are not copied; the view reads directly from the
+     * column storage and thus reflects any subsequent modification of the map,
+     * including added and removed records.
+     *
+     * @param columnName
+     * @return
+     */
+    List<Object> getColumn(Object columnName) {
+        return new AbstractList<Object>() {
+            /**
+             * The positions of the stored rows, when the ids are not dense.
+             */
+            private volatile RowIds rowIds = null;
+
+            /** {@inheritDoc} */
+            @Override
+            public Object get(int index) {
+                lock.readLock().lock();
+                try {
+                    if(index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException();
+                    }
+                    Integer code = columnCodes.get(columnName);
+                    if(code == null) {
+                        return null;
+                    }
+                    return columns.get(code).get(getRow(index));
+                }
+                finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return ColumnarRecordMap.this.size();
+            }
+
+            /**
+             * Returns the id of the row at the provided position. The caller
+             * must hold a lock.
+             *
+             * @param index
+             * @return
+             */
+            private int getRow(int index) {
+                if(rows.length() == size) {
+                    return index; //the ids are dense; the position is equal to the id
+                }
+                RowIds r = rowIds;
+                if(r == null || r.version != rowsVersion) {
+                    r = new RowIds(rowsVersion, rows.stream().toArray());
+                    rowIds = r;
+                }
+                return r.ids[index];
+            }
+        };
+    }
+
+    /**
+     * Snapshot of the ids of the stored rows at a specific version of the map.
+     */
+    private static class RowIds {
+        private final int version;
+        private final int[] ids;
+
+        /**
+         * Constructor.
+         *
+         * @param version
+         * @param ids
+         */
+        private RowIds(int version, int[] ids) {
+            this.version = version;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Returns the next stored row id which is greater or equal to the provided
+     * one or -1 if no such row exists.
+     *
+     * @param fromRow
+     * @return
+     */
+    private int nextRow(int fromRow) {
+        lock.readLock().lock();
+        try {
+            return rows.nextSetBit(fromRow);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the Record of the provided row or returns null if the row does not
+     * exist. The caller must hold a lock.
+     *
+     * @param row
+     * @return
+     */
+    private Record materialize(int row) {
+        if(!rows.get(row)) {
+            return null;
+        }
+
+        Map<Object, Object> xData = new LinkedHashMap<>();
+        for(int code=0;code<columns.size();code++) {
+            Column column = columns.get(code);
+            if(column.contains(row)) {
+                xData.put(columnNames.get(code), column.get(row));
+            }
+        }
+
+        AssociativeArray x = new AssociativeArray(Collections.unmodifiableMap(xData));
+        return new Record(x, y[row], yPredicted[row], yPredictedProbabilities[row], false);
+    }
+
+    /**
+     * Removes all the values of the provided row. The caller must hold the write lock.
+     *
+     * @param row
+     */
+    private void clearRow(int row) {
+        for(Column column : columns) {
+            column.remove(row);
+        }
+        y[row] = null;
+        yPredicted[row] = null;
+        yPredictedProbabilities[row] = null;
+    }
+
+    /**
+     * Ensures that the arrays of the response variables can store the provided row.
+     *
+     * @param row
+     */
+    private void ensureCapacity(int row) {
+        if(row >= y.length) {
+            int newLength = Math.max(row + 1, 2 * y.length);
+            y = Arrays.copyOf(y, newLength);
+            yPredicted = Arrays.copyOf(yPredicted, newLength);
+            yPredictedProbabilities = Arrays.copyOf(yPredictedProbabilities, newLength);
+        }
+    }
+
+    /**
+     * Initializes the transient fields after deserialization.
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * The storage of a single column. The keys bitset marks which rows contain
+     * the column; a row can contain the column with a null value.
+     */
+    private static abstract class Column implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        protected final BitSet keys = new BitSet();
+        protected final BitSet nulls = new BitSet();
+
+        /**
+         * Creates the appropriate column for the first value that is stored.
+         *
+         * @param value
+         * @return
+         */
+        static Column newColumn(Object value) {
+            if(value == null || value instanceof Double) {
+                return new DoubleColumn();
+            }
+            else if(value instanceof Boolean) {
+                return new BooleanColumn();
+            }
+            return new DictionaryColumn();
+        }
+
+        /**
+         * Checks whether the row contains the column.
+         *
+         * @param row
+         * @return
+         */
+        boolean contains(int row) {
+            return keys.get(row);
+        }
+
+        /**
+         * Returns the value of the row or null if it is missing.
+         *
+         * @param row
+         * @return
+         */
+        Object get(int row) {
+            if(!keys.get(row) || nulls.get(row)) {
+                return null;
+            }
+            return getValue(row);
+        }
+
+        /**
+         * Stores the value of the row. The value must be either null or accepted
+         * by the column.
+         *
+         * @param row
+         * @param value
+         */
+        void set(int row, Object value) {
+            keys.set(row);
+            if(value == null) {
+                nulls.set(row);
+            }
+            else {
+                nulls.clear(row);
+                setValue(row, value);
+            }
+        }
+
+        /**
+         * Removes the row from the column.
+         *
+         * @param row
+         */
+        void remove(int row) {
+            keys.clear(row);
+            nulls.clear(row);
+        }
+
+        /**
+         * Converts the column to a DictionaryColumn which can store any type.
+         *
+         * @return
+         */
+        Column toDictionaryColumn() {
+            Column column = new DictionaryColumn();
+            for(int row = keys.nextSetBit(0); row >= 0; row = keys.nextSetBit(row + 1)) {
+                column.set(row, get(row));
+            }
+            return column;
+        }
+
+        /**
+         * Checks if the column can store the provided non-null value.
+         *
+         * @param value
+         * @return
+         */
+        abstract boolean accepts(Object value);
+
+        /**
+         * Returns the non-null value of the row.
+         *
+         * @param row
+         * @return
+         */
+        protected abstract Object getValue(int row);
+
+        /**
+         * Stores the non-null value of the row.
+         *
+         * @param row
+         * @param value
+         */
+        protected abstract void setValue(int row, Object value);
+    }
+
+    /**
+     * Column of Double values stored in a primitive array.
+     */
+    private static class DoubleColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        private double[] values = new double[0];
+
+        /** {@inheritDoc} */
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object getValue(int row) {
+            return values[row];
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void setValue(int row, Object value) {
+            if(row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, 2 * values.length));
+            }
+            values[row] = (Double) value;
+        }
+    }
+
+    /**
+     * Column of Boolean values stored in a bitset.
+     */
+    private static class BooleanColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet values = new BitSet();
+
+        /** {@inheritDoc} */
+        @Override
+        boolean accepts(Object value) {
+            return value instanceof Boolean;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object getValue(int row) {
+            return values.get(row);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void setValue(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+    }
+
+    /**
+     * Column of arbitrary values which are encoded as int codes of a value dictionary.
+     */
+    private static class DictionaryColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object> dictionary = new ArrayList<>();
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private int[] values = new int[0];
+
+        /** {@inheritDoc} */
+        @Override
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object getValue(int row) {
+            return dictionary.get(values[row]);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void setValue(int row, Object value) {
+            Integer code = codes.get(value);
+            if(code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            if(row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, 2 * values.length));
+            }
+            values[row] = code;
+        }
+    }
+}
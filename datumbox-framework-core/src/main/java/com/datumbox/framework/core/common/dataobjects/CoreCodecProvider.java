@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.common.dataobjects;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+import com.datumbox.framework.common.storage.serialization.Codec;
+import com.datumbox.framework.common.storage.serialization.CodecProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registers the codecs of the core data objects in the BinarySerializer.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class CoreCodecProvider implements CodecProvider {
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerCodecs() {
+        BinarySerializer.register(10, Record.class, new RecordCodec());
+    }
+
+    /**
+     * Writes the entries of the Record directly and rebuilds it with the unmodifiable
+     * maps without copying them.
+     */
+    private static class RecordCodec implements Codec<Record> {
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, Record value) throws IOException {
+            BinarySerializer.writeObject(out, value.getY());
+            BinarySerializer.writeObject(out, value.getYPredicted());
+            writeEntries(out, value.getX());
+            AssociativeArray yPredictedProbabilities = value.getYPredictedProbabilities();
+            out.writeBoolean(yPredictedProbabilities != null);
+            if(yPredictedProbabilities != null) {
+                writeEntries(out, yPredictedProbabilities);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Record read(DataInput in) throws IOException {
+            Object y = BinarySerializer.readObject(in);
+            Object yPredicted = BinarySerializer.readObject(in);
+            AssociativeArray x = readEntries(in);
+            AssociativeArray yPredictedProbabilities = in.readBoolean()?readEntries(in):null;
+            return new Record(x, y, yPredicted, yPredictedProbabilities, false);
+        }
+
+        private void writeEntries(DataOutput out, AssociativeArray values) throws IOException {
+            BinarySerializer.writeVarInt(out, values.size());
+            for(Map.Entry<Object, Object> entry : values.entrySet()) {
+                BinarySerializer.writeObject(out, entry.getKey());
+                BinarySerializer.writeObject(out, entry.getValue());
+            }
+        }
+
+        private AssociativeArray readEntries(DataInput in) throws IOException {
+            int size = BinarySerializer.readVarInt(in);
+            Map<Object, Object> values = new LinkedHashMap<>(BinarySerializer.capacity(size));
+            for(int i=0;i<size;i++) {
+                Object key = BinarySerializer.readObject(in);
+                values.put(key, BinarySerializer.readObject(in));
+            }
+            return new AssociativeArray(Collections.unmodifiableMap(values));
+        }
+    }
+
+}
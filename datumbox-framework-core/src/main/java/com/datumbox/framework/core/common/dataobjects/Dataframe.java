@@ -30,6 +30,7 @@ import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
+import com.datumbox.framework.common.storage.serialization.StorageSnapshot;
 import com.datumbox.framework.common.utilities.RandomGenerator;
 import com.datumbox.framework.core.common.text.StringCleaner;
 import org.apache.commons.csv.CSVFormat;
@@ -40,7 +41,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -69,6 +78,16 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
      */
     public static class Builder {
 
+        /**
+         * The minimum size of the chunks of the parallel CSV parsing.
+         */
+        private static final long MIN_CSV_CHUNK_SIZE = 1024L*1024L;
+
+        /**
+         * The maximum size of the chunks of the parallel CSV parsing.
+         */
+        private static final long MAX_CSV_CHUNK_SIZE = 64L*1024L*1024L;
+
         /**
          * It builds a Dataframe object from a provided list of text files. The data
          * map should have as index the names of each class and as values the URIs
@@ -143,6 +162,29 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
          */
         public static Dataframe parseCSVFile(Reader reader, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes,
                                              char delimiter, char quote, String recordSeparator, Long skip, Long limit, Configuration configuration) {
+            return parseCSVFile(reader, yVariable, headerDataTypes, delimiter, quote, recordSeparator, skip, limit, configuration, false);
+        }
+
+        /**
+         * It builds a Dataframe object from a CSV file; the first line of the provided
+         * CSV file must have a header with the column names. If the columnar flag
+         * is set, the Records are stored using the columnar layout.
+         *
+         * @param reader
+         * @param yVariable
+         * @param headerDataTypes
+         * @param delimiter
+         * @param quote
+         * @param recordSeparator
+         * @param skip
+         * @param limit
+         * @param configuration
+         * @param columnar
+         * @return
+         * @see #parseCSVFile(Reader, String, LinkedHashMap, char, char, String, Long, Long, Configuration)
+         */
+        public static Dataframe parseCSVFile(Reader reader, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes,
+                                             char delimiter, char quote, String recordSeparator, Long skip, Long limit, Configuration configuration, boolean columnar) {
             Logger logger = LoggerFactory.getLogger(Dataframe.Builder.class);
 
             if(skip == null) {
@@ -162,7 +204,7 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
             TypeInference.DataType yDataType = headerDataTypes.get(yVariable);
             Map<String, TypeInference.DataType> xDataTypes = new HashMap<>(headerDataTypes); //copy header types
             xDataTypes.remove(yVariable); //remove the response variable from xDataTypes
-            Dataframe dataset = new Dataframe(configuration, yDataType, xDataTypes); //use the private constructor to pass DataTypes directly and avoid updating them on the fly
+            Dataframe dataset = new Dataframe(configuration, columnar, yDataType, xDataTypes); //use the private constructor to pass DataTypes directly and avoid updating them on the fly
 
 
             CSVFormat format = CSVFormat
@@ -177,27 +219,11 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
                     Integer rId = e.getKey();
                     CSVRecord row = e.getValue();
 
-                    if (!row.isConsistent()) {
+                    Record r = parseCSVRecord(row, yVariable, headerDataTypes);
+                    if (r == null) {
                         logger.warn("WARNING: Skipping row {} because its size does not match the header size.", row.getRecordNumber());
                     }
                     else {
-                        Object y = null;
-                        AssociativeArray xData = new AssociativeArray();
-                        for (Map.Entry<String, TypeInference.DataType> entry : headerDataTypes.entrySet()) {
-                            String column = entry.getKey();
-                            TypeInference.DataType dataType = entry.getValue();
-
-                            Object value = TypeInference.DataType.parse(row.get(column), dataType); //parse the string value according to the DataType
-                            if (yVariable != null && yVariable.equals(column)) {
-                                y = value;
-                            }
-                            else {
-                                xData.put(column, value);
-                            }
-                        }
-
-                        Record r = new Record(xData, y);
-
                         //use the internal unsafe methods to avoid the update of the Metas.
                         //The Metas are already set in the construction of the Dataframe.
                         dataset._unsafe_set(rId, r);
@@ -210,6 +236,182 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
             return dataset;
         }
 
+        /**
+         * It builds a Dataframe object from a UTF-8 CSV file; the first line of
+         * the file must have a header with the column names.
+         *
+         * Unlike the Reader based method, the file is split on record boundaries
+         * into chunks which are memory-mapped and parsed in parallel. Every chunk
+         * knows the ids of its records, so the ids are identical to the ones of
+         * the sequential parsing.
+         *
+         * @param file
+         * @param yVariable
+         * @param headerDataTypes
+         * @param delimiter
+         * @param quote
+         * @param recordSeparator
+         * @param skip
+         * @param limit
+         * @param configuration
+         * @return
+         * @see #parseCSVFile(Reader, String, LinkedHashMap, char, char, String, Long, Long, Configuration)
+         */
+        public static Dataframe parseCSVFile(Path file, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes,
+                                             char delimiter, char quote, String recordSeparator, Long skip, Long limit, Configuration configuration) {
+            return parseCSVFile(file, yVariable, headerDataTypes, delimiter, quote, recordSeparator, skip, limit, configuration, false);
+        }
+
+        /**
+         * It builds a Dataframe object from a UTF-8 CSV file by parsing its chunks
+         * in parallel. If the columnar flag is set, the Records are stored using
+         * the columnar layout.
+         *
+         * @param file
+         * @param yVariable
+         * @param headerDataTypes
+         * @param delimiter
+         * @param quote
+         * @param recordSeparator
+         * @param skip
+         * @param limit
+         * @param configuration
+         * @param columnar
+         * @return
+         * @see #parseCSVFile(Path, String, LinkedHashMap, char, char, String, Long, Long, Configuration)
+         */
+        public static Dataframe parseCSVFile(Path file, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes,
+                                             char delimiter, char quote, String recordSeparator, Long skip, Long limit, Configuration configuration, boolean columnar) {
+            long chunkSize;
+            try {
+                chunkSize = Files.size(file)/(4L*configuration.getConcurrencyConfiguration().getMaxNumberOfThreadsPerTask());
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            chunkSize = Math.max(MIN_CSV_CHUNK_SIZE, Math.min(MAX_CSV_CHUNK_SIZE, chunkSize));
+            return parseCSVFile(file, yVariable, headerDataTypes, delimiter, quote, recordSeparator, skip, limit, configuration, columnar, chunkSize);
+        }
+
+        /**
+         * Parses the CSV file using chunks of the provided size.
+         *
+         * @param file
+         * @param yVariable
+         * @param headerDataTypes
+         * @param delimiter
+         * @param quote
+         * @param recordSeparator
+         * @param skip
+         * @param limit
+         * @param configuration
+         * @param columnar
+         * @param chunkSize
+         * @return
+         */
+        static Dataframe parseCSVFile(Path file, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes,
+                                      char delimiter, char quote, String recordSeparator, Long skip, Long limit, Configuration configuration, boolean columnar, long chunkSize) {
+            Logger logger = LoggerFactory.getLogger(Dataframe.Builder.class);
+
+            long first = (skip == null)?0L:skip;
+            long last = (limit == null || limit > Long.MAX_VALUE - first)?Long.MAX_VALUE:first + limit;
+
+            logger.info("Parsing CSV file {}", file);
+
+            if (!headerDataTypes.containsKey(yVariable)) {
+                logger.warn("WARNING: The file is missing the response variable column {}.", yVariable);
+            }
+
+            TypeInference.DataType yDataType = headerDataTypes.get(yVariable);
+            Map<String, TypeInference.DataType> xDataTypes = new HashMap<>(headerDataTypes); //copy header types
+            xDataTypes.remove(yVariable); //remove the response variable from xDataTypes
+            Dataframe dataset = new Dataframe(configuration, columnar, yDataType, xDataTypes); //use the private constructor to pass DataTypes directly and avoid updating them on the fly
+
+            CSVFormat format = CSVFormat
+                    .RFC4180
+                    .withDelimiter(delimiter)
+                    .withQuote(quote)
+                    .withRecordSeparator(recordSeparator);
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                CSVChunks csvChunks = new CSVChunks(channel, quote, chunkSize);
+
+                String[] header;
+                try (CSVParser parser = new CSVParser(csvChunks.readHeader(), format.withHeader())) {
+                    header = parser.getHeaderMap().keySet().toArray(new String[0]);
+                }
+                CSVFormat chunkFormat = format.withHeader(header);
+
+                Stream<CSVChunks.Chunk> chunks = csvChunks.getChunks().stream()
+                        .filter(c -> c.getFirstRecord() + c.getRecords() > first && c.getFirstRecord() < last)
+                        .parallel();
+                dataset.streamExecutor.forEach(chunks, chunk -> {
+                    int endRecord = chunk.getFirstRecord() + chunk.getRecords();
+                    int rId = chunk.getFirstRecord();
+                    Map<Integer, Record> batch = new LinkedHashMap<>();
+                    try (CSVParser parser = new CSVParser(csvChunks.read(chunk), chunkFormat)) {
+                        for (CSVRecord row : parser) {
+                            if (rId < endRecord && rId >= first && rId < last) {
+                                Record r = parseCSVRecord(row, yVariable, headerDataTypes);
+                                if (r == null) {
+                                    logger.warn("WARNING: Skipping row {} because its size does not match the header size.", rId + 1);
+                                }
+                                else {
+                                    batch.put(rId, r);
+                                }
+                            }
+                            rId++;
+                        }
+                    }
+                    catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    if (rId != endRecord) {
+                        throw new IllegalArgumentException("The CSV file could not be split on record boundaries; check its quotes.");
+                    }
+
+                    //the Metas are already set in the construction of the Dataframe
+                    dataset._unsafe_setAll(batch);
+                });
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return dataset;
+        }
+
+        /**
+         * Converts a row of the CSV file to a Record. It returns null if the
+         * size of the row does not match the header.
+         *
+         * @param row
+         * @param yVariable
+         * @param headerDataTypes
+         * @return
+         */
+        private static Record parseCSVRecord(CSVRecord row, String yVariable, LinkedHashMap<String, TypeInference.DataType> headerDataTypes) {
+            if (!row.isConsistent()) {
+                return null;
+            }
+
+            Object y = null;
+            AssociativeArray xData = new AssociativeArray();
+            for (Map.Entry<String, TypeInference.DataType> entry : headerDataTypes.entrySet()) {
+                String column = entry.getKey();
+                TypeInference.DataType dataType = entry.getValue();
+
+                Object value = TypeInference.DataType.parse(row.get(column), dataType); //parse the string value according to the DataType
+                if (yVariable != null && yVariable.equals(column)) {
+                    y = value;
+                }
+                else {
+                    xData.put(column, value);
+                }
+            }
+
+            return new Record(xData, y);
+        }
+
         /**
          * It loads a dataframe that has already been stored.
          *
@@ -229,11 +431,12 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
     private static class Data extends BigMapHolder {
         private TypeInference.DataType yDataType = null;
         private AtomicInteger atomicNextAvailableRecordId = new AtomicInteger();
+        private boolean columnar = false;
 
         @BigMap(keyClass=Object.class, valueClass=TypeInference.DataType.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
         private Map<Object, TypeInference.DataType> xDataTypes;
 
-        @BigMap(keyClass=Integer.class, valueClass=Record.class, mapType=MapType.TREEMAP, storageHint=StorageHint.IN_DISK, concurrent=true)
+        @BigMap(keyClass=Integer.class, valueClass=Record.class, mapType=MapType.ARRAYMAP, storageHint=StorageHint.IN_DISK, concurrent=true)
         private Map<Integer, Record> records;
 
         /**
@@ -244,6 +447,17 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         private Data(StorageEngine storageEngine) {
             super(storageEngine);
         }
+
+        /**
+         * Replaces the records map of the storage engine with a columnar one.
+         *
+         * @param storageEngine
+         */
+        private void useColumnarLayout(StorageEngine storageEngine) {
+            storageEngine.dropBigMap("records", records);
+            records = new ColumnarRecordMap();
+            columnar = true;
+        }
     }
 
     /**
@@ -273,6 +487,11 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
      */
     private final ForkJoinStream streamExecutor;
 
+    /**
+     * The writes of saveAsync() which have not completed yet.
+     */
+    private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+
     /**
      * Public constructor of Dataframe.
      *
@@ -287,6 +506,27 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         stored = false;
     }
 
+    /**
+     * Public constructor of Dataframe which allows selecting the layout of the
+     * Records. If the columnar flag is set, the Records are decomposed into 
+     * typed columns (primitive arrays, bitsets and dictionary codes) which share
+     * a common column dictionary. The columnar layout requires several times less
+     * memory for dense datasets but it is not suitable for sparse data such as 
+     * texts. The columnar Records are always kept on the heap: the storage hints
+     * and the disk maps of the configured StorageEngine (MapDB, OffHeap etc) are
+     * not used for them and they are serialized together with the rest of the
+     * Dataframe when it is saved.
+     *
+     * @param configuration
+     * @param columnar
+     */
+    public Dataframe(Configuration configuration, boolean columnar) {
+        this(configuration);
+        if(columnar) {
+            data.useColumnarLayout(storageEngine);
+        }
+    }
+
     /**
      * Private constructor used by the Builder inner static class.
      *
@@ -306,11 +546,12 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
      * Private constructor used by the Builder inner static class.
      *
      * @param configuration
+     * @param columnar
      * @param yDataType
      * @param xDataTypes
      */
-    private Dataframe(Configuration configuration, TypeInference.DataType yDataType, Map<String, TypeInference.DataType> xDataTypes) {
-        this(configuration);
+    private Dataframe(Configuration configuration, boolean columnar, TypeInference.DataType yDataType, Map<String, TypeInference.DataType> xDataTypes) {
+        this(configuration, columnar);
         this.data.yDataType = yDataType;
         this.data.xDataTypes.putAll(xDataTypes);
     }
@@ -337,11 +578,45 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         stored = true;
     }
 
+    /**
+     * Copies the data to a temporary storage and publishes it under the
+     * provided name in the background. If the name is the one of the current
+     * storage, the method blocks and saves in place by calling save(), because
+     * publishing would replace the directory which the storage engine keeps
+     * open; the returned future is then already completed.
+     *
+     * @param storageName
+     * @return
+     */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        if(storageName.equals(storageEngine.getStorageName())) {
+            //publishing replaces the directory of the name which the storage engine keeps open, so save it in place instead
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                save(storageName);
+                future.complete(null);
+            }
+            catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+            return future;
+        }
+
+        StorageSnapshot snapshot = new StorageSnapshot(configuration.getStorageConfiguration());
+        snapshot.addObject("data", data);
+        CompletableFuture<Void> future = snapshot.writeAsync(storageName);
+        pendingWrites.add(future);
+        future.whenComplete((r, ex) -> pendingWrites.remove(future));
+        return future;
+    }
+
     /**
      * Deletes the Dataframe and removes all internal variables. Once you delete a
      * dataset, the instance can no longer be used.
      */
     public void delete() {
+        awaitPendingWrites();
         storageEngine.clear();
         _close();
     }
@@ -359,10 +634,27 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         }
     }
 
+    /**
+     * Waits until the writes of saveAsync() complete, so that the copies are
+     * published before the storage is closed. Their failures are reported by
+     * their futures.
+     */
+    private void awaitPendingWrites() {
+        for(CompletableFuture<Void> future : pendingWrites) {
+            try {
+                future.join();
+            }
+            catch (CompletionException | CancellationException ex) {
+                //the caller of saveAsync() handles the failure
+            }
+        }
+    }
+
     /**
      * Closes the storage engine.
      */
     private void _close() {
+        awaitPendingWrites();
         try {
             storageEngine.close();
         }
@@ -434,12 +726,23 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         return data.records.containsValue((Record)o);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * Adds all the records of the collection in a single batch. The records
+     * get consecutive ids, they are written in the storage with one bulk
+     * operation and the meta-data are updated once for the whole batch.
+     *
+     * @param c
+     * @return
+     */
     @Override
     public boolean addAll(Collection<? extends Record> c) {
-        c.stream().forEach(r -> {
-            add(r);
-        });
+        int rId = data.atomicNextAvailableRecordId.getAndAdd(c.size());
+        Map<Integer, Record> batch = new LinkedHashMap<>();
+        for(Record r : c) {
+            batch.put(rId++, r);
+        }
+        storageEngine.putAll(data.records, batch);
+        updateMeta(batch.values());
         return true;
     }
 
@@ -632,6 +935,19 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         return rId;
     }
 
+    /**
+     * Sets the records of the provided ids in a single batch. The records are
+     * written in the storage with one bulk operation and the meta-data are
+     * updated once for the whole batch. The same notes as in set() apply for
+     * the meta-data of the replaced Records.
+     *
+     * @param records
+     */
+    public void setAll(Map<Integer, Record> records) {
+        _unsafe_setAll(records);
+        updateMeta(records.values());
+    }
+
     /**
      * Returns the total number of X columns in the Dataframe.
      *
@@ -641,6 +957,16 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         return data.xDataTypes.size();
     }
 
+    /**
+     * Returns whether the Records are stored using the columnar layout. The
+     * columnar Records are kept on the heap irrespective of the StorageEngine.
+     *
+     * @return
+     */
+    public boolean isColumnar() {
+        return data.columnar;
+    }
+
     /**
      * Returns the type of the response variable y.
      *
@@ -661,12 +987,18 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
 
     /**
      * It extracts the values of a particular column from all records and
-     * stores them into an FlatDataList.
+     * stores them into an FlatDataList. If the Dataframe uses the columnar
+     * layout, the returned FlatDataList is a read-only view of the column 
+     * and no values are copied.
      *
      * @param column
      * @return
      */
     public FlatDataList getXColumn(Object column) {
+        if(data.columnar) {
+            return new FlatDataList(((ColumnarRecordMap)data.records).getColumn(column));
+        }
+
         FlatDataList flatDataList = new FlatDataList();
 
         for(Record r : values()) {
@@ -735,7 +1067,7 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
      * @return
      */
     public Dataframe getSubset(FlatDataList idsCollection) {
-        Dataframe d = new Dataframe(configuration);
+        Dataframe d = new Dataframe(configuration, data.columnar);
 
         for(Object id : idsCollection) {
             d.add(get((Integer)id));
@@ -757,7 +1089,7 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
     /** {@inheritDoc} */
     @Override
     public Dataframe copy() {
-        Dataframe d = new Dataframe(configuration);
+        Dataframe d = new Dataframe(configuration, data.columnar);
 
         for(Map.Entry<Integer, Record> e : entries()) {
             Integer rId = e.getKey();
@@ -874,6 +1206,22 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         return data.records.put(rId, r);
     }
 
+    /**
+     * Sets the records of the provided ids in the dataset without updating the
+     * Meta. The next available id is moved after the largest id of the batch.
+     *
+     * @param records
+     */
+    private void _unsafe_setAll(Map<Integer, Record> records) {
+        if(records.isEmpty()) {
+            return;
+        }
+        int maxId = Collections.max(records.keySet());
+        data.atomicNextAvailableRecordId.updateAndGet(x -> Math.max(x, maxId+1));
+
+        storageEngine.putAll(data.records, records);
+    }
+
     /**
      * Adds the record in the dataset without updating the Meta. The add method
      * returns the id of the new record.
@@ -912,4 +1260,37 @@ public class Dataframe implements Collection<Record>, Copyable<Dataframe>, Savab
         }
     }
 
+    /**
+     * Updates the meta data of the Dataframe using a batch of Records. The
+     * DataTypes are inferred once per column of the batch.
+     *
+     * @param records
+     */
+    private void updateMeta(Collection<Record> records) {
+        Map<Object, TypeInference.DataType> batchDataTypes = new HashMap<>();
+        Object y = null;
+        for(Record r : records) {
+            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                Object column = entry.getKey();
+                Object value = entry.getValue();
+
+                if(value!=null && !batchDataTypes.containsKey(column)) {
+                    batchDataTypes.put(column, TypeInference.getDataType(value));
+                }
+            }
+
+            if(y == null) {
+                y = r.getY();
+            }
+        }
+
+        for(Map.Entry<Object, TypeInference.DataType> entry : batchDataTypes.entrySet()) {
+            data.xDataTypes.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        if(data.yDataType == null && y != null) {
+            data.yDataType = TypeInference.getDataType(y);
+        }
+    }
+
 }
\ No newline at end of file
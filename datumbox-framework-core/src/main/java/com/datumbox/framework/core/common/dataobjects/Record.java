@@ -85,11 +85,26 @@ public class Record implements Serializable {
      * @param yPredictedProbabilities 
      */
     public Record(AssociativeArray x, Object y, Object yPredicted, AssociativeArray yPredictedProbabilities) {
-        this.x = AssociativeArray.copy2Unmodifiable(x);
+        this(x, y, yPredicted, yPredictedProbabilities, true);
+    }
+    
+    /**
+     * Package-private constructor which allows skipping the copy of x and 
+     * yPredictedProbabilities. It should be used without copying only when the 
+     * provided arguments are already unmodifiable and not referenced elsewhere.
+     * 
+     * @param x
+     * @param y
+     * @param yPredicted
+     * @param yPredictedProbabilities 
+     * @param copy
+     */
+    Record(AssociativeArray x, Object y, Object yPredicted, AssociativeArray yPredictedProbabilities, boolean copy) {
+        this.x = copy?AssociativeArray.copy2Unmodifiable(x):x;
         this.y = y;
         this.yPredicted = yPredicted;
         if (yPredictedProbabilities != null) {
-            this.yPredictedProbabilities = AssociativeArray.copy2Unmodifiable(yPredictedProbabilities);
+            this.yPredictedProbabilities = copy?AssociativeArray.copy2Unmodifiable(yPredictedProbabilities):yPredictedProbabilities;
         }
         else {
             this.yPredictedProbabilities = null;
@@ -138,6 +153,20 @@ public class Record implements Serializable {
         return yPredictedProbabilities;
     }
     
+    /**
+     * Returns a new Record with the same x and y and the provided predictions.
+     * The xData are shared with this Record since they are unmodifiable, and the
+     * yPredictedProbabilities are wrapped without copying, so they must not be
+     * modified afterwards.
+     * 
+     * @param yPredicted
+     * @param yPredictedProbabilities
+     * @return 
+     */
+    public Record withPrediction(Object yPredicted, AssociativeArray yPredictedProbabilities) {
+        return new Record(x, y, yPredicted, yPredictedProbabilities!=null?AssociativeArray.convert2Unmodifiable(yPredictedProbabilities):null, false);
+    }
+    
     /**
      * The hash code of the record. Depends only on x and y.
      * 
@@ -15,6 +15,8 @@
  */
 package com.datumbox.framework.core.common.interfaces;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The Savable interface is implemented by all the objects that can be stored.
  *
@@ -29,6 +31,20 @@ public interface Savable extends AutoCloseable {
      */
     public void save(String storageName);
 
+    /**
+     * Saves a copy of the data of the object in the background. The data are
+     * copied to a temporary storage before the method returns, so the object
+     * keeps using its current storage and it can be modified while the copy is
+     * written. The close() and delete() methods wait for the pending copies to
+     * complete. Saving under the name of the current storage is done
+     * synchronously by save() in the calling thread and the returned future is
+     * already completed.
+     *
+     * @param storageName
+     * @return
+     */
+    public CompletableFuture<Void> saveAsync(String storageName);
+
     /**
      * Deletes the data of the object.
      */
@@ -18,16 +18,17 @@ package com.datumbox.framework.core.machinelearning.classification;
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.common.concurrency.StreamMethods;
 import com.datumbox.framework.common.dataobjects.AssociativeArray;
-import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.dataobjects.TypeInference;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.algorithms.AbstractNaiveBayes;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.FeatureClassWeights;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 
 /**
@@ -107,46 +108,35 @@ public class BernoulliNaiveBayes extends AbstractNaiveBayes<BernoulliNaiveBayes.
     @Override
     public PredictParallelizable.Prediction _predictRecord(Record r) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        Map<List<Object>, Double> logLikelihoods = modelParameters.getLogLikelihoods();
+        FeatureClassWeights logLikelihoods = modelParameters.getLogLikelihoods();
         Map<Object, Double> logPriors = modelParameters.getLogPriors();
         Set<Object> classesSet = modelParameters.getClasses();
         Map<Object, Double> sumOfLog1minusProb = modelParameters.getSumOfLog1minusProb();
         
-        Object someClass = classesSet.iterator().next();
-        
-        
-        //Build new map here! clear the prediction scores with the scores of the classes
-        AssociativeArray predictionScores = new AssociativeArray(new HashMap<>(logPriors));
-
+        //resolve the class ids once and initialize the scores with the scores of the priors
         //in order to avoid looping throug all available features for each record, we have already calculated the Sum of log(1-prob). So we know the score of a record that has no feature activated. We add this score on the initial score below:
-        for(Map.Entry<Object, Double> entry : sumOfLog1minusProb.entrySet()) {
-            Object theClass = entry.getKey();
-            Double value = entry.getValue();
-            Double previousValue = predictionScores.getDouble(theClass);
-            predictionScores.put(theClass, previousValue+value);
+        Object[] classes = classesSet.toArray();
+        int[] classIds = new int[classes.length];
+        double[] scores = new double[classes.length];
+        for(int k=0;k<classes.length;k++) {
+            classIds[k] = logLikelihoods.getClassId(classes[k]);
+            scores[k] = logPriors.get(classes[k]) + sumOfLog1minusProb.get(classes[k]);
         }
 
 
         //Then we loop through all the active features of the record, we add the log(prob) and we subtract the log(1-prob)
         for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-            Object feature = entry.getKey();
+            int featureId = logLikelihoods.getFeatureId(entry.getKey());
 
 
             //EVERY feature within our dictionary has a value for EVERY class
-            //So if the feature has no value for one random class (someClass has 
+            //So if the feature has no value for one random class (the first class has 
             //no particular significance), then it will not have for any class
             //and thus the feature is not in the dictionary and can be ignored.
-            if(!logLikelihoods.containsKey(Arrays.asList(feature, someClass))) {
+            if(featureId<0 || !logLikelihoods.containsWeight(featureId, classIds[0])) {
                 continue;
             }
 
-            //extract the feature scores for each class for the particular feature
-            AssociativeArray classLogScoresForThisFeature = new AssociativeArray(); 
-            for(Object theClass : classesSet) {
-                Double logScore = logLikelihoods.get(Arrays.asList(feature, theClass));
-                classLogScoresForThisFeature.put(theClass, logScore);
-            }
-
 
             Double occurrences= TypeInference.toDouble(entry.getValue());
             if(occurrences==null || occurrences==0.0) { 
@@ -154,13 +144,17 @@ public class BernoulliNaiveBayes extends AbstractNaiveBayes<BernoulliNaiveBayes.
             }
             //no need to specifically binarize the occurrences. we will not multiply the score by it
 
-            for(Map.Entry<Object, Object> entry2 : classLogScoresForThisFeature.entrySet()) {
-                Object theClass = entry2.getKey();
-                Double probability = TypeInference.toDouble(entry2.getValue());
-                Double previousValue = predictionScores.getDouble(theClass);
-                predictionScores.put(theClass, previousValue + Math.log(probability)-Math.log(1.0-probability));
+            for(int k=0;k<classes.length;k++) {
+                double probability = logLikelihoods.getWeight(featureId, classIds[k]);
+                scores[k] += Math.log(probability)-Math.log(1.0-probability);
             }
         }
+        
+        //Build new map here! fill the prediction scores with the scores of the classes
+        AssociativeArray predictionScores = new AssociativeArray(new HashMap<>(logPriors));
+        for(int k=0;k<classes.length;k++) {
+            predictionScores.put(classes[k], scores[k]);
+        }
 
         Object predictedClass=getSelectedClassFromClassScores(predictionScores);
 
@@ -171,106 +165,36 @@ public class BernoulliNaiveBayes extends AbstractNaiveBayes<BernoulliNaiveBayes.
     
     /** {@inheritDoc} */
     @Override
-    protected void _fit(Dataframe trainingData) {
+    protected void estimateLikelihoods() {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        int n = trainingData.size();
-        int d = trainingData.xColumnSize();
         
         knowledgeBase.getTrainingParameters().setMultiProbabilityWeighted(false);
         
-        
-        Map<List<Object>, Double> likelihoods = modelParameters.getLogLikelihoods();
-        Map<Object, Double> logPriors = modelParameters.getLogPriors();
+        FeatureClassWeights featureCounts = modelParameters.getFeatureCounts();
+        Map<Object, Double> totalFeatureOccurrences = modelParameters.getTotalFeatureOccurrences();
         Set<Object> classesSet = modelParameters.getClasses();
         Map<Object, Double> sumOfLog1minusProb = modelParameters.getSumOfLog1minusProb();
+        int d = featureCounts.getFeatureDictionary().size();
         
-        
-        //calculate first statistics about the classes
-        Map<Object, Integer> totalFeatureOccurrencesForEachClass = new HashMap<>();
-        for(Record r : trainingData) {
-            Object theClass=r.getY();
-            
-            if(classesSet.add(theClass)) { //is it new class? add it
-                logPriors.put(theClass, 1.0);  
-                totalFeatureOccurrencesForEachClass.put(theClass, 0);
-                sumOfLog1minusProb.put(theClass, 0.0);
-            }
-            else { //already exists? increase counter
-                logPriors.put(theClass,logPriors.get(theClass)+1.0);
-            }
-        }
-        
-        //Loop through all the classes to ensure that the feature-class combination is initialized for ALL the classes
-        //The math REQUIRE us to have scores for all classes to make the probabilities comparable.
-        /*
-            Implementation note:
-            The code below uses the metadata from the Dataframe to avoid looping through all the data. 
-            This means that if the metadata are stale (contain more columns than the actual data due to 
-            updates/removes) we will initialize more parameters here. Nevertheless this should not have 
-            any effects on the results of the algorithm since the scores will be the same in all classes
-            and it will be taken care by the normalization.
-        */
-        streamExecutor.forEach(StreamMethods.stream(trainingData.getXDataTypes().keySet().stream(), isParallelized()), feature -> {
-            for(Object theClass : classesSet) {
-                List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                likelihoods.put(featureClassTuple, 0.0); //the key unique across threads and the map is concurrent
-            }
-        });
-        
-        
-        //now calculate the statistics of features
-        streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> {
-            Object theClass = r.getY();
-            
-            //store the occurrances of the features
-            int sumOfOccurrences = 0;
-            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                Object feature = entry.getKey();
-                Double occurrences=TypeInference.toDouble(entry.getValue());
-                
-                if(occurrences!= null && occurrences>0.0) {
-                    //The below block of code clips occurrences to 1
-                    List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                    likelihoods.put(featureClassTuple, likelihoods.get(featureClassTuple)+1.0); //each thread updates a unique key and the map is cuncurrent
-                    
-                    sumOfOccurrences++;
-                }
-            }
-            
-            synchronized(totalFeatureOccurrencesForEachClass) {
-                totalFeatureOccurrencesForEachClass.put(theClass, totalFeatureOccurrencesForEachClass.get(theClass)+sumOfOccurrences);
-            }
-            
-        });
-        
-        //calculate prior log probabilities
-        for(Map.Entry<Object, Double> entry : logPriors.entrySet()) {
-            Object theClass = entry.getKey();
-            Double count = entry.getValue();
-            
-            //updated log priors
-            logPriors.put(theClass, Math.log(count/n));
-        }
-        
-        //update log likelihood
+        //update likelihood
+        FeatureClassWeights likelihoods = modelParameters.getLogLikelihoods();
         for(Object theClass : classesSet) {
-            double sumLog1minusP = streamExecutor.sum(StreamMethods.stream(trainingData.getXDataTypes().keySet().stream(), isParallelized()).mapToDouble(feature -> {
-                List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                Double occurrences = likelihoods.get(featureClassTuple);
+            int classId = featureCounts.getClassId(theClass);
+            double totalOccurrences = totalFeatureOccurrences.get(theClass);
+            double sumLog1minusP = streamExecutor.sum(StreamMethods.stream(IntStream.range(0, d), isParallelized()).mapToDouble(featureId -> {
+                double occurrences = featureCounts.getWeight(featureId, classId);
 
                 //We perform laplace smoothing (also known as add-1)
-                Double smoothedProbability = (occurrences+1.0)/(totalFeatureOccurrencesForEachClass.get(theClass)+d); // the d is also known in NLP problems as the Vocabulary size. 
+                Double smoothedProbability = (occurrences+1.0)/(totalOccurrences+d); // the d is also known in NLP problems as the Vocabulary size. 
 
-                likelihoods.put(featureClassTuple, smoothedProbability);
+                likelihoods.setWeight(featureId, classId, smoothedProbability);
 
                 double log1minusP = Math.log( 1.0-smoothedProbability );
                 
                 return log1minusP;
             }));
             
-            sumOfLog1minusProb.put(theClass, sumOfLog1minusProb.get(theClass) + sumLog1minusP); 
+            sumOfLog1minusProb.put(theClass, sumLog1minusP); 
         }
-        
-        //Drop the temporary Collection
     }
 }
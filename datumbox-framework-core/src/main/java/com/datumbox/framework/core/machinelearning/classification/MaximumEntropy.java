@@ -28,15 +28,15 @@ import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClassifier;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.FeatureClassWeights;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 
 /**
@@ -56,8 +56,10 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
     public static class ModelParameters extends AbstractClassifier.AbstractModelParameters {
         private static final long serialVersionUID = 1L;
         
-        @BigMap(keyClass=List.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
-        private Map<List<Object>, Double> lambdas; //the lambda parameters of the model
+        @BigMap(keyClass=Long.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Long, Double> lambdaValues; //the values of the lambdas, unless they are dense
+
+        private FeatureClassWeights lambdas; //the lambda parameters of the model
         
         /** 
          * @param storageEngine
@@ -65,6 +67,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
          */
         protected ModelParameters(StorageEngine storageEngine) {
             super(storageEngine);
+            lambdas = new FeatureClassWeights("lambdaValues", lambdaValues);
         }
         
         /**
@@ -72,7 +75,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
          * 
          * @return 
          */
-        public Map<List<Object>, Double> getLambdas() {
+        public FeatureClassWeights getLambdas() {
             return lambdas;
         }
         
@@ -81,7 +84,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
          * 
          * @param lambdas 
          */
-        protected void setLambdas(Map<List<Object>, Double> lambdas) {
+        protected void setLambdas(FeatureClassWeights lambdas) {
             this.lambdas = lambdas;
         }
         
@@ -92,6 +95,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
         private static final long serialVersionUID = 1L;
         
         private int totalIterations=100; 
+        private boolean denseWeights=false;
         
         /**
          * Getter for the total iterations of the training process.
@@ -111,6 +115,26 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
             this.totalIterations = totalIterations;
         }
 
+        /**
+         * Getter for whether the lambdas are stored in a dense array.
+         *
+         * @return
+         */
+        public boolean isDenseWeights() {
+            return denseWeights;
+        }
+
+        /**
+         * Setter for whether the lambdas are stored in a dense array on the heap
+         * instead of a BigMap. The dense array is faster but the training keeps
+         * three arrays of numberOfFeatures*numberOfClasses doubles.
+         *
+         * @param denseWeights
+         */
+        public void setDenseWeights(boolean denseWeights) {
+            this.denseWeights = denseWeights;
+        }
+
     }
 
 
@@ -163,12 +187,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
     /** {@inheritDoc} */
     @Override
     public Prediction _predictRecord(Record r) {
-        Set<Object> classesSet = knowledgeBase.getModelParameters().getClasses();
-        
-        AssociativeArray predictionScores = new AssociativeArray();
-        for(Object theClass : classesSet) {
-            predictionScores.put(theClass, calculateClassScore(r.getX(), theClass));
-        }
+        AssociativeArray predictionScores = calculateClassScores(r.getX());
         
         Object predictedClass=getSelectedClassFromClassScores(predictionScores);
 
@@ -183,8 +202,10 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         int n = trainingData.size();
         
-        
-        Map<List<Object>, Double> lambdas = modelParameters.getLambdas();
+        if(knowledgeBase.getTrainingParameters().isDenseWeights()) {
+            modelParameters.setLambdas(new FeatureClassWeights());
+        }
+        FeatureClassWeights lambdas = modelParameters.getLambdas();
         Set<Object> classesSet = modelParameters.getClasses();
         double Cmax = 0.0; //max number of activated features in the dataset. Required from the IIS algorithm
         
@@ -192,7 +213,9 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
         for(Record r : trainingData) { 
             Object theClass=r.getY();
             
-            classesSet.add(theClass); 
+            if(classesSet.add(theClass)) {
+                lambdas.internClass(theClass);
+            }
             
             //counts the number of non-zero (active) features of the record
             int activeFeatures=(int) r.getX().values().stream().filter(e -> e !=null && TypeInference.toDouble(e) > 0.0).count();
@@ -205,17 +228,24 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
             
         }
         
+        //we assign ids to all the features and we allocate the storage before the parallel updates
+        for(Object feature : trainingData.getXDataTypes().keySet()) {
+            lambdas.internFeature(feature);
+        }
+        lambdas.ensureCapacity();
+        
         //create a temporary map for the observed probabilities in training set
         StorageEngine storageEngine = knowledgeBase.getStorageEngine();
-        Map<List<Object>, Double> tmp_EpFj_observed = storageEngine.getBigMap("tmp_EpFj_observed", (Class<List<Object>>)(Class<?>)List.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+        FeatureClassWeights tmp_EpFj_observed = lambdas.emptyCopy(storageEngine, "tmp_EpFj_observed");
         
         //Loop through all the classes to ensure that the feature-class combination is initialized for ALL the classes
         //The math REQUIRE us to have scores for all classes to make the probabilities comparable.
         streamExecutor.forEach(StreamMethods.stream(trainingData.getXDataTypes().keySet().stream(), isParallelized()), feature -> {
+            int featureId = lambdas.getFeatureId(feature);
             for(Object theClass : classesSet) {
-                List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                tmp_EpFj_observed.put(featureClassTuple, 0.0);
-                lambdas.put(featureClassTuple, 0.0);
+                int classId = lambdas.getClassId(theClass);
+                tmp_EpFj_observed.setWeight(featureId, classId, 0.0);
+                lambdas.setWeight(featureId, classId, 0.0);
             }
         });
         
@@ -224,17 +254,15 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
         
         //then we calculate the observed probabilities in training set
         streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> {
-            Object theClass = r.getY();
+            //find the class of this particular example
+            int classId = lambdas.getClassId(r.getY());
             //store the occurrances of the features
             for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
                 Double occurrences=TypeInference.toDouble(entry.getValue());
                 if (occurrences!=null && occurrences>0.0) {
-                    Object feature = entry.getKey();
-
-                    //find the class of this particular example
-                    List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                    synchronized(tmp_EpFj_observed) {
-                        tmp_EpFj_observed.put(featureClassTuple, tmp_EpFj_observed.get(featureClassTuple) + increment);
+                    int featureId = lambdas.getFeatureId(entry.getKey());
+                    if(featureId>=0) {
+                        tmp_EpFj_observed.addWeight(featureId, classId, increment); //the addition is atomic
                     }
                 }
             }
@@ -247,59 +275,60 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
         
         
         //Drop the temporary Collection
-        storageEngine.dropBigMap("tmp_EpFj_observed", tmp_EpFj_observed);
+        tmp_EpFj_observed.drop(storageEngine, "tmp_EpFj_observed");
     }
     
-    private void IIS(Dataframe trainingData, Map<List<Object>, Double> EpFj_observed, double Cmax) {
+    private void IIS(Dataframe trainingData, FeatureClassWeights EpFj_observed, double Cmax) {
         
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
 
         int totalIterations = knowledgeBase.getTrainingParameters().getTotalIterations();
-        Set<Object> classesSet = modelParameters.getClasses();
-        Map<List<Object>, Double> lambdas = modelParameters.getLambdas();
+        FeatureClassWeights lambdas = modelParameters.getLambdas();
         
         int n = trainingData.size();
+        int numberOfFeatures = lambdas.getFeatureDictionary().size();
+        int numberOfClasses = lambdas.getClassDictionary().size();
         
         StorageEngine storageEngine = knowledgeBase.getStorageEngine();
         for(int iteration=0;iteration<totalIterations;++iteration) {
             
             logger.debug("Iteration {}", iteration);
             
-            Map<List<Object>, Double> tmp_EpFj_model = storageEngine.getBigMap("tmp_EpFj_model", (Class<List<Object>>)(Class<?>)List.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, false, true);
+            FeatureClassWeights tmp_EpFj_model = lambdas.emptyCopy(storageEngine, "tmp_EpFj_model");
             
             //calculate the model probabilities
             streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> { //slow parallel loop
                 
-                //build a map with the scores of the record for each class
-                AssociativeArray classScores = new AssociativeArray();
+                //find the ids of the active features of the record
                 AssociativeArray xData = r.getX();
-                for(Object theClass : classesSet) {
-                    double score = calculateClassScore(xData, theClass);
-                    classScores.put(theClass, score);
+                int[] activeFeatureIds = new int[xData.size()];
+                int length = 0;
+                for(Map.Entry<Object, Object> entry : xData.entrySet()) {
+                    Double occurrences=TypeInference.toDouble(entry.getValue());
+                    if(occurrences==null || occurrences==0.0) {
+                        continue;
+                    }
+                    int featureId = lambdas.getFeatureId(entry.getKey());
+                    if(featureId>=0) {
+                        activeFeatureIds[length++] = featureId;
+                    }
                 }
                 
+                //build a map with the scores of the record for each class
+                AssociativeArray classScores = calculateClassScores(xData);
+                
                 Descriptives.normalizeExp(classScores);
                 
                 
                 //It is the average probability across all documents for a specific characteristic
                 for(Map.Entry<Object, Object> entry : classScores.entrySet()) {
-                    Object theClass = entry.getKey();
+                    int classId = lambdas.getClassId(entry.getKey());
                     Double score = TypeInference.toDouble(entry.getValue());
 
                     double probabilityFraction = score/n;
                     
-                    synchronized(tmp_EpFj_model) {
-                        for(Map.Entry<Object, Object> entry2 : r.getX().entrySet()) {
-                            Double occurrences=TypeInference.toDouble(entry2.getValue());
-
-                            if(occurrences==null || occurrences==0.0) {
-                                continue;
-                            }
-                            Object feature = entry2.getKey();
-                            List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-
-                            tmp_EpFj_model.put(featureClassTuple, tmp_EpFj_model.getOrDefault(featureClassTuple, 0.0) + probabilityFraction);           
-                        }
+                    for(int j=0;j<length;j++) {
+                        tmp_EpFj_model.addWeight(activeFeatureIds[j], classId, probabilityFraction); //the addition is atomic
                     }
                 }
                 //classScores=null;
@@ -308,11 +337,15 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
             
             AtomicBoolean infiniteValuesDetected = new AtomicBoolean(false);
             //Now we have the model probabilities. We will use it to estimate the Deltas and finally update the lamdas
-            streamExecutor.forEach(StreamMethods.stream(tmp_EpFj_model.entrySet().stream(), isParallelized()), featureClassCounts -> {
-                List<Object> tp = featureClassCounts.getKey();
+            streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, numberOfFeatures*numberOfClasses), isParallelized()), pairId -> {
+                int featureId = pairId/numberOfClasses;
+                int classId = pairId%numberOfClasses;
+                if(!tmp_EpFj_model.containsWeight(featureId, classId)) {
+                    return; //only the feature-class pairs which were activated by the data are updated
+                }
                 
-                Double EpFj_observed_value = EpFj_observed.get(tp);
-                Double EpFj_model_value = featureClassCounts.getValue();    
+                double EpFj_observed_value = EpFj_observed.getWeight(featureId, classId);
+                double EpFj_model_value = tmp_EpFj_model.getWeight(featureId, classId);    
                 
                 
                 if(Math.abs(EpFj_observed_value-EpFj_model_value)<=1e-8) {
@@ -344,7 +377,7 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
                     //non-negative infinite weight in the dataset. This is something
                     //similar to the plus1 smoothing.
                     
-                    lambdas.put(tp, Double.NEGATIVE_INFINITY);
+                    lambdas.setWeight(featureId, classId, Double.NEGATIVE_INFINITY);
                     infiniteValuesDetected.set(true);
                 }
                 else if(EpFj_model_value==0.0) {
@@ -365,14 +398,14 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
                     //weight.
                     
                     
-                    lambdas.put(tp, Double.POSITIVE_INFINITY);
+                    lambdas.setWeight(featureId, classId, Double.POSITIVE_INFINITY);
                     infiniteValuesDetected.set(true);
                 }
                 else {
                     //the formula below can't produce a +inf or -inf value
                     double deltaJ = Math.log(EpFj_observed_value/EpFj_model_value)/Cmax;
-                    double newValue = lambdas.get(tp) + deltaJ;
-                    lambdas.put(tp, newValue); //update lamdas by delta
+                    double newValue = lambdas.getWeight(featureId, classId) + deltaJ;
+                    lambdas.setWeight(featureId, classId, newValue); //update lamdas by delta
                 }
             });
             
@@ -383,51 +416,53 @@ public class MaximumEntropy extends AbstractClassifier<MaximumEntropy.ModelParam
                 Double minimumNonInfiniteLambdaWeight = streamExecutor.min(StreamMethods.stream(lambdas.values().stream(), isParallelized()).filter(v -> Double.isFinite(v)), Double::compare).get();
                 Double maximumNonInfiniteLambdaWeight = streamExecutor.max(StreamMethods.stream(lambdas.values().stream(), isParallelized()).filter(v -> Double.isFinite(v)), Double::compare).get();
                 
-                streamExecutor.forEach(StreamMethods.stream(lambdas.entrySet().stream(), isParallelized()), e -> {
-                    List<Object> featureClass = e.getKey();
-                    Double value = e.getValue();
+                streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, numberOfFeatures*numberOfClasses), isParallelized()), pairId -> {
+                    int featureId = pairId/numberOfClasses;
+                    int classId = pairId%numberOfClasses;
+                    double value = lambdas.getWeight(featureId, classId);
                     
                     if(Double.isInfinite(value)) {
                         if(value<0.0) { //value==Double.NEGATIVE_INFINITY
-                            lambdas.put(featureClass, minimumNonInfiniteLambdaWeight);
+                            lambdas.setWeight(featureId, classId, minimumNonInfiniteLambdaWeight);
                         }
                         else { //value==Double.POSITIVE_INFINITY
-                            lambdas.put(featureClass, maximumNonInfiniteLambdaWeight);
+                            lambdas.setWeight(featureId, classId, maximumNonInfiniteLambdaWeight);
                         }
                     }
                 });
             }
             
-            
-            
             //Drop the temporary Collection
-            storageEngine.dropBigMap("tmp_EpFj_model", tmp_EpFj_model);
+            tmp_EpFj_model.drop(storageEngine, "tmp_EpFj_model");
         }
         
     }
     
-    private Double calculateClassScore(AssociativeArray x, Object theClass) {
-        double score = 0;
-        
-        Map<List<Object>, Double> lambdas = knowledgeBase.getModelParameters().getLambdas();
+    private AssociativeArray calculateClassScores(AssociativeArray x) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        FeatureClassWeights lambdas = modelParameters.getLambdas();
         
+        //resolve the feature ids once; the unknown features are ignored by the dot product
+        int[] featureIds = new int[x.size()];
+        double[] values = new double[x.size()];
+        int length = 0;
         for(Map.Entry<Object, Object> entry : x.entrySet()) {
             Double value = TypeInference.toDouble(entry.getValue());
             if(value==null || value==0.0) {
                 continue; //ignore the feature if it has no value
             }
             //note that we will not use the value any more. MaxEntropy classifier is binarized.
-            
-            Object feature = entry.getKey();
-            List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-            
-            Double lambdaWeight = lambdas.get(featureClassTuple);
-            if(lambdaWeight!=null) {//ensure that the feature is in the dictionary
-                score+=lambdaWeight;
-            }
+            featureIds[length] = lambdas.getFeatureId(entry.getKey());
+            values[length] = 1.0;
+            ++length;
+        }
+        
+        AssociativeArray classScores = new AssociativeArray();
+        for(Object theClass : modelParameters.getClasses()) {
+            classScores.put(theClass, lambdas.dotProduct(lambdas.getClassId(theClass), featureIds, values, length));
         }
         
-        return score;
+        return classScores;
     }
 
 }
@@ -28,14 +28,20 @@ import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClassifier;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.GradientAccumulator;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.ObjectInterner;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
+import com.datumbox.framework.core.mathematics.optimizers.AbstractOptimizer;
+import com.datumbox.framework.core.mathematics.optimizers.ObjectiveFunction;
 import com.datumbox.framework.core.mathematics.regularization.L2Regularizer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
 
 
 /**
@@ -122,6 +128,7 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
         private int totalIterations=100; 
         private double learningRate=0.1;
         private double l2=0.0;
+        private AbstractOptimizer optimizer=null;
 
         /**
          * Getter for the total iterations of the training process.
@@ -177,6 +184,27 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
         public void setL2(double l2) {
             this.l2 = l2;
         }
+
+        /**
+         * Getter for the optimizer which is used to fit the model.
+         *
+         * @return
+         */
+        public AbstractOptimizer getOptimizer() {
+            return optimizer;
+        }
+
+        /**
+         * Setter for the optimizer which is used to fit the model. When it is
+         * null, the model is fitted with Batch Gradient Descent and an adaptive
+         * learning rate; otherwise the totalIterations is the maximum number of
+         * passes of the optimizer over the data and the learningRate is ignored.
+         *
+         * @param optimizer
+         */
+        public void setOptimizer(AbstractOptimizer optimizer) {
+            this.optimizer = optimizer;
+        }
     }
 
 
@@ -267,6 +295,21 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
             weights.put(feature, 0.0);
         }        
         
+        //assign ids to the features and the classes for the gradient accumulation
+        ObjectInterner featureDictionary = new ObjectInterner();
+        for(Object feature : weights.keySet()) {
+            featureDictionary.intern(feature);
+        }
+        ObjectInterner classDictionary = new ObjectInterner();
+        for(Object theClass : sortedClasses) {
+            classDictionary.intern(theClass);
+        }
+        
+        
+        if(trainingParameters.getOptimizer() != null) {
+            optimizerFit(trainingData, featureDictionary, classDictionary);
+            return;
+        }
         
         //mapping between the thita and the exact previous thita value
         Map<Object, Object> previousThitaMapping = getPreviousThitaMappings();
@@ -286,7 +329,7 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
             
             tmp_newThitas.putAll(thitas);
             tmp_newWeights.putAll(weights);
-            batchGradientDescent(trainingData, previousThitaMapping, tmp_newWeights, tmp_newThitas, learningRate);
+            batchGradientDescent(trainingData, previousThitaMapping, featureDictionary, classDictionary, tmp_newWeights, tmp_newThitas, learningRate);
             
             double newError = calculateError(trainingData, previousThitaMapping, tmp_newWeights, tmp_newThitas);
             
@@ -312,14 +355,120 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
         }
     }
 
-    private void batchGradientDescent(Dataframe trainingData, Map<Object, Object> previousThitaMapping, Map<Object, Double> newWeights, Map<Object, Double> newThitas, double learningRate) {
+    private void optimizerFit(Dataframe trainingData, ObjectInterner featureDictionary, ObjectInterner classDictionary) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        
+        Map<Object, Double> weights = modelParameters.getWeights();
+        Map<Object, Double> thitas = modelParameters.getThitas();
+        double l2 = trainingParameters.getL2();
+        
+        //the weights are stored in the first positions followed by the thitas of all the classes except the last one which is always infinite
+        int numberOfFeatures = featureDictionary.size();
+        int numberOfClasses = classDictionary.size();
+        int dimension = numberOfFeatures + numberOfClasses - 1;
+        double[] parameters = new double[dimension];
+        for(int i=0;i<numberOfFeatures;i++) {
+            parameters[i] = weights.get(featureDictionary.getObject(i));
+        }
+        for(int c=0;c<numberOfClasses-1;c++) {
+            parameters[numberOfFeatures+c] = thitas.get(classDictionary.getObject(c));
+        }
+        
+        int[] recordIds = new int[trainingData.size()];
+        int n = 0;
+        for(Integer rId : trainingData.index()) {
+            recordIds[n++] = rId;
+        }
+        
+        ObjectiveFunction objective = new ObjectiveFunction() {
+            @Override
+            public int getNumberOfExamples() {
+                return recordIds.length;
+            }
+
+            @Override
+            public int getDimension() {
+                return dimension;
+            }
+
+            @Override
+            public double evaluate(double[] w, int[] examples, int from, int to, double[] gradient) {
+                GradientAccumulator accumulator = streamExecutor.collect(StreamMethods.stream(IntStream.range(from, to), isParallelized()), () -> new GradientAccumulator(dimension), (acc, position) -> {
+                    Record r = trainingData.get(recordIds[examples[position]]);
+                    
+                    //the classes are interned in ascending order so the previous class has the previous id
+                    int classId = classDictionary.getId(r.getY());
+                    int previousClassId = classId - 1;
+                    boolean isLastClass = classId == numberOfClasses - 1;
+                    
+                    double xTw = 0.0;
+                    for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                        int featureId = featureDictionary.getId(entry.getKey());
+                        Double xij = TypeInference.toDouble(entry.getValue());
+                        if(featureId>=0 && xij!=null) {
+                            xTw += w[featureId]*xij;
+                        }
+                    }
+                    
+                    double gOfCurrent = 0.0;
+                    if(!isLastClass) {
+                        double thitaCurrent = w[numberOfFeatures + classId];
+                        acc.addLoss(h(xTw-thitaCurrent));
+                        gOfCurrent = g(xTw-thitaCurrent);
+                        acc.add(numberOfFeatures + classId, -gOfCurrent);
+                    }
+                    
+                    double gOfPrevious = 0.0;
+                    if(previousClassId>=0) {
+                        double thitaPrevious = w[numberOfFeatures + previousClassId];
+                        acc.addLoss(h(thitaPrevious-xTw));
+                        gOfPrevious = g(thitaPrevious-xTw);
+                        acc.add(numberOfFeatures + previousClassId, gOfPrevious);
+                    }
+                    
+                    double dtG = gOfCurrent - gOfPrevious;
+                    for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                        int featureId = featureDictionary.getId(entry.getKey());
+                        Double xij = TypeInference.toDouble(entry.getValue());
+                        if(featureId>=0 && xij!=null) {
+                            acc.add(featureId, xij*dtG);
+                        }
+                    }
+                }, GradientAccumulator::merge);
+                
+                int batchSize = to - from;
+                Arrays.fill(gradient, 0.0);
+                accumulator.forEachNonZero((i, grad) -> gradient[i] = grad/batchSize);
+                L2Regularizer.updateGradient(l2, w, numberOfFeatures, gradient);
+                
+                return accumulator.getLoss()/batchSize + L2Regularizer.estimatePenalty(l2, w, numberOfFeatures);
+            }
+        };
+        
+        trainingParameters.getOptimizer().minimize(objective, parameters, trainingParameters.getTotalIterations());
+        
+        for(int i=0;i<numberOfFeatures;i++) {
+            weights.put(featureDictionary.getObject(i), parameters[i]);
+        }
+        for(int c=0;c<numberOfClasses-1;c++) {
+            thitas.put(classDictionary.getObject(c), parameters[numberOfFeatures+c]);
+        }
+    }
+
+    private void batchGradientDescent(Dataframe trainingData, Map<Object, Object> previousThitaMapping, ObjectInterner featureDictionary, ObjectInterner classDictionary, Map<Object, Double> newWeights, Map<Object, Double> newThitas, double learningRate) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
 
         double multiplier = -learningRate/trainingData.size();
         Map<Object, Double> weights = modelParameters.getWeights();
         Map<Object, Double> thitas = modelParameters.getThitas();
         
-        streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> { 
+        //the gradient of the weights is stored in the first positions of the accumulator and the gradient of the thitas after them
+        int numberOfFeatures = featureDictionary.size();
+        int dimension = numberOfFeatures + classDictionary.size();
+        
+        //every worker accumulates the gradient of its records in its own buffer and the buffers are added at the end, so no locking is required
+        GradientAccumulator gradient = streamExecutor.collect(StreamMethods.stream(trainingData.stream(), isParallelized()), GradientAccumulator.collector(dimension, (accumulator, r) -> { 
             Object rClass = r.getY();
             Object rPreviousClass = previousThitaMapping.get(rClass);
             
@@ -335,22 +484,32 @@ public class OrdinalRegression extends AbstractClassifier<OrdinalRegression.Mode
             
             
             //update weights                
-            synchronized(newWeights) {
-                for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                    Object column = entry.getKey();
-                    Double xij = TypeInference.toDouble(entry.getValue());
-
-                    double xij_dtG_multiplier = xij*dtG_multiplier;
-                    newWeights.put(column, newWeights.get(column)+xij_dtG_multiplier);
+            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                int featureId = featureDictionary.getId(entry.getKey());
+                Double xij = TypeInference.toDouble(entry.getValue());
+                if(featureId<0 || xij==null) {
+                    continue;
                 }
+
+                double xij_dtG_multiplier = xij*dtG_multiplier;
+                accumulator.add(featureId, xij_dtG_multiplier);
             }
             
-            synchronized(newThitas) {
-                //update thitas
-                newThitas.put(rClass, newThitas.get(rClass)+multiplier*(-gOfCurrent));
-                if(rPreviousClass!=null) {
-                    newThitas.put(rPreviousClass, newThitas.get(rPreviousClass)+multiplier*gOfPrevious);
-                }
+            //update thitas
+            accumulator.add(numberOfFeatures + classDictionary.getId(rClass), multiplier*(-gOfCurrent));
+            if(rPreviousClass!=null) {
+                accumulator.add(numberOfFeatures + classDictionary.getId(rPreviousClass), multiplier*gOfPrevious);
+            }
+        }));
+        
+        gradient.forEachNonZero((i, delta) -> {
+            if(i<numberOfFeatures) {
+                Object column = featureDictionary.getObject(i);
+                newWeights.put(column, newWeights.get(column)+delta);
+            }
+            else {
+                Object theClass = classDictionary.getObject(i-numberOfFeatures);
+                newThitas.put(theClass, newThitas.get(theClass)+delta);
             }
         });
 
@@ -28,17 +28,22 @@ import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClassifier;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.FeatureClassWeights;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.GradientAccumulator;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
+import com.datumbox.framework.core.mathematics.optimizers.AbstractOptimizer;
+import com.datumbox.framework.core.mathematics.optimizers.ObjectiveFunction;
+import com.datumbox.framework.core.mathematics.optimizers.SparseGradient;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 import com.datumbox.framework.core.mathematics.regularization.ElasticNetRegularizer;
 import com.datumbox.framework.core.mathematics.regularization.L1Regularizer;
 import com.datumbox.framework.core.mathematics.regularization.L2Regularizer;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 
 /**
@@ -59,8 +64,10 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
     public static class ModelParameters extends AbstractClassifier.AbstractModelParameters {
         private static final long serialVersionUID = 1L;
 
-        @BigMap(keyClass=List.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
-        private Map<List<Object>, Double> thitas; //the thita parameters of the model
+        @BigMap(keyClass=Long.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Long, Double> thitaValues; //the values of the thitas, unless they are dense
+
+        private FeatureClassWeights thitas; //the thita parameters of the model
         
         /** 
          * @param storageEngine
@@ -68,6 +75,7 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
          */
         protected ModelParameters(StorageEngine storageEngine) {
             super(storageEngine);
+            thitas = new FeatureClassWeights("thitaValues", thitaValues);
         }
         
         /**
@@ -75,7 +83,7 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
          * 
          * @return 
          */
-        public Map<List<Object>, Double> getThitas() {
+        public FeatureClassWeights getThitas() {
             return thitas;
         }
         
@@ -84,7 +92,7 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
          * 
          * @param thitas 
          */
-        protected void setThitas(Map<List<Object>, Double> thitas) {
+        protected void setThitas(FeatureClassWeights thitas) {
             this.thitas = thitas;
         }
     } 
@@ -97,6 +105,8 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
         private double learningRate=0.1;
         private double l1=0.0;
         private double l2=0.0;
+        private AbstractOptimizer optimizer=null;
+        private boolean denseWeights=false;
         
         /**
          * Getter for the total iterations of the training process.
@@ -171,6 +181,47 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
             this.l2 = l2;
         }
 
+        /**
+         * Getter for the optimizer which is used to fit the model.
+         *
+         * @return
+         */
+        public AbstractOptimizer getOptimizer() {
+            return optimizer;
+        }
+
+        /**
+         * Setter for the optimizer which is used to fit the model. When it is
+         * null, the model is fitted with Batch Gradient Descent and an adaptive
+         * learning rate; otherwise the totalIterations is the maximum number of
+         * passes of the optimizer over the data and the learningRate is ignored.
+         *
+         * @param optimizer
+         */
+        public void setOptimizer(AbstractOptimizer optimizer) {
+            this.optimizer = optimizer;
+        }
+
+        /**
+         * Getter for whether the thitas are stored in a dense array.
+         *
+         * @return
+         */
+        public boolean isDenseWeights() {
+            return denseWeights;
+        }
+
+        /**
+         * Setter for whether the thitas are stored in a dense array on the heap
+         * instead of a BigMap. The dense array is faster but it allocates
+         * numberOfFeatures*numberOfClasses doubles, even for sparse data.
+         *
+         * @param denseWeights
+         */
+        public void setDenseWeights(boolean denseWeights) {
+            this.denseWeights = denseWeights;
+        }
+
     }
 
 
@@ -225,13 +276,7 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
     public Prediction _predictRecord(Record r) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         
-        Set<Object> classesSet = modelParameters.getClasses();
-        Map<List<Object>, Double> thitas = modelParameters.getThitas();
-        
-        AssociativeArray predictionScores = new AssociativeArray();
-        for(Object theClass : classesSet) {
-            predictionScores.put(theClass, calculateClassScore(r.getX(), theClass, thitas));
-        }
+        AssociativeArray predictionScores = calculateClassScores(r.getX(), modelParameters.getThitas());
 
         Object predictedClass=getSelectedClassFromClassScores(predictionScores);
 
@@ -246,28 +291,47 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
         
-        
-        Map<List<Object>, Double> thitas = modelParameters.getThitas();
+        if(trainingParameters.isDenseWeights()) {
+            modelParameters.setThitas(new FeatureClassWeights());
+        }
+        FeatureClassWeights thitas = modelParameters.getThitas();
         Set<Object> classesSet = modelParameters.getClasses();
         
         //first we need to find all the classes
         for(Record r : trainingData) { 
             Object theClass=r.getY();
             
-            classesSet.add(theClass); 
+            if(classesSet.add(theClass)) {
+                thitas.internClass(theClass);
+            }
         }
         
+        //we assign ids to all the features and we allocate the storage before the parallel updates
+        int constantId = thitas.internFeature(Dataframe.COLUMN_NAME_CONSTANT);
+        for(Object feature : trainingData.getXDataTypes().keySet()) {
+            thitas.internFeature(feature);
+        }
+        thitas.ensureCapacity();
+        
         //we initialize the thitas to zero for all features and all classes compinations
         for(Object theClass : classesSet) {
-            thitas.put(Arrays.asList(Dataframe.COLUMN_NAME_CONSTANT, theClass), 0.0);
+            thitas.setWeight(constantId, thitas.getClassId(theClass), 0.0);
         }
         
         streamExecutor.forEach(StreamMethods.stream(trainingData.getXDataTypes().keySet().stream(), isParallelized()), feature -> {
+            int featureId = thitas.getFeatureId(feature);
             for(Object theClass : classesSet) {
-                thitas.putIfAbsent(Arrays.asList(feature, theClass), 0.0);
+                int classId = thitas.getClassId(theClass);
+                if(!thitas.containsWeight(featureId, classId)) {
+                    thitas.setWeight(featureId, classId, 0.0);
+                }
             }
         });
         
+        if(trainingParameters.getOptimizer() != null) {
+            optimizerFit(trainingData);
+            return;
+        }
         
         double minError = Double.POSITIVE_INFINITY;
         
@@ -278,9 +342,8 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
             
             logger.debug("Iteration {}", iteration);
             
-            Map<List<Object>, Double> tmp_newThitas = storageEngine.getBigMap("tmp_newThitas", (Class<List<Object>>)(Class<?>)List.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+            FeatureClassWeights tmp_newThitas = thitas.copy(storageEngine, "tmp_newThitas");
             
-            tmp_newThitas.putAll(thitas);
             batchGradientDescent(trainingData, tmp_newThitas, learningRate);
             
             double newError = calculateError(trainingData,tmp_newThitas);
@@ -294,29 +357,166 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
                 minError=newError;
                 
                 //keep the new thitas
-                thitas.clear();
-                thitas.putAll(tmp_newThitas);
+                thitas.copyFrom(tmp_newThitas);
             }
             
             //Drop the temporary Collection
-            storageEngine.dropBigMap("tmp_newThitas", tmp_newThitas);
+            tmp_newThitas.drop(storageEngine, "tmp_newThitas");
+        }
+    }
+
+    private void optimizerFit(Dataframe trainingData) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        
+        FeatureClassWeights thitas = modelParameters.getThitas();
+        int constantId = thitas.getFeatureId(Dataframe.COLUMN_NAME_CONSTANT);
+        int numberOfFeatures = thitas.getFeatureDictionary().size();
+        int numberOfClasses = thitas.getClassDictionary().size();
+        int dimension = numberOfFeatures*numberOfClasses;
+        double l1 = trainingParameters.getL1();
+        double l2 = trainingParameters.getL2();
+        
+        //the weight of feature f and class c is stored at position f*numberOfClasses+c
+        double[] weights = new double[dimension];
+        for(int i=0;i<dimension;i++) {
+            weights[i] = thitas.getWeight(i/numberOfClasses, i%numberOfClasses);
+        }
+        
+        int[] recordIds = new int[trainingData.size()];
+        int n = 0;
+        for(Integer rId : trainingData.index()) {
+            recordIds[n++] = rId;
+        }
+        
+        ObjectiveFunction objective = new ObjectiveFunction() {
+            @Override
+            public int getNumberOfExamples() {
+                return recordIds.length;
+            }
+
+            @Override
+            public int getDimension() {
+                return dimension;
+            }
+
+            @Override
+            public double evaluate(double[] w, int[] examples, int from, int to, double[] gradient) {
+                GradientAccumulator accumulator = accumulate(w, examples, from, to);
+                
+                int batchSize = to - from;
+                Arrays.fill(gradient, 0.0);
+                accumulator.forEachNonZero((i, g) -> gradient[i] = g/batchSize);
+                ElasticNetRegularizer.updateGradient(l1, l2, w, dimension, gradient);
+                
+                return accumulator.getLoss()/batchSize + ElasticNetRegularizer.estimatePenalty(l1, l2, w, dimension);
+            }
+
+            @Override
+            public double evaluate(double[] w, int[] examples, int from, int to, SparseGradient gradient) {
+                GradientAccumulator accumulator = accumulate(w, examples, from, to);
+                
+                //only the weights of the features in the batch are touched and regularized, so the cost does not depend on the dimension
+                int batchSize = to - from;
+                gradient.clear();
+                accumulator.forEachNonZero((i, g) -> gradient.add(i, g/batchSize));
+                ElasticNetRegularizer.updateGradient(l1, l2, w, gradient);
+                
+                return accumulator.getLoss()/batchSize + ElasticNetRegularizer.estimatePenalty(l1, l2, w, gradient);
+            }
+
+            private GradientAccumulator accumulate(double[] w, int[] examples, int from, int to) {
+                return streamExecutor.collect(StreamMethods.stream(IntStream.range(from, to), isParallelized()), () -> new GradientAccumulator(dimension), (acc, position) -> {
+                    Record r = trainingData.get(recordIds[examples[position]]);
+                    
+                    AssociativeArray xData = r.getX();
+                    int[] featureIds = new int[xData.size()+1];
+                    double[] values = new double[xData.size()+1];
+                    int length = 0;
+                    for(Map.Entry<Object, Object> entry : xData.entrySet()) {
+                        Double value = TypeInference.toDouble(entry.getValue());
+                        int featureId = thitas.getFeatureId(entry.getKey());
+                        if(value!=null && featureId>=0) {
+                            featureIds[length] = featureId;
+                            values[length] = value;
+                            ++length;
+                        }
+                    }
+                    featureIds[length] = constantId;
+                    values[length] = 1.0;
+                    ++length;
+                    
+                    //the softmax probabilities are estimated in the same way as in the predictions
+                    double[] probabilities = new double[numberOfClasses];
+                    double maxScore = Double.NEGATIVE_INFINITY;
+                    for(int c=0;c<numberOfClasses;c++) {
+                        double score = 0.0;
+                        for(int j=0;j<length;j++) {
+                            score += w[featureIds[j]*numberOfClasses + c]*values[j];
+                        }
+                        probabilities[c] = score;
+                        maxScore = Math.max(maxScore, score);
+                    }
+                    double sum = 0.0;
+                    for(int c=0;c<numberOfClasses;c++) {
+                        probabilities[c] = Math.exp(probabilities[c] - maxScore);
+                        sum += probabilities[c];
+                    }
+                    
+                    int yId = thitas.getClassId(r.getY());
+                    acc.addLoss(logLoss(probabilities[yId]/sum));
+                    
+                    for(int c=0;c<numberOfClasses;c++) {
+                        double error = probabilities[c]/sum - (c==yId?1.0:0.0);
+                        for(int j=0;j<length;j++) {
+                            acc.add(featureIds[j]*numberOfClasses + c, error*values[j]);
+                        }
+                    }
+                }, GradientAccumulator::merge);
+            }
+        };
+        
+        trainingParameters.getOptimizer().minimize(objective, weights, trainingParameters.getTotalIterations());
+        
+        for(int i=0;i<dimension;i++) {
+            thitas.setWeight(i/numberOfClasses, i%numberOfClasses, weights[i]);
         }
     }
 
-    private void batchGradientDescent(Dataframe trainingData, Map<List<Object>, Double> newThitas, double learningRate) {
+    private void batchGradientDescent(Dataframe trainingData, FeatureClassWeights newThitas, double learningRate) {
         //NOTE! This is not the stochastic gradient descent. It is the batch gradient descent optimized for speed (despite it looks more than the stochastic). 
         //Despite the fact that the loops are inverse, the function still changes the values of Thitas at the end of the function. We use the previous thitas 
         //to estimate the costs and only at the end we update the new thitas.
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
 
         double multiplier = learningRate/trainingData.size();
-        Map<List<Object>, Double> thitas = modelParameters.getThitas();
+        FeatureClassWeights thitas = modelParameters.getThitas();
         Set<Object> classesSet = modelParameters.getClasses();
+        int constantId = thitas.getFeatureId(Dataframe.COLUMN_NAME_CONSTANT);
+        int numberOfClasses = thitas.getClassDictionary().size();
+        int dimension = thitas.getFeatureDictionary().size()*numberOfClasses;
         
-        streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> { //slow parallel loop
+        //every worker accumulates the gradient of its records in its own buffer and the buffers are added at the end, so no locking is required
+        GradientAccumulator gradient = streamExecutor.collect(StreamMethods.stream(trainingData.stream(), isParallelized()), GradientAccumulator.collector(dimension, (accumulator, r) -> { //slow parallel loop
+            //resolve the feature ids of the record once for all the classes
+            AssociativeArray xData = r.getX();
+            int[] featureIds = new int[xData.size()];
+            double[] values = new double[xData.size()];
+            int length = 0;
+            for(Map.Entry<Object, Object> entry : xData.entrySet()) {
+                Double value = TypeInference.toDouble(entry.getValue());
+                int featureId = thitas.getFeatureId(entry.getKey());
+                if(value!=null && featureId>=0) {
+                    featureIds[length] = featureId;
+                    values[length] = value;
+                    ++length;
+                }
+            }
+            
             //mind the fact that we use the previous thitas to estimate the new ones! this is because the thitas must be updated simultaniously
-            AssociativeArray classProbabilities = hypothesisFunction(r.getX(), thitas);
+            AssociativeArray classProbabilities = hypothesisFunction(xData, thitas);
             for(Object theClass : classesSet) {
+                int classId = thitas.getClassId(theClass);
                 
                 double error;
                 double score = classProbabilities.getDouble(theClass);
@@ -329,21 +529,15 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
                 
                 double errorMultiplier = multiplier*error;
                 
-                synchronized(newThitas) {
-                    //update the weights
-                    for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                        Double value = TypeInference.toDouble(entry.getValue());
-
-                        Object feature = entry.getKey();
-                        List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                        
-                        newThitas.put(featureClassTuple, newThitas.get(featureClassTuple)+errorMultiplier*value);   
-                    }
-                    List<Object> featureClassTuple = Arrays.asList(Dataframe.COLUMN_NAME_CONSTANT, theClass);
-                    newThitas.put(featureClassTuple, newThitas.get(featureClassTuple)+errorMultiplier); //update the weight of constant
+                //update the weights
+                for(int j=0;j<length;j++) {
+                    accumulator.add(featureIds[j]*numberOfClasses + classId, errorMultiplier*values[j]);
                 }
+                accumulator.add(constantId*numberOfClasses + classId, errorMultiplier); //update the weight of constant
             }
-        });
+        }));
+        
+        gradient.forEachNonZero((i, delta) -> newThitas.addWeight(i/numberOfClasses, i%numberOfClasses, delta));
 
         double l1 = knowledgeBase.getTrainingParameters().getL1();
         double l2 = knowledgeBase.getTrainingParameters().getL2();
@@ -360,35 +554,41 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
         
     }
     
-    private Double calculateClassScore(AssociativeArray x, Object theClass, Map<List<Object>, Double> thitas) {
-        double score = thitas.get(Arrays.asList(Dataframe.COLUMN_NAME_CONSTANT, theClass));
-        
+    private AssociativeArray calculateClassScores(AssociativeArray x, FeatureClassWeights thitas) {
+        //resolve the feature ids once; the unknown features are ignored by the dot product
+        int[] featureIds = new int[x.size()+1];
+        double[] values = new double[x.size()+1];
+        int length = 0;
         for(Map.Entry<Object, Object> entry : x.entrySet()) {
             Double value = TypeInference.toDouble(entry.getValue());
-            
-            Object feature = entry.getKey();
-            List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-            
-            Double thitaWeight = thitas.get(featureClassTuple);
-            if(thitaWeight!=null) {//ensure that the feature is in the dictionary
-                score+=thitaWeight*value;
+            if(value!=null) {
+                featureIds[length] = thitas.getFeatureId(entry.getKey());
+                values[length] = value;
+                ++length;
             }
         }
+        featureIds[length] = thitas.getFeatureId(Dataframe.COLUMN_NAME_CONSTANT);
+        values[length] = 1.0;
+        ++length;
         
-        return score;
+        AssociativeArray classScores = new AssociativeArray();
+        for(Object theClass : knowledgeBase.getModelParameters().getClasses()) {
+            classScores.put(theClass, thitas.dotProduct(thitas.getClassId(theClass), featureIds, values, length));
+        }
+        
+        return classScores;
     }
     
-    private double calculateError(Dataframe trainingData, Map<List<Object>, Double> thitas) {
+    private double calculateError(Dataframe trainingData, FeatureClassWeights thitas) {
         //The cost function as described on http://ufldl.stanford.edu/wiki/index.php/Softmax_Regression
         //It is optimized for speed to reduce the amount of loops
         
         double error = streamExecutor.sum(StreamMethods.stream(trainingData.stream(), isParallelized()).mapToDouble(r -> { 
             AssociativeArray classProbabilities = hypothesisFunction(r.getX(), thitas);
-            Double score = classProbabilities.getDouble(r.getY());
-            return Math.log(score); //no need to loop through the categories. Just grab the one that we are interested in
+            return logLoss(classProbabilities.getDouble(r.getY())); //no need to loop through the categories. Just grab the one that we are interested in
         }));
 
-        error = -error/trainingData.size();
+        error = error/trainingData.size();
 
         double l1 = knowledgeBase.getTrainingParameters().getL1();
         double l2 = knowledgeBase.getTrainingParameters().getL2();
@@ -406,21 +606,18 @@ public class SoftMaxRegression extends AbstractClassifier<SoftMaxRegression.Mode
         return error;
     }
     
-    private AssociativeArray hypothesisFunction(AssociativeArray x, Map<List<Object>, Double> thitas) {
-        Set<Object> classesSet = knowledgeBase.getModelParameters().getClasses();
-        AssociativeArray predictionProbabilities = new AssociativeArray(); 
-        
-        for(Object theClass : classesSet) {
-            double score=calculateClassScore(x, theClass, thitas);
-            if(score<=0) {
-                score=1e-8;
-            }
-            predictionProbabilities.put(theClass, score);
-        }
+    private AssociativeArray hypothesisFunction(AssociativeArray x, FeatureClassWeights thitas) {
+        //the softmax probabilities are estimated in the same way as in the predictions and in the optimizerFit()
+        AssociativeArray predictionProbabilities = calculateClassScores(x, thitas); 
         
-        Descriptives.normalize(predictionProbabilities);
+        Descriptives.normalizeExp(predictionProbabilities);
         
         return predictionProbabilities;
     }
+    
+    private static double logLoss(double probability) {
+        //the cross entropy of the correct class; both the bold driver and the optimizers minimize it
+        return -Math.log(Math.max(probability, 1e-300));
+    }
 
 }
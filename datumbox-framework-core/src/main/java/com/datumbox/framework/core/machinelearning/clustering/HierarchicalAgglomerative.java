@@ -21,18 +21,24 @@ import com.datumbox.framework.common.concurrency.StreamMethods;
 import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageConfiguration;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
-import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
-import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.common.utilities.MapMethods;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClusterer;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
+import com.datumbox.framework.core.mathematics.distances.CondensedDistanceMatrix;
 import com.datumbox.framework.core.mathematics.distances.Distance;
+import com.datumbox.framework.core.mathematics.distances.FeatureDictionary;
+import com.datumbox.framework.core.mathematics.distances.SparseDistance;
+import com.datumbox.framework.core.mathematics.distances.SparseVector;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * This class implements the Hierarchical Agglomerative clustering algorithm
@@ -41,6 +47,7 @@ import java.util.*;
  * References:
  * http://nlp.stanford.edu/IR-book/html/htmledition/hierarchical-agglomerative-clustering-1.html
  * http://php-nlp-tools.com/posts/faster-hierarchical-clustering.html
+ * https://arxiv.org/abs/1109.2378
  *
  * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
  */
@@ -212,6 +219,8 @@ public class HierarchicalAgglomerative extends AbstractClusterer<HierarchicalAgg
         
         private double minClustersThreshold = 2;
         
+        private long maxInMemoryDistances = 50000000L;
+        
         //Getters Setters
         /**
          * Getter for Linkage Method.
@@ -285,6 +294,28 @@ public class HierarchicalAgglomerative extends AbstractClusterer<HierarchicalAgg
             this.minClustersThreshold = minClustersThreshold;
         }
         
+        /**
+         * Getter for the maximum number of pairwise distances which are kept 
+         * in memory. Larger distance tables are stored in memory-mapped files
+         * of the directory of the storage configuration.
+         * 
+         * @return 
+         */
+        public long getMaxInMemoryDistances() {
+            return maxInMemoryDistances;
+        }
+        
+        /**
+         * Setter for the maximum number of pairwise distances which are kept 
+         * in memory. Larger distance tables are stored in memory-mapped files
+         * of the directory of the storage configuration.
+         * 
+         * @param maxInMemoryDistances 
+         */
+        public void setMaxInMemoryDistances(long maxInMemoryDistances) {
+            this.maxInMemoryDistances = maxInMemoryDistances;
+        }
+        
     }
 
 
@@ -396,23 +427,56 @@ public class HierarchicalAgglomerative extends AbstractClusterer<HierarchicalAgg
         return distance;
     } 
     
+    /**
+     * Estimates the distances of the vector from all the other vectors.
+     * 
+     * @param v
+     * @param others
+     * @param distances 
+     */
+    private void calculateDistances(SparseVector v, SparseVector[] others, double[] distances) {
+        TrainingParameters.Distance distanceMethod = knowledgeBase.getTrainingParameters().getDistanceMethod();
+        if(distanceMethod==TrainingParameters.Distance.EUCLIDIAN) {
+            SparseDistance.euclidean(v, others, distances);
+        }
+        else if(distanceMethod==TrainingParameters.Distance.MANHATTAN) {
+            SparseDistance.manhattan(v, others, distances);
+        }
+        else if(distanceMethod==TrainingParameters.Distance.MAXIMUM) {
+            SparseDistance.maximum(v, others, distances);
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported Distance method.");
+        }
+    }
+    
     private Object getSelectedClusterFromDistances(AssociativeArray clusterDistances) {
         Map.Entry<Object, Object> minEntry = MapMethods.selectMinKeyValue(clusterDistances);
         
         return minEntry.getKey();
     }
     
+    /**
+     * Returns the directory where the large distance tables are spilled. It is
+     * the directory of the file-based storage configurations and the temporary
+     * directory for the rest.
+     * 
+     * @return 
+     */
+    private Path getSpillDirectory() {
+        AbstractFileStorageConfiguration storageConfiguration = knowledgeBase.getConfiguration().getStorageConfiguration().unwrap(AbstractFileStorageConfiguration.class);
+        String directory = (storageConfiguration!=null)?storageConfiguration.getDirectory():null;
+        if(directory == null || directory.isEmpty()) {
+            directory = System.getProperty("java.io.tmpdir"); //same default as the file-based engines
+        }
+        return Paths.get(directory);
+    }
+    
     private void calculateClusters(Dataframe trainingData) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
         Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
         
-        StorageEngine storageEngine = knowledgeBase.getStorageEngine();
-
-        Map<List<Object>, Double> tmp_distanceArray = storageEngine.getBigMap("tmp_distanceArray", (Class<List<Object>>)(Class<?>)List.class, Double.class, MapType.HASHMAP, StorageHint.IN_CACHE, true, true); //it holds the distances between clusters
-        Map<Integer, Integer> tmp_minClusterDistanceId = storageEngine.getBigMap("tmp_minClusterDistanceId", Integer.class, Integer.class, MapType.HASHMAP, StorageHint.IN_CACHE, true, true); //it holds the ids of the min distances
-        
-        
         //initialize clusters, foreach point create a cluster
         Integer clusterId = 0;
         for(Record r : trainingData.values()) {
@@ -424,47 +488,57 @@ public class HierarchicalAgglomerative extends AbstractClusterer<HierarchicalAgg
             
             ++clusterId;
         }
+        int n = clusterId;
         
-        //calculate distance table and minimum distances
-        streamExecutor.forEach(StreamMethods.stream(clusterMap.entrySet().stream(), isParallelized()), entry1 -> {
-            Integer clusterId1 = entry1.getKey();
-            Cluster c1 = entry1.getValue();
-            
-            for(Map.Entry<Integer, Cluster> entry2 : clusterMap.entrySet()) {
-                Integer clusterId2 = entry2.getKey();
-                Cluster c2 = entry2.getValue();
-                
-                double distance = Double.MAX_VALUE;
-                if(!Objects.equals(clusterId1, clusterId2)) {
-                    distance = calculateDistance(c1.getCentroid(), c2.getCentroid());
-                }
-                
-                tmp_distanceArray.put(Arrays.asList(clusterId1, clusterId2), distance);
-                tmp_distanceArray.put(Arrays.asList(clusterId2, clusterId1), distance);
-                
-                Integer minDistanceId = tmp_minClusterDistanceId.get(clusterId1);
-                if(minDistanceId==null || distance < tmp_distanceArray.get(Arrays.asList(clusterId1, minDistanceId))) {
-                    tmp_minClusterDistanceId.put(clusterId1, clusterId2);
-                }
-            }
-        });
+        //encode the centroids once; the ids of the clusters are their positions
+        FeatureDictionary dictionary = new FeatureDictionary();
+        SparseVector[] centroids = new SparseVector[n];
+        for(Map.Entry<Integer, Cluster> entry : clusterMap.entrySet()) {
+            centroids[entry.getKey()] = SparseVector.of(entry.getValue().getCentroid().getX(), dictionary);
+        }
         
-        //merging process
-        boolean continueMerging = true;
-        while(continueMerging) {
-            continueMerging = mergeClosest(tmp_minClusterDistanceId, tmp_distanceArray);
-            
-            //count all the active clusters
-            int activeClusters = 0;
-            for(Cluster c : clusterMap.values()) {
-                if(c.isActive()) {
-                    ++activeClusters;
+        int[] mergeIds1 = new int[Math.max(n-1, 0)];
+        int[] mergeIds2 = new int[mergeIds1.length];
+        double[] mergeDistances = new double[mergeIds1.length];
+        try(CondensedDistanceMatrix distanceMatrix = new CondensedDistanceMatrix(n, trainingParameters.getMaxInMemoryDistances(), getSpillDirectory())) {
+            //calculate the upper triangle of the distance table
+            streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, n), isParallelized()), id1 -> {
+                double[] distances = new double[n-id1-1];
+                calculateDistances(centroids[id1], Arrays.copyOfRange(centroids, id1+1, n), distances);
+                for(int k=0;k<distances.length;k++) {
+                    //the undefined distances are treated as infinite
+                    distanceMatrix.set(id1, id1+1+k, Double.isNaN(distances[k])?Double.POSITIVE_INFINITY:distances[k]);
                 }
-            }
+            });
             
-            if(activeClusters<=trainingParameters.getMinClustersThreshold()) {
-                continueMerging = false;
+            //find the full dendrogram
+            nearestNeighborChain(distanceMatrix, mergeIds1, mergeIds2, mergeDistances);
+        }
+        
+        //replay the merges in increasing distance until one of the thresholds is reached; like the greedy algorithm, it never merges infinitely distant clusters
+        int[] order = IntStream.range(0, mergeDistances.length).boxed()
+                .sorted(Comparator.comparingDouble(m -> mergeDistances[m]))
+                .mapToInt(Integer::intValue).toArray();
+        int[] parents = IntStream.range(0, n).toArray();
+        int activeClusters = n;
+        for(int m : order) {
+            if(activeClusters<=trainingParameters.getMinClustersThreshold() || mergeDistances[m]>=trainingParameters.getMaxDistanceThreshold() || mergeDistances[m]>=Double.MAX_VALUE) {
+                break;
             }
+            
+            Integer clusterThatMergesId = findRoot(parents, mergeIds1[m]);
+            Integer clusterToBeMergedId = findRoot(parents, mergeIds2[m]);
+            Cluster c1 = clusterMap.get(clusterThatMergesId);
+            Cluster c2 = clusterMap.get(clusterToBeMergedId);
+            
+            //merge together the two clusters
+            c1.merge(c2);
+            clusterMap.put(clusterThatMergesId, c1);
+            c2.setActive(false); //set the cluster that we just merged inactive
+            clusterMap.put(clusterToBeMergedId, c2);
+            
+            parents[clusterToBeMergedId] = clusterThatMergesId;
+            --activeClusters;
         }
         
         //update centroids. it does not update their IDs
@@ -481,115 +555,115 @@ public class HierarchicalAgglomerative extends AbstractClusterer<HierarchicalAgg
                 it.remove(); //remove inactive clusters
             }
         }
-        
-        //Drop the temporary Collection
-        storageEngine.dropBigMap("tmp_distanceArray", tmp_distanceArray);
-        storageEngine.dropBigMap("tmp_minClusterDistanceId", tmp_minClusterDistanceId);
     }
     
-    private boolean mergeClosest(Map<Integer, Integer> minClusterDistanceId, Map<List<Object>, Double> distanceArray) {
-        ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
-        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
-        
-        //find the two closest clusters 
-        Integer minClusterId = null;
-        double minDistance = Double.MAX_VALUE;
-        
-        
-        for(Map.Entry<Integer, Cluster> entry : clusterMap.entrySet()) {
-            Integer clusterId = entry.getKey();
-            if(entry.getValue().isActive()==false) {
-                continue; //skip inactive clusters
+    /**
+     * Builds the dendrogram with the nearest-neighbor chain algorithm. It 
+     * follows the chain of nearest neighbors until it finds two reciprocal
+     * nearest neighbors, merges them and updates the distances with the 
+     * Lance-Williams formula. The distance matrix is overwritten.
+     * 
+     * @param distanceMatrix
+     * @param mergeIds1
+     * @param mergeIds2
+     * @param mergeDistances 
+     */
+    private void nearestNeighborChain(CondensedDistanceMatrix distanceMatrix, int[] mergeIds1, int[] mergeIds2, double[] mergeDistances) {
+        TrainingParameters.Linkage linkageMethod = knowledgeBase.getTrainingParameters().getLinkageMethod();
+        
+        int n = distanceMatrix.size();
+        boolean[] merged = new boolean[n];
+        int[] sizes = new int[n];
+        Arrays.fill(sizes, 1);
+        
+        int[] chain = new int[n];
+        int chainLength = 0;
+        int firstActive = 0;
+        for(int m=0;m<n-1;m++) {
+            if(chainLength==0) {
+                while(merged[firstActive]) {
+                    ++firstActive;
+                }
+                chain[chainLength++] = firstActive;
             }
             
-            double distance = distanceArray.get(Arrays.asList(clusterId, minClusterDistanceId.get(clusterId)));
-            if(distance<minDistance) {
-                minClusterId = clusterId;
-                minDistance = distance;
+            //grow the chain until its last two clusters are reciprocal nearest neighbors
+            int a, b;
+            double minDistance;
+            while(true) {
+                a = chain[chainLength-1];
+                
+                //on ties prefer the previous cluster of the chain to avoid cycles
+                b = (chainLength>1)?chain[chainLength-2]:-1;
+                minDistance = (b>=0)?distanceMatrix.get(a, b):Double.POSITIVE_INFINITY;
+                for(int k=0;k<n;k++) {
+                    if(k==a || merged[k]) {
+                        continue; //skip inactive clusters
+                    }
+                    double distance = distanceMatrix.get(a, k);
+                    if(b<0 || distance<minDistance) { //the first active cluster is accepted even if all the distances are infinite
+                        minDistance = distance;
+                        b = k;
+                    }
+                }
+                
+                if(chainLength>1 && b==chain[chainLength-2]) {
+                    chainLength-=2;
+                    break;
+                }
+                chain[chainLength++] = b;
             }
-        }
-        
-        if(minDistance>=trainingParameters.getMaxDistanceThreshold()) {
-            return false;
-        }
-        
-        final Integer clusterThatMergesId = minClusterId;
-        final Integer clusterToBeMergedId = minClusterDistanceId.get(clusterThatMergesId);        
-        Cluster c1 = clusterMap.get(clusterThatMergesId);
-        Cluster c2 = clusterMap.get(clusterToBeMergedId);
-        
-        double c1Size = c1.size();
-        double c2Size = c2.size();
-        
-        //merge together the two closest clusters
-        c1.merge(c2);
-        clusterMap.put(clusterThatMergesId, c1);
-        c2.setActive(false); //set the cluster that we just merged inactive
-        clusterMap.put(clusterToBeMergedId, c2);
-        
-        //update the distances with the merged cluster
-        TrainingParameters.Linkage linkageMethod = trainingParameters.getLinkageMethod();
-        streamExecutor.forEach(StreamMethods.stream(clusterMap.entrySet().stream(), isParallelized()), entry -> {
-        
-            Integer clusterId = entry.getKey();
-            Cluster ci = entry.getValue();
-            if(ci.isActive()) { //skip inactive clusters
             
-                double distance;
-                if(Objects.equals(clusterThatMergesId, clusterId)) {
-                    distance = Double.MAX_VALUE;
+            //keep the smallest id and merge the other cluster into it
+            int clusterThatMergesId = Math.min(a, b);
+            int clusterToBeMergedId = Math.max(a, b);
+            mergeIds1[m] = clusterThatMergesId;
+            mergeIds2[m] = clusterToBeMergedId;
+            mergeDistances[m] = minDistance;
+            
+            double c1Size = sizes[clusterThatMergesId];
+            double c2Size = sizes[clusterToBeMergedId];
+            for(int k=0;k<n;k++) {
+                if(k==clusterThatMergesId || k==clusterToBeMergedId || merged[k]) {
+                    continue; //skip inactive clusters
                 }
-                else if(linkageMethod==TrainingParameters.Linkage.SINGLE) {
-                    double c1ciDistance = distanceArray.get(Arrays.asList(clusterThatMergesId, clusterId));
-                    double c2ciDistance = distanceArray.get(Arrays.asList(clusterToBeMergedId, clusterId));
+                
+                double c1ciDistance = distanceMatrix.get(clusterThatMergesId, k);
+                double c2ciDistance = distanceMatrix.get(clusterToBeMergedId, k);
+                double distance;
+                if(linkageMethod==TrainingParameters.Linkage.SINGLE) {
                     distance = Math.min(c1ciDistance, c2ciDistance);
                 }
                 else if(linkageMethod==TrainingParameters.Linkage.COMPLETE) {
-                    double c1ciDistance = distanceArray.get(Arrays.asList(clusterThatMergesId, clusterId));
-                    double c2ciDistance = distanceArray.get(Arrays.asList(clusterToBeMergedId, clusterId));
                     distance = Math.max(c1ciDistance, c2ciDistance);
                 }
                 else if(linkageMethod==TrainingParameters.Linkage.AVERAGE) {
-                    double c1ciDistance = distanceArray.get(Arrays.asList(clusterThatMergesId, clusterId));
-                    double c2ciDistance = distanceArray.get(Arrays.asList(clusterToBeMergedId, clusterId));
                     distance = (c1ciDistance*c1Size + c2ciDistance*c2Size)/(c1Size+c2Size);
                 }
                 else {
-                    distance = calculateDistance(c1.getCentroid(), ci.getCentroid());
+                    throw new IllegalArgumentException("Unsupported Linkage method.");
                 }
-
-                distanceArray.put(Arrays.asList(clusterThatMergesId, clusterId), distance);
-                distanceArray.put(Arrays.asList(clusterId, clusterThatMergesId), distance);
+                distanceMatrix.set(clusterThatMergesId, k, distance);
             }
-        });
-        
-        //update minimum distance ids
-        streamExecutor.forEach(StreamMethods.stream(clusterMap.entrySet().stream(), isParallelized()), entry1 -> {
             
-            Integer id1 = entry1.getKey();
-            if (entry1.getValue().isActive()) { //skip inactive clusters
-                Integer minDistanceId = minClusterDistanceId.get(id1);
-                if (Objects.equals(minDistanceId, clusterThatMergesId) || Objects.equals(minDistanceId, clusterToBeMergedId)) {
-                    Integer newMinDistanceId = id1;
-                    
-                    for(Map.Entry<Integer, Cluster> entry2 : clusterMap.entrySet()) {
-                        Integer id2 = entry2.getKey();
-                        if(entry2.getValue().isActive()==false) {
-                            continue; //skip inactive clusters
-                        }
-                        
-                        if(distanceArray.get(Arrays.asList(id1, id2)) < distanceArray.get(Arrays.asList(id1, newMinDistanceId)) ){
-                            newMinDistanceId = id2;
-                        }
-                    }
-                    
-                    minClusterDistanceId.put(id1, newMinDistanceId);
-                }
-            }
-        });
-        
-        
-        return true;
+            sizes[clusterThatMergesId] += sizes[clusterToBeMergedId];
+            merged[clusterToBeMergedId] = true;
+        }
+    }
+    
+    /**
+     * Returns the id of the cluster which currently contains the provided
+     * cluster.
+     * 
+     * @param parents
+     * @param id
+     * @return 
+     */
+    private static int findRoot(int[] parents, int id) {
+        while(parents[id]!=id) {
+            parents[id] = parents[parents[id]]; //path halving
+            id = parents[id];
+        }
+        return id;
     }
-}
\ No newline at end of file
+}
@@ -26,6 +26,7 @@ import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
+import com.datumbox.framework.common.utilities.RandomGenerator;
 import com.datumbox.framework.core.common.utilities.MapMethods;
 import com.datumbox.framework.core.common.utilities.PHPMethods;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
@@ -33,12 +34,21 @@ import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.Abs
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
 import com.datumbox.framework.core.mathematics.distances.Distance;
+import com.datumbox.framework.core.mathematics.distances.FeatureDictionary;
+import com.datumbox.framework.core.mathematics.distances.SparseDistance;
+import com.datumbox.framework.core.mathematics.distances.SparseVector;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 import com.datumbox.framework.core.statistics.sampling.SimpleRandomSampling;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 
 /**
@@ -125,6 +135,19 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             xi_sum.clear();
         }
         
+        /**
+         * Replaces the centroid and the size of the cluster. This is used by
+         * the bound-based algorithms which estimate the centroids on dense
+         * vectors instead of adding the Records.
+         *
+         * @param centroidValues
+         * @param size
+         */
+        protected void setCentroid(AssociativeArray centroidValues, int size) {
+            centroid = new Record(centroidValues, centroid.getY());
+            this.size = size;
+        }
+
         /**
          * Resets the cluster while keeping the centroid the same. This is a 
          * method required by the implementation of Kmeans and it should not 
@@ -234,7 +257,16 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
              * http://ilpubs.stanford.edu:8090/778/1/2006-13.pdf
              * http://www.ima.umn.edu/~iwen/REU/BATS-Means.pdf
              */
-            PLUS_PLUS;
+            PLUS_PLUS,
+            
+            /**
+             * Scalable Kmeans++ (k-means||). Oversamples candidate centroids in 
+             * a few parallel passes over the data and reduces them locally to k 
+             * with a weighted Kmeans++.
+             * References: 
+             * http://vldb.org/pvldb/vol5/p622_bahmanbahmani_vldb2012.pdf
+             */
+            PARALLEL_PLUS_PLUS;
         }
         
         /**
@@ -252,6 +284,37 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             MANHATTAN;
         }
         
+        /**
+         * The algorithm used for the assignment of the records to the clusters.
+         */
+        public enum Algorithm {
+            /**
+             * Lloyd's algorithm. Estimates the distances of every Record to all
+             * the centroids on every iteration.
+             */
+            LLOYD,
+            
+            /**
+             * Encodes the Records to sparse vectors once and keeps an upper bound 
+             * to the closest and a lower bound to the second closest centroid 
+             * of every record, so the distances are calculated only when the 
+             * bounds overlap. It requires 2 doubles per record.
+             * References: 
+             * http://cs.baylor.edu/~hamerly/papers/sdm_2010.pdf
+             */
+            HAMERLY,
+            
+            /**
+             * Encodes the Records to sparse vectors once and keeps an upper bound 
+             * to the closest and a lower bound to every centroid of every record. 
+             * It skips more distance calculations than HAMERLY for large k but 
+             * it requires k+1 doubles per record.
+             * References: 
+             * http://cseweb.ucsd.edu/~elkan/kmeansicml03.pdf
+             */
+            ELKAN;
+        }
+        
         //Vars
         
         private int k = 2;
@@ -260,10 +323,16 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
         
         private Distance distanceMethod = Distance.EUCLIDIAN;
         
+        private Algorithm algorithm = Algorithm.LLOYD;
+        
         private int maxIterations = 200;
 
         private double subsetFurthestFirstcValue = 2;//c>1 This value is used for c*k*log k, Readmore: http://web.cs.swarthmore.edu/~turnbull/Papers/Turnbull_GenreRBF_KDE05.pdf
 
+        private double parallelPlusPlusOversamplingFactor = 2.0; //l/k, the expected number of candidates sampled on every round of k-means|| is l
+        
+        private int parallelPlusPlusRounds = 5; //the paper uses O(log cost) rounds but shows that 5 rounds are enough in practice
+
         private double categoricalGamaMultiplier = 1.0;  //used by Kprototype algorithm, multiplies the the categorical distance with this weight
         
         private boolean weighted = false; //whether the weighted version of the algorithm will run. The weighted version estimates weights for every feature
@@ -323,6 +392,27 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             this.distanceMethod = distanceMethod;
         }
         
+        /**
+         * Getter for the algorithm used for the assignment of the records.
+         * 
+         * @return 
+         */
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+        
+        /**
+         * Setter for the algorithm used for the assignment of the records. The
+         * bound-based algorithms produce the same clusters as LLOYD but they keep
+         * the non-zero values of the training data in memory as sparse vectors,
+         * along with the bounds of every record and k dense centroids and sums.
+         * 
+         * @param algorithm 
+         */
+        public void setAlgorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+        
         /**
          * Getter for the maximum permitted iterations during training.
          * 
@@ -359,6 +449,48 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             this.subsetFurthestFirstcValue = subsetFurthestFirstcValue;
         }
         
+        /**
+         * Getter for the oversampling factor of the PARALLEL_PLUS_PLUS 
+         * initialization method. On every round k times this factor candidates 
+         * are expected to be sampled.
+         * 
+         * @return 
+         */
+        public double getParallelPlusPlusOversamplingFactor() {
+            return parallelPlusPlusOversamplingFactor;
+        }
+        
+        /**
+         * Setter for the oversampling factor of the PARALLEL_PLUS_PLUS 
+         * initialization method. On every round k times this factor candidates 
+         * are expected to be sampled.
+         * 
+         * @param parallelPlusPlusOversamplingFactor 
+         */
+        public void setParallelPlusPlusOversamplingFactor(double parallelPlusPlusOversamplingFactor) {
+            this.parallelPlusPlusOversamplingFactor = parallelPlusPlusOversamplingFactor;
+        }
+        
+        /**
+         * Getter for the number of sampling rounds of the PARALLEL_PLUS_PLUS 
+         * initialization method.
+         * 
+         * @return 
+         */
+        public int getParallelPlusPlusRounds() {
+            return parallelPlusPlusRounds;
+        }
+        
+        /**
+         * Setter for the number of sampling rounds of the PARALLEL_PLUS_PLUS 
+         * initialization method.
+         * 
+         * @param parallelPlusPlusRounds 
+         */
+        public void setParallelPlusPlusRounds(int parallelPlusPlusRounds) {
+            this.parallelPlusPlusRounds = parallelPlusPlusRounds;
+        }
+        
         /**
          * Getter for the Categorical Gama Multiplier.
          * 
@@ -369,11 +501,15 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
         }
         
         /**
-         * Setter for the Categorical Gama Multiplier.
+         * Setter for the Categorical Gama Multiplier. It scales the weights of
+         * the non numerical features and it can not be negative.
          * 
          * @param categoricalGamaMultiplier 
          */
         public void setCategoricalGamaMultiplier(double categoricalGamaMultiplier) {
+            if(categoricalGamaMultiplier<0.0) {
+                throw new IllegalArgumentException("The categorical gama multiplier can not be negative.");
+            }
             this.categoricalGamaMultiplier = categoricalGamaMultiplier;
         }
         
@@ -560,7 +696,7 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
                 }
                 else {
                     double mean = tmp_varianceSumX.get(feature)/n;
-                    weight = 2.0*((tmp_varianceSumXsquare.get(feature)/n)-mean*mean);
+                    weight = Math.max(2.0*((tmp_varianceSumXsquare.get(feature)/n)-mean*mean), 0.0); //the variance of a constant feature can be slightly negative due to rounding
                 }
                 
                 
@@ -752,9 +888,160 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             }
             //alreadyAddedPoints = null;
         }
+        else if(initializationMethod==TrainingParameters.Initialization.PARALLEL_PLUS_PLUS) {
+            initializeClustersParallelPlusPlus(trainingData);
+        }
+    }
+    
+    /**
+     * Selects the initial centroids with the k-means|| algorithm. Instead of k
+     * sequential passes, it runs a few rounds in which every record is sampled
+     * independently with probability proportional to its squared distance from
+     * the closest candidate, so about l candidates are added per round. The 
+     * distances and the closest candidates are updated in parallel using only 
+     * the candidates of the previous round and dense vectors. Finally the 
+     * candidates are weighted by the number of records which are closest to 
+     * them and they are reduced to k with a weighted Kmeans++.
+     * 
+     * @param trainingData 
+     */
+    private void initializeClustersParallelPlusPlus(Dataframe trainingData) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        StorageEngine storageEngine = knowledgeBase.getStorageEngine();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        Map<Object, Double> featureWeights = modelParameters.getFeatureWeights();
+        boolean manhattan = trainingParameters.getDistanceMethod()==TrainingParameters.Distance.MANHATTAN;
+        
+        int k = trainingParameters.getK();
+        int n = trainingData.size();
+        if(n==0) {
+            return;
+        }
+        double l = trainingParameters.getParallelPlusPlusOversamplingFactor()*k;
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+        
+        //encode the features
+        Object[] features = featureWeights.keySet().toArray();
+        Map<Object, Integer> featureIds = new HashMap<>();
+        double[] weights = new double[features.length];
+        for(int f=0;f<features.length;f++) {
+            featureIds.put(features[f], f);
+            weights[f] = featureWeights.get(features[f]);
+        }
+        
+        //the first candidate is selected uniformly
+        List<Integer> candidateIds = new ArrayList<>();
+        List<double[]> candidates = new ArrayList<>();
+        int position = rnd.nextInt(n);
+        for(Integer rId : trainingData.index()) {
+            if(position--==0) {
+                candidateIds.add(rId);
+                break;
+            }
+        }
+        
+        Map<Integer, Double> tmp_minClusterDistance = storageEngine.getBigMap("tmp_minClusterDistance", Integer.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+        Map<Integer, Integer> tmp_closestCandidate = storageEngine.getBigMap("tmp_closestCandidate", Integer.class, Integer.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+        int rounds = trainingParameters.getParallelPlusPlusRounds();
+        for(int round=0;;round++) {
+            int newCandidatesStart = candidates.size();
+            for(Integer candidateId : candidateIds.subList(newCandidatesStart, candidateIds.size())) {
+                candidates.add(toVector(trainingData.get(candidateId).getX(), featureIds));
+            }
+            double[][] newCandidates = candidates.subList(newCandidatesStart, candidates.size()).toArray(new double[0][]);
+            
+            //update the squared distances from the closest candidate
+            if(newCandidates.length>0) {
+                streamExecutor.forEach(StreamMethods.stream(trainingData.entries(), isParallelized()), e -> {
+                    Integer rId = e.getKey();
+                    double[] x = toVector(e.getValue().getX(), featureIds);
+                    double minClusterDistance = tmp_minClusterDistance.getOrDefault(rId, Double.MAX_VALUE);
+                    Integer closestCandidate = tmp_closestCandidate.get(rId);
+                    for(int j=0;j<newCandidates.length;j++) {
+                        double distance = calculateDistance(x, newCandidates[j], weights, manhattan);
+                        distance *= distance;
+                        if(distance<minClusterDistance) {
+                            minClusterDistance = distance;
+                            closestCandidate = newCandidatesStart + j;
+                        }
+                    }
+                    tmp_minClusterDistance.put(rId, minClusterDistance);
+                    tmp_closestCandidate.put(rId, closestCandidate);
+                });
+            }
+            
+            if(round==rounds) {
+                break; //the last pass only assigns the records to the candidates of the final round
+            }
+            
+            double cost = 0.0;
+            for(Integer rId : trainingData.index()) {
+                cost += tmp_minClusterDistance.get(rId);
+            }
+            if(cost==0.0) {
+                break; //all the records coincide with the candidates
+            }
+            
+            //sample the records independently; the draws are sequential to keep the results reproducible
+            for(Integer rId : trainingData.index()) {
+                double probability = l*tmp_minClusterDistance.get(rId)/cost;
+                if(rnd.nextDouble()<probability) {
+                    candidateIds.add(rId);
+                }
+            }
+        }
+        
+        //weight every candidate by the number of records which are closest to it
+        int c = candidates.size();
+        long[] candidateWeights = new long[c];
+        for(Integer closestCandidate : tmp_closestCandidate.values()) {
+            candidateWeights[closestCandidate]++;
+        }
+        storageEngine.dropBigMap("tmp_minClusterDistance", tmp_minClusterDistance);
+        storageEngine.dropBigMap("tmp_closestCandidate", tmp_closestCandidate);
+        
+        //reduce the candidates to k centroids with a weighted Kmeans++
+        List<Integer> selected = new ArrayList<>();
+        double[] minCandidateDistance = new double[c];
+        Arrays.fill(minCandidateDistance, Double.MAX_VALUE);
+        while(selected.size()<k) {
+            AssociativeArray candidateScores = new AssociativeArray();
+            for(int i=0;i<c;i++) {
+                double score = candidateWeights[i]*(selected.isEmpty()?1.0:minCandidateDistance[i]);
+                if(score>0.0) {
+                    candidateScores.put(i, score);
+                }
+            }
+            if(candidateScores.isEmpty()) {
+                break; //there are fewer than k distinct candidates
+            }
+            
+            Integer selectedCandidate = (Integer) SimpleRandomSampling.weightedSampling(candidateScores, 1, true).iterator().next();
+            selected.add(selectedCandidate);
+            for(int i=0;i<c;i++) {
+                double distance = calculateDistance(candidates.get(i), candidates.get(selectedCandidate), weights, manhattan);
+                minCandidateDistance[i] = Math.min(minCandidateDistance[i], distance*distance);
+            }
+        }
+        
+        for(Integer candidate : selected) {
+            Integer clusterId = clusterMap.size();
+            Cluster cluster = new Cluster(clusterId);
+            cluster.add(trainingData.get(candidateIds.get(candidate)));
+            cluster.updateClusterParameters();
+            
+            clusterMap.put(clusterId, cluster);
+        }
     }
 
     private void calculateClusters(Dataframe trainingData) {
+        TrainingParameters.Algorithm algorithm = knowledgeBase.getTrainingParameters().getAlgorithm();
+        if(algorithm==TrainingParameters.Algorithm.HAMERLY || algorithm==TrainingParameters.Algorithm.ELKAN) {
+            calculateClustersWithBounds(trainingData, algorithm==TrainingParameters.Algorithm.ELKAN);
+            return;
+        }
+        
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
         Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
@@ -762,9 +1049,29 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
         int maxIterations = trainingParameters.getMaxIterations();
         modelParameters.setTotalIterations(maxIterations);
         
+        //intern the features and scale their values with the weights, so the plain sparse kernels estimate the weighted distances
+        boolean manhattan = trainingParameters.getDistanceMethod()==TrainingParameters.Distance.MANHATTAN;
+        Map<Object, Double> featureWeights = modelParameters.getFeatureWeights();
+        FeatureDictionary dictionary = new FeatureDictionary();
+        double[] multipliers = new double[featureWeights.size()];
+        for(Map.Entry<Object, Double> e : featureWeights.entrySet()) {
+            double weight = e.getValue();
+            if(weight<0.0) {
+                throw new IllegalArgumentException("The weight of feature " + e.getKey() + " can not be negative.");
+            }
+            multipliers[dictionary.intern(e.getKey())] = manhattan?weight:Math.sqrt(weight);
+        }
+        
         for(int iteration=0;iteration<maxIterations;++iteration) {
             logger.debug("Iteration {}", iteration);
             
+            //encode the centroids
+            Integer[] clusterIds = clusterMap.keySet().toArray(new Integer[0]);
+            SparseVector[] centroids = new SparseVector[clusterIds.length];
+            for(int j=0;j<clusterIds.length;j++) {
+                centroids[j] = SparseVector.of(clusterMap.get(clusterIds[j]).getCentroid().getX(), dictionary, multipliers);
+            }
+            
             //reset cluster points
             for(Map.Entry<Integer, Cluster> entry1 : clusterMap.entrySet()) {
                 Integer clusterId = entry1.getKey();
@@ -777,18 +1084,23 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
             Map<Integer, Integer> tmp_clusterAssignments = knowledgeBase.getStorageEngine().getBigMap("tmp_clusterAssignments", Integer.class, Integer.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
             streamExecutor.forEach(StreamMethods.stream(trainingData.entries(), isParallelized()), e -> {
                 Integer rId = e.getKey();
-                Record r = e.getValue();
-                //we are storing cluster references not clusterIds
-                AssociativeArray clusterDistances = new AssociativeArray();
-                for(Map.Entry<Integer, Cluster> entry : clusterMap.entrySet()) {
-                    Integer cId = entry.getKey();
-                    Cluster c = entry.getValue();
-                    clusterDistances.put(cId, calculateDistance(r, c.getCentroid()));
+                SparseVector x = SparseVector.of(e.getValue().getX(), dictionary, multipliers);
+                double[] clusterDistances = new double[centroids.length];
+                if(manhattan) {
+                    SparseDistance.manhattan(x, centroids, clusterDistances);
+                }
+                else {
+                    SparseDistance.squaredEuclidean(x, centroids, clusterDistances);
                 }
                 
                 //find the closest cluster
-                Integer selectedClusterId = (Integer)getSelectedClusterFromDistances(clusterDistances);
-                tmp_clusterAssignments.put(rId, selectedClusterId);
+                int selected = 0;
+                for(int j=1;j<clusterDistances.length;j++) {
+                    if(clusterDistances[j]<clusterDistances[selected]) {
+                        selected = j;
+                    }
+                }
+                tmp_clusterAssignments.put(rId, clusterIds[selected]);
             });
             
             for(Map.Entry<Integer, Record> e : trainingData.entries()) {
@@ -820,4 +1132,340 @@ public class Kmeans extends AbstractClusterer<Kmeans.Cluster, Kmeans.ModelParame
         }
     }
 
+    
+    /**
+     * Runs the Kmeans iterations on encoded vectors, skipping the distance 
+     * calculations which can't change the assignment of a record due to the 
+     * triangle inequality. The records are encoded once as sparse vectors, so 
+     * they need memory proportional to their non-zero values, the centroids are 
+     * kept as dense arrays and their sums are updated only for the records 
+     * that change cluster.
+     * 
+     * @param trainingData 
+     * @param elkan 
+     */
+    private void calculateClustersWithBounds(Dataframe trainingData, boolean elkan) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        Map<Object, Double> featureWeights = modelParameters.getFeatureWeights();
+        boolean manhattan = trainingParameters.getDistanceMethod()==TrainingParameters.Distance.MANHATTAN;
+        
+        //encode the features, the records and the centroids
+        Object[] features = featureWeights.keySet().toArray();
+        int d = features.length;
+        Map<Object, Integer> featureIds = new HashMap<>();
+        FeatureDictionary dictionary = new FeatureDictionary();
+        double[] weights = new double[d];
+        double[] ones = new double[d];
+        for(int f=0;f<d;f++) {
+            featureIds.put(features[f], f);
+            dictionary.intern(features[f]);
+            weights[f] = featureWeights.get(features[f]);
+            ones[f] = 1.0;
+        }
+        
+        int n = trainingData.size();
+        SparseVector[] x = new SparseVector[n];
+        int i = 0;
+        for(Record r : trainingData.values()) {
+            //the unit multipliers keep only the known features without adding them in the dictionary
+            x[i++] = SparseVector.of(r.getX(), dictionary, ones);
+        }
+        
+        Integer[] clusterIds = clusterMap.keySet().toArray(new Integer[0]);
+        int k = clusterIds.length;
+        double[][] centroids = new double[k][];
+        for(int j=0;j<k;j++) {
+            centroids[j] = toVector(clusterMap.get(clusterIds[j]).getCentroid().getX(), featureIds);
+        }
+        
+        //initial assignment using all the distances
+        int[] assignments = new int[n];
+        double[] upper = new double[n];
+        double[] lower = elkan?null:new double[n]; //distance to the second closest centroid
+        double[][] lowerPerCluster = elkan?new double[n][k]:null; //distance to every centroid
+        streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, n), isParallelized()), id -> {
+            double best = Double.MAX_VALUE;
+            double secondBest = Double.MAX_VALUE;
+            int selected = 0;
+            for(int j=0;j<k;j++) {
+                double distance = calculateDistance(x[id], centroids[j], weights, manhattan);
+                if(elkan) {
+                    lowerPerCluster[id][j] = distance;
+                }
+                if(distance<best) {
+                    secondBest = best;
+                    best = distance;
+                    selected = j;
+                }
+                else if(distance<secondBest) {
+                    secondBest = distance;
+                }
+            }
+            assignments[id] = selected;
+            upper[id] = best;
+            if(!elkan) {
+                lower[id] = secondBest;
+            }
+        });
+        
+        double[][] sums = new double[k][d];
+        int[] counts = new int[k];
+        for(i=0;i<n;i++) {
+            addVector(sums[assignments[i]], x[i], 1.0);
+            counts[assignments[i]]++;
+        }
+        
+        int maxIterations = trainingParameters.getMaxIterations();
+        modelParameters.setTotalIterations(maxIterations);
+        
+        int[] previousAssignments = new int[n];
+        for(int iteration=0;iteration<maxIterations;++iteration) {
+            logger.debug("Iteration {}", iteration);
+            
+            //move the centroids and estimate how much each of them moved
+            double[] movements = new double[k];
+            boolean changed = false;
+            for(int j=0;j<k;j++) {
+                if(counts[j]==0) {
+                    continue; //empty clusters keep their centroid
+                }
+                double[] newCentroid = new double[d];
+                addVector(newCentroid, sums[j], 1.0/counts[j]);
+                if(!Arrays.equals(newCentroid, centroids[j])) {
+                    changed = true;
+                    movements[j] = calculateDistance(newCentroid, centroids[j], weights, manhattan);
+                    centroids[j] = newCentroid;
+                }
+            }
+            
+            //if none of the clusters changed then exit
+            if(changed==false) {
+                modelParameters.setTotalIterations(iteration);
+                break;
+            }
+            
+            //half of the distance between every centroid and its closest one
+            double[][] centroidDistances = new double[k][k];
+            double[] halfMinCentroidDistance = new double[k];
+            Arrays.fill(halfMinCentroidDistance, Double.MAX_VALUE);
+            for(int j=0;j<k;j++) {
+                for(int l=j+1;l<k;l++) {
+                    double distance = calculateDistance(centroids[j], centroids[l], weights, manhattan);
+                    centroidDistances[j][l] = centroidDistances[l][j] = distance;
+                    halfMinCentroidDistance[j] = Math.min(halfMinCentroidDistance[j], distance/2.0);
+                    halfMinCentroidDistance[l] = Math.min(halfMinCentroidDistance[l], distance/2.0);
+                }
+            }
+            
+            //the two largest movements are enough to update the single lower bound
+            int maxId = 0;
+            for(int j=1;j<k;j++) {
+                if(movements[j]>movements[maxId]) {
+                    maxId = j;
+                }
+            }
+            double secondMax = 0.0;
+            for(int j=0;j<k;j++) {
+                if(j!=maxId && movements[j]>secondMax) {
+                    secondMax = movements[j];
+                }
+            }
+            final int maxMovementId = maxId;
+            final double maxMovement = movements[maxId];
+            final double secondMaxMovement = secondMax;
+            
+            System.arraycopy(assignments, 0, previousAssignments, 0, n);
+            
+            streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, n), isParallelized()), id -> {
+                int a = assignments[id];
+                double u = upper[id] + movements[a];
+                
+                if(elkan) {
+                    double[] lowerBounds = lowerPerCluster[id];
+                    for(int j=0;j<k;j++) {
+                        lowerBounds[j] = Math.max(lowerBounds[j] - movements[j], 0.0);
+                    }
+                    
+                    if(u>halfMinCentroidDistance[a]) {
+                        boolean tight = false;
+                        for(int j=0;j<k;j++) {
+                            if(j==a || u<=lowerBounds[j] || u<=centroidDistances[a][j]/2.0) {
+                                continue;
+                            }
+                            if(!tight) {
+                                u = calculateDistance(x[id], centroids[a], weights, manhattan);
+                                lowerBounds[a] = u;
+                                tight = true;
+                                if(u<=lowerBounds[j] || u<=centroidDistances[a][j]/2.0) {
+                                    continue;
+                                }
+                            }
+                            double distance = calculateDistance(x[id], centroids[j], weights, manhattan);
+                            lowerBounds[j] = distance;
+                            if(distance<u) {
+                                a = j;
+                                u = distance;
+                            }
+                        }
+                    }
+                }
+                else {
+                    double l = lower[id] - ((a==maxMovementId)?secondMaxMovement:maxMovement);
+                    double bound = Math.max(halfMinCentroidDistance[a], l);
+                    
+                    if(u>bound) {
+                        u = calculateDistance(x[id], centroids[a], weights, manhattan);
+                        if(u>bound) {
+                            double best = Double.MAX_VALUE;
+                            double secondBest = Double.MAX_VALUE;
+                            for(int j=0;j<k;j++) {
+                                double distance = (j==assignments[id])?u:calculateDistance(x[id], centroids[j], weights, manhattan);
+                                if(distance<best) {
+                                    secondBest = best;
+                                    best = distance;
+                                    a = j;
+                                }
+                                else if(distance<secondBest) {
+                                    secondBest = distance;
+                                }
+                            }
+                            u = best;
+                            l = secondBest;
+                        }
+                    }
+                    lower[id] = l;
+                }
+                
+                assignments[id] = a;
+                upper[id] = u;
+            });
+            
+            //update the sums only for the records that changed cluster
+            for(i=0;i<n;i++) {
+                int previous = previousAssignments[i];
+                int current = assignments[i];
+                if(previous!=current) {
+                    addVector(sums[previous], x[i], -1.0);
+                    addVector(sums[current], x[i], 1.0);
+                    counts[previous]--;
+                    counts[current]++;
+                }
+            }
+        }
+        
+        //store the centroids and the sizes on the clusters
+        for(int j=0;j<k;j++) {
+            AssociativeArray centroidValues = new AssociativeArray();
+            for(int f=0;f<d;f++) {
+                if(centroids[j][f]!=0.0) {
+                    centroidValues.put(features[f], centroids[j][f]);
+                }
+            }
+            
+            Integer clusterId = clusterIds[j];
+            Cluster c = clusterMap.get(clusterId);
+            c.setCentroid(centroidValues, counts[j]);
+            clusterMap.put(clusterId, c);
+        }
+    }
+    
+    /**
+     * Encodes the values of the features to a dense vector.
+     * 
+     * @param xData
+     * @param featureIds
+     * @return 
+     */
+    private double[] toVector(AssociativeArray xData, Map<Object, Integer> featureIds) {
+        double[] vector = new double[featureIds.size()];
+        for(Map.Entry<Object, Object> e : xData.entrySet()) {
+            Integer featureId = featureIds.get(e.getKey());
+            Double value = TypeInference.toDouble(e.getValue());
+            if(featureId!=null && value!=null) {
+                vector[featureId] = value;
+            }
+        }
+        return vector;
+    }
+    
+    /**
+     * Adds the sparse vector, multiplied by the multiplier, on the target.
+     * 
+     * @param target
+     * @param vector
+     * @param multiplier 
+     */
+    private void addVector(double[] target, SparseVector vector, double multiplier) {
+        for(int p=0;p<vector.size();p++) {
+            target[vector.indexAt(p)] += vector.valueAt(p)*multiplier;
+        }
+    }
+    
+    /**
+     * Adds the vector, multiplied by the multiplier, on the target.
+     * 
+     * @param target
+     * @param vector
+     * @param multiplier 
+     */
+    private void addVector(double[] target, double[] vector, double multiplier) {
+        for(int f=0;f<target.length;f++) {
+            target[f] += vector[f]*multiplier;
+        }
+    }
+    
+    /**
+     * Estimates the weighted distance of a sparse and a dense vector. The missing
+     * values of the sparse vector are treated as zeros, so the result is the
+     * same as the one of the dense vectors.
+     * 
+     * @param v1
+     * @param v2
+     * @param weights
+     * @param manhattan
+     * @return 
+     */
+    private double calculateDistance(SparseVector v1, double[] v2, double[] weights, boolean manhattan) {
+        double distance = 0.0;
+        int p = 0;
+        int size = v1.size();
+        for(int f=0;f<v2.length;f++) {
+            double value = 0.0;
+            if(p<size && v1.indexAt(p)==f) {
+                value = v1.valueAt(p++);
+            }
+            double diff = value-v2[f];
+            distance += manhattan?Math.abs(diff)*weights[f]:diff*diff*weights[f];
+        }
+        return manhattan?distance:Math.sqrt(distance);
+    }
+    
+    /**
+     * Estimates the weighted distance of two dense vectors.
+     * 
+     * @param v1
+     * @param v2
+     * @param weights
+     * @param manhattan
+     * @return 
+     */
+    private double calculateDistance(double[] v1, double[] v2, double[] weights, boolean manhattan) {
+        double distance = 0.0;
+        if(manhattan) {
+            for(int f=0;f<v1.length;f++) {
+                distance += Math.abs(v1[f]-v2[f])*weights[f];
+            }
+            return distance;
+        }
+        else {
+            for(int f=0;f<v1.length;f++) {
+                double diff = v1[f]-v2[f];
+                distance += diff*diff*weights[f];
+            }
+            return Math.sqrt(distance);
+        }
+    }
+
 }
\ No newline at end of file
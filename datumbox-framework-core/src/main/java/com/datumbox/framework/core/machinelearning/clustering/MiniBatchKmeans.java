@@ -0,0 +1,471 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.clustering;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.concurrency.ForkJoinStream;
+import com.datumbox.framework.common.concurrency.StreamMethods;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.utilities.RandomGenerator;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.common.utilities.MapMethods;
+import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
+import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClusterer;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
+import com.datumbox.framework.core.mathematics.distances.Distance;
+import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * This class implements the Mini-batch K-means clustering algorithm. On every 
+ * iteration it samples a small batch of Records, assigns them to the closest 
+ * centroids and moves the centroids towards them using a per-cluster learning 
+ * rate which decreases with the number of Records that the cluster has seen. 
+ * The cost of every iteration depends on the batch size and not on the size 
+ * of the dataset, and the algorithm can also consume unbounded streams of 
+ * Records. The data should be numerical (or encoded) and the Euclidean 
+ * distance is used.
+ * 
+ * References:
+ * https://www.eecs.tufts.edu/~dsculley/papers/fastkmeans.pdf
+ * 
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MiniBatchKmeans extends AbstractClusterer<MiniBatchKmeans.Cluster, MiniBatchKmeans.ModelParameters, MiniBatchKmeans.TrainingParameters> implements PredictParallelizable, TrainParallelizable, IncrementallyTrainable {
+
+    /** {@inheritDoc} */
+    public static class Cluster extends AbstractClusterer.AbstractCluster {
+        private static final long serialVersionUID = 1L;
+        
+        private Record centroid;
+        
+        private final AssociativeArray centroidValues;
+        
+        /** 
+         * @param clusterId
+         * @see AbstractClusterer.AbstractCluster#AbstractCluster(java.lang.Integer)
+         */
+        protected Cluster(int clusterId) {
+            super(clusterId);
+            centroid = new Record(new AssociativeArray(), null);
+            centroidValues = new AssociativeArray();
+        }
+        
+        /**
+         * Returns the centroid of the cluster.
+         * 
+         * @return 
+         */
+        public Record getCentroid() {
+            return centroid;
+        }
+        
+        /**
+         * Updates the centroid of the cluster with a copy of the values estimated
+         * by the add() calls.
+         */
+        protected void updateClusterParameters() {
+            centroid = new Record(centroidValues.copy(), centroid.getY());
+        }
+        
+        /**
+         * Moves the values of the centroid towards the Record r using as learning 
+         * rate the inverse of the number of Records that the cluster has seen. 
+         * This keeps the centroid equal to the mean of all the Records that were
+         * assigned to it. The centroid changes after calling updateClusterParameters().
+         * 
+         * @param r 
+         */
+        @Override
+        protected void add(Record r) {
+            size++;
+            double learningRate = 1.0/size;
+            
+            centroidValues.multiplyValues(1.0-learningRate);
+            for(Map.Entry<Object, Object> e : r.getX().entrySet()) {
+                Double value = TypeInference.toDouble(e.getValue());
+                if(value!=null && value!=0.0) {
+                    Object feature = e.getKey();
+                    Double previousValue = centroidValues.getDouble(feature);
+                    centroidValues.put(feature, ((previousValue!=null)?previousValue:0.0) + learningRate*value);
+                }
+            }
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        protected void remove(Record r) {
+            throw new UnsupportedOperationException("Remove operation is not supported.");
+        }
+                
+        /** {@inheritDoc} */
+        @Override
+        protected void clear() {
+            //the values of the centroid are kept to continue the training with partialFit()
+        }
+    }
+    
+    /** {@inheritDoc} */
+    public static class ModelParameters extends AbstractClusterer.AbstractModelParameters<MiniBatchKmeans.Cluster> {
+        private static final long serialVersionUID = 1L;
+        
+        private int totalIterations = 0;
+        
+        /** 
+         * @param storageEngine
+         * @see AbstractTrainer.AbstractModelParameters#AbstractModelParameters(StorageEngine)
+         */
+        protected ModelParameters(StorageEngine storageEngine) {
+            super(storageEngine);
+        }
+        
+        /**
+         * Getter for the total number of mini-batches used in training.
+         * 
+         * @return 
+         */
+        public int getTotalIterations() {
+            return totalIterations;
+        }
+        
+        /**
+         * Setter for the total number of mini-batches used in training.
+         * 
+         * @param totalIterations 
+         */
+        protected void setTotalIterations(int totalIterations) {
+            this.totalIterations = totalIterations;
+        }
+        
+    } 
+    
+    /** {@inheritDoc} */
+    public static class TrainingParameters extends AbstractClusterer.AbstractTrainingParameters {    
+        private static final long serialVersionUID = 1L;
+        
+        private int k = 2;
+        
+        private int batchSize = 100;
+        
+        private int maxIterations = 100;
+        
+        /**
+         * Getter for the number of clusters k.
+         * 
+         * @return 
+         */
+        public int getK() {
+            return k;
+        }
+        
+        /**
+         * Setter for the number of clusters k.
+         * 
+         * @param k 
+         */
+        public void setK(int k) {
+            this.k = k;
+        }
+        
+        /**
+         * Getter for the number of Records used on every iteration.
+         * 
+         * @return 
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        /**
+         * Setter for the number of Records used on every iteration.
+         * 
+         * @param batchSize 
+         */
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        /**
+         * Getter for the number of mini-batches sampled from the Dataframe
+         * during training.
+         * 
+         * @return 
+         */
+        public int getMaxIterations() {
+            return maxIterations;
+        }
+        
+        /**
+         * Setter for the number of mini-batches sampled from the Dataframe 
+         * during training.
+         * 
+         * @param maxIterations 
+         */
+        public void setMaxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+        }
+        
+    }
+
+
+    /**
+     * @param trainingParameters
+     * @param configuration
+     * @see AbstractTrainer#AbstractTrainer(AbstractTrainingParameters, Configuration)
+     */
+    protected MiniBatchKmeans(TrainingParameters trainingParameters, Configuration configuration) {
+        super(trainingParameters, configuration);
+        streamExecutor = new ForkJoinStream(knowledgeBase.getConfiguration().getConcurrencyConfiguration());
+    }
+
+    /**
+     * @param storageName
+     * @param configuration
+     * @see AbstractTrainer#AbstractTrainer(String, Configuration)
+     */
+    protected MiniBatchKmeans(String storageName, Configuration configuration) {
+        super(storageName, configuration);
+        streamExecutor = new ForkJoinStream(knowledgeBase.getConfiguration().getConcurrencyConfiguration());
+    }
+    
+    private boolean parallelized = true;
+    
+    /**
+     * This executor is used for the parallel processing of streams with custom 
+     * Thread pool.
+     */
+    protected final ForkJoinStream streamExecutor;
+    
+    /** {@inheritDoc} */
+    @Override
+    public boolean isParallelized() {
+        return parallelized;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void _predict(Dataframe newData) {
+        _predictDatasetParallel(newData, knowledgeBase.getStorageEngine(), knowledgeBase.getConfiguration().getConcurrencyConfiguration());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Prediction _predictRecord(Record r) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        
+        AssociativeArray clusterDistances = new AssociativeArray();
+        for(Map.Entry<Integer, Cluster> e : clusterMap.entrySet()) {
+            Integer clusterId = e.getKey();
+            Cluster c = e.getValue();
+            clusterDistances.put(clusterId, Distance.euclidean(r.getX(), c.getCentroid().getX()));
+        }
+
+        Descriptives.normalize(clusterDistances);
+        
+        return new Prediction(MapMethods.selectMinKeyValue(clusterDistances).getKey(), clusterDistances);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        _fit(trainingData);
+    }
+    
+    /**
+     * Updates the clusters with an unbounded stream of Records. The Records are 
+     * consumed lazily in batches of batchSize and the centroids are updated 
+     * after every batch, so the stream is never materialized. If the model is 
+     * untrained, the first k Records of the stream are used as initial centroids.
+     * 
+     * @param records 
+     */
+    public void partialFit(Stream<Record> records) {
+        logger.info("partialFit()");
+        
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        int k = knowledgeBase.getTrainingParameters().getK();
+        int batchSize = knowledgeBase.getTrainingParameters().getBatchSize();
+        
+        List<Record> batch = new ArrayList<>(batchSize);
+        Iterator<Record> it = records.iterator();
+        while(it.hasNext()) {
+            Record r = it.next();
+            if(clusterMap.size()<k) {
+                addGoldStandardClass(r);
+                addCluster(r);
+                continue;
+            }
+            
+            batch.add(r);
+            if(batch.size()==batchSize) {
+                updateClusters(batch);
+                batch.clear();
+            }
+        }
+        
+        if(!batch.isEmpty()) {
+            updateClusters(batch);
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected void _fit(Dataframe trainingData) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        int k = trainingParameters.getK();
+        int batchSize = trainingParameters.getBatchSize();
+        int maxIterations = trainingParameters.getMaxIterations();
+        
+        //the batches are sampled with replacement from the ids of the records
+        List<Integer> ids = new ArrayList<>(trainingData.size());
+        for(Integer rId : trainingData.index()) {
+            ids.add(rId);
+        }
+        int n = ids.size();
+        if(n==0) {
+            return;
+        }
+        
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+        
+        //initialize the clusters by using k distinct random records as centroids
+        Set<Integer> selectedIds = new HashSet<>(); //this is small. equal to k
+        while(clusterMap.size()<k && selectedIds.size()<n) {
+            Integer rId = ids.get(rnd.nextInt(n));
+            if(selectedIds.add(rId)) {
+                Record r = trainingData.get(rId);
+                addGoldStandardClass(r);
+                addCluster(r);
+            }
+        }
+        
+        List<Record> batch = new ArrayList<>(batchSize);
+        for(int iteration=0;iteration<maxIterations;++iteration) {
+            logger.debug("Iteration {}", iteration);
+            
+            for(int i=0;i<batchSize;i++) {
+                batch.add(trainingData.get(ids.get(rnd.nextInt(n))));
+            }
+            updateClusters(batch);
+            batch.clear();
+        }
+        
+        clearClusters();
+    }
+    
+    /**
+     * Adds the class of the Record in the gold standard classes, if it exists.
+     * 
+     * @param r 
+     */
+    private void addGoldStandardClass(Record r) {
+        Object theClass = r.getY();
+        if(theClass!=null) {
+            knowledgeBase.getModelParameters().getGoldStandardClasses().add(theClass);
+        }
+    }
+    
+    /**
+     * Creates a new cluster which uses the Record r as centroid.
+     * 
+     * @param r 
+     */
+    private void addCluster(Record r) {
+        Map<Integer, Cluster> clusterMap = knowledgeBase.getModelParameters().getClusterMap();
+        
+        Integer clusterId = clusterMap.size();
+        Cluster c = new Cluster(clusterId);
+        c.add(r);
+        c.updateClusterParameters();
+        clusterMap.put(clusterId, c);
+    }
+    
+    /**
+     * Performs one iteration of the algorithm. The closest centroids of the 
+     * batch are found in parallel using the centroids before the update and then
+     * every Record moves its centroid using the learning rate of the cluster.
+     * 
+     * @param batch 
+     */
+    private void updateClusters(List<Record> batch) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Integer, Cluster> clusterMap = modelParameters.getClusterMap();
+        
+        //keep the clusters in memory during the update of the batch
+        Map<Integer, Cluster> clusters = new HashMap<>(clusterMap);
+        
+        int b = batch.size();
+        Integer[] assignments = new Integer[b];
+        streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, b), isParallelized()), i -> {
+            AssociativeArray xData = batch.get(i).getX();
+            Integer selectedClusterId = null;
+            double minDistance = Double.MAX_VALUE;
+            for(Map.Entry<Integer, Cluster> e : clusters.entrySet()) {
+                double distance = Distance.euclidean(xData, e.getValue().getCentroid().getX());
+                if(selectedClusterId==null || distance<minDistance) {
+                    minDistance = distance;
+                    selectedClusterId = e.getKey();
+                }
+            }
+            assignments[i] = selectedClusterId;
+        });
+        
+        Set<Object> goldStandardClasses = modelParameters.getGoldStandardClasses();
+        for(int i=0;i<b;i++) {
+            Record r = batch.get(i);
+            Object theClass = r.getY();
+            if(theClass!=null) {
+                goldStandardClasses.add(theClass);
+            }
+            clusters.get(assignments[i]).add(r);
+        }
+        
+        for(Cluster c : clusters.values()) {
+            c.updateClusterParameters();
+        }
+        clusterMap.putAll(clusters);
+        modelParameters.setTotalIterations(modelParameters.getTotalIterations()+1);
+    }
+    
+}
@@ -27,6 +27,8 @@ import com.datumbox.framework.core.machinelearning.common.interfaces.TrainingPar
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Base class for every Trainable Algorithm of the Framework. This includes Machine Learning
  * Models, Data Transformers, Feature Selectors etc.
@@ -135,6 +137,24 @@ public abstract class AbstractTrainer<MP extends AbstractTrainer.AbstractModelPa
         stored = true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        logger.info("saveAsync()");
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        return knowledgeBase.saveAsync(knowledgeBaseName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveSnapshot(String storageName) {
+        logger.info("saveSnapshot()");
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        knowledgeBase.saveSnapshot(knowledgeBaseName);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void delete() {
@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Base class for Adaboost and BoostrapAgregating.
@@ -203,6 +204,32 @@ public abstract class AbstractBoostingBagging<MP extends AbstractBoostingBagging
         //Drop the temporary Collection
         storageEngine.dropBigMap("tmp_recordDecisions", tmp_recordDecisions);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Record _predict(Record r) {
+        //load all trainables on the bundles
+        initBundle();
+
+        List<Double> weakClassifierWeights = knowledgeBase.getModelParameters().getWeakClassifierWeights();
+
+        //using the weak classifiers
+        DataTable2D rDecisions = new DataTable2D();
+        AssociativeArray classifierWeightsArray = new AssociativeArray();
+        int totalWeakClassifiers = weakClassifierWeights.size();
+        for(int i=0;i<totalWeakClassifiers;++i) {
+            AbstractClassifier<?, ?> mlclassifier = (AbstractClassifier<?, ?>) bundle.get(STORAGE_INDICATOR + i);
+            rDecisions.put(i, mlclassifier.predict(r).getYPredictedProbabilities());
+            
+            classifierWeightsArray.put(i, weakClassifierWeights.get(i));
+        }
+        
+        //find the combined classification by majority vote
+        AssociativeArray combinedClassVotes = FixedCombinationRules.weightedAverage(rDecisions, classifierWeightsArray);
+        Descriptives.normalize(combinedClassVotes);
+        
+        return r.withPrediction(MapMethods.selectMaxKeyValue(combinedClassVotes).getKey(), combinedClassVotes);
+    }
     
     /** {@inheritDoc} */
     @Override
@@ -326,6 +353,26 @@ public abstract class AbstractBoostingBagging<MP extends AbstractBoostingBagging
         bundle.save(knowledgeBaseName);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        initBundle();
+        CompletableFuture<Void> future = super.saveAsync(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        return CompletableFuture.allOf(future, bundle.saveAsync(knowledgeBaseName));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveSnapshot(String storageName) {
+        initBundle();
+        super.saveSnapshot(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        bundle.saveSnapshot(knowledgeBaseName);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void delete() {
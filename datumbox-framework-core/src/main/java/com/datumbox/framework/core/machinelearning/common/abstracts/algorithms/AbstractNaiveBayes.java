@@ -28,11 +28,14 @@ import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractClassifier;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.FeatureClassWeights;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 
 /**
@@ -42,15 +45,26 @@ import java.util.*;
  * @param <MP>
  * @param <TP>
  */
-public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractModelParameters, TP extends AbstractNaiveBayes.AbstractTrainingParameters> extends AbstractClassifier<MP, TP> implements PredictParallelizable, TrainParallelizable {
+public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractModelParameters, TP extends AbstractNaiveBayes.AbstractTrainingParameters> extends AbstractClassifier<MP, TP> implements PredictParallelizable, TrainParallelizable, IncrementallyTrainable {
 
     /** {@inheritDoc} */
     public static abstract class AbstractModelParameters extends AbstractClassifier.AbstractModelParameters {
 
         private Map<Object, Double> logPriors = new HashMap<>(); //prior log probabilities of the classes
 
-        @BigMap(keyClass=List.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
-        private Map<List<Object>, Double> logLikelihoods; //posterior log probabilities of features-classes combination
+        @BigMap(keyClass=Long.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Long, Double> logLikelihoodValues; //the values of the log likelihoods, unless they are dense
+
+        private FeatureClassWeights logLikelihoods; //posterior log probabilities of features-classes combination
+
+        private Map<Object, Double> classCounts = new HashMap<>(); //number of observations of the classes
+
+        private Map<Object, Double> totalFeatureOccurrences = new HashMap<>(); //sum of the feature occurrences of the classes
+
+        @BigMap(keyClass=Long.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Long, Double> featureCountValues; //the values of the feature counts, unless they are dense
+
+        private FeatureClassWeights featureCounts; //occurrences of features-classes combination
         
         /** 
          * @param storageEngine
@@ -58,6 +72,8 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
          */
         protected AbstractModelParameters(StorageEngine storageEngine) {
             super(storageEngine);
+            featureCounts = new FeatureClassWeights("featureCountValues", featureCountValues);
+            logLikelihoods = featureCounts.emptyCopy("logLikelihoodValues", logLikelihoodValues);
         }
 
         /**
@@ -83,7 +99,7 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
          * 
          * @return 
          */
-        public Map<List<Object>, Double> getLogLikelihoods() {
+        public FeatureClassWeights getLogLikelihoods() {
             return logLikelihoods;
         }
         
@@ -92,14 +108,69 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
          * 
          * @param logLikelihoods 
          */
-        protected void setLogLikelihoods(Map<List<Object>, Double> logLikelihoods) {
+        protected void setLogLikelihoods(FeatureClassWeights logLikelihoods) {
             this.logLikelihoods = logLikelihoods;
         }
+
+        /**
+         * Getter for the number of observations of the classes.
+         *
+         * @return
+         */
+        public Map<Object, Double> getClassCounts() {
+            return classCounts;
+        }
+
+        /**
+         * Setter for the number of observations of the classes.
+         *
+         * @param classCounts
+         */
+        protected void setClassCounts(Map<Object, Double> classCounts) {
+            this.classCounts = classCounts;
+        }
+
+        /**
+         * Getter for the sum of the feature occurrences of the classes.
+         *
+         * @return
+         */
+        public Map<Object, Double> getTotalFeatureOccurrences() {
+            return totalFeatureOccurrences;
+        }
+
+        /**
+         * Setter for the sum of the feature occurrences of the classes.
+         *
+         * @param totalFeatureOccurrences
+         */
+        protected void setTotalFeatureOccurrences(Map<Object, Double> totalFeatureOccurrences) {
+            this.totalFeatureOccurrences = totalFeatureOccurrences;
+        }
+
+        /**
+         * Getter for the occurrences of the feature-class combinations.
+         *
+         * @return
+         */
+        public FeatureClassWeights getFeatureCounts() {
+            return featureCounts;
+        }
+
+        /**
+         * Setter for the occurrences of the feature-class combinations.
+         *
+         * @param featureCounts
+         */
+        protected void setFeatureCounts(FeatureClassWeights featureCounts) {
+            this.featureCounts = featureCounts;
+        }
     } 
 
     /** {@inheritDoc} */
     public static abstract class AbstractTrainingParameters extends AbstractClassifier.AbstractTrainingParameters {         
         private boolean multiProbabilityWeighted=false; //whether the classifier weights the probabilities based on the number of occurences. (multiple occurences are taken into account when we estimate the classification scores) 
+        private boolean denseWeights=false;
         
         /**
          * Getter for whether the algorithm weights the probabilities based on the
@@ -120,6 +191,27 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
         public void setMultiProbabilityWeighted(boolean multiProbabilityWeighted) {
             this.multiProbabilityWeighted = multiProbabilityWeighted;
         }
+
+        /**
+         * Getter for whether the counts and the likelihoods are stored in dense arrays.
+         *
+         * @return
+         */
+        public boolean isDenseWeights() {
+            return denseWeights;
+        }
+
+        /**
+         * Setter for whether the counts and the likelihoods are stored in dense
+         * arrays on the heap instead of BigMaps. The dense arrays are faster but
+         * each of them allocates numberOfFeatures*numberOfClasses doubles. It
+         * takes effect only on the first training of the model.
+         *
+         * @param denseWeights
+         */
+        public void setDenseWeights(boolean denseWeights) {
+            this.denseWeights = denseWeights;
+        }
     }
 
     /**
@@ -180,48 +272,46 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
     @Override
     public Prediction _predictRecord(Record r) {
         AbstractModelParameters modelParameters = knowledgeBase.getModelParameters();
-        Map<List<Object>, Double> logLikelihoods = modelParameters.getLogLikelihoods();
+        FeatureClassWeights logLikelihoods = modelParameters.getLogLikelihoods();
         Map<Object, Double> logPriors = modelParameters.getLogPriors();
         Set<Object> classesSet = modelParameters.getClasses();
         
-        Object someClass = classesSet.iterator().next();
         boolean isBinarized = isBinarized();
         
-        //initialize scores with the scores of the priors
-        AssociativeArray predictionScores = new AssociativeArray(new HashMap<>(logPriors)); 
+        //resolve the class ids once and initialize the scores with the scores of the priors
+        Object[] classes = classesSet.toArray();
+        int[] classIds = new int[classes.length];
+        double[] scores = new double[classes.length];
+        for(int k=0;k<classes.length;k++) {
+            classIds[k] = logLikelihoods.getClassId(classes[k]);
+            scores[k] = logPriors.get(classes[k]);
+        }
 
         for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-            Object feature = entry.getKey();
+            int featureId = logLikelihoods.getFeatureId(entry.getKey());
 
             //EVERY feature within our dictionary has a value for EVERY class
-            //So if the feature has no value for one random class (someClass has 
+            //So if the feature has no value for one random class (the first class has 
             //no particular significance), then it will not have for any class
             //and thus the feature is not in the dictionary and can be ignored.
-            if(!logLikelihoods.containsKey(Arrays.asList(feature, someClass))) {
+            if(featureId<0 || !logLikelihoods.containsWeight(featureId, classIds[0])) {
                 continue;
             }
 
-            //extract the feature scores for each class for the particular feature
-            AssociativeArray classLogScoresForThisFeature = new AssociativeArray();
-
-            for(Object theClass : classesSet) {
-                Double logScore = logLikelihoods.get(Arrays.asList(feature, theClass));
-                classLogScoresForThisFeature.put(theClass, logScore);
-            }
-
-
             Double occurrences=TypeInference.toDouble(entry.getValue());
             if((!knowledgeBase.getTrainingParameters().isMultiProbabilityWeighted() || isBinarized) && occurrences>0) {
                 occurrences=1.0;
             }
 
-            for(Map.Entry<Object, Object> entry2 : classLogScoresForThisFeature.entrySet()) {
-                Object theClass = entry2.getKey();
-                Double logScore = TypeInference.toDouble(entry2.getValue());
-                Double previousValue = predictionScores.getDouble(theClass);
-                predictionScores.put(theClass, previousValue+occurrences*logScore);
+            //add the feature scores of each class for the particular feature
+            for(int k=0;k<classes.length;k++) {
+                scores[k] += occurrences*logLikelihoods.getWeight(featureId, classIds[k]);
             }
-            //classLogScoresForThisFeature=null;
+        }
+        
+        AssociativeArray predictionScores = new AssociativeArray(new HashMap<>(logPriors)); 
+        for(int k=0;k<classes.length;k++) {
+            predictionScores.put(classes[k], scores[k]);
         }
 
         Object predictedClass=getSelectedClassFromClassScores(predictionScores);
@@ -230,29 +320,63 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
         return new Prediction(predictedClass, predictionScores);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        _fit(trainingData);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
         AbstractModelParameters modelParameters = knowledgeBase.getModelParameters();
-        int n = trainingData.size();
-        int d = trainingData.xColumnSize();
-        
-        Map<List<Object>, Double> logLikelihoods = modelParameters.getLogLikelihoods();
-        Map<Object, Double> logPriors = modelParameters.getLogPriors();
+        FeatureClassWeights featureCounts = modelParameters.getFeatureCounts();
+        if(knowledgeBase.getTrainingParameters().isDenseWeights() && featureCounts != null && !featureCounts.isDense() && featureCounts.isEmpty()) {
+            FeatureClassWeights denseCounts = new FeatureClassWeights();
+            modelParameters.setFeatureCounts(denseCounts);
+            modelParameters.setLogLikelihoods(denseCounts.emptyCopy());
+        }
+
+        //the counts are sufficient statistics, so the parameters are estimated from the counts of all the batches
+        updateCounts(trainingData);
+        estimateLogPriors();
+        estimateLikelihoods();
+    }
+
+    /**
+     * Adds the class and feature occurrences of the training data to the counts
+     * of the model parameters.
+     *
+     * @param trainingData
+     */
+    protected void updateCounts(Dataframe trainingData) {
+        AbstractModelParameters modelParameters = knowledgeBase.getModelParameters();
+
+        FeatureClassWeights featureCounts = modelParameters.getFeatureCounts();
+        Map<Object, Double> classCounts = modelParameters.getClassCounts();
+        Map<Object, Double> totalFeatureOccurrences = modelParameters.getTotalFeatureOccurrences();
+        if(featureCounts == null || classCounts == null || totalFeatureOccurrences == null) {
+            throw new IllegalStateException("The model does not contain the counts of its training data and it can't be updated; use fit() instead.");
+        }
+        else if(featureCounts.isReadOnly()) {
+            throw new UnsupportedOperationException("The model is read-only.");
+        }
         Set<Object> classesSet = modelParameters.getClasses();
         boolean isBinarized = isBinarized();
         
         //calculate first statistics about the classes
-        Map<Object, Double> totalFeatureOccurrencesForEachClass = new HashMap<>();
         for(Record r : trainingData) { 
             Object theClass=r.getY();
             
             if(classesSet.add(theClass)) { //is it new class? add it
-                logPriors.put(theClass, 1.0);  
-                totalFeatureOccurrencesForEachClass.put(theClass, 0.0);
+                classCounts.put(theClass, 1.0);
+                totalFeatureOccurrences.put(theClass, 0.0);
+                featureCounts.internClass(theClass);
             }
             else { //already exists? increase counter
-                logPriors.put(theClass,logPriors.get(theClass)+1.0);  
+                classCounts.put(theClass,classCounts.get(theClass)+1.0);
             }
         }
         
@@ -266,10 +390,17 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
             any effects on the results of the algorithm since the scores will be the same in all classes
             and it will be taken care by the normalization.
         */
-        streamExecutor.forEach(StreamMethods.stream(trainingData.getXDataTypes().keySet().stream(), isParallelized()), feature -> {
-            for(Object theClass : classesSet) {
-                List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                logLikelihoods.put(featureClassTuple, 0.0); //the key is unique across threads and the map is concurrent
+        for(Object feature : trainingData.getXDataTypes().keySet()) {
+            featureCounts.internFeature(feature);
+        }
+        featureCounts.ensureCapacity(); //the storage is allocated before the parallel updates
+        int numberOfClasses = featureCounts.getClassDictionary().size();
+        int numberOfPairs = featureCounts.getFeatureDictionary().size()*numberOfClasses;
+        streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, numberOfPairs), isParallelized()), pairId -> {
+            int featureId = pairId/numberOfClasses;
+            int classId = pairId%numberOfClasses;
+            if(!featureCounts.containsWeight(featureId, classId)) {
+                featureCounts.setWeight(featureId, classId, 0.0); //the pair is unique across threads
             }
         });
         
@@ -277,10 +408,10 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
         //now calculate the statistics of features
         streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> {
             Object theClass = r.getY();
+            int classId = featureCounts.getClassId(theClass);
             //store the occurrances of the features
             double sumOfOccurrences = 0.0;
             for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                Object feature = entry.getKey();
                 Double occurrences=TypeInference.toDouble(entry.getValue());
                 
                 if(occurrences!= null && occurrences>0.0) {
@@ -288,41 +419,63 @@ public abstract class AbstractNaiveBayes<MP extends AbstractNaiveBayes.AbstractM
                         occurrences=1.0;
                     }
                     
-                    List<Object> featureClassTuple = Arrays.asList(feature, theClass);
-                    logLikelihoods.put(featureClassTuple, logLikelihoods.get(featureClassTuple)+occurrences); //each thread updates a unique key and the map is cuncurrent
+                    featureCounts.addWeight(featureCounts.getFeatureId(entry.getKey()), classId, occurrences); //the addition is atomic
                     
                     sumOfOccurrences+=occurrences;
                 }
             }
-            synchronized(totalFeatureOccurrencesForEachClass) {
-                totalFeatureOccurrencesForEachClass.put(theClass,totalFeatureOccurrencesForEachClass.get(theClass)+sumOfOccurrences);
+            synchronized(totalFeatureOccurrences) {
+                totalFeatureOccurrences.put(theClass,totalFeatureOccurrences.get(theClass)+sumOfOccurrences);
             }
         });
-        
-        //calculate prior log probabilities
-        for(Map.Entry<Object, Double> entry : logPriors.entrySet()) {
-            Object theClass = entry.getKey();
-            Double count = entry.getValue();
-            
-            //updated log priors
-            logPriors.put(theClass, Math.log(count/n));
+    }
+
+    /**
+     * Estimates the prior log probabilities of the classes from their counts.
+     */
+    protected void estimateLogPriors() {
+        AbstractModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Object, Double> classCounts = modelParameters.getClassCounts();
+        Map<Object, Double> logPriors = modelParameters.getLogPriors();
+
+        double n = 0.0;
+        for(Double count : classCounts.values()) {
+            n += count;
         }
-        
-        
+
+        for(Map.Entry<Object, Double> entry : classCounts.entrySet()) {
+            logPriors.put(entry.getKey(), Math.log(entry.getValue()/n));
+        }
+    }
+
+    /**
+     * Estimates the log likelihoods of the feature-class combinations from their
+     * counts and stores them in the model parameters.
+     */
+    protected void estimateLikelihoods() {
+        AbstractModelParameters modelParameters = knowledgeBase.getModelParameters();
+        FeatureClassWeights featureCounts = modelParameters.getFeatureCounts();
+        Map<Object, Double> totalFeatureOccurrences = modelParameters.getTotalFeatureOccurrences();
+        int d = featureCounts.getFeatureDictionary().size();
+
         //update log likelihood
-        streamExecutor.forEach(StreamMethods.stream(logLikelihoods.entrySet().stream(), isParallelized()), featureClassCounts -> {
-            List<Object> featureClassTuple = featureClassCounts.getKey();
-            Object theClass = featureClassTuple.get(1);
-            Double occurrences = featureClassCounts.getValue();
-            if(occurrences==null) {
-                occurrences=0.0;
+        FeatureClassWeights logLikelihoods = modelParameters.getLogLikelihoods();
+        int numberOfClasses = featureCounts.getClassDictionary().size();
+        int numberOfPairs = d*numberOfClasses;
+        streamExecutor.forEach(StreamMethods.stream(IntStream.range(0, numberOfPairs), isParallelized()), pairId -> {
+            int featureId = pairId/numberOfClasses;
+            int classId = pairId%numberOfClasses;
+            if(!featureCounts.containsWeight(featureId, classId)) {
+                return;
             }
+            Object theClass = featureCounts.getClassDictionary().getObject(classId);
+            double occurrences = featureCounts.getWeight(featureId, classId);
 
             //We perform laplace smoothing (also known as add-1)
-            Double smoothedProbability = (occurrences+1.0)/(totalFeatureOccurrencesForEachClass.get(theClass)+d); // the d is also known in NLP problems as the Vocabulary size. 
+            Double smoothedProbability = (occurrences+1.0)/(totalFeatureOccurrences.get(theClass)+d); // the d is also known in NLP problems as the Vocabulary size. 
             
-            logLikelihoods.put(featureClassTuple, Math.log( smoothedProbability )); //calculate the logScore
-        }); 
+            logLikelihoods.setWeight(featureId, classId, Math.log( smoothedProbability )); //calculate the logScore
+        });
     }
     
-}
\ No newline at end of file
+}
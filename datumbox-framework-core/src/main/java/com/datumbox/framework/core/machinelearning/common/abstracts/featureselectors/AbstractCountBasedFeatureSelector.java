@@ -19,8 +19,13 @@ import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.Mergeable;
 
 import java.util.*;
 
@@ -31,7 +36,132 @@ import java.util.*;
  * @param <MP>
  * @param <TP>
  */
-public abstract class AbstractCountBasedFeatureSelector<MP extends AbstractCountBasedFeatureSelector.AbstractModelParameters, TP extends AbstractCountBasedFeatureSelector.AbstractTrainingParameters> extends AbstractScoreBasedFeatureSelector<MP, TP> {
+public abstract class AbstractCountBasedFeatureSelector<MP extends AbstractCountBasedFeatureSelector.AbstractModelParameters, TP extends AbstractCountBasedFeatureSelector.AbstractTrainingParameters> extends AbstractScoreBasedFeatureSelector<MP, TP> implements IncrementallyTrainable, Mergeable<AbstractCountBasedFeatureSelector<MP, TP>> {
+
+    /** {@inheritDoc} */
+    public static abstract class AbstractModelParameters extends AbstractScoreBasedFeatureSelector.AbstractModelParameters {
+
+        private Integer n = 0; //number of records used in training
+
+        private Map<Object, Integer> classCounts = new HashMap<>(); //map which stores the counts of the classes
+
+        @BigMap(keyClass=List.class, valueClass=Integer.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=false)
+        private Map<List<Object>, Integer> featureClassCounts; //map which stores the counts of feature-class combinations
+
+        @BigMap(keyClass=Object.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=false)
+        private Map<Object, Double> featureCounts; //map which stores the counts of the features
+
+        /**
+         * @param storageEngine
+         * @see AbstractTrainer.AbstractModelParameters#AbstractModelParameters(StorageEngine)
+         */
+        protected AbstractModelParameters(StorageEngine storageEngine) {
+            super(storageEngine);
+        }
+
+        /**
+         * Getter for the number of records used in training.
+         *
+         * @return
+         */
+        public Integer getN() {
+            return n;
+        }
+
+        /**
+         * Setter for the number of records used in training.
+         *
+         * @param n
+         */
+        protected void setN(Integer n) {
+            this.n = n;
+        }
+
+        /**
+         * Getter for the counts of the classes.
+         *
+         * @return
+         */
+        public Map<Object, Integer> getClassCounts() {
+            return classCounts;
+        }
+
+        /**
+         * Setter for the counts of the classes.
+         *
+         * @param classCounts
+         */
+        protected void setClassCounts(Map<Object, Integer> classCounts) {
+            this.classCounts = classCounts;
+        }
+
+        /**
+         * Getter for the counts of the feature-class combinations.
+         *
+         * @return
+         */
+        public Map<List<Object>, Integer> getFeatureClassCounts() {
+            return featureClassCounts;
+        }
+
+        /**
+         * Setter for the counts of the feature-class combinations.
+         *
+         * @param featureClassCounts
+         */
+        protected void setFeatureClassCounts(Map<List<Object>, Integer> featureClassCounts) {
+            this.featureClassCounts = featureClassCounts;
+        }
+
+        /**
+         * Getter for the counts of the features.
+         *
+         * @return
+         */
+        public Map<Object, Double> getFeatureCounts() {
+            return featureCounts;
+        }
+
+        /**
+         * Setter for the counts of the features.
+         *
+         * @param featureCounts
+         */
+        protected void setFeatureCounts(Map<Object, Double> featureCounts) {
+            this.featureCounts = featureCounts;
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    public static abstract class AbstractTrainingParameters extends AbstractScoreBasedFeatureSelector.AbstractTrainingParameters {
+
+        private boolean incremental = false;
+
+        /**
+         * Getter for whether the counts of the features and the classes are
+         * kept after fit().
+         *
+         * @return
+         */
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * Setter for whether the counts of the features and the classes are
+         * kept after fit(). They are necessary for updating the selector with
+         * partialFit() or merging it with another one, but their size grows
+         * with the number of feature-class combinations. By default they are
+         * dropped; partialFit() always keeps them.
+         *
+         * @param incremental
+         */
+        public void setIncremental(boolean incremental) {
+            this.incremental = incremental;
+        }
+
+    }
 
     /**
      * @param trainingParameters
@@ -51,9 +181,65 @@ public abstract class AbstractCountBasedFeatureSelector<MP extends AbstractCount
         super(storageName, configuration);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        //the counts are sufficient statistics, so the scores are estimated from the counts of all the batches
+        updateCounts(trainingData);
+        updateFeatureScores();
+        updateXDataTypes(trainingData.getXDataTypes());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(AbstractCountBasedFeatureSelector<MP, TP> other) {
+        logger.info("merge()");
+
+        MP modelParameters = knowledgeBase.getModelParameters();
+        MP otherParameters = other.getModelParameters();
+        if(modelParameters.getN() == null || modelParameters.getClassCounts() == null) {
+            throw new IllegalStateException("The feature selector was trained without the counts which are required for updating it.");
+        }
+        else if(otherParameters.getN() == null || otherParameters.getClassCounts() == null) {
+            throw new IllegalArgumentException("The provided feature selector does not contain the counts which are required for merging it.");
+        }
+
+        Map<Object, Integer> classCounts = modelParameters.getClassCounts();
+        Map<List<Object>, Integer> featureClassCounts = modelParameters.getFeatureClassCounts();
+        Map<Object, Double> featureCounts = modelParameters.getFeatureCounts();
+
+        otherParameters.getClassCounts().forEach((theClass, count) -> classCounts.merge(theClass, count, Integer::sum));
+        otherParameters.getFeatureClassCounts().forEach((featureClassTuple, count) -> featureClassCounts.merge(featureClassTuple, count, Integer::sum));
+        otherParameters.getFeatureCounts().forEach((feature, count) -> featureCounts.merge(feature, count, Double::sum));
+        modelParameters.setN(modelParameters.getN() + otherParameters.getN());
+
+        updateFeatureScores();
+        updateXDataTypes(other.getModelParameters().getXDataTypes());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
+        if(knowledgeBase.getTrainingParameters().isIncremental()) {
+            updateCounts(trainingData);
+            updateFeatureScores();
+        }
+        else {
+            fitWithoutCounts(trainingData);
+        }
+    }
+
+    /**
+     * Estimates the scores of the features using temporary counts, which are
+     * dropped at the end. The rare features are removed before counting the
+     * feature-class combinations. The model can not be updated or merged
+     * afterwards.
+     *
+     * @param trainingData
+     */
+    private void fitWithoutCounts(Dataframe trainingData) {
         StorageEngine storageEngine = knowledgeBase.getStorageEngine();
         TP trainingParameters = knowledgeBase.getTrainingParameters();
         MP modelParameters = knowledgeBase.getModelParameters();
@@ -96,10 +282,9 @@ public abstract class AbstractCountBasedFeatureSelector<MP extends AbstractCount
             Integer classCounter = tmp_classCounts.getOrDefault(theClass, 0);
             tmp_classCounts.put(theClass, ++classCounter);
 
-
             for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
                 Object column = entry.getKey();
-                if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
+                if(!tmp_featureCounts.containsKey(column)) {
                     continue;
                 }
 
@@ -112,17 +297,100 @@ public abstract class AbstractCountBasedFeatureSelector<MP extends AbstractCount
             }
         }
 
-
         //call the overriden method to get the scores of the features.
         final Map<Object, Double> featureScores = modelParameters.getFeatureScores();
         estimateFeatureScores(featureScores, trainingData.size(), tmp_classCounts, tmp_featureClassCounts, tmp_featureCounts);
 
-
-        //drop the unnecessary stastistics tables
-        tmp_classCounts.clear();
+        //drop the unnecessary stastistics tables; without the class counts the model is marked as not updatable
+        modelParameters.setN(trainingData.size());
+        modelParameters.setClassCounts(null);
         storageEngine.dropBigMap("tmp_featureClassCounts", tmp_featureClassCounts);
         storageEngine.dropBigMap("tmp_featureCounts", tmp_featureCounts);
 
+        //keep only the top features
+        Integer maxFeatures = trainingParameters.getMaxFeatures();
+        if(maxFeatures != null && maxFeatures<featureScores.size()) {
+            keepTopFeatures(featureScores, maxFeatures);
+        }
+    }
+
+    /**
+     * Adds the counts of the classes, the features and the feature-class
+     * combinations of the provided data to the ones of the model.
+     *
+     * @param trainingData
+     */
+    private void updateCounts(Dataframe trainingData) {
+        MP modelParameters = knowledgeBase.getModelParameters();
+        Map<Object, Integer> classCounts = modelParameters.getClassCounts();
+        Map<List<Object>, Integer> featureClassCounts = modelParameters.getFeatureClassCounts();
+        Map<Object, Double> featureCounts = modelParameters.getFeatureCounts();
+        if(modelParameters.getN() == null || classCounts == null) {
+            throw new IllegalStateException("The feature selector was trained without the counts which are required for updating it.");
+        }
+
+        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+        Map<Object, TypeInference.DataType> xDataTypes = trainingData.getXDataTypes();
+
+        logger.debug("Estimating classCounts, featureCounts and featureClassCounts");
+        for(Record r : trainingData) {
+            Object theClass = r.getY();
+
+            Integer classCounter = classCounts.getOrDefault(theClass, 0);
+            classCounts.put(theClass, ++classCounter);
+
+            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                Object column = entry.getKey();
+                if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
+                    continue;
+                }
+
+                Double value = TypeInference.toDouble(entry.getValue());
+                if(value>0.0) {
+                    double featureCounter = featureCounts.getOrDefault(column, 0.0);
+                    featureCounts.put(column, ++featureCounter);
+
+                    List<Object> featureClassTuple = Arrays.asList(column, theClass);
+                    Integer featureClassCounter = featureClassCounts.getOrDefault(featureClassTuple, 0);
+                    featureClassCounts.put(featureClassTuple, ++featureClassCounter);
+                }
+            }
+        }
+
+        modelParameters.setN(modelParameters.getN() + trainingData.size());
+    }
+
+    /**
+     * Re-estimates the scores of the features from the counts of the model.
+     */
+    private void updateFeatureScores() {
+        StorageEngine storageEngine = knowledgeBase.getStorageEngine();
+        TP trainingParameters = knowledgeBase.getTrainingParameters();
+        MP modelParameters = knowledgeBase.getModelParameters();
+
+        //the rare features are kept in the counts because their counts might increase on the next batches, so only the frequent ones are copied
+        Map<Object, Double> featureCounts = modelParameters.getFeatureCounts();
+        Map<Object, Double> tmp_featureCounts = null;
+        Integer rareFeatureThreshold = trainingParameters.getRareFeatureThreshold();
+        if(rareFeatureThreshold != null && rareFeatureThreshold>0) {
+            tmp_featureCounts = storageEngine.getBigMap("tmp_featureCounts", Object.class, Double.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_MEMORY, false, true);
+            for(Map.Entry<Object, Double> entry : featureCounts.entrySet()) {
+                if(entry.getValue()>=rareFeatureThreshold) {
+                    tmp_featureCounts.put(entry.getKey(), entry.getValue());
+                }
+            }
+            featureCounts = tmp_featureCounts;
+        }
+
+        //call the overriden method to get the scores of the features.
+        final Map<Object, Double> featureScores = modelParameters.getFeatureScores();
+        featureScores.clear();
+        estimateFeatureScores(featureScores, modelParameters.getN(), modelParameters.getClassCounts(), modelParameters.getFeatureClassCounts(), featureCounts);
+
+        //drop the unnecessary stastistics tables
+        if(tmp_featureCounts != null) {
+            storageEngine.dropBigMap("tmp_featureCounts", tmp_featureCounts);
+        }
 
         //keep only the top features
         Integer maxFeatures = trainingParameters.getMaxFeatures();
@@ -18,10 +18,14 @@ package com.datumbox.framework.core.machinelearning.common.abstracts.featuresele
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.common.concurrency.ForkJoinStream;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.interfaces.Parallelizable;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -33,6 +37,39 @@ import java.util.Set;
  */
 public abstract class AbstractFeatureSelector<MP extends AbstractFeatureSelector.AbstractModelParameters, TP extends AbstractFeatureSelector.AbstractTrainingParameters> extends AbstractTrainer<MP, TP> implements Parallelizable {
 
+    /** {@inheritDoc} */
+    public static abstract class AbstractModelParameters extends AbstractTrainer.AbstractModelParameters {
+
+        private Map<Object, TypeInference.DataType> xDataTypes = new HashMap<>();
+
+        /**
+         * @param storageEngine
+         * @see AbstractTrainer.AbstractModelParameters#AbstractModelParameters(StorageEngine)
+         */
+        protected AbstractModelParameters(StorageEngine storageEngine) {
+            super(storageEngine);
+        }
+
+        /**
+         * Getter for the DataTypes of the columns which were seen during training.
+         *
+         * @return
+         */
+        public Map<Object, TypeInference.DataType> getXDataTypes() {
+            return xDataTypes;
+        }
+
+        /**
+         * Setter for the DataTypes of the columns which were seen during training.
+         *
+         * @param xDataTypes
+         */
+        protected void setXDataTypes(Map<Object, TypeInference.DataType> xDataTypes) {
+            this.xDataTypes = xDataTypes;
+        }
+
+    }
+
     /**
      * @param trainingParameters
      * @param configuration
@@ -91,6 +128,7 @@ public abstract class AbstractFeatureSelector<MP extends AbstractFeatureSelector
             throw new IllegalArgumentException("The response variable DataType of the Dataframe is not supported by this method.");
         }
         super.fit(trainingData);
+        updateXDataTypes(trainingData.getXDataTypes());
     }
 
     /**
@@ -111,6 +149,74 @@ public abstract class AbstractFeatureSelector<MP extends AbstractFeatureSelector
      */
     protected abstract void _transform(Dataframe newData);
 
+    /**
+     * Performs feature selection on a single Record and returns the filtered
+     * Record. The DataTypes of the columns are the ones seen during training,
+     * so the Record is treated in the same way as the training data.
+     *
+     * @param r
+     * @return
+     */
+    public Record transform(Record r) {
+        return _transform(r);
+    }
+
+    /**
+     * Performs the filtering of the features of a single Record. It returns the
+     * same Record object if no modification is required. By default the Record
+     * is filtered through a temporary single-record Dataframe; the feature
+     * selectors which can process each record independently should override
+     * this method.
+     *
+     * @param r
+     * @return
+     */
+    protected Record _transform(Record r) {
+        Dataframe newData = new Dataframe(knowledgeBase.getConfiguration());
+        Integer rId = newData.addRecord(r);
+        _transform(newData);
+        Record newR = newData.get(rId);
+        newData.close();
+        return newR;
+    }
+
+    /**
+     * Stores the DataTypes of the columns of the provided map which have not
+     * been seen before. It is called with the DataTypes of the training data,
+     * which are used when single Records are processed.
+     *
+     * @param xDataTypes
+     */
+    protected void updateXDataTypes(Map<Object, TypeInference.DataType> xDataTypes) {
+        Map<Object, TypeInference.DataType> trainedXDataTypes = knowledgeBase.getModelParameters().getXDataTypes();
+        xDataTypes.forEach(trainedXDataTypes::putIfAbsent);
+    }
+
+    /**
+     * Returns the DataTypes of the columns of the Record. The columns which were
+     * seen during training keep their trained DataType and the rest are inferred
+     * from their values; columns with null values which were not seen are not
+     * included.
+     *
+     * @param r
+     * @return
+     */
+    protected Map<Object, TypeInference.DataType> getXDataTypes(Record r) {
+        Map<Object, TypeInference.DataType> trainedXDataTypes = knowledgeBase.getModelParameters().getXDataTypes();
+        Map<Object, TypeInference.DataType> xDataTypes = new HashMap<>();
+        for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+            Object column = entry.getKey();
+            TypeInference.DataType dataType = trainedXDataTypes.get(column);
+            if(dataType == null && entry.getValue() != null) {
+                dataType = TypeInference.getDataType(entry.getValue());
+            }
+            if(dataType != null) {
+                xDataTypes.put(column, dataType);
+            }
+        }
+        return xDataTypes;
+    }
+
     /**
      * Returns a set with the supported DataTypes of X (features).
      *
@@ -16,8 +16,10 @@
 package com.datumbox.framework.core.machinelearning.common.abstracts.featureselectors;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.common.concurrency.StreamMethods;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.dataobjects.TypeInference;
 import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
@@ -166,6 +168,26 @@ public abstract class AbstractScoreBasedFeatureSelector<MP extends AbstractScore
         storageEngine.dropBigMap("tmp_removedColumns", tmp_removedColumns);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
+        Set<Object> selectedFeatures = knowledgeBase.getModelParameters().getFeatureScores().keySet();
+        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+
+        AssociativeArray xData = null;
+        for(Map.Entry<Object, TypeInference.DataType> e : getXDataTypes(r).entrySet()) {
+            Object column = e.getKey();
+            if(supportedXDataTypes.contains(e.getValue()) && !selectedFeatures.contains(column)) {
+                if(xData == null) {
+                    xData = r.getX().copy();
+                }
+                xData.remove(column);
+            }
+        }
+
+        return xData!=null?new Record(xData, r.getY(), r.getYPredicted(), r.getYPredictedProbabilities()):r;
+    }
+
     /**
      * This method keeps the highest scoring features of the provided feature map
      * and removes all the others.
@@ -16,8 +16,11 @@
 package com.datumbox.framework.core.machinelearning.common.abstracts.modelers;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
+import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 
 /**
  * Base Class for Machine Learning algorithms.
@@ -64,4 +67,51 @@ public abstract class AbstractModeler<MP extends AbstractModeler.AbstractModelPa
      * @param newData
      */
     protected abstract void _predict(Dataframe newData);
+
+    /**
+     * Calculates the prediction for a single Record and returns a new Record
+     * which contains the yPredicted and yPredictedProbabilities. Unlike the
+     * predict(Dataframe), it does not create a Dataframe (and thus a new storage
+     * engine), so it should be preferred when scoring individual records online.
+     *
+     * @param r
+     * @return
+     */
+    public Record predict(Record r) {
+        return _predict(r);
+    }
+
+    /**
+     * Calculates the prediction for the provided xData.
+     *
+     * @param x
+     * @return
+     * @see #predict(Record)
+     */
+    public Record predict(AssociativeArray x) {
+        return predict(new Record(x, null));
+    }
+
+    /**
+     * Estimates the prediction for a single Record. The algorithms which predict
+     * each record independently use their _predictRecord() method directly. The
+     * rest fall back to a temporary single-record Dataframe and should override
+     * this method when they can do better.
+     *
+     * @param r
+     * @return
+     */
+    protected Record _predict(Record r) {
+        if(this instanceof PredictParallelizable) {
+            PredictParallelizable.Prediction p = ((PredictParallelizable)this)._predictRecord(r);
+            return r.withPrediction(p.getYPredicted(), p.getYPredictedProbabilities());
+        }
+
+        Dataframe newData = new Dataframe(knowledgeBase.getConfiguration());
+        Integer rId = newData.addRecord(r);
+        _predict(newData);
+        Record newR = newData.get(rId);
+        newData.close();
+        return newR;
+    }
 }
@@ -0,0 +1,1278 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
+import com.datumbox.framework.common.utilities.ReflectionMethods;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Stores the weights of feature-class combinations (such as the thitas of
+ * SoftMaxRegression). The features and the classes are interned to dense int
+ * ids by two ObjectInterners. The weights are kept either in a Map with
+ * Long keys (featureId&lt;&lt;32|classId), which is usually a BigMap of the
+ * StorageEngine and thus can be stored on disk, or in a dense double array on
+ * the heap where the weight of the pair (featureId, classId) is stored at
+ * position featureId*classCapacity+classId. The dense form is faster but it
+ * allocates featureCapacity*classCapacity doubles and it can not exceed the
+ * maximum array size, so the algorithms use it only if it is requested by
+ * their training parameters.
+ *
+ * The Map of the weights is not serialized with the object. The owner keeps it
+ * in a BigMap field, whose name is provided on construction, and the
+ * KnowledgeBase binds it again after the owner is loaded.
+ *
+ * The class is also a Map view which uses Arrays.asList(feature, theClass) as
+ * keys, so it is a drop-in replacement of the Map&lt;List&lt;Object&gt;, Double&gt;
+ * parameters used previously. The algorithms should prefer the int-indexed
+ * methods on their hot paths since they neither allocate nor hash the keys.
+ *
+ * Reads are lock-free and the addWeight() is atomic. The dense storage grows
+ * automatically when new ids are written; the writes hold the read side of a
+ * StampedLock and the growth holds its write side, so no write is lost while
+ * the arrays are copied. The parallel code should still intern all the ids and
+ * call ensureCapacity() before it starts updating the weights, to avoid
+ * growing the storage repeatedly.
+ *
+ * The weights which are opened from a ModelSnapshot are read-only and they are
+ * backed by memory-mapped buffers instead of heap arrays; the weights are split
+ * in segments of 1GB since a single mapping can not exceed 2GB. All the methods
+ * which modify them throw an UnsupportedOperationException.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class FeatureClassWeights extends AbstractMap<List<Object>, Double> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final VarHandle WEIGHTS = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private static final VarHandle PRESENT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int SECTION_HEADER_SIZE = 16;
+
+    private static final int WRITE_BUFFER_SIZE = 64*1024;
+
+    private static final int SEGMENT_SHIFT = 27; //2^27 doubles per mapped segment
+
+    private static final int SEGMENT_MASK = (1<<SEGMENT_SHIFT)-1;
+
+    private final ObjectInterner featureDictionary;
+
+    private final ObjectInterner classDictionary;
+
+    private volatile Storage storage; //null if the weights are backed by a Map
+
+    private final String bigMapField; //the field of the owner which holds the Map
+
+    private transient Map<Long, Double> values;
+
+    private final AtomicInteger size;
+
+    private transient StampedLock lock = new StampedLock();
+
+    /**
+     * Immutable holder of the arrays and their layout. The values of the arrays
+     * are mutable but the layout changes only by replacing the entire holder.
+     * A read-only holder keeps the values in memory-mapped buffers and its
+     * arrays are null; the weights are mapped in segments of 2^SEGMENT_SHIFT
+     * values.
+     */
+    private static final class Storage implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int featureCapacity;
+
+        private final int classCapacity;
+
+        private final double[] weights;
+
+        private final long[] present;
+
+        private final transient DoubleBuffer[] mappedWeights;
+
+        private final transient LongBuffer mappedPresent;
+
+        /**
+         * Private constructor.
+         *
+         * @param featureCapacity
+         * @param classCapacity
+         */
+        private Storage(int featureCapacity, int classCapacity) {
+            this.featureCapacity = featureCapacity;
+            this.classCapacity = classCapacity;
+            int length = featureCapacity*classCapacity;
+            weights = new double[length];
+            present = new long[(length + 63) >>> 6];
+            mappedWeights = null;
+            mappedPresent = null;
+        }
+
+        /**
+         * Private constructor which copies the contents of the provided storage.
+         * The copy is always kept on the heap.
+         *
+         * @param other
+         */
+        private Storage(Storage other) {
+            featureCapacity = other.featureCapacity;
+            classCapacity = other.classCapacity;
+            if(other.isReadOnly()) {
+                weights = new double[other.length()];
+                present = new long[(weights.length + 63) >>> 6];
+                for(int k=0;k<other.mappedWeights.length;k++) {
+                    DoubleBuffer segment = other.mappedWeights[k].duplicate();
+                    segment.get(weights, k << SEGMENT_SHIFT, segment.remaining());
+                }
+                other.mappedPresent.duplicate().get(present);
+            }
+            else {
+                weights = other.weights.clone();
+                present = other.present.clone();
+            }
+            mappedWeights = null;
+            mappedPresent = null;
+        }
+
+        /**
+         * Private constructor of a read-only storage.
+         *
+         * @param featureCapacity
+         * @param classCapacity
+         * @param mappedWeights
+         * @param mappedPresent
+         */
+        private Storage(int featureCapacity, int classCapacity, DoubleBuffer[] mappedWeights, LongBuffer mappedPresent) {
+            this.featureCapacity = featureCapacity;
+            this.classCapacity = classCapacity;
+            weights = null;
+            present = null;
+            this.mappedWeights = mappedWeights;
+            this.mappedPresent = mappedPresent;
+        }
+
+        /**
+         * Checks whether the values are kept in read-only buffers.
+         *
+         * @return
+         */
+        private boolean isReadOnly() {
+            return weights == null;
+        }
+
+        /**
+         * Returns the number of positions.
+         *
+         * @return
+         */
+        private int length() {
+            return featureCapacity*classCapacity;
+        }
+
+        /**
+         * Returns the weight stored at the position.
+         *
+         * @param i
+         * @return
+         */
+        private double weight(int i) {
+            return weights != null ? weights[i] : mappedWeights[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+        }
+
+        /**
+         * Returns the word of the present bitmap.
+         *
+         * @param w
+         * @return
+         */
+        private long presentWord(int w) {
+            return present != null ? present[w] : mappedPresent.get(w);
+        }
+
+        /**
+         * The read-only storage is serialized as a heap copy since the mapped
+         * buffers are not serializable.
+         *
+         * @return
+         */
+        private Object writeReplace() {
+            return isReadOnly() ? new Storage(this) : this;
+        }
+
+        /**
+         * Returns the position of the pair or -1 if it is out of bounds.
+         *
+         * @param featureId
+         * @param classId
+         * @return
+         */
+        private int index(int featureId, int classId) {
+            if(featureId < 0 || classId < 0 || featureId >= featureCapacity || classId >= classCapacity) {
+                return -1;
+            }
+            return featureId*classCapacity + classId;
+        }
+
+        /**
+         * Checks whether the position holds a value.
+         *
+         * @param i
+         * @return
+         */
+        private boolean isPresent(int i) {
+            return (presentWord(i >>> 6) & (1L << i)) != 0L;
+        }
+    }
+
+    /**
+     * Public constructor of dense weights which are stored on the heap.
+     */
+    public FeatureClassWeights() {
+        this(new ObjectInterner(), new ObjectInterner(), new Storage(0, 0), null, null);
+    }
+
+    /**
+     * Public constructor of weights which are stored in the provided Map. The
+     * Map must be concurrent if the weights are updated in parallel.
+     *
+     * @param values
+     */
+    public FeatureClassWeights(Map<Long, Double> values) {
+        this(new ObjectInterner(), new ObjectInterner(), null, null, Objects.requireNonNull(values));
+    }
+
+    /**
+     * Public constructor of weights which are stored in a BigMap field of their
+     * owner. The Map is bound again from the field when the owner is loaded.
+     *
+     * @param bigMapField
+     * @param values
+     */
+    public FeatureClassWeights(String bigMapField, Map<Long, Double> values) {
+        this(new ObjectInterner(), new ObjectInterner(), null, Objects.requireNonNull(bigMapField), Objects.requireNonNull(values));
+    }
+
+    /**
+     * Private constructor.
+     *
+     * @param featureDictionary
+     * @param classDictionary
+     * @param storage
+     * @param bigMapField
+     * @param values
+     */
+    private FeatureClassWeights(ObjectInterner featureDictionary, ObjectInterner classDictionary, Storage storage, String bigMapField, Map<Long, Double> values) {
+        this.featureDictionary = featureDictionary;
+        this.classDictionary = classDictionary;
+        this.storage = storage;
+        this.bigMapField = bigMapField;
+        this.values = values;
+        size = new AtomicInteger(0);
+    }
+
+    /**
+     * Initializes the lock after deserialization.
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lock = new StampedLock();
+    }
+
+    /**
+     * Binds the Maps of the FeatureClassWeights fields of the provided object
+     * to the BigMap fields which hold them. It is called after the object is
+     * deserialized.
+     *
+     * @param owner
+     */
+    @SuppressWarnings("unchecked")
+    static void bindBigMaps(Object owner) {
+        List<Field> fields = ReflectionMethods.getAllFields(new LinkedList<>(), owner.getClass());
+        for(Field field : fields) {
+            if(!FeatureClassWeights.class.isAssignableFrom(field.getType())) {
+                continue;
+            }
+            FeatureClassWeights weights = (FeatureClassWeights) getValue(field, owner);
+            if(weights == null || weights.storage != null || weights.bigMapField == null) {
+                continue;
+            }
+            for(Field mapField : fields) {
+                if(mapField.getName().equals(weights.bigMapField)) {
+                    weights.values = (Map<Long, Double>) getValue(mapField, owner);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the value of the field of the provided object.
+     *
+     * @param field
+     * @param obj
+     * @return
+     */
+    private static Object getValue(Field field, Object obj) {
+        field.setAccessible(true);
+        try {
+            return field.get(obj);
+        }
+        catch (IllegalArgumentException | IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Checks whether the weights are stored in a dense array instead of a Map.
+     *
+     * @return
+     */
+    public boolean isDense() {
+        return storage != null;
+    }
+
+    /**
+     * Returns a copy of the weights which shares the feature and class
+     * dictionaries with the current object. The copy of Map-backed weights is
+     * backed by a ConcurrentHashMap.
+     *
+     * @return
+     */
+    public FeatureClassWeights copy() {
+        if(storage == null) {
+            return new FeatureClassWeights(featureDictionary, classDictionary, null, null, new ConcurrentHashMap<>(backingMap()));
+        }
+        synchronized(this) {
+            FeatureClassWeights copy = new FeatureClassWeights(featureDictionary, classDictionary, new Storage(storage), null, null);
+            copy.size.set(size.get());
+            return copy;
+        }
+    }
+
+    /**
+     * Returns a copy of the weights which shares the feature and class
+     * dictionaries with the current object. The copy of Map-backed weights is
+     * backed by a temporary BigMap of the storage engine, which should be
+     * released with drop().
+     *
+     * @param storageEngine
+     * @param name
+     * @return
+     */
+    public FeatureClassWeights copy(StorageEngine storageEngine, String name) {
+        if(storage != null) {
+            return copy();
+        }
+        FeatureClassWeights copy = emptyCopy(storageEngine, name);
+        storageEngine.putAll(copy.values, backingMap());
+        return copy;
+    }
+
+    /**
+     * Returns an empty object which shares the feature and class dictionaries
+     * with the current object. Dense weights get enough capacity for all the
+     * ids of the dictionaries and Map-backed weights get a ConcurrentHashMap.
+     *
+     * @return
+     */
+    public FeatureClassWeights emptyCopy() {
+        if(storage == null) {
+            return new FeatureClassWeights(featureDictionary, classDictionary, null, null, new ConcurrentHashMap<>());
+        }
+        FeatureClassWeights copy = new FeatureClassWeights(featureDictionary, classDictionary, new Storage(0, 0), null, null);
+        copy.ensureCapacity();
+        return copy;
+    }
+
+    /**
+     * Returns an empty object which shares the feature and class dictionaries
+     * with the current object. The Map-backed weights get a temporary BigMap
+     * of the storage engine, which should be released with drop().
+     *
+     * @param storageEngine
+     * @param name
+     * @return
+     */
+    public FeatureClassWeights emptyCopy(StorageEngine storageEngine, String name) {
+        if(storage != null) {
+            return emptyCopy();
+        }
+        Map<Long, Double> map = storageEngine.getBigMap(name, Long.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+        return new FeatureClassWeights(featureDictionary, classDictionary, null, null, map);
+    }
+
+    /**
+     * Returns an empty object which shares the feature and class dictionaries
+     * with the current object and which is stored in the provided BigMap field
+     * of the owner. The Map should be empty.
+     *
+     * @param bigMapField
+     * @param values
+     * @return
+     */
+    public FeatureClassWeights emptyCopy(String bigMapField, Map<Long, Double> values) {
+        return new FeatureClassWeights(featureDictionary, classDictionary, null, Objects.requireNonNull(bigMapField), Objects.requireNonNull(values));
+    }
+
+    /**
+     * Drops the temporary BigMap of a copy which was created with
+     * copy(StorageEngine, String) or emptyCopy(StorageEngine, String).
+     *
+     * @param storageEngine
+     * @param name
+     */
+    public void drop(StorageEngine storageEngine, String name) {
+        if(storage == null) {
+            storageEngine.dropBigMap(name, backingMap());
+        }
+    }
+
+    /**
+     * Replaces the weights of the current object with the weights of the provided
+     * object. Both objects must share the same dictionaries and they must both
+     * be dense or Map-backed.
+     *
+     * @param other
+     */
+    public void copyFrom(FeatureClassWeights other) {
+        if(isReadOnly()) {
+            throw new UnsupportedOperationException("The weights are read-only.");
+        }
+        else if(other.featureDictionary != featureDictionary || other.classDictionary != classDictionary) {
+            throw new IllegalArgumentException("The weights do not share the same dictionaries.");
+        }
+        else if(other.isDense() != isDense()) {
+            throw new IllegalArgumentException("The weights are not stored in the same form.");
+        }
+        if(storage == null) {
+            Map<Long, Double> map = backingMap();
+            map.clear();
+            map.putAll(other.backingMap());
+            return;
+        }
+        Storage s;
+        int otherSize;
+        synchronized(other) {
+            s = new Storage(other.storage);
+            otherSize = other.size.get();
+        }
+        synchronized(this) {
+            long stamp = lock.writeLock();
+            try {
+                storage = s;
+                size.set(otherSize);
+            }
+            finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Getter for the dictionary of the features.
+     *
+     * @return
+     */
+    public ObjectInterner getFeatureDictionary() {
+        return featureDictionary;
+    }
+
+    /**
+     * Getter for the dictionary of the classes.
+     *
+     * @return
+     */
+    public ObjectInterner getClassDictionary() {
+        return classDictionary;
+    }
+
+    /**
+     * Returns the id of the feature, assigning a new one if necessary.
+     *
+     * @param feature
+     * @return
+     */
+    public int internFeature(Object feature) {
+        return featureDictionary.intern(feature);
+    }
+
+    /**
+     * Returns the id of the class, assigning a new one if necessary.
+     *
+     * @param theClass
+     * @return
+     */
+    public int internClass(Object theClass) {
+        return classDictionary.intern(theClass);
+    }
+
+    /**
+     * Returns the id of the feature or -1 if it is unknown.
+     *
+     * @param feature
+     * @return
+     */
+    public int getFeatureId(Object feature) {
+        return featureDictionary.getId(feature);
+    }
+
+    /**
+     * Returns the id of the class or -1 if it is unknown.
+     *
+     * @param theClass
+     * @return
+     */
+    public int getClassId(Object theClass) {
+        return classDictionary.getId(theClass);
+    }
+
+    /**
+     * Grows the storage so that it can hold all the feature and class ids which
+     * are currently in the dictionaries.
+     */
+    public void ensureCapacity() {
+        if(storage == null) {
+            return; //the Map grows on its own
+        }
+        int numberOfFeatures = featureDictionary.size();
+        int numberOfClasses = classDictionary.size();
+        if(numberOfFeatures > 0 && numberOfClasses > 0) {
+            getStorage(numberOfFeatures - 1, numberOfClasses - 1);
+        }
+    }
+
+    /**
+     * Checks whether a weight is stored for the provided pair.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    public boolean containsWeight(int featureId, int classId) {
+        Storage s = storage;
+        if(s == null) {
+            return featureId >= 0 && classId >= 0 && backingMap().containsKey(key(featureId, classId));
+        }
+        int i = s.index(featureId, classId);
+        return i >= 0 && s.isPresent(i);
+    }
+
+    /**
+     * Returns the weight of the provided pair or 0.0 if no weight is stored.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    public double getWeight(int featureId, int classId) {
+        Storage s = storage;
+        if(s == null) {
+            if(featureId < 0 || classId < 0) {
+                return 0.0;
+            }
+            Double value = backingMap().get(key(featureId, classId));
+            return value != null ? value : 0.0;
+        }
+        int i = s.index(featureId, classId);
+        return i >= 0 ? s.weight(i) : 0.0;
+    }
+
+    /**
+     * Sets the weight of the provided pair.
+     *
+     * @param featureId
+     * @param classId
+     * @param value
+     */
+    public void setWeight(int featureId, int classId, double value) {
+        if(storage == null) {
+            backingMap().put(checkedKey(featureId, classId), value);
+            return;
+        }
+        long stamp = lockStorage(featureId, classId);
+        try {
+            Storage s = storage;
+            int i = s.index(featureId, classId);
+            s.weights[i] = value;
+            markPresent(s, i);
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Atomically adds the delta to the weight of the provided pair. Missing
+     * weights are treated as 0.0.
+     *
+     * @param featureId
+     * @param classId
+     * @param delta
+     */
+    public void addWeight(int featureId, int classId, double delta) {
+        if(storage == null) {
+            backingMap().merge(checkedKey(featureId, classId), delta, Double::sum);
+            return;
+        }
+        long stamp = lockStorage(featureId, classId);
+        try {
+            Storage s = storage;
+            int i = s.index(featureId, classId);
+            double current;
+            do {
+                current = (double) WEIGHTS.getVolatile(s.weights, i);
+            }
+            while(!WEIGHTS.compareAndSet(s.weights, i, current, current + delta));
+            markPresent(s, i);
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Estimates the dot product between the weights of the class and the
+     * provided feature values. Feature ids with negative values and missing
+     * weights are ignored.
+     *
+     * @param classId
+     * @param featureIds
+     * @param values
+     * @param length
+     * @return
+     */
+    public double dotProduct(int classId, int[] featureIds, double[] values, int length) {
+        Storage s = storage;
+        if(s == null) {
+            double sum = 0.0;
+            for(int j=0;j<length;j++) {
+                sum += getWeight(featureIds[j], classId)*values[j];
+            }
+            return sum;
+        }
+        else if(classId < 0 || classId >= s.classCapacity) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        double[] w = s.weights;
+        if(w != null) {
+            for(int j=0;j<length;j++) {
+                int featureId = featureIds[j];
+                if(featureId >= 0 && featureId < s.featureCapacity) {
+                    sum += w[featureId*s.classCapacity + classId]*values[j];
+                }
+            }
+        }
+        else {
+            for(int j=0;j<length;j++) {
+                int featureId = featureIds[j];
+                if(featureId >= 0 && featureId < s.featureCapacity) {
+                    sum += s.weight(featureId*s.classCapacity + classId)*values[j];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Checks whether the weights are read-only.
+     *
+     * @return
+     */
+    public boolean isReadOnly() {
+        Storage s = storage;
+        return s != null && s.isReadOnly();
+    }
+
+    /**
+     * Writes the weights at the current position of the channel. The section
+     * starts with the feature capacity, the class capacity, the size and a
+     * reserved int, followed by the weights and the words of the present bitmap.
+     * All the values are little-endian. It returns the number of bytes written.
+     * Map-backed weights are written in the same dense layout.
+     *
+     * @param channel
+     * @return
+     * @throws IOException
+     */
+    synchronized long writeSection(WritableByteChannel channel) throws IOException {
+        Storage s = storage;
+        if(s == null) {
+            return writeMapSection(channel);
+        }
+        int length = s.length();
+        int words = (length + 63) >>> 6;
+
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(s.featureCapacity).putInt(s.classCapacity).putInt(size.get()).putInt(0);
+        for(int i=0;i<length;i++) {
+            if(!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.putDouble(s.weight(i));
+        }
+        for(int w=0;w<words;w++) {
+            if(!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.putLong(s.presentWord(w));
+        }
+        flush(channel, buffer);
+
+        return SECTION_HEADER_SIZE + 8L*length + 8L*words;
+    }
+
+    /**
+     * Writes the Map-backed weights in the layout of writeSection(). Only the
+     * present bitmap is kept on the heap while the weights are written.
+     *
+     * @param channel
+     * @return
+     * @throws IOException
+     */
+    private long writeMapSection(WritableByteChannel channel) throws IOException {
+        Map<Long, Double> map = backingMap();
+        int featureCapacity = featureDictionary.size();
+        int classCapacity = classDictionary.size();
+        if((long) featureCapacity*classCapacity > MAX_ARRAY_SIZE) {
+            throw new UnsupportedOperationException("The number of feature-class pairs exceeds the maximum size of a snapshot section.");
+        }
+        int length = featureCapacity*classCapacity;
+        long[] present = new long[(length + 63) >>> 6];
+
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(featureCapacity).putInt(classCapacity).putInt(map.size()).putInt(0);
+        for(int i=0;i<length;i++) {
+            if(!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            Double value = map.get(key(i / classCapacity, i % classCapacity));
+            if(value != null) {
+                present[i >>> 6] |= 1L << i;
+            }
+            buffer.putDouble(value != null ? value : 0.0);
+        }
+        for(long word : present) {
+            if(!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            buffer.putLong(word);
+        }
+        flush(channel, buffer);
+
+        return SECTION_HEADER_SIZE + 8L*length + 8L*present.length;
+    }
+
+    /**
+     * Opens the section which starts at the provided position of the channel.
+     * The weights are memory-mapped in read-only mode, so they are shared with
+     * all the processes that open the same file.
+     *
+     * @param channel
+     * @param position
+     * @param featureDictionary
+     * @param classDictionary
+     * @return
+     * @throws IOException
+     */
+    static FeatureClassWeights mapSection(FileChannel channel, long position, ObjectInterner featureDictionary, ObjectInterner classDictionary) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while(header.hasRemaining()) {
+            if(channel.read(header, position + header.position()) < 0) {
+                throw new IOException("Unexpected end of the weights section.");
+            }
+        }
+        header.flip();
+        int featureCapacity = header.getInt();
+        int classCapacity = header.getInt();
+        int size = header.getInt();
+
+        long length = (long) featureCapacity*classCapacity;
+        long words = (length + 63) >>> 6;
+        long weightsPosition = position + SECTION_HEADER_SIZE;
+        long presentPosition = weightsPosition + 8L*length;
+
+        //a single mapping can not exceed 2GB, so the weights are mapped in segments
+        DoubleBuffer[] segments = new DoubleBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for(int k=0;k<segments.length;k++) {
+            long start = (long) k << SEGMENT_SHIFT;
+            long segmentLength = Math.min(SEGMENT_MASK + 1L, length - start);
+            segments[k] = channel.map(FileChannel.MapMode.READ_ONLY, weightsPosition + 8L*start, 8L*segmentLength).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        Storage s = new Storage(featureCapacity, classCapacity, segments,
+                channel.map(FileChannel.MapMode.READ_ONLY, presentPosition, 8L*words).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer()
+        );
+
+        FeatureClassWeights featureClassWeights = new FeatureClassWeights(featureDictionary, classDictionary, s, null, null);
+        featureClassWeights.size.set(size);
+        return featureClassWeights;
+    }
+
+    /**
+     * Writes the contents of the buffer to the channel and clears it.
+     *
+     * @param channel
+     * @param buffer
+     * @throws IOException
+     */
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return storage == null ? backingMap().size() : size.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Double get(Object key) {
+        if(!(key instanceof List)) {
+            return null;
+        }
+        List<?> tuple = (List<?>) key;
+        if(tuple.size() != 2) {
+            return null;
+        }
+        int featureId = featureDictionary.getId(tuple.get(0));
+        int classId = classDictionary.getId(tuple.get(1));
+        Storage s = storage;
+        if(s == null) {
+            return featureId >= 0 && classId >= 0 ? backingMap().get(key(featureId, classId)) : null;
+        }
+        int i = s.index(featureId, classId);
+        if(i < 0 || !s.isPresent(i)) {
+            return null;
+        }
+        return s.weight(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Double put(List<Object> key, Double value) {
+        if(key == null || value == null) {
+            throw new NullPointerException("Null keys and values are not supported.");
+        }
+        if(key.size() != 2) {
+            throw new IllegalArgumentException("The key must be a (feature, class) tuple.");
+        }
+        else if(isReadOnly()) {
+            //checked before interning, so that the shared dictionaries are not modified
+            throw new UnsupportedOperationException("The weights are read-only.");
+        }
+        int featureId = featureDictionary.intern(key.get(0));
+        int classId = classDictionary.intern(key.get(1));
+        if(storage == null) {
+            return backingMap().put(key(featureId, classId), value);
+        }
+
+        long stamp = lockStorage(featureId, classId);
+        try {
+            Storage s = storage;
+            int i = s.index(featureId, classId);
+            Double previous = s.isPresent(i) ? s.weights[i] : null;
+            s.weights[i] = value;
+            markPresent(s, i);
+            return previous;
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Double remove(Object key) {
+        if(!(key instanceof List)) {
+            return null;
+        }
+        List<?> tuple = (List<?>) key;
+        if(tuple.size() != 2) {
+            return null;
+        }
+        if(storage == null) {
+            int featureId = featureDictionary.getId(tuple.get(0));
+            int classId = classDictionary.getId(tuple.get(1));
+            return featureId >= 0 && classId >= 0 ? backingMap().remove(key(featureId, classId)) : null;
+        }
+        synchronized(this) {
+            Storage s = storage;
+            if(s.isReadOnly()) {
+                throw new UnsupportedOperationException("The weights are read-only.");
+            }
+            int i = s.index(featureDictionary.getId(tuple.get(0)), classDictionary.getId(tuple.get(1)));
+            if(i < 0 || !s.isPresent(i)) {
+                return null;
+            }
+            Double previous = s.weights[i];
+            PRESENT.getAndBitwiseAnd(s.present, i >>> 6, ~(1L << i));
+            s.weights[i] = 0.0;
+            size.decrementAndGet();
+            return previous;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void clear() {
+        if(storage == null) {
+            backingMap().clear();
+            return;
+        }
+        else if(isReadOnly()) {
+            throw new UnsupportedOperationException("The weights are read-only.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            storage = new Storage(0, 0);
+            size.set(0);
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<List<Object>, Double>> entrySet() {
+        return new AbstractSet<Map.Entry<List<Object>, Double>>() {
+            /** {@inheritDoc} */
+            @Override
+            public Iterator<Map.Entry<List<Object>, Double>> iterator() {
+                if(storage == null) {
+                    return mapIterator();
+                }
+                return new Iterator<Map.Entry<List<Object>, Double>>() {
+                    private final Storage s = storage;
+                    private int next = advance(0);
+                    private List<Object> lastKey = null;
+
+                    /**
+                     * Returns the first present position which is equal or larger
+                     * than the provided one.
+                     *
+                     * @param from
+                     * @return
+                     */
+                    private int advance(int from) {
+                        int length = s.length();
+                        while(from < length) {
+                            long word = s.presentWord(from >>> 6) & (-1L << from);
+                            if(word != 0L) {
+                                return ((from >>> 6) << 6) + Long.numberOfTrailingZeros(word);
+                            }
+                            from = ((from >>> 6) + 1) << 6; //skip to the next word
+                        }
+                        return -1;
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public Map.Entry<List<Object>, Double> next() {
+                        if(next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next;
+                        next = advance(i + 1);
+
+                        int featureId = i / s.classCapacity;
+                        int classId = i % s.classCapacity;
+                        lastKey = Arrays.asList(featureDictionary.getObject(featureId), classDictionary.getObject(classId));
+                        return new AbstractMap.SimpleEntry<List<Object>, Double>(lastKey, s.weight(i)) {
+                            private static final long serialVersionUID = 1L;
+
+                            /** {@inheritDoc} */
+                            @Override
+                            public Double setValue(Double value) {
+                                FeatureClassWeights.this.setWeight(featureId, classId, value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public void remove() {
+                        if(lastKey == null) {
+                            throw new IllegalStateException();
+                        }
+                        FeatureClassWeights.this.remove(lastKey);
+                        lastKey = null;
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public int size() {
+                return FeatureClassWeights.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the entries of the Map-backed weights.
+     *
+     * @return
+     */
+    private Iterator<Map.Entry<List<Object>, Double>> mapIterator() {
+        Iterator<Map.Entry<Long, Double>> it = backingMap().entrySet().iterator();
+        return new Iterator<Map.Entry<List<Object>, Double>>() {
+            private Long lastKey = null;
+
+            /** {@inheritDoc} */
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public Map.Entry<List<Object>, Double> next() {
+                Map.Entry<Long, Double> e = it.next();
+                lastKey = e.getKey();
+                int featureId = (int) (lastKey >>> 32);
+                int classId = (int) lastKey.longValue();
+                List<Object> key = Arrays.asList(featureDictionary.getObject(featureId), classDictionary.getObject(classId));
+                return new AbstractMap.SimpleEntry<List<Object>, Double>(key, e.getValue()) {
+                    private static final long serialVersionUID = 1L;
+
+                    /** {@inheritDoc} */
+                    @Override
+                    public Double setValue(Double value) {
+                        FeatureClassWeights.this.setWeight(featureId, classId, value);
+                        return super.setValue(value);
+                    }
+                };
+            }
+
+            /** {@inheritDoc} */
+            @Override
+            public void remove() {
+                if(lastKey == null) {
+                    throw new IllegalStateException();
+                }
+                backingMap().remove(lastKey);
+                lastKey = null;
+            }
+        };
+    }
+
+    /**
+     * Returns the Map of the Map-backed weights.
+     *
+     * @return
+     */
+    Map<Long, Double> backingMap() {
+        Map<Long, Double> map = values;
+        if(map == null) {
+            throw new IllegalStateException("The Map of the weights is not bound.");
+        }
+        return map;
+    }
+
+    /**
+     * Returns the key of the pair in the Map-backed weights.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    private static long key(int featureId, int classId) {
+        return ((long) featureId << 32) | (classId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the key of the pair after validating the ids.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    private static long checkedKey(int featureId, int classId) {
+        if(featureId < 0 || classId < 0) {
+            throw new IllegalArgumentException("Negative ids are not supported.");
+        }
+        return key(featureId, classId);
+    }
+
+    /**
+     * Marks the position as present and updates the size if necessary.
+     *
+     * @param s
+     * @param i
+     */
+    private void markPresent(Storage s, int i) {
+        if(s.isPresent(i)) {
+            return;
+        }
+        long bit = 1L << i;
+        long previousWord = (long) PRESENT.getAndBitwiseOr(s.present, i >>> 6, bit);
+        if((previousWord & bit) == 0L) {
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Acquires the read lock of a storage which can hold the provided pair,
+     * growing the current one if necessary. The caller reads the storage after
+     * the method returns and it releases the returned stamp.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    private long lockStorage(int featureId, int classId) {
+        while(true) {
+            getStorage(featureId, classId);
+            long stamp = lock.readLock();
+            Storage s = storage;
+            if(featureId < s.featureCapacity && classId < s.classCapacity) {
+                return stamp;
+            }
+            lock.unlockRead(stamp); //the storage was cleared in the meantime
+        }
+    }
+
+    /**
+     * Returns a storage which can hold the provided pair, growing the current
+     * one if necessary.
+     *
+     * @param featureId
+     * @param classId
+     * @return
+     */
+    private Storage getStorage(int featureId, int classId) {
+        if(featureId < 0 || classId < 0) {
+            throw new IllegalArgumentException("Negative ids are not supported.");
+        }
+        Storage s = storage;
+        if(s.isReadOnly()) {
+            throw new UnsupportedOperationException("The weights are read-only.");
+        }
+        else if(featureId < s.featureCapacity && classId < s.classCapacity) {
+            return s;
+        }
+
+        synchronized(this) {
+            s = storage;
+            if(featureId < s.featureCapacity && classId < s.classCapacity) {
+                return s;
+            }
+
+            int classCapacity = s.classCapacity;
+            if(classId >= classCapacity) {
+                classCapacity = Math.max(Math.max(classId + 1, classDictionary.size()), 2 * classCapacity);
+            }
+            if((long) (featureId + 1)*classCapacity > MAX_ARRAY_SIZE) {
+                throw new IllegalArgumentException("The number of feature-class pairs exceeds the maximum array size.");
+            }
+            int featureCapacity = s.featureCapacity;
+            if(featureId >= featureCapacity) {
+                featureCapacity = Math.max(Math.max(featureId + 1, featureDictionary.size()), 2 * featureCapacity);
+                featureCapacity = (int) Math.min(featureCapacity, MAX_ARRAY_SIZE/classCapacity);
+            }
+
+            //the write lock waits for the pending writes and blocks the new ones until the copy is published
+            long stamp = lock.writeLock();
+            try {
+                return grow(s, featureCapacity, classCapacity);
+            }
+            finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Copies the storage to a new one with the provided capacities and publishes it.
+     *
+     * @param s
+     * @param featureCapacity
+     * @param classCapacity
+     * @return
+     */
+    private Storage grow(Storage s, int featureCapacity, int classCapacity) {
+        Storage newStorage = new Storage(featureCapacity, classCapacity);
+        if(classCapacity == s.classCapacity) {
+            //same layout; the old positions remain valid
+            System.arraycopy(s.weights, 0, newStorage.weights, 0, s.weights.length);
+            System.arraycopy(s.present, 0, newStorage.present, 0, s.present.length);
+        }
+        else {
+            for(int f=0;f<s.featureCapacity;f++) {
+                for(int c=0;c<s.classCapacity;c++) {
+                    int i = f*s.classCapacity + c;
+                    if(s.isPresent(i)) {
+                        int j = f*classCapacity + c;
+                        newStorage.weights[j] = s.weights[i];
+                        newStorage.present[j >>> 6] |= 1L << j;
+                    }
+                }
+            }
+        }
+        storage = newStorage;
+        return newStorage;
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+/**
+ * Accumulates the partial gradient (and optionally the loss) of a subset of the
+ * training records. The parameters are identified by dense int indexes in
+ * [0, dimension). Each worker of a parallel stream receives its own accumulator
+ * through the collector() so the records are processed without any locking, and
+ * the partial gradients are added pairwise (tree reduction) when the stream
+ * combines its results.
+ *
+ * The accumulator starts as a sparse hash table, which is cheap to create and
+ * merge when the workers touch only a few parameters, and switches to a dense
+ * array once it holds more than a fraction of the dimension. The objects are
+ * not thread-safe.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class GradientAccumulator {
+
+    /**
+     * Functional interface which receives the non-zero positions of the accumulator.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * Receives the index and the accumulated value of a position.
+         *
+         * @param index
+         * @param value
+         */
+        void accept(int index, double value);
+    }
+
+    private static final int INITIAL_SPARSE_CAPACITY = 16;
+
+    private final int dimension;
+
+    private final int sparseLimit;
+
+    private double[] dense = null;
+
+    private int[] sparseKeys; //stores index+1 so that 0 marks the empty slots
+
+    private double[] sparseValues;
+
+    private int sparseSize = 0;
+
+    private double loss = 0.0;
+
+    /**
+     * Public constructor.
+     *
+     * @param dimension
+     */
+    public GradientAccumulator(int dimension) {
+        if(dimension < 0) {
+            throw new IllegalArgumentException("The dimension must be non-negative.");
+        }
+        this.dimension = dimension;
+        sparseLimit = dimension/8;
+        if(sparseLimit < INITIAL_SPARSE_CAPACITY) {
+            dense = new double[dimension]; //tiny dimensions are always dense
+        }
+        else {
+            sparseKeys = new int[INITIAL_SPARSE_CAPACITY];
+            sparseValues = new double[INITIAL_SPARSE_CAPACITY];
+        }
+    }
+
+    /**
+     * Returns a Collector which accumulates the gradient of the stream elements
+     * using the provided function. The Collector can be passed to the
+     * ForkJoinStream.collect() to process the records in parallel.
+     *
+     * @param <T>
+     * @param dimension
+     * @param accumulator
+     * @return
+     */
+    public static <T> Collector<T, GradientAccumulator, GradientAccumulator> collector(int dimension, BiConsumer<GradientAccumulator, T> accumulator) {
+        return Collector.of(
+                () -> new GradientAccumulator(dimension),
+                accumulator,
+                GradientAccumulator::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH
+        );
+    }
+
+    /**
+     * Getter for the dimension of the accumulator.
+     *
+     * @return
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Adds the delta to the provided position.
+     *
+     * @param index
+     * @param delta
+     */
+    public void add(int index, double delta) {
+        if(index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+        }
+        if(dense != null) {
+            dense[index] += delta;
+            return;
+        }
+
+        int slot = findSlot(sparseKeys, index);
+        if(sparseKeys[slot] == 0) {
+            if(sparseSize + 1 > sparseLimit) {
+                toDense();
+                dense[index] += delta;
+                return;
+            }
+            sparseKeys[slot] = index + 1;
+            sparseValues[slot] = delta;
+            ++sparseSize;
+            if(2*sparseSize > sparseKeys.length) {
+                rehash(2*sparseKeys.length);
+            }
+        }
+        else {
+            sparseValues[slot] += delta;
+        }
+    }
+
+    /**
+     * Adds the provided value to the accumulated loss.
+     *
+     * @param value
+     */
+    public void addLoss(double value) {
+        loss += value;
+    }
+
+    /**
+     * Returns the accumulated loss.
+     *
+     * @return
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    /**
+     * Returns the accumulated value of the provided position.
+     *
+     * @param index
+     * @return
+     */
+    public double get(int index) {
+        if(index < 0 || index >= dimension) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+        }
+        if(dense != null) {
+            return dense[index];
+        }
+        int slot = findSlot(sparseKeys, index);
+        return sparseKeys[slot] != 0 ? sparseValues[slot] : 0.0;
+    }
+
+    /**
+     * Adds the values of the other accumulator to the current one and returns
+     * the one which holds the sum. The other accumulator must not be used
+     * afterwards.
+     *
+     * @param other
+     * @return
+     */
+    public GradientAccumulator merge(GradientAccumulator other) {
+        if(other.dimension != dimension) {
+            throw new IllegalArgumentException("The accumulators have different dimensions.");
+        }
+        if(dense == null && (other.dense != null || other.sparseSize > sparseSize)) {
+            return other.merge(this); //add the smaller into the larger
+        }
+        other.forEachNonZero(this::add);
+        loss += other.loss;
+        return this;
+    }
+
+    /**
+     * Passes all the positions that hold a value to the consumer. The dense
+     * accumulators skip the zero values.
+     *
+     * @param consumer
+     */
+    public void forEachNonZero(EntryConsumer consumer) {
+        if(dense != null) {
+            for(int i=0;i<dimension;i++) {
+                if(dense[i] != 0.0) {
+                    consumer.accept(i, dense[i]);
+                }
+            }
+        }
+        else {
+            for(int slot=0;slot<sparseKeys.length;slot++) {
+                if(sparseKeys[slot] != 0) {
+                    consumer.accept(sparseKeys[slot] - 1, sparseValues[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of the index in the open addressing table or the empty
+     * slot where it should be inserted.
+     *
+     * @param keys
+     * @param index
+     * @return
+     */
+    private static int findSlot(int[] keys, int index) {
+        int mask = keys.length - 1;
+        int h = index * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while(keys[slot] != 0 && keys[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Resizes the sparse table.
+     *
+     * @param capacity
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = sparseKeys;
+        double[] oldValues = sparseValues;
+        sparseKeys = new int[capacity];
+        sparseValues = new double[capacity];
+        for(int slot=0;slot<oldKeys.length;slot++) {
+            if(oldKeys[slot] != 0) {
+                int newSlot = findSlot(sparseKeys, oldKeys[slot] - 1);
+                sparseKeys[newSlot] = oldKeys[slot];
+                sparseValues[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    /**
+     * Converts the sparse table to a dense array.
+     */
+    private void toDense() {
+        double[] d = new double[dimension];
+        for(int slot=0;slot<sparseKeys.length;slot++) {
+            if(sparseKeys[slot] != 0) {
+                d[sparseKeys[slot] - 1] = sparseValues[slot];
+            }
+        }
+        dense = d;
+        sparseKeys = null;
+        sparseValues = null;
+        sparseSize = 0;
+    }
+}
@@ -18,9 +18,20 @@ package com.datumbox.framework.core.machinelearning.common.dataobjects;
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.core.common.interfaces.Savable;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.storage.serialization.StorageSnapshot;
 import com.datumbox.framework.core.machinelearning.common.interfaces.ModelParameters;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainingParameters;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 /**
  * The KnowledgeBase stores internally the training and model parameters of the algorithm.
@@ -51,6 +62,11 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
      */
     private final TP trainingParameters;
 
+    /**
+     * The writes of saveAsync() which have not completed yet.
+     */
+    private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+
     /**
      * Constructor which is called on model initialization before training.
      *
@@ -67,7 +83,9 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
     }
 
     /**
-     * Constructor which is called when we pre-trained load stored models.
+     * Constructor which is called when we pre-trained load stored models. If a
+     * snapshot exists for the storage name, the parameters are loaded from it
+     * and the model is read-only.
      *
      * @param storageName
      * @param configuration
@@ -77,8 +95,17 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
         this.configuration = configuration;
         storageEngine = this.configuration.getStorageConfiguration().createStorageEngine(storageName);
 
-        trainingParameters = (TP) storageEngine.loadObject("trainingParameters", TrainingParameters.class);
-        modelParameters = (MP) storageEngine.loadObject("modelParameters", ModelParameters.class);
+        Path snapshot = ModelSnapshot.getPath(configuration.getStorageConfiguration(), storageName);
+        if(snapshot != null && Files.exists(snapshot)) {
+            ModelSnapshot modelSnapshot = ModelSnapshot.open(snapshot);
+            trainingParameters = (TP) modelSnapshot.getTrainingParameters();
+            modelParameters = (MP) modelSnapshot.getModelParameters();
+        }
+        else {
+            trainingParameters = (TP) storageEngine.loadObject("trainingParameters", TrainingParameters.class);
+            modelParameters = (MP) storageEngine.loadObject("modelParameters", ModelParameters.class);
+            FeatureClassWeights.bindBigMaps(modelParameters);
+        }
     }
 
     /**
@@ -128,14 +155,72 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
         //rename the storage
         storageEngine.rename(storageName);
 
+        //remove any older snapshot only after the storage is saved, so that a failed save keeps the old model
+        deleteSnapshot(storageName);
+
         //reload the model parameters, necessary for the maps to point to the new location
         modelParameters = (MP) storageEngine.loadObject("modelParameters", ModelParameters.class);
+        FeatureClassWeights.bindBigMaps(modelParameters);
+    }
+
+    /**
+     * Copies the data to a temporary storage and publishes it under the
+     * provided name in the background. If the name is the one of the current
+     * storage, the method blocks and saves in place by calling save(), because
+     * publishing would replace the directory which the storage engine keeps
+     * open; the returned future is then already completed.
+     *
+     * @param storageName
+     * @return
+     */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        if(storageName.equals(storageEngine.getStorageName())) {
+            //publishing replaces the directory of the name which the storage engine keeps open, so save it in place instead
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                save(storageName);
+                future.complete(null);
+            }
+            catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+            return future;
+        }
+
+        StorageSnapshot snapshot = new StorageSnapshot(configuration.getStorageConfiguration());
+        snapshot.addObject("modelParameters", modelParameters);
+        snapshot.addObject("trainingParameters", trainingParameters);
+
+        //remove any older snapshot only after the new storage is published, so that a failed write keeps the old model
+        CompletableFuture<Void> future = snapshot.writeAsync(storageName).thenRun(() -> deleteSnapshot(storageName));
+        pendingWrites.add(future);
+        future.whenComplete((r, ex) -> pendingWrites.remove(future));
+        return future;
+    }
+
+    /**
+     * Saves the KnowledgeBase as a read-only snapshot. The snapshot takes
+     * precedence over the storage when the KnowledgeBase is loaded. It throws
+     * an UnsupportedOperationException if the StorageConfiguration is not
+     * file-based or if the model parameters have no FeatureClassWeights.
+     *
+     * @param storageName
+     */
+    public void saveSnapshot(String storageName) {
+        Path snapshot = ModelSnapshot.getPath(configuration.getStorageConfiguration(), storageName);
+        if(snapshot == null) {
+            throw new UnsupportedOperationException("Snapshots are supported only by file-based storage engines.");
+        }
+        ModelSnapshot.save(snapshot, trainingParameters, modelParameters);
     }
 
     /**
      * Deletes the storage of the algorithm and closes the storage engine.
      */
     public void delete() {
+        awaitPendingWrites();
+        deleteSnapshot(storageEngine.getStorageName());
         storageEngine.clear();
         close();
     }
@@ -143,6 +228,7 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
     /** {@inheritDoc} */
     @Override
     public void close() {
+        awaitPendingWrites();
         try {
             storageEngine.close();
         }
@@ -151,11 +237,45 @@ public class KnowledgeBase<MP extends ModelParameters, TP extends TrainingParame
         }
     }
 
+    /**
+     * Waits until the writes of saveAsync() complete, so that the copies are
+     * published before the storage is closed. Their failures are reported by
+     * their futures.
+     */
+    private void awaitPendingWrites() {
+        for(CompletableFuture<Void> future : pendingWrites) {
+            try {
+                future.join();
+            }
+            catch (CompletionException | CancellationException ex) {
+                //the caller of saveAsync() handles the failure
+            }
+        }
+    }
+
+    /**
+     * Deletes the snapshot of the provided storage name if it exists.
+     *
+     * @param storageName
+     */
+    private void deleteSnapshot(String storageName) {
+        Path snapshot = ModelSnapshot.getPath(configuration.getStorageConfiguration(), storageName);
+        if(snapshot != null) {
+            try {
+                Files.deleteIfExists(snapshot);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
     /**
      * Clears the KnowledgeBase object by deleting all its data, while keeping
      * open the connection to the storage engine.
      */
     public void clear() {
+        awaitPendingWrites();
         storageEngine.clear();
         modelParameters = ModelParameters.newInstance(trainingParameters.getMPClass(), storageEngine);
     }
@@ -0,0 +1,442 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageConfiguration;
+import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.utilities.ReflectionMethods;
+import com.datumbox.framework.core.machinelearning.common.interfaces.ModelParameters;
+import com.datumbox.framework.core.machinelearning.common.interfaces.TrainingParameters;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Immutable, compact binary snapshot of the training and model parameters of an
+ * algorithm. The FeatureClassWeights of the model are stored as dense arrays of
+ * weights which are memory-mapped in read-only mode when the snapshot is opened,
+ * so loading a large model takes milliseconds and multiple JVM processes on the
+ * same host share a single copy of the weights through the page cache. Their
+ * dictionaries and the rest of the (small) parameters are stored with Java
+ * serialization. The BigMaps which back the FeatureClassWeights are written only
+ * as their sections; any other BigMaps are copied on the heap both when the
+ * snapshot is written and when it is opened, so only the models whose large
+ * parameters are FeatureClassWeights can be snapshotted.
+ *
+ * The file starts with a header (magic number, version, number of sections,
+ * offset and length of the serialized parameters), followed by the offsets of
+ * the weight sections, the sections themselves and the serialized parameters.
+ * All the numbers are little-endian.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class ModelSnapshot {
+
+    /**
+     * The extension of the snapshot files.
+     */
+    public static final String FILE_EXTENSION = ".snapshot";
+
+    private static final long MAGIC = 0x31504E5353584244L; //"DBXSSNP1" in little-endian
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private final TrainingParameters trainingParameters;
+
+    private final ModelParameters modelParameters;
+
+    /**
+     * Placeholder of a FeatureClassWeights object inside the serialized parameters.
+     */
+    private static class WeightsReference implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int section;
+
+        private final Object[] features;
+
+        private final Object[] classes;
+
+        /**
+         * Private constructor.
+         *
+         * @param section
+         * @param features
+         * @param classes
+         */
+        private WeightsReference(int section, Object[] features, Object[] classes) {
+            this.section = section;
+            this.features = features;
+            this.classes = classes;
+        }
+    }
+
+    /**
+     * Stream which replaces the FeatureClassWeights with references to their sections.
+     */
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+
+        private final List<FeatureClassWeights> sections = new ArrayList<>();
+
+        private final Map<ObjectInterner, Object[]> dictionaries = new IdentityHashMap<>();
+
+        private final Set<Object> weightMaps = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        /**
+         * Private constructor.
+         *
+         * @param out
+         * @param weights
+         * @throws IOException
+         */
+        private SnapshotOutputStream(OutputStream out, List<FeatureClassWeights> weights) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+            for(FeatureClassWeights w : weights) {
+                if(!w.isDense()) {
+                    weightMaps.add(w.backingMap());
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if(weightMaps.contains(obj)) {
+                //the values are stored in the section of their FeatureClassWeights
+                return null;
+            }
+            else if(obj instanceof FeatureClassWeights) {
+                FeatureClassWeights weights = (FeatureClassWeights) obj;
+                sections.add(weights);
+                return new WeightsReference(sections.size()-1, toArray(weights.getFeatureDictionary()), toArray(weights.getClassDictionary()));
+            }
+            else if(obj instanceof Map && !(obj instanceof Serializable)) {
+                //BigMaps of disk-based engines are stored as regular maps
+                return new HashMap<>((Map<?, ?>) obj);
+            }
+            return obj;
+        }
+
+        /**
+         * Returns the objects of the dictionary ordered by id. Shared
+         * dictionaries are converted only once.
+         *
+         * @param dictionary
+         * @return
+         */
+        private Object[] toArray(ObjectInterner dictionary) {
+            return dictionaries.computeIfAbsent(dictionary, d -> {
+                Object[] objects = new Object[d.size()];
+                for(int i=0;i<objects.length;i++) {
+                    objects[i] = d.getObject(i);
+                }
+                return objects;
+            });
+        }
+    }
+
+    /**
+     * Stream which maps the sections of the referenced FeatureClassWeights.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+
+        private final FileChannel channel;
+
+        private final long[] sectionOffsets;
+
+        private final Map<Object[], ObjectInterner> dictionaries = new IdentityHashMap<>();
+
+        /**
+         * Private constructor.
+         *
+         * @param in
+         * @param channel
+         * @param sectionOffsets
+         * @throws IOException
+         */
+        private SnapshotInputStream(InputStream in, FileChannel channel, long[] sectionOffsets) throws IOException {
+            super(in);
+            this.channel = channel;
+            this.sectionOffsets = sectionOffsets;
+            enableResolveObject(true);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if(obj instanceof WeightsReference) {
+                WeightsReference reference = (WeightsReference) obj;
+                if(reference.section < 0 || reference.section >= sectionOffsets.length) {
+                    throw new InvalidObjectException("Unknown weights section " + reference.section + ".");
+                }
+                return FeatureClassWeights.mapSection(channel, sectionOffsets[reference.section], toInterner(reference.features), toInterner(reference.classes));
+            }
+            return obj;
+        }
+
+        /**
+         * Rebuilds the dictionary from the objects ordered by id.
+         *
+         * @param objects
+         * @return
+         */
+        private ObjectInterner toInterner(Object[] objects) {
+            return dictionaries.computeIfAbsent(objects, o -> {
+                ObjectInterner interner = new ObjectInterner();
+                for(Object object : o) {
+                    interner.intern(object);
+                }
+                return interner;
+            });
+        }
+    }
+
+    /**
+     * Private constructor.
+     *
+     * @param trainingParameters
+     * @param modelParameters
+     */
+    private ModelSnapshot(TrainingParameters trainingParameters, ModelParameters modelParameters) {
+        this.trainingParameters = trainingParameters;
+        this.modelParameters = modelParameters;
+    }
+
+    /**
+     * Getter for the Training Parameters.
+     *
+     * @return
+     */
+    public TrainingParameters getTrainingParameters() {
+        return trainingParameters;
+    }
+
+    /**
+     * Getter for the Model Parameters. Their FeatureClassWeights are read-only.
+     *
+     * @return
+     */
+    public ModelParameters getModelParameters() {
+        return modelParameters;
+    }
+
+    /**
+     * Returns the location of the snapshot of the provided storage name. The
+     * snapshots are kept in the directory of the file-based storage configurations,
+     * including the decorated ones; for any other configuration the method
+     * returns null.
+     *
+     * @param storageConfiguration
+     * @param storageName
+     * @return
+     */
+    public static Path getPath(StorageConfiguration storageConfiguration, String storageName) {
+        AbstractFileStorageConfiguration fileStorageConfiguration = storageConfiguration.unwrap(AbstractFileStorageConfiguration.class);
+        if(fileStorageConfiguration == null) {
+            return null;
+        }
+
+        String directory = fileStorageConfiguration.getDirectory();
+        if(directory == null || directory.isEmpty()) {
+            directory = System.getProperty("java.io.tmpdir"); //same default as the file-based engines
+        }
+        return Paths.get(directory, storageName + FILE_EXTENSION);
+    }
+
+    /**
+     * Writes the snapshot of the parameters to the provided file. The file is
+     * first written under a temporary name and then moved to its final location,
+     * so the processes which open it never see a partially written snapshot.
+     * It throws an UnsupportedOperationException if the model parameters have
+     * no FeatureClassWeights.
+     *
+     * @param file
+     * @param trainingParameters
+     * @param modelParameters
+     */
+    public static void save(Path file, TrainingParameters trainingParameters, ModelParameters modelParameters) {
+        List<FeatureClassWeights> weights = getWeights(modelParameters);
+        if(weights.isEmpty()) {
+            throw new UnsupportedOperationException("Snapshots are supported only by models with FeatureClassWeights; " + modelParameters.getClass().getName() + " should be stored with save().");
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            List<FeatureClassWeights> sections;
+            try (SnapshotOutputStream oos = new SnapshotOutputStream(bos, weights)) {
+                oos.writeObject(trainingParameters);
+                oos.writeObject(modelParameters);
+                sections = oos.sections;
+            }
+            byte[] parameters = bos.toByteArray();
+
+            Path parent = file.toAbsolutePath().getParent();
+            if(parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int n = sections.size();
+                long[] sectionOffsets = new long[n];
+                long position = HEADER_SIZE + 8L*n;
+
+                channel.position(position);
+                for(int i=0;i<n;i++) {
+                    sectionOffsets[i] = position;
+                    position += sections.get(i).writeSection(channel);
+                }
+                long parametersOffset = position;
+                writeFully(channel, ByteBuffer.wrap(parameters), parametersOffset);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8*n).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(MAGIC).putInt(VERSION).putInt(n).putLong(parametersOffset).putLong(parameters.length);
+                for(long offset : sectionOffsets) {
+                    header.putLong(offset);
+                }
+                header.flip();
+                writeFully(channel, header, 0L);
+
+                channel.force(true);
+            }
+
+            try {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Opens the snapshot which is stored in the provided file. The weights are
+     * mapped in memory and remain valid after the method returns.
+     *
+     * @param file
+     * @return
+     */
+    public static ModelSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, HEADER_SIZE, 0L);
+            if(header.getLong() != MAGIC) {
+                throw new IllegalArgumentException("The file " + file + " is not a model snapshot.");
+            }
+            int version = header.getInt();
+            if(version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version + ".");
+            }
+            int n = header.getInt();
+            long parametersOffset = header.getLong();
+            long parametersLength = header.getLong();
+            if(n < 0 || parametersLength < 0 || parametersLength > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The snapshot " + file + " is corrupted.");
+            }
+
+            ByteBuffer table = readFully(channel, 8*n, HEADER_SIZE);
+            long[] sectionOffsets = new long[n];
+            for(int i=0;i<n;i++) {
+                sectionOffsets[i] = table.getLong();
+            }
+
+            ByteBuffer parameters = readFully(channel, (int) parametersLength, parametersOffset);
+            try (SnapshotInputStream ois = new SnapshotInputStream(new ByteArrayInputStream(parameters.array()), channel, sectionOffsets)) {
+                TrainingParameters trainingParameters = (TrainingParameters) ois.readObject();
+                ModelParameters modelParameters = (ModelParameters) ois.readObject();
+                return new ModelSnapshot(trainingParameters, modelParameters);
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        catch (ClassNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the FeatureClassWeights which are held by the fields of the model
+     * parameters. The rest of the parameters are serialized on the heap, so
+     * snapshotting a model without them would only copy its BigMaps in memory.
+     *
+     * @param modelParameters
+     * @return
+     */
+    private static List<FeatureClassWeights> getWeights(ModelParameters modelParameters) {
+        List<FeatureClassWeights> weights = new ArrayList<>();
+        for(Field field : ReflectionMethods.getAllFields(new LinkedList<>(), modelParameters.getClass())) {
+            if(FeatureClassWeights.class.isAssignableFrom(field.getType())) {
+                field.setAccessible(true);
+                try {
+                    Object value = field.get(modelParameters);
+                    if(value != null) {
+                        weights.add((FeatureClassWeights) value);
+                    }
+                }
+                catch (IllegalArgumentException | IllegalAccessException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Writes the entire buffer at the provided position of the channel.
+     *
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads the requested number of bytes from the provided position of the channel.
+     *
+     * @param channel
+     * @param length
+     * @param position
+     * @return
+     * @throws IOException
+     */
+    private static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0) {
+                throw new EOFException("Unexpected end of the snapshot.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+}
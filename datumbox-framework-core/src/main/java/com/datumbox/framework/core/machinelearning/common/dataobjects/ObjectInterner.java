@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary which assigns dense, consecutive int ids (starting from 0) to
+ * arbitrary objects such as feature names or class labels. The ids never change
+ * once assigned, which allows the algorithms to store their parameters in
+ * arrays indexed by them.
+ *
+ * The lookups are lock-free; the assignment of new ids is synchronized.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class ObjectInterner implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Object, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile Object[] objects = new Object[16];
+
+    private volatile int size = 0;
+
+    /**
+     * Returns the id of the provided object, assigning a new one if the object
+     * is not already in the dictionary. Null objects are not supported.
+     *
+     * @param o
+     * @return
+     */
+    public int intern(Object o) {
+        if(o == null) {
+            throw new IllegalArgumentException("Null objects can't be interned.");
+        }
+        Integer id = ids.get(o);
+        if(id != null) {
+            return id;
+        }
+
+        synchronized(this) {
+            id = ids.get(o);
+            if(id == null) {
+                id = size;
+                Object[] objs = objects;
+                if(id >= objs.length) {
+                    objs = Arrays.copyOf(objs, 2 * objs.length);
+                }
+                objs[id] = o;
+                objects = objs;
+                size = id + 1;
+                ids.put(o, id); //publish the id only after the object is stored
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the id of the provided object or -1 if the object is not in the
+     * dictionary.
+     *
+     * @param o
+     * @return
+     */
+    public int getId(Object o) {
+        if(o == null) {
+            return -1; //null objects are never interned
+        }
+        Integer id = ids.get(o);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the object with the provided id.
+     *
+     * @param id
+     * @return
+     */
+    public Object getObject(int id) {
+        if(id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown id " + id + ".");
+        }
+        return objects[id];
+    }
+
+    /**
+     * Returns the number of objects in the dictionary.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+}
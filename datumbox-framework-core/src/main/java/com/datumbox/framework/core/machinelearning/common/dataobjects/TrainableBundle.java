@@ -19,9 +19,12 @@ import com.datumbox.framework.core.common.interfaces.Savable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.Trainable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.Parallelizable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This object stores a bundle of Trainables and it is used by algorithms that have other Trainables internally.
@@ -47,7 +50,7 @@ public class TrainableBundle implements Savable {
     /**
      * Keeps a reference of all the wrapped algorithms.
      */
-    private final Map<String, Trainable> bundle = new HashMap<>();
+    private final Map<String, Trainable<?, ?>> bundle = new HashMap<>();
 
     /**
      * Returns a set with all the keys.
@@ -74,7 +77,7 @@ public class TrainableBundle implements Savable {
      * @param key
      * @return
      */
-    public Trainable get(String key) {
+    public Trainable<?, ?> get(String key) {
         return bundle.get(key);
     }
 
@@ -85,7 +88,7 @@ public class TrainableBundle implements Savable {
      * @param value
      * @return
      */
-    public Trainable put(String key, Trainable value) {
+    public Trainable<?, ?> put(String key, Trainable<?, ?> value) {
         return bundle.put(key, value);
     }
 
@@ -95,7 +98,7 @@ public class TrainableBundle implements Savable {
      * @param parallelized
      */
     public void setParallelized(boolean parallelized) {
-        for(Trainable t : bundle.values()) {
+        for(Trainable<?, ?> t : bundle.values()) {
             if (t !=null && t instanceof Parallelizable) {
                 ((Parallelizable)t).setParallelized(parallelized);
             }
@@ -105,18 +108,45 @@ public class TrainableBundle implements Savable {
     /** {@inheritDoc} */
     @Override
     public void save(String storageName) {
-        for(Map.Entry<String, Trainable> e : bundle.entrySet()) {
-            Trainable t = e.getValue();
+        for(Map.Entry<String, Trainable<?, ?>> e : bundle.entrySet()) {
+            Trainable<?, ?> t = e.getValue();
             if(t != null) {
                 t.save(storageName + storageNameSeparator + e.getKey());
             }
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(Map.Entry<String, Trainable<?, ?>> e : bundle.entrySet()) {
+            Trainable<?, ?> t = e.getValue();
+            if(t != null) {
+                futures.add(t.saveAsync(storageName + storageNameSeparator + e.getKey()));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Saves all the Trainables of the bundle as read-only snapshots.
+     *
+     * @param storageName
+     */
+    public void saveSnapshot(String storageName) {
+        for(Map.Entry<String, Trainable<?, ?>> e : bundle.entrySet()) {
+            Trainable<?, ?> t = e.getValue();
+            if(t != null) {
+                t.saveSnapshot(storageName + storageNameSeparator + e.getKey());
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void delete() {
-        for(Trainable t : bundle.values()) {
+        for(Trainable<?, ?> t : bundle.values()) {
             if(t != null) {
                 t.delete();
             }
@@ -127,7 +157,7 @@ public class TrainableBundle implements Savable {
     /** {@inheritDoc} */
     @Override
     public void close() {
-        for(Trainable t : bundle.values()) {
+        for(Trainable<?, ?> t : bundle.values()) {
             if(t != null) {
                 try {
                     t.close();
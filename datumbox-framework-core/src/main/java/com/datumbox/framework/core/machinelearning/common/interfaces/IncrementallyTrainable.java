@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.interfaces;
+
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+
+/**
+ * The algorithms which can update their parameters with new batches of data,
+ * without revisiting the data that they have already seen, are marked with
+ * this interface.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public interface IncrementallyTrainable {
+
+    /**
+     * Updates the trained parameters with a new batch of training data. On
+     * an untrained algorithm it is equivalent to fit().
+     *
+     * @param trainingData
+     */
+    public void partialFit(Dataframe trainingData);
+
+}
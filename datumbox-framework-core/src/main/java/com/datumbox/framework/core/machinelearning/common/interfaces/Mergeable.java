@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.interfaces;
+
+/**
+ * The algorithms whose parameters are estimated from sufficient statistics can
+ * combine the statistics of instances trained on different partitions of the
+ * data. Those algorithms implement this interface.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <T>
+ */
+public interface Mergeable<T> {
+
+    /**
+     * Merges the statistics of another trained instance into the current one.
+     * The result is equivalent to training on the union of the two datasets.
+     *
+     * @param other
+     */
+    public void merge(T other);
+
+}
@@ -109,7 +109,7 @@ public interface PredictParallelizable extends Parallelizable {
             Prediction p = resultsBuffer.get(rId);
             
             
-            Record newR = new Record(r.getX(), r.getY(), p.getYPredicted(), p.getYPredictedProbabilities());
+            Record newR = r.withPrediction(p.getYPredicted(), p.getYPredictedProbabilities());
 
             newData._unsafe_set(rId, newR);
         });
@@ -50,5 +50,22 @@ public interface Trainable<MP extends Learnable, TP extends Parameterizable> ext
      * @param trainingData
      */
     public void fit(Dataframe trainingData);
+
+    /**
+     * Saves the trained model as a read-only snapshot, which is memory-mapped
+     * when the model is loaded. Snapshots are written next to the storage of
+     * the model, so they are supported only when the StorageConfiguration is
+     * file-based; otherwise an UnsupportedOperationException is thrown. Only
+     * the FeatureClassWeights of the model are memory-mapped, while the rest
+     * of its parameters, including any BigMaps, are loaded on the heap; thus
+     * the models without FeatureClassWeights can not be snapshotted and they
+     * also throw an UnsupportedOperationException. The default implementation
+     * does not support snapshots.
+     *
+     * @param storageName
+     */
+    default public void saveSnapshot(String storageName) {
+        throw new UnsupportedOperationException("Snapshots are not supported by " + getClass().getSimpleName() + ".");
+    }
     
 }
@@ -365,6 +365,24 @@ public class PCA extends AbstractFeatureSelector<PCA.ModelParameters, PCA.Traini
         newData.recalculateMeta();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        
+        //project the record on the components
+        RealVector x = DataframeMatrix.parseRecord(r, modelParameters.getFeatureIds());
+        RealVector projection = modelParameters.getComponents().preMultiply(x);
+        
+        AssociativeArray xData = new AssociativeArray();
+        int componentId=0;
+        for(double value : projection.toArray()) {
+            xData.put(componentId++, value);
+        }
+        
+        return new Record(xData, r.getY(), r.getYPredicted(), r.getYPredictedProbabilities());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected Set<TypeInference.DataType> getSupportedXDataTypes() {
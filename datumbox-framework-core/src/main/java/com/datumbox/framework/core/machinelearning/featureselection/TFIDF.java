@@ -20,14 +20,16 @@ import com.datumbox.framework.common.concurrency.StreamMethods;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.interfaces.BigMap;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.featureselectors.AbstractScoreBasedFeatureSelector;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.Mergeable;
 
 import java.util.*;
-import java.util.function.BiFunction;
 
 
 /**
@@ -40,12 +42,20 @@ import java.util.function.BiFunction;
  *
  * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
  */
-public class TFIDF extends AbstractScoreBasedFeatureSelector<TFIDF.ModelParameters, TFIDF.TrainingParameters> {
+public class TFIDF extends AbstractScoreBasedFeatureSelector<TFIDF.ModelParameters, TFIDF.TrainingParameters> implements IncrementallyTrainable, Mergeable<TFIDF> {
 
     /** {@inheritDoc} */
     public static class ModelParameters extends AbstractScoreBasedFeatureSelector.AbstractModelParameters {
         private static final long serialVersionUID = 2L;
 
+        private Integer n = 0; //number of documents used in training
+
+        @BigMap(keyClass=Object.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=false)
+        private Map<Object, Double> documentFrequencies; //number of documents in which every keyword appears
+
+        @BigMap(keyClass=Object.class, valueClass=Double.class, mapType=MapType.HASHMAP, storageHint=StorageHint.IN_MEMORY, concurrent=false)
+        private Map<Object, Double> maxTermFrequencies; //maximum frequency of every keyword in a single document
+
         /**
          * @param storageEngine
          * @see AbstractTrainer.AbstractModelParameters#AbstractModelParameters(StorageEngine)
@@ -54,6 +64,60 @@ public class TFIDF extends AbstractScoreBasedFeatureSelector<TFIDF.ModelParamete
             super(storageEngine);
         }
 
+        /**
+         * Getter for the number of documents used in training.
+         *
+         * @return
+         */
+        public Integer getN() {
+            return n;
+        }
+
+        /**
+         * Setter for the number of documents used in training.
+         *
+         * @param n
+         */
+        protected void setN(Integer n) {
+            this.n = n;
+        }
+
+        /**
+         * Getter for the document frequencies of the keywords.
+         *
+         * @return
+         */
+        public Map<Object, Double> getDocumentFrequencies() {
+            return documentFrequencies;
+        }
+
+        /**
+         * Setter for the document frequencies of the keywords.
+         *
+         * @param documentFrequencies
+         */
+        protected void setDocumentFrequencies(Map<Object, Double> documentFrequencies) {
+            this.documentFrequencies = documentFrequencies;
+        }
+
+        /**
+         * Getter for the maximum term frequencies of the keywords.
+         *
+         * @return
+         */
+        public Map<Object, Double> getMaxTermFrequencies() {
+            return maxTermFrequencies;
+        }
+
+        /**
+         * Setter for the maximum term frequencies of the keywords.
+         *
+         * @param maxTermFrequencies
+         */
+        protected void setMaxTermFrequencies(Map<Object, Double> maxTermFrequencies) {
+            this.maxTermFrequencies = maxTermFrequencies;
+        }
+
     }
 
     /** {@inheritDoc} */
@@ -105,101 +169,121 @@ public class TFIDF extends AbstractScoreBasedFeatureSelector<TFIDF.ModelParamete
     /** {@inheritDoc} */
     @Override
     public void fit(Dataframe trainingData) {
-        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
-        for(TypeInference.DataType d : trainingData.getXDataTypes().values()) {
-            if(!supportedXDataTypes.contains(d)) {
-                throw new IllegalArgumentException("A DataType that is not supported by this method was detected in the Dataframe.");
-            }
-        }
+        validateDataTypes(trainingData);
         super.fit(trainingData);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        validateDataTypes(trainingData);
+        _fit(trainingData);
+        updateXDataTypes(trainingData.getXDataTypes());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(TFIDF other) {
+        logger.info("merge()");
+
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        ModelParameters otherParameters = other.getModelParameters();
+        if(modelParameters.getN() == null) {
+            throw new IllegalStateException("The TFIDF was trained without the frequencies which are required for updating it.");
+        }
+        else if(otherParameters.getN() == null) {
+            throw new IllegalArgumentException("The provided TFIDF does not contain the frequencies which are required for merging it.");
+        }
+
+        Map<Object, Double> documentFrequencies = modelParameters.getDocumentFrequencies();
+        Map<Object, Double> maxTermFrequencies = modelParameters.getMaxTermFrequencies();
+
+        otherParameters.getDocumentFrequencies().forEach((keyword, frequency) -> documentFrequencies.merge(keyword, frequency, Double::sum));
+        otherParameters.getMaxTermFrequencies().forEach((keyword, frequency) -> maxTermFrequencies.merge(keyword, frequency, Math::max));
+        modelParameters.setN(modelParameters.getN() + otherParameters.getN());
+
+        updateFeatureScores();
+        updateXDataTypes(other.getModelParameters().getXDataTypes());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
+        //the frequencies are sufficient statistics, so the scores are estimated from the frequencies of all the batches
+        updateFrequencies(trainingData);
+        updateFeatureScores();
+    }
+
+    /**
+     * Adds the document frequencies and the maximum term frequencies of the
+     * provided data to the ones of the model.
+     *
+     * @param trainingData
+     */
+    private void updateFrequencies(Dataframe trainingData) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
-        
-        boolean binarized = trainingParameters.isBinarized();
-        
-        
-        int n = trainingData.size();
-        
-        StorageEngine storageEngine = knowledgeBase.getStorageEngine();
-        Map<Object, Double> tmp_idfMap = storageEngine.getBigMap("tmp_idf", Object.class, Double.class, MapType.HASHMAP, StorageHint.IN_MEMORY, true, true);
+        Map<Object, Double> documentFrequencies = modelParameters.getDocumentFrequencies();
+        Map<Object, Double> maxTermFrequencies = modelParameters.getMaxTermFrequencies();
+        if(modelParameters.getN() == null) {
+            throw new IllegalStateException("The TFIDF was trained without the frequencies which are required for updating it.");
+        }
 
-        //initially estimate the counts of the terms in the dataset and store this temporarily
-        //in idf map. this help us avoid using twice much memory comparing to using two different maps
-        for(Record r : trainingData) { 
+        boolean binarized = knowledgeBase.getTrainingParameters().isBinarized();
+
+        for(Record r : trainingData) {
             for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
                 Object keyword = entry.getKey();
                 Double counts = TypeInference.toDouble(entry.getValue());
-                
+
                 if(counts > 0.0) {
-                    tmp_idfMap.put(keyword, tmp_idfMap.getOrDefault(keyword, 0.0)+1.0);
+                    documentFrequencies.put(keyword, documentFrequencies.getOrDefault(keyword, 0.0)+1.0);
+
+                    double tf = binarized?1.0:counts;
+                    if(tf > maxTermFrequencies.getOrDefault(keyword, 0.0)) {
+                        maxTermFrequencies.put(keyword, tf);
+                    }
                 }
             }
         }
 
-        //remove rare features
+        modelParameters.setN(modelParameters.getN() + trainingData.size());
+    }
+
+    /**
+     * Re-estimates the scores of the features from the frequencies of the model.
+     */
+    private void updateFeatureScores() {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        Map<Object, Double> documentFrequencies = modelParameters.getDocumentFrequencies();
+        Map<Object, Double> maxTermFrequencies = modelParameters.getMaxTermFrequencies();
+
+        int n = modelParameters.getN();
+
+        //the rare features are skipped instead of removed because their frequencies might increase on the next batches
         Integer rareFeatureThreshold = trainingParameters.getRareFeatureThreshold();
-        if(rareFeatureThreshold != null && rareFeatureThreshold>0) {
-            removeRareFeatures(tmp_idfMap, rareFeatureThreshold);
-        }
-        
-        //convert counts to idf scores
-        streamExecutor.forEach(StreamMethods.stream(tmp_idfMap.entrySet().stream(), isParallelized()), entry -> {
-            Object keyword = entry.getKey();
-            Double countsInDocument = entry.getValue();
-            
-            tmp_idfMap.put(keyword, Math.log10(n/countsInDocument));
-        });
-        
-        
+        int minDocumentFrequency = (rareFeatureThreshold != null && rareFeatureThreshold>0)?rareFeatureThreshold:0;
+
         final Map<Object, Double> featureScores = modelParameters.getFeatureScores();
-        
-        //this lambda checks if the new score is larger than the current max score of the feature
-        BiFunction<Object, Double, Boolean> isGreaterThanMax = (feature, newScore) -> {
-            Double maxScore = featureScores.get(feature);
-            return maxScore==null || maxScore<newScore;
-        };
-        
-        //calculate the maximum tfidf scores
-        streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> {
-            //calculate the tfidf scores
-            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                Double counts = TypeInference.toDouble(entry.getValue());
-                
-                if(counts > 0.0) {
-                    Object keyword = entry.getKey();
+        featureScores.clear();
 
-                    double tf = binarized?1.0:counts;
-                    double idf = tmp_idfMap.getOrDefault(keyword, 0.0);
-
-                    double tfidf = tf*idf;
-                    
-                    if(tfidf > 0.0) { //ignore 0 scored features
-                        
-                        //Threads will help here under the assumption that only 
-                        //a small number of records will have features that exceed 
-                        //the maximum score. Thus they will stop in this if statement
-                        //and they will not go into the synced block.
-                        if(isGreaterThanMax.apply(keyword, tfidf)) {
-                            synchronized(featureScores) {
-                                if(isGreaterThanMax.apply(keyword, tfidf)) {
-                                    featureScores.put(keyword, tfidf);
-                                }
-                            }
-                        }
-                        
-                    }
+        //the idf is constant for every keyword, so the maximum tfidf score is reached on the document with the maximum tf
+        streamExecutor.forEach(StreamMethods.stream(documentFrequencies.entrySet().stream(), isParallelized()), entry -> {
+            Double countsInDocument = entry.getValue();
+
+            if(countsInDocument >= minDocumentFrequency) {
+                Object keyword = entry.getKey();
+
+                double idf = Math.log10(n/countsInDocument);
+                double tfidf = maxTermFrequencies.get(keyword)*idf;
+
+                if(tfidf > 0.0) { //ignore 0 scored features
+                    featureScores.put(keyword, tfidf); //This Map is concurrent and there are no overlaping keys between threads
                 }
             }
         });
-        
-        //Drop the temporary Collection
-        storageEngine.dropBigMap("tmp_idf", tmp_idfMap);
-
 
         //keep only the top features
         Integer maxFeatures = trainingParameters.getMaxFeatures();
@@ -208,6 +292,20 @@ public class TFIDF extends AbstractScoreBasedFeatureSelector<TFIDF.ModelParamete
         }
     }
 
+    /**
+     * Ensures that all the features of the provided data are supported.
+     *
+     * @param trainingData
+     */
+    private void validateDataTypes(Dataframe trainingData) {
+        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+        for(TypeInference.DataType d : trainingData.getXDataTypes().values()) {
+            if(!supportedXDataTypes.contains(d)) {
+                throw new IllegalArgumentException("A DataType that is not supported by this method was detected in the Dataframe.");
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     protected Set<TypeInference.DataType> getSupportedXDataTypes() {
@@ -101,48 +101,58 @@ public class BinaryScaler extends AbstractScaler<BinaryScaler.ModelParameters, B
     /** {@inheritDoc} */
     @Override
     protected void _transform(Dataframe newData) {
-        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
-        boolean scaleResponse = trainingParameters.getScaleResponse() && newData.getYDataType() == TypeInference.DataType.NUMERICAL;
-        double threshold = trainingParameters.getThreshold();
-
-        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+        boolean numericResponse = newData.getYDataType() == TypeInference.DataType.NUMERICAL;
         Map<Object, TypeInference.DataType> xDataTypes = newData.getXDataTypes();
-
         streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
             Record r = e.getValue();
-            AssociativeArray xData = r.getX().copy();
-            Object yData = r.getY();
-
-            boolean modified = false;
-            for(Object column : r.getX().keySet()) {
-                if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
-                    continue;
-                }
-                Object value = xData.remove(column);
-                if(value != null) {
-                    xData.put(column, scale(TypeInference.toDouble(value), threshold));
-                }
-                modified = true;
+            Record newR = transformRecord(r, xDataTypes, numericResponse);
+            if(newR != r) {
+                //we call below the recalculateMeta()
+                newData._unsafe_set(e.getKey(), newR);
             }
+        });
 
-            if(scaleResponse && yData != null) {
-                Double value = TypeInference.toDouble(yData);
+        //Reset Meta info
+        newData.recalculateMeta();
+    }
 
-                yData = scale(value, threshold);
-                modified = true;
-            }
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
+        boolean numericResponse = TypeInference.getDataType(r.getY()) == TypeInference.DataType.NUMERICAL;
+        return transformRecord(r, getXDataTypes(r), numericResponse);
+    }
 
-            if(modified) {
-                Integer rId = e.getKey();
-                Record newR = new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities());
+    private Record transformRecord(Record r, Map<Object, TypeInference.DataType> xDataTypes, boolean numericResponse) {
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        boolean scaleResponse = trainingParameters.getScaleResponse() && numericResponse;
+        double threshold = trainingParameters.getThreshold();
 
-                //we call below the recalculateMeta()
-                newData._unsafe_set(rId, newR);
+        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+
+        AssociativeArray xData = r.getX().copy();
+        Object yData = r.getY();
+
+        boolean modified = false;
+        for(Object column : r.getX().keySet()) {
+            if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
+                continue;
             }
-        });
+            Object value = xData.remove(column);
+            if(value != null) {
+                xData.put(column, scale(TypeInference.toDouble(value), threshold));
+            }
+            modified = true;
+        }
 
-        //Reset Meta info
-        newData.recalculateMeta();
+        if(scaleResponse && yData != null) {
+            Double value = TypeInference.toDouble(yData);
+
+            yData = scale(value, threshold);
+            modified = true;
+        }
+
+        return modified?new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities()):r;
     }
 
     /**
@@ -24,6 +24,8 @@ import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.transformers.AbstractScaler;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.Mergeable;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
 import java.util.Map;
@@ -35,7 +37,7 @@ import java.util.stream.Stream;
  *
  * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
  */
-public class MaxAbsScaler extends AbstractScaler<MaxAbsScaler.ModelParameters, MaxAbsScaler.TrainingParameters> {
+public class MaxAbsScaler extends AbstractScaler<MaxAbsScaler.ModelParameters, MaxAbsScaler.TrainingParameters> implements IncrementallyTrainable, Mergeable<MaxAbsScaler> {
 
     /** {@inheritDoc} */
     public static class ModelParameters extends AbstractScaler.AbstractModelParameters {
@@ -99,6 +101,28 @@ public class MaxAbsScaler extends AbstractScaler<MaxAbsScaler.ModelParameters, M
         super(storageName, configuration);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        _fit(trainingData);
+        updateXDataTypes(trainingData.getXDataTypes());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(MaxAbsScaler other) {
+        logger.info("merge()");
+
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        ModelParameters otherParameters = other.getModelParameters();
+        Map<Object, Double> maxAbsoluteColumnValues = modelParameters.getMaxAbsoluteColumnValues();
+
+        otherParameters.getMaxAbsoluteColumnValues().forEach((column, maxAbsolute) -> maxAbsoluteColumnValues.merge(column, maxAbsolute, Math::max));
+        updateXDataTypes(other.getModelParameters().getXDataTypes());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
@@ -114,57 +138,61 @@ public class MaxAbsScaler extends AbstractScaler<MaxAbsScaler.ModelParameters, M
         streamExecutor.forEach(StreamMethods.stream(transformedColumns, isParallelized()), column -> {
             FlatDataCollection columnValues = trainingData.getXColumn(column).toFlatDataCollection();
 
-            maxAbsoluteColumnValues.put(column, Descriptives.maxAbsolute(columnValues));
+            maxAbsoluteColumnValues.merge(column, Descriptives.maxAbsolute(columnValues), Math::max);
         });
 
         if(scaleResponse && trainingData.getYDataType() == TypeInference.DataType.NUMERICAL) {
             FlatDataCollection columnValues = trainingData.getYColumn().toFlatDataCollection();
 
-            maxAbsoluteColumnValues.put(Dataframe.COLUMN_NAME_Y, Descriptives.maxAbsolute(columnValues));
+            maxAbsoluteColumnValues.merge(Dataframe.COLUMN_NAME_Y, Descriptives.maxAbsolute(columnValues), Math::max);
         }
     }
 
     /** {@inheritDoc} */
     @Override
     protected void _transform(Dataframe newData) {
-        ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        Map<Object, Double> maxAbsoluteColumnValues = modelParameters.getMaxAbsoluteColumnValues();
-        boolean scaleResponse = knowledgeBase.getTrainingParameters().getScaleResponse() && maxAbsoluteColumnValues.containsKey(Dataframe.COLUMN_NAME_Y);
-
         streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
             Record r = e.getValue();
-            AssociativeArray xData = r.getX().copy();
-            Object yData = r.getY();
-
-            boolean modified = false;
-            for(Object column : r.getX().keySet()) {
-                Double maxAbsolute = maxAbsoluteColumnValues.get(column);
-                if(maxAbsolute == null) {
-                    continue;
-                }
-                Object value = xData.remove(column);
-                if(value != null) {
-                    xData.put(column, scale(TypeInference.toDouble(value), maxAbsolute));
-                }
-                modified = true;
+            Record newR = _transform(r);
+            if(newR != r) {
+                //no modification on the actual columns takes place, safe to do.
+                newData._unsafe_set(e.getKey(), newR);
             }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Object, Double> maxAbsoluteColumnValues = modelParameters.getMaxAbsoluteColumnValues();
+        boolean scaleResponse = knowledgeBase.getTrainingParameters().getScaleResponse() && maxAbsoluteColumnValues.containsKey(Dataframe.COLUMN_NAME_Y);
 
-            if(scaleResponse && yData != null) {
-                Double value = TypeInference.toDouble(yData);
-                Double maxAbsolute = maxAbsoluteColumnValues.get(Dataframe.COLUMN_NAME_Y);
+        AssociativeArray xData = r.getX().copy();
+        Object yData = r.getY();
 
-                yData = scale(value, maxAbsolute);
-                modified = true;
+        boolean modified = false;
+        for(Object column : r.getX().keySet()) {
+            Double maxAbsolute = maxAbsoluteColumnValues.get(column);
+            if(maxAbsolute == null) {
+                continue;
+            }
+            Object value = xData.remove(column);
+            if(value != null) {
+                xData.put(column, scale(TypeInference.toDouble(value), maxAbsolute));
             }
+            modified = true;
+        }
 
-            if(modified) {
-                Integer rId = e.getKey();
-                Record newR = new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities());
+        if(scaleResponse && yData != null) {
+            Double value = TypeInference.toDouble(yData);
+            Double maxAbsolute = maxAbsoluteColumnValues.get(Dataframe.COLUMN_NAME_Y);
 
-                //no modification on the actual columns takes place, safe to do.
-                newData._unsafe_set(rId, newR);
-            }
-        });
+            yData = scale(value, maxAbsolute);
+            modified = true;
+        }
+
+        return modified?new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities()):r;
     }
 
     /**
@@ -24,6 +24,8 @@ import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.transformers.AbstractScaler;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.Mergeable;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
 
 import java.util.Map;
@@ -35,7 +37,7 @@ import java.util.stream.Stream;
  *
  * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
  */
-public class MinMaxScaler extends AbstractScaler<MinMaxScaler.ModelParameters, MinMaxScaler.TrainingParameters> {
+public class MinMaxScaler extends AbstractScaler<MinMaxScaler.ModelParameters, MinMaxScaler.TrainingParameters> implements IncrementallyTrainable, Mergeable<MinMaxScaler> {
 
     /** {@inheritDoc} */
     public static class ModelParameters extends AbstractScaler.AbstractModelParameters {
@@ -123,6 +125,30 @@ public class MinMaxScaler extends AbstractScaler<MinMaxScaler.ModelParameters, M
         super(storageName, configuration);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        _fit(trainingData);
+        updateXDataTypes(trainingData.getXDataTypes());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(MinMaxScaler other) {
+        logger.info("merge()");
+
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        ModelParameters otherParameters = other.getModelParameters();
+        Map<Object, Double> minColumnValues = modelParameters.getMinColumnValues();
+        Map<Object, Double> maxColumnValues = modelParameters.getMaxColumnValues();
+
+        otherParameters.getMinColumnValues().forEach((column, min) -> minColumnValues.merge(column, min, Math::min));
+        otherParameters.getMaxColumnValues().forEach((column, max) -> maxColumnValues.merge(column, max, Math::max));
+        updateXDataTypes(other.getModelParameters().getXDataTypes());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
@@ -139,62 +165,66 @@ public class MinMaxScaler extends AbstractScaler<MinMaxScaler.ModelParameters, M
         streamExecutor.forEach(StreamMethods.stream(transformedColumns, isParallelized()), column -> {
             FlatDataCollection columnValues = trainingData.getXColumn(column).toFlatDataCollection();
 
-            minColumnValues.put(column, Descriptives.min(columnValues));
-            maxColumnValues.put(column, Descriptives.max(columnValues));
+            minColumnValues.merge(column, Descriptives.min(columnValues), Math::min);
+            maxColumnValues.merge(column, Descriptives.max(columnValues), Math::max);
         });
 
         if(scaleResponse && trainingData.getYDataType() == TypeInference.DataType.NUMERICAL) {
             FlatDataCollection columnValues = trainingData.getYColumn().toFlatDataCollection();
 
-            minColumnValues.put(Dataframe.COLUMN_NAME_Y, Descriptives.min(columnValues));
-            maxColumnValues.put(Dataframe.COLUMN_NAME_Y, Descriptives.max(columnValues));
+            minColumnValues.merge(Dataframe.COLUMN_NAME_Y, Descriptives.min(columnValues), Math::min);
+            maxColumnValues.merge(Dataframe.COLUMN_NAME_Y, Descriptives.max(columnValues), Math::max);
         }
     }
 
     /** {@inheritDoc} */
     @Override
     protected void _transform(Dataframe newData) {
+        streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
+            Record r = e.getValue();
+            Record newR = _transform(r);
+            if(newR != r) {
+                //no modification on the actual columns takes place, safe to do.
+                newData._unsafe_set(e.getKey(), newR);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         Map<Object, Double> minColumnValues = modelParameters.getMinColumnValues();
         Map<Object, Double> maxColumnValues = modelParameters.getMaxColumnValues();
         boolean scaleResponse = knowledgeBase.getTrainingParameters().getScaleResponse() && minColumnValues.containsKey(Dataframe.COLUMN_NAME_Y);
 
-        streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
-            Record r = e.getValue();
-            AssociativeArray xData = r.getX().copy();
-            Object yData = r.getY();
-
-            boolean modified = false;
-            for(Object column : r.getX().keySet()) {
-                Double min = minColumnValues.get(column);
-                if(min == null) {
-                    continue;
-                }
-                Object value = xData.remove(column);
-                if(value != null) {
-                    Double max = maxColumnValues.get(column);
-                    xData.put(column, scale(TypeInference.toDouble(value), min, max));
-                }
-                modified = true;
-            }
+        AssociativeArray xData = r.getX().copy();
+        Object yData = r.getY();
 
-            if(scaleResponse && yData != null) {
-                Double value = TypeInference.toDouble(yData);
-                Double min = minColumnValues.get(Dataframe.COLUMN_NAME_Y);
-                Double max = maxColumnValues.get(Dataframe.COLUMN_NAME_Y);
-
-                yData = scale(value, min, max);
-                modified = true;
+        boolean modified = false;
+        for(Object column : r.getX().keySet()) {
+            Double min = minColumnValues.get(column);
+            if(min == null) {
+                continue;
+            }
+            Object value = xData.remove(column);
+            if(value != null) {
+                Double max = maxColumnValues.get(column);
+                xData.put(column, scale(TypeInference.toDouble(value), min, max));
             }
+            modified = true;
+        }
 
-            if(modified) {
-                Integer rId = e.getKey();
-                Record newR = new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities());
+        if(scaleResponse && yData != null) {
+            Double value = TypeInference.toDouble(yData);
+            Double min = minColumnValues.get(Dataframe.COLUMN_NAME_Y);
+            Double max = maxColumnValues.get(Dataframe.COLUMN_NAME_Y);
 
-                //no modification on the actual columns takes place, safe to do.
-                newData._unsafe_set(rId, newR);
-            }
-        });
+            yData = scale(value, min, max);
+            modified = true;
+        }
+
+        return modified?new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities()):r;
     }
 
     /**
@@ -82,34 +82,15 @@ public class OneHotEncoder extends AbstractEncoder<OneHotEncoder.ModelParameters
     /** {@inheritDoc} */
     @Override
     protected void _transform(Dataframe newData) {
-        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
         Map<Object, TypeInference.DataType> xDataTypes = newData.getXDataTypes();
 
         //Replace variables with dummy versions
         streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
-            Integer rId = e.getKey();
             Record r = e.getValue();
-
-            AssociativeArray xData = r.getX().copy();
-
-            boolean modified = false;
-            for(Object column : r.getX().keySet()) {
-                if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
-                    continue;
-                }
-                Object value = xData.remove(column);
-                if(value != null) {
-                    //add a new dummy variable for this column-value combination
-                    xData.put(Arrays.asList(column,value), true);
-                }
-                modified = true;
-            }
-
-            if(modified) {
-                Record newR = new Record(xData, r.getY(), r.getYPredicted(), r.getYPredictedProbabilities());
-
+            Record newR = transformRecord(r, xDataTypes);
+            if(newR != r) {
                 //we call below the recalculateMeta()
-                newData._unsafe_set(rId, newR);
+                newData._unsafe_set(e.getKey(), newR);
             }
         });
 
@@ -117,4 +98,31 @@ public class OneHotEncoder extends AbstractEncoder<OneHotEncoder.ModelParameters
         newData.recalculateMeta();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
+        return transformRecord(r, getXDataTypes(r));
+    }
+
+    private Record transformRecord(Record r, Map<Object, TypeInference.DataType> xDataTypes) {
+        Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
+
+        AssociativeArray xData = r.getX().copy();
+
+        boolean modified = false;
+        for(Object column : r.getX().keySet()) {
+            if(!supportedXDataTypes.contains(xDataTypes.get(column))) {
+                continue;
+            }
+            Object value = xData.remove(column);
+            if(value != null) {
+                //add a new dummy variable for this column-value combination
+                xData.put(Arrays.asList(column,value), true);
+            }
+            modified = true;
+        }
+
+        return modified?new Record(xData, r.getY(), r.getYPredicted(), r.getYPredictedProbabilities()):r;
+    }
+
 }
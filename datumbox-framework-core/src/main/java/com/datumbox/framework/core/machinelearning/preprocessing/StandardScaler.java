@@ -24,7 +24,9 @@ import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.transformers.AbstractScaler;
-import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
+import com.datumbox.framework.core.machinelearning.common.interfaces.IncrementallyTrainable;
+import com.datumbox.framework.core.machinelearning.common.interfaces.Mergeable;
+import com.datumbox.framework.core.statistics.descriptivestatistics.SummaryStatistics;
 
 import java.util.Map;
 import java.util.Set;
@@ -35,7 +37,7 @@ import java.util.stream.Stream;
  *
  * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
  */
-public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameters, StandardScaler.TrainingParameters> {
+public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameters, StandardScaler.TrainingParameters> implements IncrementallyTrainable, Mergeable<StandardScaler> {
 
     /** {@inheritDoc} */
     public static class ModelParameters extends AbstractScaler.AbstractModelParameters {
@@ -53,6 +55,18 @@ public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameter
         @BigMap(keyClass=Object.class, valueClass=Double.class, mapType= StorageEngine.MapType.HASHMAP, storageHint= StorageEngine.StorageHint.IN_MEMORY, concurrent=true)
         private Map<Object, Double> stdColumnValues;
 
+        /**
+         * The number of not null values of each numerical variable.
+         */
+        @BigMap(keyClass=Object.class, valueClass=Double.class, mapType= StorageEngine.MapType.HASHMAP, storageHint= StorageEngine.StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Object, Double> countColumnValues;
+
+        /**
+         * The sum of squared deviations from the mean of each numerical variable.
+         */
+        @BigMap(keyClass=Object.class, valueClass=Double.class, mapType= StorageEngine.MapType.HASHMAP, storageHint= StorageEngine.StorageHint.IN_MEMORY, concurrent=true)
+        private Map<Object, Double> m2ColumnValues;
+
         /**
          * @param storageEngine
          * @see AbstractTrainer.AbstractModelParameters#AbstractModelParameters(StorageEngine)
@@ -97,6 +111,42 @@ public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameter
             this.stdColumnValues = stdColumnValues;
         }
 
+        /**
+         * Getter for the counts of the not null values of the columns.
+         *
+         * @return
+         */
+        public Map<Object, Double> getCountColumnValues() {
+            return countColumnValues;
+        }
+
+        /**
+         * Setter for the counts of the not null values of the columns.
+         *
+         * @param countColumnValues
+         */
+        protected void setCountColumnValues(Map<Object, Double> countColumnValues) {
+            this.countColumnValues = countColumnValues;
+        }
+
+        /**
+         * Getter for the sums of squared deviations of the columns.
+         *
+         * @return
+         */
+        public Map<Object, Double> getM2ColumnValues() {
+            return m2ColumnValues;
+        }
+
+        /**
+         * Setter for the sums of squared deviations of the columns.
+         *
+         * @param m2ColumnValues
+         */
+        protected void setM2ColumnValues(Map<Object, Double> m2ColumnValues) {
+            this.m2ColumnValues = m2ColumnValues;
+        }
+
     }
 
     /** {@inheritDoc} */
@@ -123,12 +173,38 @@ public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameter
         super(storageName, configuration);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void partialFit(Dataframe trainingData) {
+        logger.info("partialFit()");
+
+        _fit(trainingData);
+        updateXDataTypes(trainingData.getXDataTypes());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void merge(StandardScaler other) {
+        logger.info("merge()");
+
+        ModelParameters otherParameters = other.getModelParameters();
+        Map<Object, Double> countColumnValues = otherParameters.getCountColumnValues();
+        Map<Object, Double> meanColumnValues = otherParameters.getMeanColumnValues();
+        Map<Object, Double> m2ColumnValues = otherParameters.getM2ColumnValues();
+        if(countColumnValues.size() != meanColumnValues.size()) {
+            throw new IllegalArgumentException("The provided scaler does not contain the statistics which are required for merging it.");
+        }
+
+        for(Map.Entry<Object, Double> e : countColumnValues.entrySet()) {
+            Object column = e.getKey();
+            updateStatistics(column, e.getValue(), meanColumnValues.get(column), m2ColumnValues.get(column));
+        }
+        updateXDataTypes(other.getModelParameters().getXDataTypes());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
-        ModelParameters modelParameters = knowledgeBase.getModelParameters();
-        Map<Object, Double> meanColumnValues = modelParameters.getMeanColumnValues();
-        Map<Object, Double> stdColumnValues = modelParameters.getStdColumnValues();
         boolean scaleResponse = knowledgeBase.getTrainingParameters().getScaleResponse();
 
         Set<TypeInference.DataType> supportedXDataTypes = getSupportedXDataTypes();
@@ -137,64 +213,111 @@ public class StandardScaler extends AbstractScaler<StandardScaler.ModelParameter
                 .map(e -> e.getKey());
 
         streamExecutor.forEach(StreamMethods.stream(transformedColumns, isParallelized()), column -> {
-            FlatDataCollection columnValues = trainingData.getXColumn(column).toFlatDataCollection();
-
-            meanColumnValues.put(column, Descriptives.mean(columnValues));
-            stdColumnValues.put(column, Descriptives.std(columnValues, true));
+            updateStatistics(column, trainingData.getXColumn(column).toFlatDataCollection());
         });
 
         if(scaleResponse && trainingData.getYDataType() == TypeInference.DataType.NUMERICAL) {
-            FlatDataCollection columnValues = trainingData.getYColumn().toFlatDataCollection();
+            updateStatistics(Dataframe.COLUMN_NAME_Y, trainingData.getYColumn().toFlatDataCollection());
+        }
+    }
 
-            meanColumnValues.put(Dataframe.COLUMN_NAME_Y, Descriptives.mean(columnValues));
-            stdColumnValues.put(Dataframe.COLUMN_NAME_Y, Descriptives.std(columnValues, true));
+    /**
+     * Estimates the count, the mean and the sum of squared deviations of the
+     * batch in a single pass and updates the statistics of the column.
+     *
+     * @param column
+     * @param columnValues
+     */
+    private void updateStatistics(Object column, FlatDataCollection columnValues) {
+        SummaryStatistics summary = SummaryStatistics.of(columnValues);
+        if(summary.getCount() > 0L) {
+            updateStatistics(column, summary.getCount(), summary.getMean(), summary.getM2());
         }
     }
 
+    /**
+     * Combines the statistics of a batch with the ones of the column using the
+     * pairwise update of Chan et al. and re-estimates the standard deviation.
+     *
+     * @param column
+     * @param n
+     * @param mean
+     * @param m2
+     */
+    private void updateStatistics(Object column, double n, double mean, double m2) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        Map<Object, Double> countColumnValues = modelParameters.getCountColumnValues();
+        Map<Object, Double> meanColumnValues = modelParameters.getMeanColumnValues();
+        Map<Object, Double> m2ColumnValues = modelParameters.getM2ColumnValues();
+
+        double currentN = countColumnValues.getOrDefault(column, 0.0);
+        if(currentN == 0.0 && meanColumnValues.containsKey(column)) {
+            throw new IllegalStateException("The scaler was trained without the statistics which are required for updating it.");
+        }
+
+        double totalN = currentN + n;
+        if(totalN == 0.0) {
+            return; //no values are available for the column
+        }
+
+        double currentMean = meanColumnValues.getOrDefault(column, 0.0);
+        double delta = mean - currentMean;
+        double totalM2 = m2ColumnValues.getOrDefault(column, 0.0) + m2 + delta*delta*currentN*n/totalN;
+
+        countColumnValues.put(column, totalN);
+        meanColumnValues.put(column, currentMean + delta*n/totalN);
+        m2ColumnValues.put(column, totalM2);
+        modelParameters.getStdColumnValues().put(column, (totalN>1.0)?Math.sqrt(totalM2/(totalN-1.0)):0.0);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _transform(Dataframe newData) {
+        streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
+            Record r = e.getValue();
+            Record newR = _transform(r);
+            if(newR != r) {
+                //no modification on the actual columns takes place, safe to do.
+                newData._unsafe_set(e.getKey(), newR);
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Record _transform(Record r) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         Map<Object, Double> meanColumnValues = modelParameters.getMeanColumnValues();
         Map<Object, Double> stdColumnValues = modelParameters.getStdColumnValues();
         boolean scaleResponse = knowledgeBase.getTrainingParameters().getScaleResponse() && meanColumnValues.containsKey(Dataframe.COLUMN_NAME_Y);
 
-        streamExecutor.forEach(StreamMethods.stream(newData.entries(), isParallelized()), e -> {
-            Record r = e.getValue();
-            AssociativeArray xData = r.getX().copy();
-            Object yData = r.getY();
-
-            boolean modified = false;
-            for(Object column : r.getX().keySet()) {
-                Double mean = meanColumnValues.get(column);
-                if(mean == null) {
-                    continue;
-                }
-                Object value = xData.remove(column);
-                if(value != null) {
-                    Double std = stdColumnValues.get(column);
-                    xData.put(column, scale(TypeInference.toDouble(value), mean, std));
-                }
-                modified = true;
-            }
-
-            if(scaleResponse && yData != null) {
-                Double value = TypeInference.toDouble(yData);
-                Double mean = meanColumnValues.get(Dataframe.COLUMN_NAME_Y);
-                Double std = stdColumnValues.get(Dataframe.COLUMN_NAME_Y);
+        AssociativeArray xData = r.getX().copy();
+        Object yData = r.getY();
 
-                yData = scale(value, mean, std);
-                modified = true;
+        boolean modified = false;
+        for(Object column : r.getX().keySet()) {
+            Double mean = meanColumnValues.get(column);
+            if(mean == null) {
+                continue;
             }
+            Object value = xData.remove(column);
+            if(value != null) {
+                Double std = stdColumnValues.get(column);
+                xData.put(column, scale(TypeInference.toDouble(value), mean, std));
+            }
+            modified = true;
+        }
 
-            if(modified) {
-                Integer rId = e.getKey();
-                Record newR = new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities());
+        if(scaleResponse && yData != null) {
+            Double value = TypeInference.toDouble(yData);
+            Double mean = meanColumnValues.get(Dataframe.COLUMN_NAME_Y);
+            Double std = stdColumnValues.get(Dataframe.COLUMN_NAME_Y);
 
-                //no modification on the actual columns takes place, safe to do.
-                newData._unsafe_set(rId, newR);
-            }
-        });
+            yData = scale(value, mean, std);
+            modified = true;
+        }
+
+        return modified?new Record(xData, yData, r.getYPredicted(), r.getYPredictedProbabilities()):r;
     }
 
     /**
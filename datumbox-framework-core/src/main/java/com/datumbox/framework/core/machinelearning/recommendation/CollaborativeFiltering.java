@@ -27,6 +27,9 @@ import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractRecommender;
 import com.datumbox.framework.core.mathematics.distances.Distance;
+import com.datumbox.framework.core.mathematics.distances.FeatureDictionary;
+import com.datumbox.framework.core.mathematics.distances.SparseDistance;
+import com.datumbox.framework.core.mathematics.distances.SparseVector;
 import com.datumbox.framework.core.statistics.parametrics.relatedsamples.PearsonCorrelation;
 
 import java.util.*;
@@ -143,48 +146,52 @@ public class CollaborativeFiltering extends AbstractRecommender<CollaborativeFil
     /** {@inheritDoc} */
     @Override
     protected void _predict(Dataframe newData) {
-        Map<List<Object>, Double> similarities = knowledgeBase.getModelParameters().getSimilarities();
-        
         //generate recommendation for each record in the list
         for(Map.Entry<Integer, Record> e : newData.entries()) {
-            Integer rId = e.getKey();
-            Record r = e.getValue();
-            Map<Object, Double> recommendations = new HashMap<>();
+            newData._unsafe_set(e.getKey(), _predict(e.getValue()));
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected Record _predict(Record r) {
+        Map<List<Object>, Double> similarities = knowledgeBase.getModelParameters().getSimilarities();
+        
+        Map<Object, Double> recommendations = new HashMap<>();
+        
+        Map<Object, Double> simSums = new HashMap<>();
+        for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+            Object row = entry.getKey();
+            Double score = TypeInference.toDouble(entry.getValue());
             
-            Map<Object, Double> simSums = new HashMap<>();
-            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                Object row = entry.getKey();
-                Double score = TypeInference.toDouble(entry.getValue());
-                
-                for(Map.Entry<List<Object>, Double> entry2 : similarities.entrySet()) {
-                    List<Object> tpk = entry2.getKey();
-                    if(!tpk.get(0).equals(row)) {
-                        continue; //filter the irrelevant two pair key combinations that do not include the row
-                    }
-                    
-                    Object column = tpk.get(1);
-                    
-                    Double previousRecValue = recommendations.getOrDefault(column, 0.0);
-                    Double previousSimsumValue = simSums.getOrDefault(column, 0.0);
-                    
-                    Double similarity = entry2.getValue();
-
-                    recommendations.put(column, previousRecValue+similarity*score);
-                    simSums.put(column, previousSimsumValue+similarity);
+            for(Map.Entry<List<Object>, Double> entry2 : similarities.entrySet()) {
+                List<Object> tpk = entry2.getKey();
+                if(!tpk.get(0).equals(row)) {
+                    continue; //filter the irrelevant two pair key combinations that do not include the row
                 }
-            }
-            
-            for(Map.Entry<Object, Double> entry : recommendations.entrySet()) {
-                Object column = entry.getKey();
-                Double score = entry.getValue();
                 
-                recommendations.put(column, score/simSums.get(column));
+                Object column = tpk.get(1);
+                
+                Double previousRecValue = recommendations.getOrDefault(column, 0.0);
+                Double previousSimsumValue = simSums.getOrDefault(column, 0.0);
+                
+                Double similarity = entry2.getValue();
+
+                recommendations.put(column, previousRecValue+similarity*score);
+                simSums.put(column, previousSimsumValue+similarity);
             }
-            //simSums = null;
+        }
+        
+        for(Map.Entry<Object, Double> entry : recommendations.entrySet()) {
+            Object column = entry.getKey();
+            Double score = entry.getValue();
             
-            recommendations = MapMethods.sortNumberMapByValueDescending(recommendations);
-            newData._unsafe_set(rId, new Record(r.getX(), r.getY(), recommendations.keySet().iterator().next(), new AssociativeArray((Map)recommendations)));
+            recommendations.put(column, score/simSums.get(column));
         }
+        //simSums = null;
+        
+        recommendations = MapMethods.sortNumberMapByValueDescending(recommendations);
+        return new Record(r.getX(), r.getY(), recommendations.keySet().iterator().next(), new AssociativeArray((Map)recommendations));
     }
     
     /** {@inheritDoc} */
@@ -192,11 +199,31 @@ public class CollaborativeFiltering extends AbstractRecommender<CollaborativeFil
     protected void _fit(Dataframe trainingData) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         
+        TrainingParameters.SimilarityMeasure similarityMethod = knowledgeBase.getTrainingParameters().getSimilarityMethod();
+        boolean distanceBased = similarityMethod==TrainingParameters.SimilarityMeasure.EUCLIDIAN || similarityMethod==TrainingParameters.SimilarityMeasure.MANHATTAN;
+        
+        //encode the records once for the distance based similarities
+        SparseVector[] vectors = null;
+        if(distanceBased) {
+            FeatureDictionary dictionary = new FeatureDictionary();
+            vectors = new SparseVector[trainingData.size()];
+            int position = 0;
+            for(Record r : trainingData) {
+                vectors[position++] = SparseVector.of(r.getX(), dictionary);
+            }
+        }
+        
         //calculate similarity matrix
         Map<List<Object>, Double> similarities = modelParameters.getSimilarities();
+        int i = -1;
         for(Record r1 : trainingData) {
+            ++i;
             Object y1 = r1.getY();
+            double[] distances = null;
+            
+            int j = -1;
             for(Record r2: trainingData) {
+                ++j;
                 Object y2 = r2.getY();
                 
                 List<Object> tkp = Arrays.asList(y1, y2);
@@ -204,7 +231,23 @@ public class CollaborativeFiltering extends AbstractRecommender<CollaborativeFil
                     continue;
                 }
                 
-                double similarity = calculateSimilarity(r1, r2);
+                double similarity;
+                if(distanceBased) {
+                    if(distances==null) {
+                        //the distances of the record from all the others are estimated in one batch
+                        distances = new double[vectors.length];
+                        if(similarityMethod==TrainingParameters.SimilarityMeasure.EUCLIDIAN) {
+                            SparseDistance.euclidean(vectors[i], vectors, distances);
+                        }
+                        else {
+                            SparseDistance.manhattan(vectors[i], vectors, distances);
+                        }
+                    }
+                    similarity = 1.0/(1.0+distances[j]); //convert distance into a similarity measure
+                }
+                else {
+                    similarity = calculateSimilarity(r1, r2);
+                }
                 
                 similarities.put(tkp, similarity);
                 similarities.put(Arrays.asList(y2, y1), similarity); //add also for the reverse key because similarity is symmetric
@@ -16,6 +16,7 @@
 package com.datumbox.framework.core.machinelearning.regression;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.TypeInference;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.DataframeMatrix;
 import com.datumbox.framework.core.common.dataobjects.Record;
@@ -184,6 +185,23 @@ public class MatrixLinearRegression extends AbstractRegressor<MatrixLinearRegres
         //matrixDataset = null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected Record _predict(Record r) {
+        Map<Object, Double> thitas = knowledgeBase.getModelParameters().getThitas();
+        
+        double yPredicted = thitas.getOrDefault(Dataframe.COLUMN_NAME_CONSTANT, 0.0);
+        for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+            Double thita = thitas.get(entry.getKey());
+            Double value = TypeInference.toDouble(entry.getValue());
+            if(thita!=null && value!=null) {
+                yPredicted += thita*value;
+            }
+        }
+        
+        return r.withPrediction(yPredicted, r.getYPredictedProbabilities());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void _fit(Dataframe trainingData) {
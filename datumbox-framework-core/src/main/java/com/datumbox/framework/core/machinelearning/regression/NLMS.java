@@ -28,13 +28,19 @@ import com.datumbox.framework.common.storage.interfaces.StorageEngine.MapType;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine.StorageHint;
 import com.datumbox.framework.core.machinelearning.common.abstracts.AbstractTrainer;
 import com.datumbox.framework.core.machinelearning.common.abstracts.modelers.AbstractRegressor;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.GradientAccumulator;
+import com.datumbox.framework.core.machinelearning.common.dataobjects.ObjectInterner;
 import com.datumbox.framework.core.machinelearning.common.interfaces.PredictParallelizable;
 import com.datumbox.framework.core.machinelearning.common.interfaces.TrainParallelizable;
+import com.datumbox.framework.core.mathematics.optimizers.AbstractOptimizer;
+import com.datumbox.framework.core.mathematics.optimizers.ObjectiveFunction;
 import com.datumbox.framework.core.mathematics.regularization.ElasticNetRegularizer;
 import com.datumbox.framework.core.mathematics.regularization.L1Regularizer;
 import com.datumbox.framework.core.mathematics.regularization.L2Regularizer;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
  * Linear Regression model which uses the Normalised Least Mean Squares Algorithm.
@@ -93,6 +99,7 @@ public class NLMS extends AbstractRegressor<NLMS.ModelParameters, NLMS.TrainingP
         private double learningRate=0.1;
         private double l1=0.0;
         private double l2=0.0;
+        private AbstractOptimizer optimizer=null;
 
         /**
          * Getter for the total iterations of the training process.
@@ -167,6 +174,27 @@ public class NLMS extends AbstractRegressor<NLMS.ModelParameters, NLMS.TrainingP
             this.l2 = l2;
         }
 
+        /**
+         * Getter for the optimizer which is used to fit the model.
+         *
+         * @return
+         */
+        public AbstractOptimizer getOptimizer() {
+            return optimizer;
+        }
+
+        /**
+         * Setter for the optimizer which is used to fit the model. When it is
+         * null, the model is fitted with Batch Gradient Descent and an adaptive
+         * learning rate; otherwise the totalIterations is the maximum number of
+         * passes of the optimizer over the data and the learningRate is ignored.
+         *
+         * @param optimizer
+         */
+        public void setOptimizer(AbstractOptimizer optimizer) {
+            this.optimizer = optimizer;
+        }
+
     }
 
     /**
@@ -232,13 +260,21 @@ public class NLMS extends AbstractRegressor<NLMS.ModelParameters, NLMS.TrainingP
         
         Map<Object, Double> thitas = modelParameters.getThitas();
         
-        //we initialize the thitas to zero for all features
+        //we initialize the thitas to zero for all features and we assign ids to them for the gradient accumulation
+        ObjectInterner featureDictionary = new ObjectInterner();
         thitas.put(Dataframe.COLUMN_NAME_CONSTANT, 0.0);
+        featureDictionary.intern(Dataframe.COLUMN_NAME_CONSTANT);
         for(Object feature : trainingData.getXDataTypes().keySet()) {
             thitas.put(feature, 0.0);
+            featureDictionary.intern(feature);
         }
         
         TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        
+        if(trainingParameters.getOptimizer() != null) {
+            optimizerFit(trainingData, featureDictionary);
+            return;
+        }
 
         double minError = Double.POSITIVE_INFINITY;
         
@@ -253,7 +289,7 @@ public class NLMS extends AbstractRegressor<NLMS.ModelParameters, NLMS.TrainingP
             
             tmp_newThitas.putAll(thitas);
             
-            batchGradientDescent(trainingData, tmp_newThitas, learningRate);
+            batchGradientDescent(trainingData, featureDictionary, tmp_newThitas, learningRate);
             
             double newError = calculateError(trainingData,tmp_newThitas);
             
@@ -275,28 +311,108 @@ public class NLMS extends AbstractRegressor<NLMS.ModelParameters, NLMS.TrainingP
         }
     }
 
-    private void batchGradientDescent(Dataframe trainingData, Map<Object, Double> newThitas, double learningRate) {
+    private void optimizerFit(Dataframe trainingData, ObjectInterner featureDictionary) {
+        ModelParameters modelParameters = knowledgeBase.getModelParameters();
+        TrainingParameters trainingParameters = knowledgeBase.getTrainingParameters();
+        
+        Map<Object, Double> thitas = modelParameters.getThitas();
+        int dimension = featureDictionary.size();
+        int constantId = featureDictionary.getId(Dataframe.COLUMN_NAME_CONSTANT);
+        double l1 = trainingParameters.getL1();
+        double l2 = trainingParameters.getL2();
+        
+        double[] weights = new double[dimension];
+        for(int i=0;i<dimension;i++) {
+            weights[i] = thitas.get(featureDictionary.getObject(i));
+        }
+        
+        int[] recordIds = new int[trainingData.size()];
+        int n = 0;
+        for(Integer rId : trainingData.index()) {
+            recordIds[n++] = rId;
+        }
+        
+        ObjectiveFunction objective = new ObjectiveFunction() {
+            @Override
+            public int getNumberOfExamples() {
+                return recordIds.length;
+            }
+
+            @Override
+            public int getDimension() {
+                return dimension;
+            }
+
+            @Override
+            public double evaluate(double[] w, int[] examples, int from, int to, double[] gradient) {
+                GradientAccumulator accumulator = streamExecutor.collect(StreamMethods.stream(IntStream.range(from, to), isParallelized()), () -> new GradientAccumulator(dimension), (acc, position) -> {
+                    Record r = trainingData.get(recordIds[examples[position]]);
+                    
+                    double yPredicted = w[constantId];
+                    for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                        int featureId = featureDictionary.getId(entry.getKey());
+                        Double value = TypeInference.toDouble(entry.getValue());
+                        if(featureId>=0 && value!=null) {
+                            yPredicted += w[featureId]*value;
+                        }
+                    }
+                    double error = TypeInference.toDouble(r.getY()) - yPredicted;
+                    acc.addLoss(error*error/2.0);
+                    
+                    for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                        int featureId = featureDictionary.getId(entry.getKey());
+                        Double value = TypeInference.toDouble(entry.getValue());
+                        if(featureId>=0 && value!=null) {
+                            acc.add(featureId, -error*value);
+                        }
+                    }
+                    acc.add(constantId, -error);
+                }, GradientAccumulator::merge);
+                
+                int batchSize = to - from;
+                Arrays.fill(gradient, 0.0);
+                accumulator.forEachNonZero((i, g) -> gradient[i] = g/batchSize);
+                ElasticNetRegularizer.updateGradient(l1, l2, w, dimension, gradient);
+                
+                return accumulator.getLoss()/batchSize + ElasticNetRegularizer.estimatePenalty(l1, l2, w, dimension);
+            }
+        };
+        
+        trainingParameters.getOptimizer().minimize(objective, weights, trainingParameters.getTotalIterations());
+        
+        for(int i=0;i<dimension;i++) {
+            thitas.put(featureDictionary.getObject(i), weights[i]);
+        }
+    }
+
+    private void batchGradientDescent(Dataframe trainingData, ObjectInterner featureDictionary, Map<Object, Double> newThitas, double learningRate) {
         ModelParameters modelParameters = knowledgeBase.getModelParameters();
         
         double multiplier = learningRate/trainingData.size();
         Map<Object, Double> thitas = modelParameters.getThitas();
+        int constantId = featureDictionary.getId(Dataframe.COLUMN_NAME_CONSTANT);
         
-        streamExecutor.forEach(StreamMethods.stream(trainingData.stream(), isParallelized()), r -> { 
+        //every worker accumulates the gradient of its records in its own buffer and the buffers are added at the end, so no locking is required
+        GradientAccumulator gradient = streamExecutor.collect(StreamMethods.stream(trainingData.stream(), isParallelized()), GradientAccumulator.collector(featureDictionary.size(), (accumulator, r) -> { 
             //mind the fact that we use the previous thitas to estimate the new ones! this is because the thitas must be updated simultaniously
             double error = TypeInference.toDouble(r.getY()) - hypothesisFunction(r.getX(), thitas);
 
             double errorMultiplier = multiplier*error;
             
-            synchronized(newThitas) {
-                //update the weights
-                for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
-                    Object feature = entry.getKey();
-                    Double value = TypeInference.toDouble(entry.getValue());
-
-                    newThitas.put(feature, newThitas.get(feature)+errorMultiplier*value);
+            //update the weights
+            for(Map.Entry<Object, Object> entry : r.getX().entrySet()) {
+                int featureId = featureDictionary.getId(entry.getKey());
+                Double value = TypeInference.toDouble(entry.getValue());
+                if(featureId>=0 && value!=null) {
+                    accumulator.add(featureId, errorMultiplier*value);
                 }
-                newThitas.put(Dataframe.COLUMN_NAME_CONSTANT, newThitas.get(Dataframe.COLUMN_NAME_CONSTANT)+errorMultiplier);
             }
+            accumulator.add(constantId, errorMultiplier);
+        }));
+        
+        gradient.forEachNonZero((i, delta) -> {
+            Object feature = featureDictionary.getObject(i);
+            newThitas.put(feature, newThitas.get(feature)+delta);
         });
 
         double l1 = knowledgeBase.getTrainingParameters().getL1();
@@ -17,6 +17,7 @@ package com.datumbox.framework.core.machinelearning.regression;
 
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
 import com.datumbox.framework.core.common.utilities.MapMethods;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
@@ -28,6 +29,7 @@ import com.datumbox.framework.core.machinelearning.common.interfaces.StepwiseCom
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -164,6 +166,16 @@ public class StepwiseRegression extends AbstractRegressor<StepwiseRegression.Mod
         AbstractRegressor mlregressor = (AbstractRegressor) bundle.get(REG_KEY);
         mlregressor.predict(newData);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Record _predict(Record r) {
+        //load all trainables on the bundles
+        initBundle();
+
+        AbstractRegressor<?, ?> mlregressor = (AbstractRegressor<?, ?>) bundle.get(REG_KEY);
+        return mlregressor.predict(r);
+    }
     
     /** {@inheritDoc} */
     @Override
@@ -231,6 +243,26 @@ public class StepwiseRegression extends AbstractRegressor<StepwiseRegression.Mod
         bundle.save(knowledgeBaseName);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture<Void> saveAsync(String storageName) {
+        initBundle();
+        CompletableFuture<Void> future = super.saveAsync(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        return CompletableFuture.allOf(future, bundle.saveAsync(knowledgeBaseName));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveSnapshot(String storageName) {
+        initBundle();
+        super.saveSnapshot(storageName);
+
+        String knowledgeBaseName = createKnowledgeBaseName(storageName, knowledgeBase.getConfiguration().getStorageConfiguration().getStorageNameSeparator());
+        bundle.saveSnapshot(knowledgeBaseName);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void delete() {
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Symmetric distance matrix of n objects which stores only the n(n-1)/2 values 
+ * above the diagonal in a flat primitive array. Large matrices are spilled to 
+ * a temporary memory-mapped file of the provided directory, split in segments 
+ * of 1GB, which is deleted on close.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class CondensedDistanceMatrix implements AutoCloseable {
+    
+    private static final int SEGMENT_SHIFT = 27; //2^27 doubles per mapped segment
+    
+    private static final long SEGMENT_MASK = (1L<<SEGMENT_SHIFT)-1;
+    
+    private final int n;
+    
+    private final double[] values;
+    
+    private final DoubleBuffer[] segments;
+    
+    private final Path file;
+    
+    /**
+     * Public constructor of the matrix. The values are kept on the heap if 
+     * they are not more than maxInMemoryValues, otherwise they are stored in 
+     * a memory-mapped temporary file of the provided directory. All the 
+     * distances are initially 0.
+     * 
+     * @param n
+     * @param maxInMemoryValues 
+     * @param directory
+     */
+    public CondensedDistanceMatrix(int n, long maxInMemoryValues, Path directory) {
+        if(n<0) {
+            throw new IllegalArgumentException("The number of objects can't be negative.");
+        }
+        this.n = n;
+        
+        long length = (long)n*(n-1)/2;
+        if(length<=maxInMemoryValues && length<=Integer.MAX_VALUE-8) {
+            values = new double[(int)length];
+            segments = null;
+            file = null;
+        }
+        else {
+            values = null;
+            try {
+                Files.createDirectories(directory);
+                file = Files.createTempFile(directory, "datumbox-distances", ".bin");
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segments = new DoubleBuffer[(int)((length+SEGMENT_MASK)>>>SEGMENT_SHIFT)];
+                for(int s=0;s<segments.length;s++) {
+                    long start = (long)s<<SEGMENT_SHIFT;
+                    long size = Math.min(SEGMENT_MASK+1, length-start);
+                    //the mappings remain valid after closing the channel
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, 8L*start, 8L*size).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+                }
+            }
+            catch (IOException ex) {
+                deleteFile(ex);
+                throw new UncheckedIOException(ex);
+            }
+            catch (RuntimeException ex) {
+                deleteFile(ex);
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of objects of the matrix.
+     * 
+     * @return 
+     */
+    public int size() {
+        return n;
+    }
+    
+    /**
+     * Returns whether the values are stored in a memory-mapped file.
+     * 
+     * @return 
+     */
+    public boolean isMemoryMapped() {
+        return segments!=null;
+    }
+    
+    /**
+     * Returns the distance between the objects i and j.
+     * 
+     * @param i
+     * @param j
+     * @return 
+     */
+    public double get(int i, int j) {
+        if(i==j) {
+            return 0.0;
+        }
+        long index = index(i, j);
+        if(values!=null) {
+            return values[(int)index];
+        }
+        return segments[(int)(index>>>SEGMENT_SHIFT)].get((int)(index&SEGMENT_MASK));
+    }
+    
+    /**
+     * Sets the distance between the objects i and j. Different threads can 
+     * set the distances of different pairs concurrently.
+     * 
+     * @param i
+     * @param j
+     * @param distance 
+     */
+    public void set(int i, int j, double distance) {
+        if(i==j) {
+            throw new IllegalArgumentException("The distance of an object from itself is always 0.");
+        }
+        long index = index(i, j);
+        if(values!=null) {
+            values[(int)index] = distance;
+        }
+        else {
+            segments[(int)(index>>>SEGMENT_SHIFT)].put((int)(index&SEGMENT_MASK), distance);
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        if(file!=null) {
+            try {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+    
+    /**
+     * Deletes the file of a matrix which failed to be mapped. Any error is
+     * attached to the original exception.
+     * 
+     * @param cause 
+     */
+    private void deleteFile(Exception cause) {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+    
+    private long index(int i, int j) {
+        if(i>j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        if(i<0 || j>=n) {
+            throw new IndexOutOfBoundsException("Invalid pair of objects (" + i + ", " + j + ").");
+        }
+        return (long)i*n - (long)i*(i+1)/2 + (j-i-1);
+    }
+    
+}
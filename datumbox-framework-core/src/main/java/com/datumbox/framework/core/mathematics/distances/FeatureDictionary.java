@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FeatureDictionary interns the feature names of the data to consecutive 
+ * integer ids, which are used as the indices of the SparseVectors. It is safe
+ * to use it from multiple threads.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class FeatureDictionary {
+    
+    private final Map<Object, Integer> featureIds = new ConcurrentHashMap<>();
+    
+    private final List<Object> features = new ArrayList<>();
+    
+    /**
+     * Returns the id of the feature, adding it in the dictionary if it does 
+     * not exist.
+     * 
+     * @param feature
+     * @return 
+     */
+    public int intern(Object feature) {
+        Integer id = featureIds.get(feature);
+        if(id==null) {
+            synchronized(features) {
+                id = featureIds.get(feature);
+                if(id==null) {
+                    id = features.size();
+                    features.add(feature);
+                    featureIds.put(feature, id);
+                }
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * Returns the id of the feature or null if it does not exist in the dictionary.
+     * 
+     * @param feature
+     * @return 
+     */
+    public Integer getId(Object feature) {
+        return featureIds.get(feature);
+    }
+    
+    /**
+     * Returns the feature with the provided id.
+     * 
+     * @param id
+     * @return 
+     */
+    public Object getFeature(int id) {
+        synchronized(features) {
+            return features.get(id);
+        }
+    }
+    
+    /**
+     * Returns the number of features in the dictionary.
+     * 
+     * @return 
+     */
+    public int size() {
+        return featureIds.size();
+    }
+    
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+/**
+ * The SparseDistance class provides distance kernels for SparseVectors. The 
+ * pairwise kernels iterate the non-zero values of the two vectors with a 
+ * merge-join on their sorted indices. The batched kernels estimate the 
+ * distances of one vector from many others by copying it once on a dense 
+ * array and by using the cached norms of the vectors, so every distance costs 
+ * only a pass over the non-zero values of the other vector.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SparseDistance {
+    
+    /**
+     * Estimates the dot product of two SparseVectors.
+     * 
+     * @param v1
+     * @param v2
+     * @return 
+     */
+    public static double dot(SparseVector v1, SparseVector v2) {
+        int n1 = v1.size();
+        int n2 = v2.size();
+        double sum = 0.0;
+        int i = 0, j = 0;
+        while(i<n1 && j<n2) {
+            int index1 = v1.indexAt(i);
+            int index2 = v2.indexAt(j);
+            if(index1==index2) {
+                sum += v1.valueAt(i++)*v2.valueAt(j++);
+            }
+            else if(index1<index2) {
+                ++i;
+            }
+            else {
+                ++j;
+            }
+        }
+        return sum;
+    }
+    
+    /**
+     * Estimates the squared euclidean distance of two SparseVectors.
+     * 
+     * @param v1
+     * @param v2
+     * @return 
+     */
+    public static double squaredEuclidean(SparseVector v1, SparseVector v2) {
+        return squaredEuclideanWeighted(v1, v2, null);
+    }
+    
+    /**
+     * Estimates the euclidean distance of two SparseVectors.
+     * 
+     * @param v1
+     * @param v2
+     * @return 
+     */
+    public static double euclidean(SparseVector v1, SparseVector v2) {
+        return Math.sqrt(squaredEuclideanWeighted(v1, v2, null));
+    }
+    
+    /**
+     * Estimates the weighted euclidean distance of two SparseVectors. The 
+     * features without weight are ignored.
+     * 
+     * @param v1
+     * @param v2
+     * @param weights the weight of every feature index
+     * @return 
+     */
+    public static double euclideanWeighted(SparseVector v1, SparseVector v2, double[] weights) {
+        return Math.sqrt(squaredEuclideanWeighted(v1, v2, weights));
+    }
+    
+    /**
+     * Estimates the manhattan distance of two SparseVectors.
+     * 
+     * @param v1
+     * @param v2
+     * @return 
+     */
+    public static double manhattan(SparseVector v1, SparseVector v2) {
+        return manhattanWeighted(v1, v2, null);
+    }
+    
+    /**
+     * Estimates the weighted manhattan distance of two SparseVectors. The 
+     * features without weight are ignored.
+     * 
+     * @param v1
+     * @param v2
+     * @param weights the weight of every feature index or null for equal weights
+     * @return 
+     */
+    public static double manhattanWeighted(SparseVector v1, SparseVector v2, double[] weights) {
+        int n1 = v1.size();
+        int n2 = v2.size();
+        double distance = 0.0;
+        int i = 0, j = 0;
+        while(i<n1 || j<n2) {
+            int index1 = (i<n1)?v1.indexAt(i):Integer.MAX_VALUE;
+            int index2 = (j<n2)?v2.indexAt(j):Integer.MAX_VALUE;
+            int index;
+            double diff;
+            if(index1==index2) {
+                index = index1;
+                diff = v1.valueAt(i++)-v2.valueAt(j++);
+            }
+            else if(index1<index2) {
+                index = index1;
+                diff = v1.valueAt(i++);
+            }
+            else {
+                index = index2;
+                diff = v2.valueAt(j++);
+            }
+            distance += Math.abs(diff)*weight(weights, index);
+        }
+        return distance;
+    }
+    
+    /**
+     * Estimates the maximum distance of two SparseVectors.
+     * 
+     * @param v1
+     * @param v2
+     * @return 
+     */
+    public static double maximum(SparseVector v1, SparseVector v2) {
+        int n1 = v1.size();
+        int n2 = v2.size();
+        double distance = 0.0;
+        int i = 0, j = 0;
+        while(i<n1 || j<n2) {
+            int index1 = (i<n1)?v1.indexAt(i):Integer.MAX_VALUE;
+            int index2 = (j<n2)?v2.indexAt(j):Integer.MAX_VALUE;
+            double diff;
+            if(index1==index2) {
+                diff = v1.valueAt(i++)-v2.valueAt(j++);
+            }
+            else if(index1<index2) {
+                diff = v1.valueAt(i++);
+            }
+            else {
+                diff = v2.valueAt(j++);
+            }
+            distance = Math.max(distance, Math.abs(diff));
+        }
+        return distance;
+    }
+    
+    /**
+     * Estimates the euclidean distances of a SparseVector from many others. It 
+     * uses the cached norms (|v-u|^2 = |v|^2 + |u|^2 - 2 v.u) so the differences 
+     * of very close vectors are subject to cancellation errors.
+     * 
+     * @param v
+     * @param others
+     * @param distances the array on which the distances are written
+     */
+    public static void euclidean(SparseVector v, SparseVector[] others, double[] distances) {
+        squaredEuclidean(v, others, distances);
+        for(int k=0;k<others.length;k++) {
+            distances[k] = Math.sqrt(distances[k]);
+        }
+    }
+    
+    /**
+     * Estimates the squared euclidean distances of a SparseVector from many 
+     * others, using the cached norms.
+     * 
+     * @param v
+     * @param others
+     * @param distances the array on which the distances are written
+     */
+    public static void squaredEuclidean(SparseVector v, SparseVector[] others, double[] distances) {
+        double[] dense = new double[v.maxIndex()+1];
+        v.scatter(dense);
+        double squaredNorm = v.getSquaredNorm();
+        for(int k=0;k<others.length;k++) {
+            SparseVector u = others[k];
+            double dot = 0.0;
+            for(int j=0;j<u.size();j++) {
+                int index = u.indexAt(j);
+                if(index<dense.length) {
+                    dot += dense[index]*u.valueAt(j);
+                }
+            }
+            distances[k] = Math.max(squaredNorm + u.getSquaredNorm() - 2.0*dot, 0.0);
+        }
+    }
+    
+    /**
+     * Estimates the manhattan distances of a SparseVector from many others. It 
+     * starts from the cached L1 norm of the vector and corrects it on the 
+     * non-zero values of every other vector.
+     * 
+     * @param v
+     * @param others
+     * @param distances the array on which the distances are written
+     */
+    public static void manhattan(SparseVector v, SparseVector[] others, double[] distances) {
+        double[] dense = new double[v.maxIndex()+1];
+        v.scatter(dense);
+        double l1Norm = v.getL1Norm();
+        for(int k=0;k<others.length;k++) {
+            SparseVector u = others[k];
+            double distance = l1Norm;
+            for(int j=0;j<u.size();j++) {
+                int index = u.indexAt(j);
+                double value = (index<dense.length)?dense[index]:0.0;
+                distance += Math.abs(value-u.valueAt(j)) - Math.abs(value);
+            }
+            distances[k] = Math.max(distance, 0.0);
+        }
+    }
+    
+    /**
+     * Estimates the maximum distances of a SparseVector from many others.
+     * 
+     * @param v
+     * @param others
+     * @param distances the array on which the distances are written
+     */
+    public static void maximum(SparseVector v, SparseVector[] others, double[] distances) {
+        for(int k=0;k<others.length;k++) {
+            distances[k] = maximum(v, others[k]);
+        }
+    }
+    
+    private static double squaredEuclideanWeighted(SparseVector v1, SparseVector v2, double[] weights) {
+        int n1 = v1.size();
+        int n2 = v2.size();
+        double distance = 0.0;
+        int i = 0, j = 0;
+        while(i<n1 || j<n2) {
+            int index1 = (i<n1)?v1.indexAt(i):Integer.MAX_VALUE;
+            int index2 = (j<n2)?v2.indexAt(j):Integer.MAX_VALUE;
+            int index;
+            double diff;
+            if(index1==index2) {
+                index = index1;
+                diff = v1.valueAt(i++)-v2.valueAt(j++);
+            }
+            else if(index1<index2) {
+                index = index1;
+                diff = v1.valueAt(i++);
+            }
+            else {
+                index = index2;
+                diff = v2.valueAt(j++);
+            }
+            distance += diff*diff*weight(weights, index);
+        }
+        return distance;
+    }
+    
+    private static double weight(double[] weights, int index) {
+        if(weights==null) {
+            return 1.0;
+        }
+        return (index<weights.length)?weights[index]:0.0;
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.dataobjects.TypeInference;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable sparse vector which stores the non-zero values in two parallel 
+ * arrays, sorted by their feature indices. The L1 and squared L2 norms are 
+ * estimated once on construction and they are used by the kernels of 
+ * SparseDistance.
+ * 
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public final class SparseVector {
+    
+    private final int[] indices;
+    
+    private final double[] values;
+    
+    private final double l1Norm;
+    
+    private final double squaredNorm;
+    
+    /**
+     * Public constructor of the SparseVector. The arrays are used directly, so 
+     * they should not be modified after the construction.
+     * 
+     * @param indices the feature indices, sorted in increasing order
+     * @param values the values of the features
+     */
+    public SparseVector(int[] indices, double[] values) {
+        if(indices.length!=values.length) {
+            throw new IllegalArgumentException("The indices and the values should have the same length.");
+        }
+        
+        double l1 = 0.0;
+        double l2 = 0.0;
+        for(int i=0;i<indices.length;i++) {
+            if(i>0 && indices[i]<=indices[i-1]) {
+                throw new IllegalArgumentException("The indices should be unique and sorted in increasing order.");
+            }
+            l1 += Math.abs(values[i]);
+            l2 += values[i]*values[i];
+        }
+        
+        this.indices = indices;
+        this.values = values;
+        this.l1Norm = l1;
+        this.squaredNorm = l2;
+    }
+    
+    /**
+     * Encodes the numerical and boolean values of the Associative Array. The 
+     * features are interned in the dictionary and the zero and null values are 
+     * skipped. Unlike Distance, the ordinal values are used as numbers.
+     * 
+     * @param xData
+     * @param dictionary
+     * @return 
+     */
+    public static SparseVector of(AssociativeArray xData, FeatureDictionary dictionary) {
+        return of(xData, dictionary, null);
+    }
+    
+    /**
+     * Encodes the numerical and boolean values of the Associative Array after
+     * multiplying them with the multipliers of their features. Only the features
+     * of the dictionary which have a multiplier are used, so the dictionary is 
+     * not modified. Scaling the values with the square roots of the weights 
+     * makes the euclidean distance of the vectors equal to the weighted 
+     * euclidean distance of the data.
+     * 
+     * @param xData
+     * @param dictionary
+     * @param multipliers the multiplier of every feature id or null to intern all the features
+     * @return 
+     */
+    public static SparseVector of(AssociativeArray xData, FeatureDictionary dictionary, double[] multipliers) {
+        //the id of each value is packed with its position, to sort them together
+        long[] positions = new long[xData.size()];
+        double[] rawValues = new double[xData.size()];
+        int n = 0;
+        boolean sorted = true;
+        for(Map.Entry<Object, Object> e : xData.entrySet()) {
+            Double value = TypeInference.toDouble(e.getValue());
+            if(value==null || value==0.0) {
+                continue;
+            }
+            
+            int id;
+            if(multipliers==null) {
+                id = dictionary.intern(e.getKey());
+            }
+            else {
+                Integer featureId = dictionary.getId(e.getKey());
+                if(featureId==null || featureId>=multipliers.length) {
+                    continue;
+                }
+                id = featureId;
+                value *= multipliers[id];
+                if(value==0.0) {
+                    continue;
+                }
+            }
+            
+            positions[n] = ((long)id<<32) | n;
+            rawValues[n] = value;
+            if(n>0 && (int)(positions[n-1]>>>32)>id) {
+                sorted = false;
+            }
+            ++n;
+        }
+        
+        if(!sorted) {
+            Arrays.sort(positions, 0, n);
+        }
+        
+        int[] indices = new int[n];
+        double[] values = new double[n];
+        for(int i=0;i<n;i++) {
+            indices[i] = (int)(positions[i]>>>32);
+            values[i] = rawValues[(int)positions[i]];
+        }
+        return new SparseVector(indices, values);
+    }
+    
+    /**
+     * Returns the number of non-zero values.
+     * 
+     * @return 
+     */
+    public int size() {
+        return indices.length;
+    }
+    
+    /**
+     * Returns the feature index of the i-th non-zero value.
+     * 
+     * @param i
+     * @return 
+     */
+    public int indexAt(int i) {
+        return indices[i];
+    }
+    
+    /**
+     * Returns the i-th non-zero value.
+     * 
+     * @param i
+     * @return 
+     */
+    public double valueAt(int i) {
+        return values[i];
+    }
+    
+    /**
+     * Returns the value of the feature index, using binary search.
+     * 
+     * @param index
+     * @return 
+     */
+    public double get(int index) {
+        int i = Arrays.binarySearch(indices, index);
+        return (i>=0)?values[i]:0.0;
+    }
+    
+    /**
+     * Returns the largest feature index or -1 if the vector is empty.
+     * 
+     * @return 
+     */
+    public int maxIndex() {
+        return (indices.length>0)?indices[indices.length-1]:-1;
+    }
+    
+    /**
+     * Returns the cached L1 norm of the vector.
+     * 
+     * @return 
+     */
+    public double getL1Norm() {
+        return l1Norm;
+    }
+    
+    /**
+     * Returns the cached squared L2 norm of the vector.
+     * 
+     * @return 
+     */
+    public double getSquaredNorm() {
+        return squaredNorm;
+    }
+    
+    /**
+     * Returns the L2 norm of the vector.
+     * 
+     * @return 
+     */
+    public double getNorm() {
+        return Math.sqrt(squaredNorm);
+    }
+    
+    /**
+     * Copies the values of the vector on a dense array.
+     * 
+     * @param target 
+     */
+    void scatter(double[] target) {
+        for(int i=0;i<indices.length;i++) {
+            target[indices[i]] = values[i];
+        }
+    }
+    
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import java.io.Serializable;
+
+/**
+ * Base class for all the optimizers. The optimizer objects only hold their
+ * configuration; all the state of a run (moments, curvature pairs etc) is
+ * created inside minimize() so a single object can be stored in the
+ * TrainingParameters of an algorithm and reused.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public abstract class AbstractOptimizer implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private double tolerance = 1e-6;
+
+    /**
+     * Getter for the convergence tolerance. The optimization stops when the
+     * relative change of the loss between two iterations drops below it.
+     *
+     * @return
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Setter for the convergence tolerance. The optimization stops when the
+     * relative change of the loss between two iterations drops below it.
+     *
+     * @param tolerance
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Minimizes the objective function starting from the provided weights,
+     * which are updated in place. The maxIterations is the maximum number of
+     * passes over the examples. The method returns the final loss.
+     *
+     * @param objective
+     * @param weights
+     * @param maxIterations
+     * @return
+     */
+    public abstract double minimize(ObjectiveFunction objective, double[] weights, int maxIterations);
+
+    /**
+     * Checks whether the change of the loss is small enough to stop the optimization.
+     *
+     * @param previousLoss
+     * @param loss
+     * @return
+     */
+    protected boolean hasConverged(double previousLoss, double loss) {
+        if(Double.isInfinite(previousLoss) || Double.isNaN(loss)) {
+            return false;
+        }
+        return Math.abs(previousLoss - loss) <= tolerance*Math.max(1.0, Math.abs(previousLoss));
+    }
+
+    /**
+     * Returns an array with the positions of all the examples.
+     *
+     * @param objective
+     * @return
+     */
+    protected static int[] allExamples(ObjectiveFunction objective) {
+        int n = objective.getNumberOfExamples();
+        int[] examples = new int[n];
+        for(int i=0;i<n;i++) {
+            examples[i] = i;
+        }
+        return examples;
+    }
+
+}
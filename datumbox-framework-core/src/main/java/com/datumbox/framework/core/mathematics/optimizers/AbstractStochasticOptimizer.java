@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.common.utilities.RandomGenerator;
+
+import java.util.Random;
+
+/**
+ * Base class for the first order optimizers which update the weights after
+ * every mini-batch of examples. A batch size of 1 gives the Stochastic Gradient
+ * Descent and a non-positive batch size the full-batch Gradient Descent.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public abstract class AbstractStochasticOptimizer extends AbstractOptimizer {
+    private static final long serialVersionUID = 1L;
+
+    private double learningRate;
+
+    private int batchSize = 32;
+
+    private boolean shuffle = true;
+
+    /**
+     * Updates the weights using the gradient of a batch. Only the touched
+     * positions of the gradient are updated. The objects hold the state of a
+     * single optimization run.
+     */
+    protected interface Updater {
+
+        /**
+         * Updates the weights in place.
+         *
+         * @param weights
+         * @param gradient
+         */
+        public void update(double[] weights, SparseGradient gradient);
+    }
+
+    /**
+     * Protected constructor which receives the default learning rate of the optimizer.
+     *
+     * @param learningRate
+     */
+    protected AbstractStochasticOptimizer(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * Getter for the learning rate.
+     *
+     * @return
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Setter for the learning rate.
+     *
+     * @param learningRate
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * Getter for the number of examples per update. Non-positive values use
+     * all the examples in every update.
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Setter for the number of examples per update. Non-positive values use
+     * all the examples in every update.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Getter for whether the examples are shuffled before every pass.
+     *
+     * @return
+     */
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    /**
+     * Setter for whether the examples are shuffled before every pass.
+     *
+     * @param shuffle
+     */
+    public void setShuffle(boolean shuffle) {
+        this.shuffle = shuffle;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double minimize(ObjectiveFunction objective, double[] weights, int maxIterations) {
+        int n = objective.getNumberOfExamples();
+        int[] examples = allExamples(objective);
+        int size = batchSize > 0 ? Math.min(batchSize, n) : n;
+
+        Updater updater = newUpdater(objective.getDimension());
+        SparseGradient gradient = new SparseGradient(objective.getDimension());
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+
+        double previousLoss = Double.POSITIVE_INFINITY;
+        double loss = Double.POSITIVE_INFINITY;
+        for(int iteration=0;iteration<maxIterations && n>0;iteration++) {
+            if(shuffle) {
+                for(int i=n-1;i>0;i--) {
+                    int j = rnd.nextInt(i+1);
+                    int tmp = examples[i];
+                    examples[i] = examples[j];
+                    examples[j] = tmp;
+                }
+            }
+
+            //the loss of every batch is measured before its update, which gives an estimate of the loss of the pass for free
+            loss = 0.0;
+            for(int from=0;from<n;from+=size) {
+                int to = Math.min(n, from+size);
+                loss += objective.evaluate(weights, examples, from, to, gradient)*(to-from);
+                updater.update(weights, gradient);
+            }
+            loss /= n;
+
+            if(hasConverged(previousLoss, loss)) {
+                break;
+            }
+            previousLoss = loss;
+        }
+        return loss;
+    }
+
+    /**
+     * Initializes the state of a new optimization run.
+     *
+     * @param dimension
+     * @return
+     */
+    protected abstract Updater newUpdater(int dimension);
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * AdaGrad optimizer which adapts the learning rate of every weight using the
+ * sum of its squared gradients. It works well with sparse features.
+ *
+ * References:
+ * http://www.jmlr.org/papers/volume12/duchi11a/duchi11a.pdf
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class AdaGrad extends AbstractStochasticOptimizer {
+    private static final long serialVersionUID = 1L;
+
+    private double epsilon = 1e-8;
+
+    /**
+     * Public constructor.
+     */
+    public AdaGrad() {
+        super(0.1);
+    }
+
+    /**
+     * Getter for the epsilon which is added to the denominator for numerical stability.
+     *
+     * @return
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Setter for the epsilon which is added to the denominator for numerical stability.
+     *
+     * @param epsilon
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Updater newUpdater(int dimension) {
+        double learningRate = getLearningRate();
+        double[] sumOfSquares = new double[dimension];
+        return (weights, gradient) -> {
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                double g = gradient.get(i);
+                if(g != 0.0) {
+                    sumOfSquares[i] += g*g;
+                    weights[i] -= learningRate*g/(Math.sqrt(sumOfSquares[i]) + epsilon);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Adam optimizer which uses bias-corrected estimates of the first and second
+ * moments of the gradients to adapt the learning rate of every weight. The
+ * moments of a weight are updated only in the batches that touch it (lazy
+ * Adam), which matters only for the objectives with sparse gradients.
+ *
+ * References:
+ * https://arxiv.org/abs/1412.6980
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class Adam extends AbstractStochasticOptimizer {
+    private static final long serialVersionUID = 1L;
+
+    private double beta1 = 0.9;
+
+    private double beta2 = 0.999;
+
+    private double epsilon = 1e-8;
+
+    /**
+     * Public constructor.
+     */
+    public Adam() {
+        super(0.01);
+    }
+
+    /**
+     * Getter for the exponential decay rate of the first moment.
+     *
+     * @return
+     */
+    public double getBeta1() {
+        return beta1;
+    }
+
+    /**
+     * Setter for the exponential decay rate of the first moment.
+     *
+     * @param beta1
+     */
+    public void setBeta1(double beta1) {
+        this.beta1 = beta1;
+    }
+
+    /**
+     * Getter for the exponential decay rate of the second moment.
+     *
+     * @return
+     */
+    public double getBeta2() {
+        return beta2;
+    }
+
+    /**
+     * Setter for the exponential decay rate of the second moment.
+     *
+     * @param beta2
+     */
+    public void setBeta2(double beta2) {
+        this.beta2 = beta2;
+    }
+
+    /**
+     * Getter for the epsilon which is added to the denominator for numerical stability.
+     *
+     * @return
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Setter for the epsilon which is added to the denominator for numerical stability.
+     *
+     * @param epsilon
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Updater newUpdater(int dimension) {
+        double learningRate = getLearningRate();
+        double[] m = new double[dimension];
+        double[] v = new double[dimension];
+        double[] beta1Power = {1.0};
+        double[] beta2Power = {1.0};
+        return (weights, gradient) -> {
+            beta1Power[0] *= beta1;
+            beta2Power[0] *= beta2;
+            double correction1 = 1.0 - beta1Power[0];
+            double correction2 = 1.0 - beta2Power[0];
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                double g = gradient.get(i);
+                m[i] = beta1*m[i] + (1.0-beta1)*g;
+                v[i] = beta2*v[i] + (1.0-beta2)*g*g;
+                weights[i] -= learningRate*(m[i]/correction1)/(Math.sqrt(v[i]/correction2) + epsilon);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Limited-memory BFGS optimizer. It evaluates the full batch in every iteration,
+ * approximates the inverse Hessian with the last curvature pairs using the
+ * two-loop recursion and picks the step with a backtracking line search.
+ *
+ * References:
+ * https://en.wikipedia.org/wiki/Limited-memory_BFGS
+ * Nocedal J., Wright S., Numerical Optimization, Algorithms 7.4 and 7.5
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class LBFGS extends AbstractOptimizer {
+    private static final long serialVersionUID = 1L;
+
+    private static final double ARMIJO_C1 = 1e-4;
+
+    private static final int MAX_LINE_SEARCH_STEPS = 20;
+
+    private int memory = 10;
+
+    /**
+     * Getter for the number of curvature pairs that are kept.
+     *
+     * @return
+     */
+    public int getMemory() {
+        return memory;
+    }
+
+    /**
+     * Setter for the number of curvature pairs that are kept.
+     *
+     * @param memory
+     */
+    public void setMemory(int memory) {
+        if(memory <= 0) {
+            throw new IllegalArgumentException("The memory must be positive.");
+        }
+        this.memory = memory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double minimize(ObjectiveFunction objective, double[] weights, int maxIterations) {
+        int d = objective.getDimension();
+        int n = objective.getNumberOfExamples();
+        int[] examples = allExamples(objective);
+
+        double[][] s = new double[memory][d];
+        double[][] y = new double[memory][d];
+        double[] rho = new double[memory];
+        double[] alpha = new double[memory];
+        int stored = 0;
+        int newest = -1;
+
+        double[] gradient = new double[d];
+        double[] newGradient = new double[d];
+        double[] direction = new double[d];
+        double[] newWeights = new double[d];
+        double[] sNew = new double[d];
+        double[] yNew = new double[d];
+
+        double loss = objective.evaluate(weights, examples, 0, n, gradient);
+        for(int iteration=0;iteration<maxIterations;iteration++) {
+            //two-loop recursion: direction = -H*gradient
+            for(int i=0;i<d;i++) {
+                direction[i] = -gradient[i];
+            }
+            for(int k=0;k<stored;k++) {
+                int j = Math.floorMod(newest-k, memory);
+                alpha[j] = rho[j]*dot(s[j], direction);
+                axpy(-alpha[j], y[j], direction);
+            }
+            if(stored > 0) {
+                double gamma = dot(s[newest], y[newest])/dot(y[newest], y[newest]);
+                for(int i=0;i<d;i++) {
+                    direction[i] *= gamma;
+                }
+            }
+            for(int k=stored-1;k>=0;k--) {
+                int j = Math.floorMod(newest-k, memory);
+                double beta = rho[j]*dot(y[j], direction);
+                axpy(alpha[j]-beta, s[j], direction);
+            }
+
+            double slope = dot(gradient, direction);
+            if(!(slope < 0.0)) {
+                //not a descent direction; drop the history and fall back to steepest descent
+                stored = 0;
+                for(int i=0;i<d;i++) {
+                    direction[i] = -gradient[i];
+                }
+                slope = dot(gradient, direction);
+                if(slope == 0.0) {
+                    break;
+                }
+            }
+
+            double step = stored > 0 ? 1.0 : Math.min(1.0, 1.0/Math.sqrt(-slope));
+            double newLoss = Double.NaN;
+            boolean accepted = false;
+            for(int t=0;t<MAX_LINE_SEARCH_STEPS;t++) {
+                for(int i=0;i<d;i++) {
+                    newWeights[i] = weights[i] + step*direction[i];
+                }
+                newLoss = objective.evaluate(newWeights, examples, 0, n, newGradient);
+                if(newLoss <= loss + ARMIJO_C1*step*slope) {
+                    accepted = true;
+                    break;
+                }
+                step /= 2.0;
+            }
+            if(!accepted) {
+                break;
+            }
+
+            double sy = 0.0;
+            for(int i=0;i<d;i++) {
+                sNew[i] = newWeights[i] - weights[i];
+                yNew[i] = newGradient[i] - gradient[i];
+                sy += sNew[i]*yNew[i];
+            }
+            if(sy > 0.0) {
+                //only pairs with positive curvature keep the approximation positive definite
+                //the rejected pairs must not overwrite the oldest stored pair
+                int next = (newest+1)%memory;
+                double[] tmp = s[next];
+                s[next] = sNew;
+                sNew = tmp;
+                tmp = y[next];
+                y[next] = yNew;
+                yNew = tmp;
+                rho[next] = 1.0/sy;
+                newest = next;
+                stored = Math.min(stored+1, memory);
+            }
+
+            System.arraycopy(newWeights, 0, weights, 0, d);
+            System.arraycopy(newGradient, 0, gradient, 0, d);
+            double previousLoss = loss;
+            loss = newLoss;
+
+            if(hasConverged(previousLoss, loss)) {
+                break;
+            }
+        }
+        return loss;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for(int i=0;i<a.length;i++) {
+            sum += a[i]*b[i];
+        }
+        return sum;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for(int i=0;i<x.length;i++) {
+            y[i] += a*x[i];
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Differentiable objective which is minimized by the optimizers. The objective
+ * is the average loss of a set of examples (usually the training records) plus
+ * an optional regularization penalty. The examples are identified by their
+ * position in [0, numberOfExamples) and they can be evaluated in batches.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public interface ObjectiveFunction {
+
+    /**
+     * Returns the number of examples of the objective.
+     *
+     * @return
+     */
+    public int getNumberOfExamples();
+
+    /**
+     * Returns the number of weights of the objective.
+     *
+     * @return
+     */
+    public int getDimension();
+
+    /**
+     * Estimates the average loss and its gradient on a batch of examples. The
+     * batch consists of the examples whose positions are stored in
+     * examples[from] to examples[to-1]. The gradient array is overwritten.
+     *
+     * @param weights
+     * @param examples
+     * @param from
+     * @param to
+     * @param gradient
+     * @return
+     */
+    public double evaluate(double[] weights, int[] examples, int from, int to, double[] gradient);
+
+    /**
+     * Estimates the average loss and its gradient on a batch of examples, like
+     * the dense evaluate(), but stores the gradient in a SparseGradient which
+     * is cleared first. The stochastic optimizers update only the touched
+     * positions, so the objectives with sparse features should override it to
+     * touch only the weights of the features that appear in the batch. The
+     * default implementation evaluates the dense gradient and touches all
+     * the positions.
+     *
+     * @param weights
+     * @param examples
+     * @param from
+     * @param to
+     * @param gradient
+     * @return
+     */
+    default public double evaluate(double[] weights, int[] examples, int from, int to, SparseGradient gradient) {
+        double loss = evaluate(weights, examples, from, to, gradient.clearDense());
+        gradient.touchAll();
+        return loss;
+    }
+
+}
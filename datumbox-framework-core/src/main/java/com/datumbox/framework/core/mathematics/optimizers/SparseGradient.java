@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import java.util.Arrays;
+
+/**
+ * Gradient which keeps track of the positions that were set during the
+ * evaluation of a batch. The values are stored in a dense array which is
+ * allocated once per optimization run, while clearing and iterating the
+ * gradient costs only as much as the number of touched positions. This allows
+ * the objectives with sparse features to update only the weights of the
+ * features that appear in the batch. The objects are not thread-safe.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SparseGradient {
+
+    private final double[] values;
+
+    private final int[] indexes;
+
+    private final boolean[] touched;
+
+    private int size = 0;
+
+    /**
+     * Public constructor.
+     *
+     * @param dimension
+     */
+    public SparseGradient(int dimension) {
+        if(dimension < 0) {
+            throw new IllegalArgumentException("The dimension must be non-negative.");
+        }
+        values = new double[dimension];
+        indexes = new int[dimension];
+        touched = new boolean[dimension];
+    }
+
+    /**
+     * Getter for the dimension of the gradient.
+     *
+     * @return
+     */
+    public int getDimension() {
+        return values.length;
+    }
+
+    /**
+     * Adds the delta to the provided position and marks it as touched.
+     *
+     * @param index
+     * @param delta
+     */
+    public void add(int index, double delta) {
+        if(!touched[index]) {
+            touched[index] = true;
+            indexes[size++] = index;
+        }
+        values[index] += delta;
+    }
+
+    /**
+     * Returns the value of the provided position.
+     *
+     * @param index
+     * @return
+     */
+    public double get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the number of touched positions.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the k-th touched position, in the order they were touched.
+     *
+     * @param k
+     * @return
+     */
+    public int getIndex(int k) {
+        if(k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index " + k + " is out of bounds.");
+        }
+        return indexes[k];
+    }
+
+    /**
+     * Resets the touched positions to zero.
+     */
+    public void clear() {
+        if(size == values.length) {
+            Arrays.fill(values, 0.0);
+            Arrays.fill(touched, false);
+        }
+        else {
+            for(int k=0;k<size;k++) {
+                values[indexes[k]] = 0.0;
+                touched[indexes[k]] = false;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Clears the gradient and returns its backing array so that it can be
+     * written by a dense evaluation. It must be followed by touchAll().
+     *
+     * @return
+     */
+    double[] clearDense() {
+        clear();
+        return values;
+    }
+
+    /**
+     * Marks all the positions as touched, in increasing order.
+     */
+    void touchAll() {
+        for(int i=0;i<values.length;i++) {
+            indexes[i] = i;
+            touched[i] = true;
+        }
+        size = values.length;
+    }
+
+}
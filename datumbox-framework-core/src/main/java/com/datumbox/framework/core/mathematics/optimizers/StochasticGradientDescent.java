@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Mini-batch Stochastic Gradient Descent with optional momentum. Setting the
+ * batch size to 1 gives the classic SGD. The velocity of a weight is updated
+ * only in the batches that touch it.
+ *
+ * References:
+ * http://cs229.stanford.edu/notes/cs229-notes1.pdf
+ * http://ruder.io/optimizing-gradient-descent/
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class StochasticGradientDescent extends AbstractStochasticOptimizer {
+    private static final long serialVersionUID = 1L;
+
+    private double momentum = 0.0;
+
+    /**
+     * Public constructor.
+     */
+    public StochasticGradientDescent() {
+        super(0.1);
+    }
+
+    /**
+     * Getter for the momentum.
+     *
+     * @return
+     */
+    public double getMomentum() {
+        return momentum;
+    }
+
+    /**
+     * Setter for the momentum. A zero value disables it.
+     *
+     * @param momentum
+     */
+    public void setMomentum(double momentum) {
+        this.momentum = momentum;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Updater newUpdater(int dimension) {
+        double learningRate = getLearningRate();
+        if(momentum == 0.0) {
+            return (weights, gradient) -> {
+                for(int k=0;k<gradient.size();k++) {
+                    int i = gradient.getIndex(k);
+                    weights[i] -= learningRate*gradient.get(i);
+                }
+            };
+        }
+
+        double[] velocity = new double[dimension];
+        return (weights, gradient) -> {
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                velocity[i] = momentum*velocity[i] + learningRate*gradient.get(i);
+                weights[i] -= velocity[i];
+            }
+        };
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package com.datumbox.framework.core.mathematics.regularization;
 
+import com.datumbox.framework.core.mathematics.optimizers.SparseGradient;
+
 import java.util.Map;
 
 /**
@@ -58,4 +60,66 @@ public class ElasticNetRegularizer {
         return penalty;
     }
 
+    /**
+     * Adds the gradient of the ElasticNet regularization to the gradient. Only
+     * the first length weights are regularized.
+     *
+     * @param l1
+     * @param l2
+     * @param weights
+     * @param length
+     * @param gradient
+     */
+    public static void updateGradient(double l1, double l2, double[] weights, int length, double[] gradient) {
+        L2Regularizer.updateGradient(l2, weights, length, gradient);
+        L1Regularizer.updateGradient(l1, weights, length, gradient);
+    }
+
+    /**
+     * Estimates the ElasticNet penalty of the first length weights.
+     *
+     * @param l1
+     * @param l2
+     * @param weights
+     * @param length
+     * @return
+     */
+    public static double estimatePenalty(double l1, double l2, double[] weights, int length) {
+        double penalty = 0.0;
+        penalty += L2Regularizer.estimatePenalty(l2, weights, length);
+        penalty += L1Regularizer.estimatePenalty(l1, weights, length);
+        return penalty;
+    }
+
+    /**
+     * Adds the gradient of the ElasticNet regularization to the touched
+     * positions of the sparse gradient.
+     *
+     * @param l1
+     * @param l2
+     * @param weights
+     * @param gradient
+     */
+    public static void updateGradient(double l1, double l2, double[] weights, SparseGradient gradient) {
+        L2Regularizer.updateGradient(l2, weights, gradient);
+        L1Regularizer.updateGradient(l1, weights, gradient);
+    }
+
+    /**
+     * Estimates the ElasticNet penalty of the weights at the touched positions
+     * of the sparse gradient.
+     *
+     * @param l1
+     * @param l2
+     * @param weights
+     * @param gradient
+     * @return
+     */
+    public static double estimatePenalty(double l1, double l2, double[] weights, SparseGradient gradient) {
+        double penalty = 0.0;
+        penalty += L2Regularizer.estimatePenalty(l2, weights, gradient);
+        penalty += L1Regularizer.estimatePenalty(l1, weights, gradient);
+        return penalty;
+    }
+
 }
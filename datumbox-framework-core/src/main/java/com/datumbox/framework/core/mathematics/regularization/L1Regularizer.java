@@ -15,6 +15,8 @@
  */
 package com.datumbox.framework.core.mathematics.regularization;
 
+import com.datumbox.framework.core.mathematics.optimizers.SparseGradient;
+
 import java.util.Map;
 
 /**
@@ -80,4 +82,80 @@ public class L1Regularizer {
         return penalty;
     }
 
+    /**
+     * Adds the (sub)gradient of the L1 regularization to the gradient. Only the
+     * first length weights are regularized.
+     *
+     * @param l1
+     * @param weights
+     * @param length
+     * @param gradient
+     */
+    public static void updateGradient(double l1, double[] weights, int length, double[] gradient) {
+        if(l1 > 0.0) {
+            for(int i=0;i<length;i++) {
+                gradient[i] += l1*Math.signum(weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Estimates the L1 penalty of the first length weights.
+     *
+     * @param l1
+     * @param weights
+     * @param length
+     * @return
+     */
+    public static double estimatePenalty(double l1, double[] weights, int length) {
+        double penalty = 0.0;
+        if(l1 > 0.0) {
+            double sumAbsWeights = 0.0;
+            for(int i=0;i<length;i++) {
+                sumAbsWeights += Math.abs(weights[i]);
+            }
+            penalty = l1*sumAbsWeights;
+        }
+        return penalty;
+    }
+
+    /**
+     * Adds the gradient of the L1 regularization to the touched positions of
+     * the sparse gradient. The rest of the weights are regularized lazily, in
+     * the batches which touch them.
+     *
+     * @param l1
+     * @param weights
+     * @param gradient
+     */
+    public static void updateGradient(double l1, double[] weights, SparseGradient gradient) {
+        if(l1 > 0.0) {
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                gradient.add(i, l1*Math.signum(weights[i]));
+            }
+        }
+    }
+
+    /**
+     * Estimates the L1 penalty of the weights at the touched positions of the
+     * sparse gradient.
+     *
+     * @param l1
+     * @param weights
+     * @param gradient
+     * @return
+     */
+    public static double estimatePenalty(double l1, double[] weights, SparseGradient gradient) {
+        double penalty = 0.0;
+        if(l1 > 0.0) {
+            double sumAbsWeights = 0.0;
+            for(int k=0;k<gradient.size();k++) {
+                sumAbsWeights += Math.abs(weights[gradient.getIndex(k)]);
+            }
+            penalty = l1*sumAbsWeights;
+        }
+        return penalty;
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package com.datumbox.framework.core.mathematics.regularization;
 
+import com.datumbox.framework.core.mathematics.optimizers.SparseGradient;
+
 import java.util.Map;
 
 /**
@@ -62,4 +64,81 @@ public class L2Regularizer {
         return penalty;
     }
 
+    /**
+     * Adds the gradient of the L2 regularization to the gradient. Only the
+     * first length weights are regularized.
+     *
+     * @param l2
+     * @param weights
+     * @param length
+     * @param gradient
+     */
+    public static void updateGradient(double l2, double[] weights, int length, double[] gradient) {
+        if(l2 > 0.0) {
+            for(int i=0;i<length;i++) {
+                gradient[i] += l2*weights[i];
+            }
+        }
+    }
+
+    /**
+     * Estimates the L2 penalty of the first length weights.
+     *
+     * @param l2
+     * @param weights
+     * @param length
+     * @return
+     */
+    public static double estimatePenalty(double l2, double[] weights, int length) {
+        double penalty = 0.0;
+        if(l2 > 0.0) {
+            double sumWeightsSquared = 0.0;
+            for(int i=0;i<length;i++) {
+                sumWeightsSquared += weights[i]*weights[i];
+            }
+            penalty = l2*sumWeightsSquared/2.0;
+        }
+        return penalty;
+    }
+
+    /**
+     * Adds the gradient of the L2 regularization to the touched positions of
+     * the sparse gradient. The rest of the weights are regularized lazily, in
+     * the batches which touch them.
+     *
+     * @param l2
+     * @param weights
+     * @param gradient
+     */
+    public static void updateGradient(double l2, double[] weights, SparseGradient gradient) {
+        if(l2 > 0.0) {
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                gradient.add(i, l2*weights[i]);
+            }
+        }
+    }
+
+    /**
+     * Estimates the L2 penalty of the weights at the touched positions of the
+     * sparse gradient.
+     *
+     * @param l2
+     * @param weights
+     * @param gradient
+     * @return
+     */
+    public static double estimatePenalty(double l2, double[] weights, SparseGradient gradient) {
+        double penalty = 0.0;
+        if(l2 > 0.0) {
+            double sumWeightsSquared = 0.0;
+            for(int k=0;k<gradient.size();k++) {
+                int i = gradient.getIndex(k);
+                sumWeightsSquared += weights[i]*weights[i];
+            }
+            penalty = l2*sumWeightsSquared/2.0;
+        }
+        return penalty;
+    }
+
 }
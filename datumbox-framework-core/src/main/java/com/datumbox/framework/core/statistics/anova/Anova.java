@@ -20,6 +20,7 @@ import com.datumbox.framework.common.dataobjects.FlatDataCollection;
 import com.datumbox.framework.common.dataobjects.TransposeDataCollection;
 import com.datumbox.framework.common.dataobjects.TransposeDataCollection2D;
 import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
+import com.datumbox.framework.core.statistics.descriptivestatistics.SummaryStatistics;
 import com.datumbox.framework.core.statistics.distributions.ContinuousDistributions;
 
 import java.util.HashMap;
@@ -164,12 +165,13 @@ public class Anova {
             nj.put(j, m); //get the number of observation for this category
             n+=m;
             
-            double sum = Descriptives.sum(flatDataCollection);
+            SummaryStatistics summary = SummaryStatistics.of(flatDataCollection); //sum and variance in a single pass
+            double sum = summary.getSum();
             
             Yjmean.put(j, sum/m);
             Ymean+=sum;
             
-            Yjvariance.put(j, Descriptives.variance(flatDataCollection, true));
+            Yjvariance.put(j, summary.getVariance(true));
         }
         
         if(n-k<=0) {
@@ -74,23 +74,7 @@ public class Descriptives {
      * @return
      */
     public static double mean(FlatDataCollection flatDataCollection) {
-        int n = 0;
-        double mean = 0.0;
-        Iterator<Double> it = flatDataCollection.iteratorDouble();
-        while(it.hasNext()) {
-            Double value = it.next();
-            if(value != null) {
-                ++n;
-                mean += value;
-            }
-        }
-
-        if(n==0) {
-            throw new IllegalArgumentException("No not null values where found in the collection.");
-        }
-        mean /= n;
-        
-        return mean;
+        return SummaryStatistics.of(flatDataCollection).getMean();
     }
     
     /**
@@ -100,8 +84,8 @@ public class Descriptives {
      * @return 
      */
     public static double meanSE(FlatDataCollection flatDataCollection) {
-        double std = std(flatDataCollection, true);
-        double meanSE = std/Math.sqrt(count(flatDataCollection));
+        SummaryStatistics summary = SummaryStatistics.of(flatDataCollection);
+        double meanSE = summary.getStd(true)/Math.sqrt(summary.getCount());
         
         return meanSE;
     }
@@ -282,35 +266,7 @@ public class Descriptives {
      * @return
      */
     public static double variance(FlatDataCollection flatDataCollection, boolean isSample) {
-        /* Uses the formal Variance = E(X^2) - mean^2 */
-        int n = 0;
-        double mean = 0.0;
-        double squaredMean = 0.0;
-        Iterator<Double> it = flatDataCollection.iteratorDouble();
-        while(it.hasNext()) {
-            Double v = it.next();
-            if(v != null) {
-                ++n;
-                mean+=v;
-                squaredMean+=v*v;
-            }
-        }
-
-        if(n<=1) {
-            throw new IllegalArgumentException("The provided collection must have more than 1 elements.");
-        }
-        
-        mean/=n;
-        squaredMean/=n;
-        
-        double variance = squaredMean - mean*mean;
-        
-        /* Unbiased for sample */
-        if(isSample) {
-            variance*=n/(n-1.0);
-        }
-        
-        return variance;
+        return SummaryStatistics.of(flatDataCollection).getVariance(isSample);
     }
     
     /**
@@ -321,10 +277,7 @@ public class Descriptives {
      * @return 
      */
     public static double std(FlatDataCollection flatDataCollection, boolean isSample) {
-        double variance = variance(flatDataCollection, isSample);
-        double std = Math.sqrt(variance);
-        
-        return std;
+        return SummaryStatistics.of(flatDataCollection).getStd(isSample);
     }
     
     /**
@@ -352,6 +305,9 @@ public class Descriptives {
      * @return 
      */
     public static double moment(FlatDataCollection flatDataCollection, int r) {
+        if(r>=1 && r<=4) {
+            return SummaryStatistics.of(flatDataCollection).getMoment(r);
+        }
         double mean = mean(flatDataCollection);
         return moment(flatDataCollection, r, mean);
     }
@@ -393,31 +349,7 @@ public class Descriptives {
      * @return
      */
     public static double kurtosis(FlatDataCollection flatDataCollection) {
-	    int n = count(flatDataCollection);
-        if(n<=3) {
-            throw new IllegalArgumentException("The provided collection must have more than 3 elements.");
-        }
-        
-        double mean = mean(flatDataCollection);
-        
-        double m4 = moment(flatDataCollection, 4, mean);
-        double m2 = moment(flatDataCollection, 2, mean);        
-
-        /*
-        g2=m4/(m2*m2);
-
-        kurtosis=((n-1.0)/((n-2.0)*(n-3.0)))*((n+1.0)*g2 +6.0);
-        //kurtosis=g2/(n-1.0)-3.0;
-        //kurtosis=g2;
-        */
-        
-        double s = (n/(n-1.0))*m2;
-        
-        double Mcapital4=n*m4;
-        double Mcapital2=n*m2;
-        double kurtosis=(n*(n+1.0)*Mcapital4-3*Mcapital2*Mcapital2*(n-1.0))/((n-1.0)*(n-2.0)*(n-3.0)*s*s);
-        
-        return kurtosis;
+        return SummaryStatistics.of(flatDataCollection).getKurtosis();
     }
     
     /**
@@ -445,19 +377,7 @@ public class Descriptives {
      * @return
      */
     public static double skewness(FlatDataCollection flatDataCollection) {
-	    int n = count(flatDataCollection);
-        if(n<=1) {
-            throw new IllegalArgumentException("The provided collection must have more than 1 elements.");
-        }
-        
-        double mean = mean(flatDataCollection);
-        
-        double m3 = moment(flatDataCollection, 3, mean);
-        double variance = variance(flatDataCollection, false);        
-    
-        double skewness=m3/Math.pow(variance, 3.0/2.0);
-        
-        return skewness;
+        return SummaryStatistics.of(flatDataCollection).getSkewness();
     }
     
     /**
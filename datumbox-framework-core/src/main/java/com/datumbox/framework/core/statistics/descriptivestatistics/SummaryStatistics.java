@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.statistics.descriptivestatistics;
+
+import com.datumbox.framework.common.dataobjects.FlatDataCollection;
+import com.datumbox.framework.common.dataobjects.TypeInference;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+
+/**
+ * Single pass accumulator of the count, the sum, the extreme values and the
+ * central moments (up to the 4th) of a list of values. The accumulators of
+ * different partitions of the data can be combined, so the statistics can be
+ * estimated with parallel streams or incrementally.
+ *
+ * References:
+ * https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Higher-order_statistics
+ * Pébay, P. (2008) Formulas for Robust, One-Pass Parallel Computation of Covariances and Arbitrary-Order Statistical Moments.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SummaryStatistics implements DoubleConsumer, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long n = 0L;
+    private double sum = 0.0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean = 0.0;
+    private double m2 = 0.0; //sum of the squared deviations from the mean
+    private double m3 = 0.0; //sum of the cubed deviations from the mean
+    private double m4 = 0.0; //sum of the 4th powers of the deviations from the mean
+
+    /**
+     * Estimates the statistics of the not-null values of the collection. The
+     * collection is processed sequentially; the callers are usually already
+     * parallelized on the configured pool (for example per column).
+     *
+     * @param flatDataCollection
+     * @return
+     */
+    public static SummaryStatistics of(FlatDataCollection flatDataCollection) {
+        return of(flatDataCollection.stream().filter(Objects::nonNull).mapToDouble(TypeInference::toDouble));
+    }
+
+    /**
+     * Estimates the statistics of the values of the stream.
+     *
+     * @param stream
+     * @return
+     */
+    public static SummaryStatistics of(DoubleStream stream) {
+        return stream.collect(SummaryStatistics::new, SummaryStatistics::accept, SummaryStatistics::combine);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void accept(double value) {
+        double n1 = n;
+        double n2 = ++n;
+        double delta = value - mean;
+        double deltaN = delta/n2;
+        double deltaN2 = deltaN*deltaN;
+        double term1 = delta*deltaN*n1;
+
+        mean += deltaN;
+        m4 += term1*deltaN2*(n2*n2 - 3.0*n2 + 3.0) + 6.0*deltaN2*m2 - 4.0*deltaN*m3;
+        m3 += term1*deltaN*(n2 - 2.0) - 3.0*deltaN*m2;
+        m2 += term1;
+
+        sum += value;
+        if(value < min) {
+            min = value;
+        }
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Combines the statistics of another accumulator with the ones of the
+     * current one.
+     *
+     * @param other
+     */
+    public void combine(SummaryStatistics other) {
+        if(other.n == 0L) {
+            return;
+        }
+        else if(n == 0L) {
+            n = other.n;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            return;
+        }
+
+        double na = n;
+        double nb = other.n;
+        double total = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta*delta;
+
+        double combinedM2 = m2 + other.m2 + delta2*na*nb/total;
+        double combinedM3 = m3 + other.m3 + delta2*delta*na*nb*(na - nb)/(total*total)
+                + 3.0*delta*(na*other.m2 - nb*m2)/total;
+        double combinedM4 = m4 + other.m4 + delta2*delta2*na*nb*(na*na - na*nb + nb*nb)/(total*total*total)
+                + 6.0*delta2*(na*na*other.m2 + nb*nb*m2)/(total*total)
+                + 4.0*delta*(na*other.m3 - nb*m3)/total;
+
+        n += other.n;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        mean += delta*nb/total;
+        m2 = combinedM2;
+        m3 = combinedM3;
+        m4 = combinedM4;
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return
+     */
+    public long getCount() {
+        return n;
+    }
+
+    /**
+     * Returns the sum of the values.
+     *
+     * @return
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the minimum value or positive infinity if no values were accumulated.
+     *
+     * @return
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value or negative infinity if no values were accumulated.
+     *
+     * @return
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the sum of the squared deviations from the mean.
+     *
+     * @return
+     */
+    public double getM2() {
+        return m2;
+    }
+
+    /**
+     * Returns the sum of the cubed deviations from the mean.
+     *
+     * @return
+     */
+    public double getM3() {
+        return m3;
+    }
+
+    /**
+     * Returns the sum of the 4th powers of the deviations from the mean.
+     *
+     * @return
+     */
+    public double getM4() {
+        return m4;
+    }
+
+    /**
+     * Calculates the simple mean.
+     *
+     * @return
+     */
+    public double getMean() {
+        if(n==0L) {
+            throw new IllegalArgumentException("No not null values where found in the collection.");
+        }
+        return mean;
+    }
+
+    /**
+     * Calculates the central Moment R, for R between 1 and 4.
+     *
+     * @param r
+     * @return
+     */
+    public double getMoment(int r) {
+        if(n<=1L) {
+            throw new IllegalArgumentException("The provided collection must have more than 1 elements.");
+        }
+
+        switch(r) {
+            case 1:
+                return 0.0;
+            case 2:
+                return m2/n;
+            case 3:
+                return m3/n;
+            case 4:
+                return m4/n;
+            default:
+                throw new IllegalArgumentException("Only the moments from 1 to 4 are accumulated.");
+        }
+    }
+
+    /**
+     * Calculates the Variance.
+     *
+     * @param isSample
+     * @return
+     */
+    public double getVariance(boolean isSample) {
+        if(n<=1L) {
+            throw new IllegalArgumentException("The provided collection must have more than 1 elements.");
+        }
+
+        /* Unbiased for sample */
+        return isSample?m2/(n-1.0):m2/n;
+    }
+
+    /**
+     * Calculates the Standard Deviation.
+     *
+     * @param isSample
+     * @return
+     */
+    public double getStd(boolean isSample) {
+        return Math.sqrt(getVariance(isSample));
+    }
+
+    /**
+     * Calculates Skewness. Uses a formula as suggested by http://en.wikipedia.org/wiki/Skewness
+     *
+     * @return
+     */
+    public double getSkewness() {
+        if(n<=1L) {
+            throw new IllegalArgumentException("The provided collection must have more than 1 elements.");
+        }
+
+        double variance = m2/n;
+
+        return (m3/n)/Math.pow(variance, 3.0/2.0);
+    }
+
+    /**
+     * Calculates Kurtosis. Uses a formula similar to SPSS as suggested in their documentation (local help)
+     *
+     * @return
+     */
+    public double getKurtosis() {
+        if(n<=3L) {
+            throw new IllegalArgumentException("The provided collection must have more than 3 elements.");
+        }
+
+        double s = m2/(n-1.0);
+
+        return (n*(n+1.0)*m4-3*m2*m2*(n-1.0))/((n-1.0)*(n-2.0)*(n-3.0)*s*s);
+    }
+
+}
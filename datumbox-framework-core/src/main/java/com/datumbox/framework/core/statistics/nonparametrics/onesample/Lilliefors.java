@@ -19,7 +19,7 @@ import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.common.dataobjects.DataTable2D;
 import com.datumbox.framework.common.dataobjects.FlatDataCollection;
 import com.datumbox.framework.common.dataobjects.TypeInference;
-import com.datumbox.framework.core.statistics.descriptivestatistics.Descriptives;
+import com.datumbox.framework.core.statistics.descriptivestatistics.SummaryStatistics;
 import com.datumbox.framework.core.statistics.distributions.ContinuousDistributions;
 
 import java.lang.reflect.InvocationTargetException;
@@ -111,8 +111,9 @@ public class Lilliefors {
      */
     public static AssociativeArray normalDistributionGetParams(FlatDataCollection flatDataCollection) {
         AssociativeArray params = new AssociativeArray();
-        params.put("mean", Descriptives.mean(flatDataCollection));
-        params.put("variance", Descriptives.variance(flatDataCollection, true));
+        SummaryStatistics summary = SummaryStatistics.of(flatDataCollection);
+        params.put("mean", summary.getMean());
+        params.put("variance", summary.getVariance(true));
         return params;
     }
 
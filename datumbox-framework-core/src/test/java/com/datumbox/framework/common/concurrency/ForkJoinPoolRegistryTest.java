@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.concurrency;
+
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for ForkJoinPoolRegistry.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class ForkJoinPoolRegistryTest extends AbstractTest {
+    
+    /**
+     * Test of getPool method, of class ForkJoinPoolRegistry.
+     */
+    @Test
+    public void testGetPool() throws InterruptedException {
+        logger.info("testGetPool");
+        
+        ConcurrencyConfiguration concurrencyConfiguration = new ConcurrencyConfiguration();
+        concurrencyConfiguration.setMaxNumberOfThreadsPerTask(2);
+        
+        long poolsCreated = ForkJoinPoolRegistry.getPoolsCreated();
+        ForkJoinPool pool = ForkJoinPoolRegistry.getPool(concurrencyConfiguration);
+        assertTrue(ForkJoinPoolRegistry.getPoolsCreated()>=poolsCreated+1);
+        assertEquals(2, pool.getParallelism());
+        
+        //the same pool is reused by the same configuration
+        assertSame(pool, ForkJoinPoolRegistry.getPool(concurrencyConfiguration));
+        assertTrue(ForkJoinPoolRegistry.getPoolsCreated()>=poolsCreated+1);
+        
+        //changing the number of threads shuts down the old pool but its queued tasks still complete
+        CountDownLatch latch = new CountDownLatch(1);
+        ForkJoinTask<Integer> queuedTask = pool.submit(() -> {
+            latch.await();
+            return IntStream.range(0, 100).parallel().sum();
+        });
+        concurrencyConfiguration.setMaxNumberOfThreadsPerTask(3);
+        ForkJoinPool newPool = ForkJoinPoolRegistry.getPool(concurrencyConfiguration);
+        assertNotSame(pool, newPool);
+        assertTrue(pool.isShutdown());
+        latch.countDown();
+        assertEquals(4950, (int) queuedTask.join());
+        assertEquals(3, newPool.getParallelism());
+        assertTrue(ForkJoinPoolRegistry.getPoolsCreated()>=poolsCreated+2);
+        
+        //closing the configuration releases the current pool
+        concurrencyConfiguration.close();
+        assertTrue(newPool.isShutdown());
+        assertNotSame(newPool, ForkJoinPoolRegistry.getPool(concurrencyConfiguration));
+        assertTrue(ForkJoinPoolRegistry.getPoolsCreated()>=poolsCreated+3);
+        
+        concurrencyConfiguration.close();
+    }
+    
+    /**
+     * Test of getTasksExecuted method, of class ForkJoinPoolRegistry.
+     */
+    @Test
+    public void testGetTasksExecuted() {
+        logger.info("testGetTasksExecuted");
+        
+        ConcurrencyConfiguration concurrencyConfiguration = new ConcurrencyConfiguration();
+        concurrencyConfiguration.setMaxNumberOfThreadsPerTask(2);
+        
+        long tasksExecuted = ForkJoinPoolRegistry.getTasksExecuted();
+        int sum = ThreadMethods.forkJoinExecution(() -> IntStream.range(0, 100).parallel().sum(), concurrencyConfiguration, true);
+        assertEquals(4950, sum);
+        ThreadMethods.forkJoinExecution(() -> {}, concurrencyConfiguration, true);
+        assertTrue(ForkJoinPoolRegistry.getTasksExecuted()>=tasksExecuted+2); //the counters are global and other tests run in parallel
+        
+        //non parallel executions run on the caller thread
+        Thread caller = Thread.currentThread();
+        ThreadMethods.forkJoinExecution(() -> assertSame(caller, Thread.currentThread()), concurrencyConfiguration, false);
+        
+        assertTrue(ForkJoinPoolRegistry.getActivePools()>=1);
+        assertTrue(ForkJoinPoolRegistry.getQueueDepth()>=0L);
+        
+        concurrencyConfiguration.close();
+    }
+    
+    /**
+     * Test of forkJoinExecution method, of class ThreadMethods, when the task
+     * throws an unchecked exception.
+     */
+    @Test
+    public void testForkJoinExecutionException() {
+        logger.info("testForkJoinExecutionException");
+        
+        ConcurrencyConfiguration concurrencyConfiguration = new ConcurrencyConfiguration();
+        concurrencyConfiguration.setMaxNumberOfThreadsPerTask(2);
+        
+        IllegalArgumentException thrown = new IllegalArgumentException("Invalid value.");
+        try {
+            ThreadMethods.forkJoinExecution(() -> {
+                throw thrown;
+            }, concurrencyConfiguration, true);
+            fail("The exception was not rethrown.");
+        }
+        catch (IllegalArgumentException ex) {
+            //the exception is rethrown on the caller thread with the one of the worker as its cause
+            assertSame(thrown, ex.getCause());
+            assertEquals(thrown.getMessage(), ex.getMessage());
+            assertTrue(Arrays.stream(ex.getStackTrace()).anyMatch(e -> e.getMethodName().equals("testForkJoinExecutionException")));
+        }
+        
+        assertEquals(1, (int) ThreadMethods.forkJoinExecution(() -> 1, concurrencyConfiguration, false));
+        
+        concurrencyConfiguration.close();
+    }
+    
+}
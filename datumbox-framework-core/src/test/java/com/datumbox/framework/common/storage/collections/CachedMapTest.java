@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.collections;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for CachedMap.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class CachedMapTest extends AbstractTest {
+
+    /**
+     * Weighs every key and value with 1 byte, so every entry weighs 66 bytes.
+     */
+    private static final ToLongFunction<Object> UNIT_WEIGHER = o -> 1L;
+
+    private static final long ENTRY_WEIGHT = 66L;
+
+    /**
+     * Test of the eviction of the least recently used entries, of class CachedMap.
+     */
+    @Test
+    public void testEviction() {
+        logger.info("testEviction");
+
+        Map<Integer, String> underlying = new HashMap<>();
+        CachedMap<Integer, String> instance = new CachedMap<>(underlying, 10*ENTRY_WEIGHT, 1, UNIT_WEIGHER);
+        for(int i=0;i<10;i++) {
+            instance.put(i, "v" + i);
+        }
+        assertTrue(underlying.isEmpty());
+        assertEquals(10*ENTRY_WEIGHT, instance.getWeightedSize());
+
+        //touch the first key so that the second one becomes the eldest
+        assertEquals("v0", instance.get(0));
+        instance.put(10, "v10");
+        assertEquals(1L, instance.getMetrics().getEvictionCount());
+        assertEquals(1L, instance.getMetrics().getWriteBackCount());
+        assertEquals(Collections.singletonMap(1, "v1"), underlying);
+        assertEquals(10*ENTRY_WEIGHT, instance.getWeightedSize());
+
+        //the evicted entry is read back from the underlying map
+        long misses = instance.getMetrics().getMissCount();
+        assertEquals("v1", instance.get(1));
+        assertEquals(misses + 1L, instance.getMetrics().getMissCount());
+        assertEquals(11, instance.size());
+    }
+
+    /**
+     * Test of flush and discard methods, of class CachedMap.
+     */
+    @Test
+    public void testFlush() {
+        logger.info("testFlush");
+
+        Map<Integer, String> underlying = new HashMap<>();
+        CachedMap<Integer, String> instance = new CachedMap<>(underlying, 100*ENTRY_WEIGHT, 4, UNIT_WEIGHER);
+        for(int i=0;i<10;i++) {
+            instance.put(i, "v" + i);
+        }
+        assertEquals(10, instance.size());
+        assertTrue(underlying.isEmpty());
+
+        instance.flush();
+        assertEquals(10, underlying.size());
+        assertEquals(10, instance.size());
+        assertEquals(10L, instance.getMetrics().getWriteBackCount());
+
+        //the clean entries are not written again
+        instance.flush();
+        assertEquals(10L, instance.getMetrics().getWriteBackCount());
+
+        instance.put(0, "updated");
+        instance.discard();
+        assertEquals("v0", instance.get(0));
+        assertEquals(0L, instance.getMetrics().getHitCount());
+    }
+
+    /**
+     * Test of the size of the map with pending inserts and removals of modified entries.
+     */
+    @Test
+    public void testRemoveDirty() {
+        logger.info("testRemoveDirty");
+
+        Map<Integer, String> underlying = new HashMap<>();
+        underlying.put(0, "v0");
+        underlying.put(1, "v1");
+        CachedMap<Integer, String> instance = new CachedMap<>(underlying, 100*ENTRY_WEIGHT, 1, UNIT_WEIGHER);
+
+        instance.put(1, "updated");
+        instance.put(2, "v2");
+        instance.put(2, "updated");
+        assertEquals(3, instance.size());
+
+        //removing a modified entry which was never written
+        assertEquals("updated", instance.remove(2));
+        assertEquals(2, instance.size());
+        assertFalse(instance.containsKey(2));
+
+        //removing a modified entry which exists in the underlying map
+        assertEquals("updated", instance.remove(1));
+        assertEquals(1, instance.size());
+        assertFalse(underlying.containsKey(1));
+
+        instance.flush();
+        assertEquals(Collections.singletonMap(0, "v0"), underlying);
+        assertEquals(0L, instance.getMetrics().getWriteBackCount());
+        assertEquals(1, instance.size());
+    }
+
+    /**
+     * Test that the writes do not read the underlying map and that the size
+     * looks up only the keys which were written since their last write back.
+     */
+    @Test
+    public void testWritesDoNotRead() {
+        logger.info("testWritesDoNotRead");
+
+        List<Object> lookups = new ArrayList<>();
+        Map<Integer, String> underlying = new HashMap<Integer, String>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean containsKey(Object key) {
+                lookups.add(key);
+                return super.containsKey(key);
+            }
+        };
+        underlying.put(0, "v0");
+        CachedMap<Integer, String> instance = new CachedMap<>(underlying, 100*ENTRY_WEIGHT, 1, UNIT_WEIGHER);
+
+        for(int i=0;i<3;i++) {
+            instance.put(i, "v" + i);
+        }
+        assertTrue(lookups.isEmpty());
+
+        assertEquals(3, instance.size());
+        assertEquals(3, lookups.size());
+
+        //the resolved keys are not looked up again
+        instance.put(1, "updated");
+        assertEquals(3, instance.size());
+        assertEquals(3, lookups.size());
+    }
+
+    /**
+     * Test of concurrent writes in the segments, of class CachedMap.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentSegments() throws Exception {
+        logger.info("testConcurrentSegments");
+
+        Map<Integer, Integer> underlying = new ConcurrentHashMap<>();
+        CachedMap<Integer, Integer> instance = new CachedMap<>(underlying, 50*ENTRY_WEIGHT, 8, UNIT_WEIGHER);
+        int threads = 4;
+        int keysPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int t=0;t<threads;t++) {
+                int offset = t*keysPerThread;
+                futures.add(executor.submit(() -> {
+                    for(int round=0;round<3;round++) {
+                        for(int i=0;i<keysPerThread;i++) {
+                            int key = offset + i;
+                            if(round == 2 && i%3 == 0) {
+                                instance.remove(key);
+                            }
+                            else {
+                                instance.put(key, key*10 + round);
+                                assertEquals(Integer.valueOf(key*10 + round), instance.get(key));
+                            }
+                        }
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        int expectedSize = threads*(keysPerThread - (keysPerThread+2)/3);
+        assertEquals(expectedSize, instance.size());
+        assertTrue(instance.getMetrics().getEvictionCount() > 0L);
+        instance.flush();
+        assertEquals(expectedSize, underlying.size());
+        for(int key=0;key<threads*keysPerThread;key++) {
+            if(key%keysPerThread%3 == 0) {
+                assertFalse(underlying.containsKey(key));
+            }
+            else {
+                assertEquals(Integer.valueOf(key*10 + 2), underlying.get(key));
+            }
+        }
+    }
+
+    /**
+     * Test of the sampled weigher, of class ObjectSizeEstimator.
+     */
+    @Test
+    public void testSampledWeigher() {
+        logger.info("testSampledWeigher");
+
+        ToLongFunction<Object> weigher = ObjectSizeEstimator.sampled();
+        AssociativeArray small = new AssociativeArray();
+        small.put("a", 1.0);
+        AssociativeArray large = new AssociativeArray();
+        for(int i=0;i<100;i++) {
+            large.put("k" + i, (double) i);
+        }
+
+        long smallSize = ObjectSizeEstimator.estimate(small);
+        for(int i=0;i<16;i++) {
+            assertEquals(smallSize, weigher.applyAsLong(small));
+        }
+        //the objects after the first ones get the average of their class
+        assertEquals(smallSize, weigher.applyAsLong(large));
+
+        //the cheap objects are always measured
+        assertEquals(ObjectSizeEstimator.estimate("a long string value"), weigher.applyAsLong("a long string value"));
+        assertEquals(ObjectSizeEstimator.estimate(new double[100]), weigher.applyAsLong(new double[100]));
+        assertEquals(0L, weigher.applyAsLong(null));
+    }
+
+}
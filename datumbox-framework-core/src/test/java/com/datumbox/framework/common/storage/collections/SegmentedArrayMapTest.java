@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.collections;
+
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for SegmentedArrayMap.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SegmentedArrayMapTest extends AbstractTest {
+    
+    /**
+     * Test of put and get methods, of class SegmentedArrayMap, with keys that
+     * span multiple segments.
+     */
+    @Test
+    public void testPutGet() {
+        logger.info("testPutGet");
+        
+        SegmentedArrayMap<String> instance = new SegmentedArrayMap<>();
+        int n = 10000; //more than 2 segments
+        for(int i=0;i<n;i++) {
+            assertNull(instance.put(i, "v" + i));
+        }
+        assertEquals(n, instance.size());
+        assertEquals("v" + (n-1), instance.get(n-1));
+        assertEquals("v5000", instance.put(5000, "updated"));
+        assertEquals(n, instance.size());
+        assertEquals("updated", instance.get(5000));
+        assertNull(instance.get(n));
+        assertNull(instance.get("0"));
+    }
+    
+    /**
+     * Test of sparse and negative keys, of class SegmentedArrayMap.
+     */
+    @Test
+    public void testSparseAndNegativeKeys() {
+        logger.info("testSparseAndNegativeKeys");
+        
+        SegmentedArrayMap<Integer> instance = new SegmentedArrayMap<>();
+        instance.put(3, 3);
+        instance.put(1000000, 1000000);
+        assertEquals(2, instance.size());
+        assertEquals(Integer.valueOf(1000000), instance.get(1000000));
+        assertFalse(instance.containsKey(999999));
+        
+        assertNull(instance.get(-1));
+        assertNull(instance.remove(-1));
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> instance.put(-1, -1));
+        assertEquals(2, instance.size());
+    }
+    
+    /**
+     * Test of remove method, of class SegmentedArrayMap.
+     */
+    @Test
+    public void testRemove() {
+        logger.info("testRemove");
+        
+        SegmentedArrayMap<Integer> instance = new SegmentedArrayMap<>();
+        for(int i=0;i<100;i++) {
+            instance.put(i, i);
+        }
+        
+        assertEquals(Integer.valueOf(10), instance.remove(10));
+        assertNull(instance.remove(10));
+        assertNull(instance.remove(500));
+        assertEquals(99, instance.size());
+        assertFalse(instance.containsKey(10));
+        
+        Iterator<Integer> it = instance.keySet().iterator();
+        while(it.hasNext()) {
+            if(it.next()%2==0) {
+                it.remove();
+            }
+        }
+        assertEquals(50, instance.size());
+        
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(1));
+    }
+    
+    /**
+     * Test of the iteration order, of class SegmentedArrayMap.
+     */
+    @Test
+    public void testIterationOrder() {
+        logger.info("testIterationOrder");
+        
+        List<Integer> keys = Arrays.asList(9000, 5, 4096, 0, 123456, 4095);
+        SegmentedArrayMap<Integer> instance = new SegmentedArrayMap<>();
+        for(Integer key : keys) {
+            instance.put(key, -key);
+        }
+        
+        List<Integer> expResult = new ArrayList<>(keys);
+        Collections.sort(expResult);
+        assertEquals(expResult, new ArrayList<>(instance.keySet()));
+        
+        List<Integer> values = new ArrayList<>();
+        for(Map.Entry<Integer, Integer> e : instance.entrySet()) {
+            assertEquals(Integer.valueOf(-e.getKey()), e.getValue());
+            values.add(e.getValue());
+        }
+        assertEquals(values, new ArrayList<>(instance.values()));
+        assertEquals(new TreeMap<>(instance), instance);
+    }
+    
+    /**
+     * Test of concurrent put and remove calls, of class SegmentedArrayMap.
+     */
+    @Test
+    public void testConcurrentPut() {
+        logger.info("testConcurrentPut");
+        
+        SegmentedArrayMap<Integer> instance = new SegmentedArrayMap<>();
+        int n = 100000;
+        IntStream.range(0, n).parallel().forEach(i -> instance.put(i, i));
+        assertEquals(n, instance.size());
+        for(int i=0;i<n;i++) {
+            assertEquals(Integer.valueOf(i), instance.get(i));
+        }
+        
+        IntStream.range(0, n).parallel().filter(i -> i%3==0).forEach(i -> instance.remove(i));
+        assertEquals(n - (n+2)/3, instance.size());
+    }
+    
+    /**
+     * Test of serialization, of class SegmentedArrayMap.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSerialization() throws Exception {
+        logger.info("testSerialization");
+        
+        SegmentedArrayMap<String> instance = new SegmentedArrayMap<>();
+        instance.put(1, "a");
+        instance.put(70000, "b");
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(instance);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            SegmentedArrayMap<String> result = (SegmentedArrayMap<String>) in.readObject();
+            assertEquals(instance, result);
+            assertEquals(2, result.size());
+        }
+    }
+    
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.common.storage.serialization;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for BinarySerializer.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class BinarySerializerTest extends AbstractTest {
+
+    /**
+     * Test of register method, of class BinarySerializer, with an id and a class
+     * which are already registered.
+     */
+    @Test
+    public void testRegisterDuplicate() {
+        logger.info("testRegisterDuplicate");
+
+        //the codecs of the common module are registered through the service file
+        assertTrue(BinarySerializer.isRegistered(AssociativeArray.class));
+
+        assertFalse(BinarySerializer.register(2, Unregistered.class, new UnregisteredCodec()));
+        assertFalse(BinarySerializer.isRegistered(Unregistered.class));
+        assertFalse(BinarySerializer.register(BinarySerializer.RESERVED_IDS - 1, AssociativeArray.class, new AssociativeArrayCodec()));
+
+        AssociativeArray expResult = new AssociativeArray();
+        expResult.put("a", 1.0);
+        assertEquals(expResult, BinarySerializer.deserialize(BinarySerializer.serialize(expResult)));
+    }
+
+    /**
+     * Test of storing registered objects in the maps of the storage engine and
+     * of saving and loading them.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStorageEngine() throws Exception {
+        logger.info("testStorageEngine");
+
+        StorageConfiguration storageConfiguration = getConfiguration().getStorageConfiguration();
+        String storageName = "BinarySerializerTest";
+        AssociativeArray expResult;
+        try(StorageEngine storageEngine = storageConfiguration.createStorageEngine(storageName)) {
+            Map<List<Object>, Record> hashMap = storageEngine.getBigMap("hashMap", (Class<List<Object>>)(Class<?>) List.class, Record.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, true);
+            Map<Double, AssociativeArray> treeMap = storageEngine.getBigMap("treeMap", Double.class, AssociativeArray.class, StorageEngine.MapType.TREEMAP, StorageEngine.StorageHint.IN_DISK, false, true);
+            for(int i=0;i<100;i++) {
+                AssociativeArray x = new AssociativeArray();
+                x.put("value", (double) i);
+                x.put(Arrays.asList("tuple", i), i%2==0);
+                hashMap.put(Arrays.asList("key", i), new Record(x, i%3));
+                treeMap.put(i/10.0, x);
+            }
+            for(int i=0;i<100;i++) {
+                Record r = hashMap.get(Arrays.asList("key", i));
+                assertEquals(i%3, r.getY());
+                assertEquals((double) i, r.getX().get("value"));
+                assertEquals(i%2==0, r.getX().get(Arrays.asList("tuple", i)));
+                assertEquals(r.getX(), treeMap.get(i/10.0));
+            }
+            assertEquals(0.0, treeMap.keySet().iterator().next(), 0.0);
+
+            expResult = treeMap.get(9.9);
+            storageEngine.saveObject("object", expResult);
+            storageEngine.dropBigMap("hashMap", hashMap);
+            storageEngine.dropBigMap("treeMap", treeMap);
+        }
+
+        try(StorageEngine storageEngine = storageConfiguration.createStorageEngine(storageName)) {
+            assertEquals(expResult, storageEngine.loadObject("object", AssociativeArray.class));
+            storageEngine.clear();
+        }
+    }
+
+    /**
+     * A class without a registered codec.
+     */
+    private static class Unregistered {
+    }
+
+    /**
+     * A codec which must never be used.
+     */
+    private static class UnregisteredCodec implements Codec<Unregistered> {
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, Unregistered value) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Unregistered read(DataInput in) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A codec which must never replace the registered one.
+     */
+    private static class AssociativeArrayCodec implements Codec<AssociativeArray> {
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(DataOutput out, AssociativeArray value) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public AssociativeArray read(DataInput in) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -251,6 +251,41 @@ public class Datasets {
         return new Dataframe[] {trainingData, validationData};
     }
     
+    /**
+     * Synthetic Gaussian Clusters Dataframe. The centers of the c clusters are
+     * drawn uniformly from [-10, 10]^d and every record adds unit Gaussian noise
+     * to the center of a random cluster, which is used as its response.
+     * 
+     * @param configuration
+     * @param n
+     * @param d
+     * @param c
+     * @return 
+     */
+    public static Dataframe[] syntheticGaussianClusters(Configuration configuration, int n, int d, int c) {
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+        double[][] centers = new double[c][d];
+        for(int j=0;j<c;++j) {
+            for(int i=0;i<d;++i) {
+                centers[j][i] = -10.0+20.0*rnd.nextDouble();
+            }
+        }
+        
+        Dataframe trainingData = new Dataframe(configuration);
+        for(int r=0;r<n;++r) {
+            int j = rnd.nextInt(c);
+            Double[] xArray = new Double[d];
+            for(int i=0;i<d;++i) {
+                xArray[i] = centers[j][i]+rnd.nextGaussian();
+            }
+            trainingData.add(Datasets.<Double>newDataVector(xArray, "c"+j));
+        }
+        
+        Dataframe validationData = trainingData.copy();
+        
+        return new Dataframe[] {trainingData, validationData};
+    }
+    
     /**
      * Multinomial Clusters Dataframe.
      * 
@@ -708,6 +743,43 @@ public class Datasets {
         return new Dataframe[] {trainingData, validationData};
     }
 
+    /**
+     * Numerical Scaler Dataframes. The two batches are drawn from different
+     * distributions and the "single" column has a value only in the first
+     * record of the first batch. The third Dataframe contains the records of
+     * both batches.
+     *
+     * @param configuration
+     * @param n
+     * @return
+     */
+    public static Dataframe[] scalerNumerical(Configuration configuration, int n) {
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+        Dataframe firstBatch = new Dataframe(configuration);
+        Dataframe secondBatch = new Dataframe(configuration);
+        for(int i=0;i<n;++i) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("gaussian", 10.0+2.0*rnd.nextGaussian());
+            xData.put("uniform", -5.0+10.0*rnd.nextDouble());
+            if(i==0) {
+                xData.put("single", 7.0);
+            }
+            firstBatch.add(new Record(xData, 100.0*rnd.nextDouble()));
+
+            xData = new AssociativeArray();
+            xData.put("gaussian", -20.0+5.0*rnd.nextGaussian());
+            xData.put("uniform", 20.0*rnd.nextDouble());
+            secondBatch.add(new Record(xData, -50.0+100.0*rnd.nextDouble()));
+        }
+
+        Dataframe allData = firstBatch.copy();
+        for(Record r : secondBatch) {
+            allData.add(r);
+        }
+
+        return new Dataframe[] {firstBatch, secondBatch, allData};
+    }
+
     /**
      * Returns a map with the URIs of a sentiment analysis dataset.
      *
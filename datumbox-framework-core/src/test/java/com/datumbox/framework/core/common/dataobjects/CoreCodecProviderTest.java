@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.common.dataobjects;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.dataobjects.DataTable2D;
+import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.storage.inmemory.DeepCopy;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for CoreCodecProvider.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class CoreCodecProviderTest extends AbstractTest {
+
+    /**
+     * Test of the Record codec.
+     */
+    @Test
+    public void testRecordCodec() {
+        logger.info("testRecordCodec");
+
+        assertTrue(BinarySerializer.isRegistered(Record.class));
+
+        AssociativeArray x = new AssociativeArray();
+        x.put("temperature", 21.5);
+        x.put("traffic_rank", (short) 2);
+        x.put("is_sunny", true);
+        x.put(Arrays.asList("city", "Athens"), 1);
+        x.put("visits", 1234567890123L);
+
+        AssociativeArray yPredictedProbabilities = new AssociativeArray();
+        yPredictedProbabilities.put("a", 0.75);
+        yPredictedProbabilities.put("b", 0.25);
+
+        Record expResult = new Record(x, "a", "a", yPredictedProbabilities);
+        Record result = (Record) BinarySerializer.deserialize(BinarySerializer.serialize(expResult));
+
+        assertEquals(expResult, result);
+        assertEquals(expResult.getYPredictedProbabilities(), result.getYPredictedProbabilities());
+        assertEquals(new ArrayList<>(expResult.getX().keySet()), new ArrayList<>(result.getX().keySet()));
+
+        TestUtils.assertThrows(UnsupportedOperationException.class, () -> result.getX().put("temperature", 0.0));
+    }
+
+    /**
+     * Test of the codecs of the data structures and of the Java serialization fallback.
+     */
+    @Test
+    public void testDataStructureCodecs() {
+        logger.info("testDataStructureCodecs");
+
+        DataTable2D table = new DataTable2D();
+        table.put2d("a", "b", 1.0);
+        table.put2d("a", Arrays.asList("c", 1), 2.0);
+        table.put2d(Arrays.asList("d", 2), "b", null);
+
+        AssociativeArray concurrent = new AssociativeArray(new ConcurrentHashMap<>());
+        concurrent.put(1, TypeInference.DataType.NUMERICAL);
+        concurrent.put(2, new double[]{1.0, 2.0});
+
+        Map<String, Object> fallback = new HashMap<>();
+        fallback.put("table", table);
+        fallback.put("concurrent", concurrent);
+        fallback.put("builder", new StringBuilder("unregistered"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = (Map<String, Object>) BinarySerializer.deserialize(BinarySerializer.serialize(fallback));
+
+        assertEquals(table, result.get("table"));
+        AssociativeArray concurrentResult = (AssociativeArray) result.get("concurrent");
+        assertEquals(TypeInference.DataType.NUMERICAL, concurrentResult.get(1));
+        assertEquals(2.0, ((double[]) concurrentResult.get(2))[1], 0.0);
+        assertEquals("unregistered", result.get("builder").toString());
+
+        List<Object> legacy = new ArrayList<>(Arrays.asList(1, "legacy"));
+        assertEquals(legacy, BinarySerializer.deserialize(DeepCopy.serialize(legacy)));
+    }
+
+    /**
+     * Test of saving and loading a Dataframe with the serializer.
+     */
+    @Test
+    public void testSaveLoad() {
+        logger.info("testSaveLoad");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsNumeric(configuration);
+        Dataframe expResult = data[0];
+
+        String storageName = this.getClass().getSimpleName();
+        expResult.save(storageName);
+
+        Dataframe result = Dataframe.Builder.load(storageName, configuration);
+        assertEquals(expResult.size(), result.size());
+        for(Map.Entry<Integer, Record> e : expResult.entries()) {
+            assertEquals(e.getValue(), result.get(e.getKey()));
+        }
+        assertEquals(expResult.getXDataTypes(), result.getXDataTypes());
+
+        result.delete();
+        expResult.close();
+        data[1].close();
+    }
+
+}
@@ -20,6 +20,10 @@ import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.common.dataobjects.FlatDataCollection;
 import com.datumbox.framework.common.dataobjects.FlatDataList;
 import com.datumbox.framework.common.dataobjects.TypeInference;
+import com.datumbox.framework.common.storage.instrumentation.InstrumentedStorageConfiguration;
+import com.datumbox.framework.common.storage.instrumentation.MapMetrics;
+import com.datumbox.framework.common.storage.instrumentation.StorageMetrics;
+import com.datumbox.framework.storage.offheap.OffHeapConfiguration;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
 import org.junit.Test;
 
@@ -27,13 +31,20 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test cases for Dataframe.
@@ -263,4 +274,278 @@ public class DataframeTest extends AbstractTest {
         dataset.close();
     }
 
+    /**
+     * Test of the columnar layout of Dataframe.
+     */
+    @Test
+    public void testColumnarLayout() {
+        logger.info("columnarLayout");
+        
+        Configuration configuration = getConfiguration();
+        
+        LinkedHashMap<String, TypeInference.DataType> headerDataTypes = new LinkedHashMap<>();
+        headerDataTypes.put("city", TypeInference.DataType.CATEGORICAL);
+        headerDataTypes.put("temperature", TypeInference.DataType.NUMERICAL);
+        headerDataTypes.put("is_sunny", TypeInference.DataType.BOOLEAN);
+        headerDataTypes.put("traffic_rank", TypeInference.DataType.ORDINAL);
+        headerDataTypes.put("is_capital", TypeInference.DataType.BOOLEAN);
+        headerDataTypes.put("name_of_port", TypeInference.DataType.CATEGORICAL);
+        headerDataTypes.put("metro_population", TypeInference.DataType.NUMERICAL);
+        
+        Dataframe expResult;
+        Dataframe dataset;
+        try (Reader fileReader1 = new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream("datasets/cities.csv"), "UTF-8");
+             Reader fileReader2 = new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream("datasets/cities.csv"), "UTF-8")) {
+            expResult = Dataframe.Builder.parseCSVFile(fileReader1, "metro_population", headerDataTypes, ',', '"', "\r\n", null, null, configuration);
+            dataset = Dataframe.Builder.parseCSVFile(fileReader2, "metro_population", headerDataTypes, ',', '"', "\r\n", null, null, configuration, true);
+        }
+        catch(UncheckedIOException | IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        
+        assertEquals(false, expResult.isColumnar());
+        assertEquals(true, dataset.isColumnar());
+        assertEquals(expResult.size(), dataset.size());
+        
+        Iterator<Record> it1 = expResult.iterator();
+        Iterator<Record> it2 = dataset.iterator();
+        while(it1.hasNext() && it2.hasNext()) {
+            assertEquals(it1.next(), it2.next());
+        }
+        assertEquals(it1.hasNext(), it2.hasNext());
+        
+        assertEquals(expResult.getXColumn("temperature"), dataset.getXColumn("temperature"));
+        assertEquals(expResult.getXColumn("city"), dataset.getXColumn("city"));
+        
+        FlatDataList cityView = dataset.getXColumn("city");
+        
+        AssociativeArray xData = new AssociativeArray();
+        xData.put("city", "Paris");
+        xData.put("temperature", 21);
+        Integer rId = dataset.addRecord(new Record(xData, 12405426.0));
+        assertEquals(new Record(xData, 12405426.0), dataset.get(rId));
+        assertEquals(expResult.size()+1, cityView.size());
+        assertEquals("Paris", cityView.get(expResult.size()));
+        
+        Object secondCity = cityView.get(1);
+        dataset.remove(0);
+        assertEquals(expResult.size(), dataset.size());
+        assertEquals(null, dataset.get(0));
+        assertEquals(expResult.size(), cityView.size());
+        assertEquals(secondCity, cityView.get(0));
+        assertEquals("Paris", cityView.get(expResult.size()-1));
+        
+        expResult.close();
+        dataset.close();
+    }
+
+    /**
+     * Test of parseCSVFile method with a Path, of class Dataframe.Builder.
+     */
+    @Test
+    public void testParseCSVFileChunks() throws IOException {
+        logger.info("parseCSVFileChunks");
+        
+        Configuration configuration = getConfiguration();
+        
+        LinkedHashMap<String, TypeInference.DataType> headerDataTypes = new LinkedHashMap<>();
+        headerDataTypes.put("id", TypeInference.DataType.NUMERICAL);
+        headerDataTypes.put("text", TypeInference.DataType.CATEGORICAL);
+        headerDataTypes.put("is_even", TypeInference.DataType.BOOLEAN);
+        headerDataTypes.put("value", TypeInference.DataType.NUMERICAL);
+        
+        StringBuilder sb = new StringBuilder("id,text,is_even,value\r\n");
+        for(int i=0;i<2000;i++) {
+            String text = (i%7==0)?"\"multi\nline, \"\"quoted\"\" text\"":"plain text "+i;
+            sb.append(i).append(',').append(text).append(',').append(i%2==0).append(',').append(i*0.5).append((i%3==0)?"\n":"\r\n");
+        }
+        Path file = Files.createTempFile("dataframe", ".csv");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        
+        Long[][] ranges = {{null, null}, {100L, 500L}};
+        for(Long[] range : ranges) {
+            Dataframe expResult;
+            try (Reader fileReader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                expResult = Dataframe.Builder.parseCSVFile(fileReader, "value", headerDataTypes, ',', '"', "\r\n", range[0], range[1], configuration);
+            }
+            Dataframe dataset = Dataframe.Builder.parseCSVFile(file, "value", headerDataTypes, ',', '"', "\r\n", range[0], range[1], configuration, false, 1024L);
+            
+            assertEquals(range[1]==null?2000:500, dataset.size());
+            assertEquals(expResult.size(), dataset.size());
+            for(Map.Entry<Integer, Record> e : expResult.entries()) {
+                assertEquals(e.getValue(), dataset.get(e.getKey()));
+            }
+            
+            expResult.close();
+            dataset.close();
+        }
+        
+        Files.delete(file);
+    }
+
+    /**
+     * Test of addAll and setAll methods, of class Dataframe.
+     */
+    @Test
+    public void testBulkWrite() {
+        logger.info("bulkWrite");
+        
+        Configuration configuration = getConfiguration();
+        
+        List<Record> records = new ArrayList<>();
+        for(int i=0;i<10;i++) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("number", i*1.0);
+            xData.put("category", (i%2==0)?"even":"odd");
+            records.add(new Record(xData, i%2==0));
+        }
+        
+        Dataframe dataset = new Dataframe(configuration);
+        dataset.addAll(records);
+        
+        assertEquals(10, dataset.size());
+        for(int i=0;i<10;i++) {
+            assertEquals(records.get(i), dataset.get(i));
+        }
+        assertEquals(TypeInference.DataType.NUMERICAL, dataset.getXDataTypes().get("number"));
+        assertEquals(TypeInference.DataType.CATEGORICAL, dataset.getXDataTypes().get("category"));
+        assertEquals(TypeInference.DataType.BOOLEAN, dataset.getYDataType());
+        
+        AssociativeArray xData = new AssociativeArray();
+        xData.put("flag", true);
+        Map<Integer, Record> batch = new LinkedHashMap<>();
+        batch.put(3, new Record(xData, false));
+        batch.put(20, new Record(xData, true));
+        dataset.setAll(batch);
+        
+        assertEquals(11, dataset.size());
+        assertEquals(batch.get(3), dataset.get(3));
+        assertEquals(batch.get(20), dataset.get(20));
+        assertEquals(TypeInference.DataType.BOOLEAN, dataset.getXDataTypes().get("flag"));
+        assertEquals(Integer.valueOf(21), dataset.addRecord(records.get(0)));
+        
+        dataset.close();
+    }
+
+    /**
+     * Test of storing the Dataframe with the OffHeap storage engine.
+     */
+    @Test
+    public void testOffHeapStorage() {
+        logger.info("offHeapStorage");
+        
+        Configuration configuration = getConfiguration();
+        OffHeapConfiguration storageConfiguration = new OffHeapConfiguration();
+        storageConfiguration.setSegmentSize(4096); //force the records to span multiple segments
+        configuration.setStorageConfiguration(storageConfiguration);
+        
+        Dataframe dataset = new Dataframe(configuration);
+        for(int i=0;i<500;i++) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("number", i*1.0);
+            xData.put("category", "category" + (i%7));
+            dataset.add(new Record(xData, i%3));
+        }
+        
+        AssociativeArray xData = new AssociativeArray();
+        xData.put("number", -1.0);
+        dataset.set(10, new Record(xData, 1));
+        dataset.remove(20);
+        
+        String storageName = this.getClass().getSimpleName() + "OffHeap";
+        dataset.save(storageName);
+        
+        Dataframe result = Dataframe.Builder.load(storageName, configuration);
+        assertEquals(499, result.size());
+        assertEquals(dataset.getXDataTypes(), result.getXDataTypes());
+        for(Map.Entry<Integer, Record> e : dataset.entries()) {
+            assertEquals(e.getValue(), result.get(e.getKey()));
+        }
+        assertEquals(-1.0, result.get(10).getX().getDouble("number"), 0.0);
+        
+        result.delete();
+        dataset.close();
+    }
+
+    /**
+     * Test of the instrumented storage.
+     */
+    @Test
+    public void testInstrumentedStorage() {
+        logger.info("instrumentedStorage");
+        
+        Configuration configuration = getConfiguration();
+        InstrumentedStorageConfiguration storageConfiguration = new InstrumentedStorageConfiguration(configuration.getStorageConfiguration());
+        storageConfiguration.setJmxEnabled(true);
+        configuration.setStorageConfiguration(storageConfiguration);
+        
+        Dataframe dataset = new Dataframe(configuration);
+        for(int i=0;i<200;i++) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("number", i*1.0);
+            dataset.add(new Record(xData, i%2));
+        }
+        for(Map.Entry<Integer, Record> e : dataset.entries()) {
+            assertEquals(e.getValue(), dataset.get(e.getKey()));
+        }
+        
+        List<StorageMetrics> snapshots = storageConfiguration.getStorageMetrics();
+        assertEquals(1, snapshots.size());
+        MapMetrics records = snapshots.get(0).getMapMetrics("records");
+        assertEquals(200, records.getCount(MapMetrics.Operation.PUT));
+        assertEquals(200, records.getCount(MapMetrics.Operation.ITERATE));
+        assertTrue(records.getCount(MapMetrics.Operation.GET) >= 200);
+        assertTrue(records.getSerializedBytes() > 0);
+        assertTrue(records.getHistogram(MapMetrics.Operation.GET).getPercentile(50.0) <= records.getHistogram(MapMetrics.Operation.GET).getPercentile(99.0));
+        assertTrue(snapshots.get(0).getOperationCounts().containsKey("records.PUT"));
+        
+        String storageName = this.getClass().getSimpleName() + "Instrumented";
+        dataset.save(storageName);
+        
+        Dataframe result = Dataframe.Builder.load(storageName, configuration);
+        assertEquals(dataset.size(), result.size());
+        for(Map.Entry<Integer, Record> e : dataset.entries()) {
+            assertEquals(e.getValue(), result.get(e.getKey()));
+        }
+        
+        result.delete();
+        dataset.close();
+        assertTrue(storageConfiguration.getStorageMetrics().isEmpty());
+    }
+
+    /**
+     * Test of saveAsync method, of class Dataframe.
+     */
+    @Test
+    public void testSaveAsync() throws Exception {
+        logger.info("saveAsync");
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe dataset = new Dataframe(configuration);
+        for(int i=0;i<300;i++) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("number", i*1.0);
+            xData.put("category", "category" + (i%5));
+            dataset.add(new Record(xData, i%2));
+        }
+        
+        String storageName = this.getClass().getSimpleName() + "Async";
+        CompletableFuture<Void> future = dataset.saveAsync(storageName);
+        for(Map.Entry<Integer, Record> e : dataset.entries()) {
+            assertEquals(e.getKey()%2, e.getValue().getY());
+        }
+        future.get();
+        
+        Dataframe result = Dataframe.Builder.load(storageName, configuration);
+        assertEquals(dataset.size(), result.size());
+        assertEquals(dataset.getXDataTypes(), result.getXDataTypes());
+        for(Map.Entry<Integer, Record> e : dataset.entries()) {
+            assertEquals(e.getValue(), result.get(e.getKey()));
+        }
+        
+        result.delete();
+        dataset.close();
+    }
+
 }
@@ -16,6 +16,7 @@
 package com.datumbox.framework.core.machinelearning.classification;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.TypeInference;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
 import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
@@ -108,5 +109,67 @@ public class BernoulliNaiveBayesTest extends AbstractTest {
         
         trainingData.close();
     }
+
+    /**
+     * Test of partialFit method, of class BernoulliNaiveBayes.
+     */
+    @Test
+    public void testPartialFit() {
+        logger.info("testPartialFit");
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.carsNumeric(configuration);
+        
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+        
+        Dataframe firstBatch = new Dataframe(configuration);
+        Dataframe secondBatch = new Dataframe(configuration);
+        for(Map.Entry<Integer, Record> e : trainingData.entries()) {
+            if(e.getKey()%2==0) {
+                firstBatch.add(e.getValue());
+            }
+            else {
+                secondBatch.add(e.getValue());
+            }
+        }
+        
+        BernoulliNaiveBayes expInstance = MLBuilder.create(new BernoulliNaiveBayes.TrainingParameters(), configuration);
+        expInstance.fit(trainingData);
+        Dataframe expData = validationData.copy();
+        expInstance.predict(expData);
+        
+        String storageName = this.getClass().getSimpleName() + "Partial";
+        BernoulliNaiveBayes instance = MLBuilder.create(new BernoulliNaiveBayes.TrainingParameters(), configuration);
+        instance.partialFit(firstBatch);
+        instance.save(storageName);
+        instance.close();
+        
+        instance = MLBuilder.load(BernoulliNaiveBayes.class, storageName, configuration);
+        instance.partialFit(secondBatch);
+        instance.predict(validationData);
+        
+        assertEquals(expInstance.getModelParameters().getClassCounts(), instance.getModelParameters().getClassCounts());
+        for(Map.Entry<Object, Double> e : expInstance.getModelParameters().getLogPriors().entrySet()) {
+            assertEquals(e.getValue(), instance.getModelParameters().getLogPriors().get(e.getKey()), Constants.DOUBLE_ACCURACY_HIGH);
+        }
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record r = expData.get(e.getKey());
+            assertEquals(r.getYPredicted(), e.getValue().getYPredicted());
+            for(Map.Entry<Object, Object> p : r.getYPredictedProbabilities().entrySet()) {
+                assertEquals(TypeInference.toDouble(p.getValue()), e.getValue().getYPredictedProbabilities().getDouble(p.getKey()), Constants.DOUBLE_ACCURACY_HIGH);
+            }
+        }
+        
+        instance.delete();
+        expInstance.close();
+        
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+        validationData.close();
+        expData.close();
+    }
     
 }
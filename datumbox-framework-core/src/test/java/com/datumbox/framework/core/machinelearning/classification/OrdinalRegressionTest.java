@@ -24,6 +24,7 @@ import com.datumbox.framework.core.machinelearning.modelselection.Validator;
 import com.datumbox.framework.core.machinelearning.modelselection.splitters.KFoldSplitter;
 import com.datumbox.framework.core.machinelearning.preprocessing.OneHotEncoder;
 import com.datumbox.framework.core.machinelearning.preprocessing.MinMaxScaler;
+import com.datumbox.framework.core.mathematics.optimizers.LBFGS;
 import com.datumbox.framework.tests.Constants;
 import com.datumbox.framework.core.Datasets;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
@@ -48,6 +49,38 @@ public class OrdinalRegressionTest extends AbstractTest {
     public void testPredict() {
         logger.info("testPredict");
         
+        OrdinalRegression.TrainingParameters param = new OrdinalRegression.TrainingParameters();
+        param.setTotalIterations(100);
+        param.setL2(0.001);
+        
+        predict(param, this.getClass().getSimpleName());
+    }
+
+
+    /**
+     * Test of predict method, of class OrdinalRegression, when the model is fitted with an optimizer.
+     */
+    @Test
+    public void testPredictWithOptimizer() {
+        logger.info("testPredictWithOptimizer");
+        
+        OrdinalRegression.TrainingParameters param = new OrdinalRegression.TrainingParameters();
+        param.setTotalIterations(100);
+        param.setL2(0.001);
+        param.setOptimizer(new LBFGS());
+        
+        predict(param, this.getClass().getSimpleName() + "Optimizer");
+    }
+
+
+    /**
+     * Fits the model with the provided parameters, stores and loads it and 
+     * checks its predictions on the validation set.
+     * 
+     * @param param
+     * @param storageName
+     */
+    private void predict(OrdinalRegression.TrainingParameters param, String storageName) {
         Configuration configuration = getConfiguration();
         
         
@@ -57,7 +90,6 @@ public class OrdinalRegressionTest extends AbstractTest {
         Dataframe validationData = data[1];
         
         
-        String storageName = this.getClass().getSimpleName();
 
         MinMaxScaler.TrainingParameters nsParams = new MinMaxScaler.TrainingParameters();
         MinMaxScaler numericalScaler = MLBuilder.create(nsParams, configuration);
@@ -71,14 +103,10 @@ public class OrdinalRegressionTest extends AbstractTest {
         categoricalEncoder.fit_transform(trainingData);
         categoricalEncoder.save(storageName);
 
-        String datasetName = "winesOrdinal";
+        String datasetName = storageName + "Dataset";
         trainingData.save(datasetName);
         trainingData.close();
 
-        OrdinalRegression.TrainingParameters param = new OrdinalRegression.TrainingParameters();
-        param.setTotalIterations(100);
-        param.setL2(0.001);
-
         OrdinalRegression instance = MLBuilder.create(param, configuration);
         trainingData = Dataframe.Builder.load(datasetName,configuration);
 
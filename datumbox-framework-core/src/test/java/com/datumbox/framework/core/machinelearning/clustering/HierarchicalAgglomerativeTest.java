@@ -16,7 +16,9 @@
 package com.datumbox.framework.core.machinelearning.clustering;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
 import com.datumbox.framework.core.machinelearning.modelselection.metrics.ClusteringMetrics;
 import com.datumbox.framework.core.machinelearning.modelselection.Validator;
@@ -28,6 +30,9 @@ import com.datumbox.framework.core.Datasets;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -154,4 +159,130 @@ public class HierarchicalAgglomerativeTest extends AbstractTest {
         trainingData.close();
     }
 
+    /**
+     * Test of the dendrogram of the fit method, of class HierarchicalAgglomerative.
+     * The merges of the points 1, 2, 4, 8, 9 and 15 are:
+     * SINGLE: {1,2} and {8,9} at 1, {1,2,4} at 2, {1,2,4,8,9} at 4, all at 6.
+     * COMPLETE: {1,2} and {8,9} at 1, {1,2,4} at 3, {8,9,15} at 7, all at 14.
+     * AVERAGE: {1,2} and {8,9} at 1, {1,2,4} at 2.5, {1,2,4,8,9} at 37/6, all at 10.2.
+     */
+    @Test
+    public void testDendrogram() {
+        logger.info("testDendrogram");
+
+        double[] points = {1.0, 2.0, 4.0, 8.0, 9.0, 15.0};
+
+        assertEquals(clusterSizes(0, 5, 5, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.SINGLE, 2, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 3, 3, 3), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.COMPLETE, 2, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 5, 5, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.AVERAGE, 2, Double.MAX_VALUE));
+
+        for(HierarchicalAgglomerative.TrainingParameters.Linkage linkage : HierarchicalAgglomerative.TrainingParameters.Linkage.values()) {
+            assertEquals(clusterSizes(0, 6), fitClusterSizes(points, linkage, 1, Double.MAX_VALUE));
+            assertEquals(clusterSizes(0, 3, 3, 2, 5, 1), fitClusterSizes(points, linkage, 3, Double.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Test of the maximum distance threshold of the fit method, of class
+     * HierarchicalAgglomerative. The merges at the threshold are not performed.
+     */
+    @Test
+    public void testMaxDistanceThreshold() {
+        logger.info("testMaxDistanceThreshold");
+
+        double[] points = {1.0, 2.0, 4.0, 8.0, 9.0, 15.0};
+
+        assertEquals(clusterSizes(0, 3, 3, 2, 5, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.SINGLE, 1, 3.0));
+        assertEquals(clusterSizes(0, 2, 2, 1, 3, 2, 5, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.COMPLETE, 1, 3.0));
+        assertEquals(clusterSizes(0, 3, 3, 2, 5, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.AVERAGE, 1, 3.0));
+    }
+
+    /**
+     * Test of the fit method with tied distances, of class HierarchicalAgglomerative.
+     * The points 1, 2, 3, 4 and 5 are equally spaced, so all the SINGLE merges
+     * are at 1 and they are performed in the order of the ids; the COMPLETE and
+     * AVERAGE merges are {1,2} and {3,4} at 1 and {3,4,5} at 2.
+     */
+    @Test
+    public void testTiedDistances() {
+        logger.info("testTiedDistances");
+
+        double[] points = {1.0, 2.0, 3.0, 4.0, 5.0};
+
+        assertEquals(clusterSizes(0, 4, 4, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.SINGLE, 2, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 3, 3, 1, 4, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.SINGLE, 3, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 2, 2, 3), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.COMPLETE, 2, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 2, 2, 2, 4, 1), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.COMPLETE, 3, Double.MAX_VALUE));
+        assertEquals(clusterSizes(0, 2, 2, 3), fitClusterSizes(points, HierarchicalAgglomerative.TrainingParameters.Linkage.AVERAGE, 2, Double.MAX_VALUE));
+    }
+
+    /**
+     * Test of the fit method with infinite and undefined distances, of class
+     * HierarchicalAgglomerative. The infinitely distant clusters are not merged.
+     */
+    @Test
+    public void testInfiniteDistances() {
+        logger.info("testInfiniteDistances");
+
+        double[] points = {1.0, 2.0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+
+        for(HierarchicalAgglomerative.TrainingParameters.Linkage linkage : HierarchicalAgglomerative.TrainingParameters.Linkage.values()) {
+            assertEquals(clusterSizes(0, 2, 2, 1, 3, 1), fitClusterSizes(points, linkage, 1, Double.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Fits the one-dimensional points and returns the sizes of the clusters.
+     * The clusters keep the smallest id of their points.
+     *
+     * @param points
+     * @param linkage
+     * @param minClustersThreshold
+     * @param maxDistanceThreshold
+     * @return
+     */
+    private Map<Integer, Integer> fitClusterSizes(double[] points, HierarchicalAgglomerative.TrainingParameters.Linkage linkage, double minClustersThreshold, double maxDistanceThreshold) {
+        Configuration configuration = getConfiguration();
+
+        Dataframe trainingData = new Dataframe(configuration);
+        for(double point : points) {
+            AssociativeArray xData = new AssociativeArray();
+            xData.put("x", point);
+            trainingData.add(new Record(xData, null));
+        }
+
+        HierarchicalAgglomerative.TrainingParameters param = new HierarchicalAgglomerative.TrainingParameters();
+        param.setDistanceMethod(HierarchicalAgglomerative.TrainingParameters.Distance.EUCLIDIAN);
+        param.setLinkageMethod(linkage);
+        param.setMinClustersThreshold(minClustersThreshold);
+        param.setMaxDistanceThreshold(maxDistanceThreshold);
+
+        HierarchicalAgglomerative instance = MLBuilder.create(param, configuration);
+        instance.fit(trainingData);
+
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for(Map.Entry<Integer, HierarchicalAgglomerative.Cluster> e : instance.getClusters().entrySet()) {
+            sizes.put(e.getKey(), e.getValue().size());
+        }
+
+        instance.close();
+        trainingData.close();
+
+        return sizes;
+    }
+
+    /**
+     * Returns a map of the cluster ids to their sizes from the provided pairs.
+     *
+     * @param idSizePairs
+     * @return
+     */
+    private Map<Integer, Integer> clusterSizes(int... idSizePairs) {
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for(int i=0;i<idSizePairs.length;i+=2) {
+            sizes.put(idSizePairs[i], idSizePairs[i+1]);
+        }
+        return sizes;
+    }
+
 }
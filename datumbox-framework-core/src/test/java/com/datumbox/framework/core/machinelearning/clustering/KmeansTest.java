@@ -16,7 +16,10 @@
 package com.datumbox.framework.core.machinelearning.clustering;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.common.utilities.RandomGenerator;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
 import com.datumbox.framework.core.machinelearning.modelselection.metrics.ClusteringMetrics;
 import com.datumbox.framework.core.machinelearning.modelselection.Validator;
@@ -26,8 +29,13 @@ import com.datumbox.framework.core.machinelearning.preprocessing.MinMaxScaler;
 import com.datumbox.framework.tests.Constants;
 import com.datumbox.framework.core.Datasets;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -164,5 +172,206 @@ public class KmeansTest extends AbstractTest {
         trainingData.close();
     }
 
+    /**
+     * Test of the PARALLEL_PLUS_PLUS initialization, of class Kmeans. It compares
+     * the wall time and the results with the PLUS_PLUS initialization.
+     */
+    @Test
+    public void testParallelPlusPlusInitialization() {
+        logger.info("testParallelPlusPlusInitialization");
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.heartDiseaseClusters(configuration);
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+        
+        MinMaxScaler numericalScaler = MLBuilder.create(new MinMaxScaler.TrainingParameters(), configuration);
+        numericalScaler.fit_transform(trainingData);
+        numericalScaler.transform(validationData);
+        
+        CornerConstraintsEncoder categoricalEncoder = MLBuilder.create(new CornerConstraintsEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+        
+        for(Kmeans.TrainingParameters.Initialization initialization : Arrays.asList(Kmeans.TrainingParameters.Initialization.PLUS_PLUS, Kmeans.TrainingParameters.Initialization.PARALLEL_PLUS_PLUS)) {
+            Kmeans.TrainingParameters param = new Kmeans.TrainingParameters();
+            param.setK(2);
+            param.setMaxIterations(200);
+            param.setInitializationMethod(initialization);
+            param.setDistanceMethod(Kmeans.TrainingParameters.Distance.EUCLIDIAN);
+            
+            Kmeans instance = MLBuilder.create(param, configuration);
+            long start = System.currentTimeMillis();
+            instance.fit(trainingData);
+            logger.info("{} fit in {} ms", initialization, System.currentTimeMillis()-start);
+            
+            assertEquals(2, (int) instance.getModelParameters().getC());
+            
+            instance.predict(validationData);
+            ClusteringMetrics vm = new ClusteringMetrics(validationData);
+            
+            double expResult = 1.0;
+            double result = vm.getPurity();
+            assertEquals(expResult, result, Constants.DOUBLE_ACCURACY_HIGH);
+            
+            instance.close();
+        }
+        
+        numericalScaler.close();
+        categoricalEncoder.close();
+        
+        trainingData.close();
+        validationData.close();
+    }
+
+    /**
+     * Benchmark of the PLUS_PLUS and PARALLEL_PLUS_PLUS initializations, of class
+     * Kmeans, on 20000 synthetic records with 20 features. It logs the wall time
+     * and the cost of the initial centroids for k=10 and k=50. It runs only when
+     * the benchmark system property is set (mvn test -Dbenchmark=true).
+     */
+    @Test
+    public void testInitializationBenchmark() {
+        logger.info("testInitializationBenchmark");
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.syntheticGaussianClusters(configuration, 20000, 20, 50);
+        Dataframe trainingData = data[0];
+        data[1].close();
+        
+        for(int k : Arrays.asList(10, 50)) {
+            for(Kmeans.TrainingParameters.Initialization initialization : Arrays.asList(Kmeans.TrainingParameters.Initialization.PLUS_PLUS, Kmeans.TrainingParameters.Initialization.PARALLEL_PLUS_PLUS)) {
+                RandomGenerator.getThreadLocalRandom().setSeed(Constants.RANDOM_SEED);
+                
+                Kmeans.TrainingParameters param = new Kmeans.TrainingParameters();
+                param.setK(k);
+                param.setMaxIterations(0); //only the initialization is measured
+                param.setInitializationMethod(initialization);
+                param.setDistanceMethod(Kmeans.TrainingParameters.Distance.EUCLIDIAN);
+                
+                Kmeans instance = MLBuilder.create(param, configuration);
+                long start = System.currentTimeMillis();
+                instance.fit(trainingData);
+                long time = System.currentTimeMillis()-start;
+                
+                Map<Integer, Kmeans.Cluster> clusterMap = instance.getModelParameters().getClusterMap();
+                assertEquals(k, clusterMap.size());
+                logger.info("k={} {} fit in {} ms with cost {}", k, initialization, time, cost(trainingData, clusterMap));
+                
+                instance.close();
+            }
+        }
+        
+        trainingData.close();
+    }
+    
+    /**
+     * Estimates the sum of the squared euclidean distances of the records from
+     * their closest centroids.
+     * 
+     * @param data
+     * @param clusterMap
+     * @return 
+     */
+    private double cost(Dataframe data, Map<Integer, Kmeans.Cluster> clusterMap) {
+        double cost = 0.0;
+        for(Record r : data) {
+            double minDistance = Double.POSITIVE_INFINITY;
+            for(Kmeans.Cluster c : clusterMap.values()) {
+                AssociativeArray centroid = c.getCentroid().getX();
+                double distance = 0.0;
+                for(Object feature : data.getXDataTypes().keySet()) {
+                    Double value = r.getX().getDouble(feature);
+                    Double centroidValue = centroid.getDouble(feature);
+                    double diff = (value!=null?value:0.0) - (centroidValue!=null?centroidValue:0.0);
+                    distance += diff*diff;
+                }
+                minDistance = Math.min(minDistance, distance);
+            }
+            cost += minDistance;
+        }
+        return cost;
+    }
+
+    /**
+     * Test of the bound-based algorithms, of class Kmeans.
+     */
+    @Test
+    public void testBoundedAlgorithms() {
+        logger.info("testBoundedAlgorithms");
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.heartDiseaseClusters(configuration);
+        Dataframe trainingData = data[0];
+        data[1].close();
+        
+        MinMaxScaler numericalScaler = MLBuilder.create(new MinMaxScaler.TrainingParameters(), configuration);
+        numericalScaler.fit_transform(trainingData);
+        
+        CornerConstraintsEncoder categoricalEncoder = MLBuilder.create(new CornerConstraintsEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        
+        for(Kmeans.TrainingParameters.Distance distance : Kmeans.TrainingParameters.Distance.values()) {
+            Kmeans.TrainingParameters param = new Kmeans.TrainingParameters();
+            param.setK(4);
+            param.setInitializationMethod(Kmeans.TrainingParameters.Initialization.FORGY);
+            param.setDistanceMethod(distance);
+            param.setWeighted(true);
+            
+            param.setAlgorithm(Kmeans.TrainingParameters.Algorithm.LLOYD);
+            Kmeans expInstance = MLBuilder.create(param, configuration);
+            expInstance.fit(trainingData);
+            Map<Integer, Kmeans.Cluster> expClusters = expInstance.getModelParameters().getClusterMap();
+            
+            for(Kmeans.TrainingParameters.Algorithm algorithm : Arrays.asList(Kmeans.TrainingParameters.Algorithm.HAMERLY, Kmeans.TrainingParameters.Algorithm.ELKAN)) {
+                param.setAlgorithm(algorithm);
+                Kmeans instance = MLBuilder.create(param, configuration);
+                instance.fit(trainingData);
+                
+                assertEquals(expInstance.getModelParameters().getTotalIterations(), instance.getModelParameters().getTotalIterations());
+                Map<Integer, Kmeans.Cluster> clusters = instance.getModelParameters().getClusterMap();
+                assertEquals(expClusters.keySet(), clusters.keySet());
+                for(Map.Entry<Integer, Kmeans.Cluster> e : expClusters.entrySet()) {
+                    Kmeans.Cluster expCluster = e.getValue();
+                    Kmeans.Cluster cluster = clusters.get(e.getKey());
+                    assertEquals(expCluster.size(), cluster.size());
+                    
+                    AssociativeArray expCentroid = expCluster.getCentroid().getX();
+                    AssociativeArray centroid = cluster.getCentroid().getX();
+                    for(Object feature : trainingData.getXDataTypes().keySet()) {
+                        Double expValue = expCentroid.getDouble(feature);
+                        Double value = centroid.getDouble(feature);
+                        assertEquals(expValue!=null?expValue:0.0, value!=null?value:0.0, Constants.DOUBLE_ACCURACY_HIGH);
+                    }
+                }
+                
+                instance.close();
+            }
+            
+            expInstance.close();
+        }
+        
+        numericalScaler.close();
+        categoricalEncoder.close();
+        
+        trainingData.close();
+    }
     
+    /**
+     * Test of setCategoricalGamaMultiplier method, of class Kmeans.TrainingParameters.
+     */
+    @Test
+    public void testNegativeCategoricalGamaMultiplier() {
+        logger.info("testNegativeCategoricalGamaMultiplier");
+        
+        Kmeans.TrainingParameters param = new Kmeans.TrainingParameters();
+        
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> param.setCategoricalGamaMultiplier(-1.0));
+        assertEquals(1.0, param.getCategoricalGamaMultiplier(), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
 }
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.clustering;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.core.machinelearning.modelselection.metrics.ClusteringMetrics;
+import com.datumbox.framework.core.machinelearning.preprocessing.CornerConstraintsEncoder;
+import com.datumbox.framework.core.machinelearning.preprocessing.MinMaxScaler;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for MiniBatchKmeans.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MiniBatchKmeansTest extends AbstractTest {
+
+    /**
+     * Test of predict method, of class MiniBatchKmeans.
+     */
+    @Test
+    public void testPredict() {
+        logger.info("testPredict");
+
+        Configuration configuration = getConfiguration();
+        
+        
+        Dataframe[] data = Datasets.heartDiseaseClusters(configuration);
+        
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+        
+        
+        String storageName = this.getClass().getSimpleName();
+
+        MinMaxScaler.TrainingParameters nsParams = new MinMaxScaler.TrainingParameters();
+        MinMaxScaler numericalScaler = MLBuilder.create(nsParams, configuration);
+
+        numericalScaler.fit_transform(trainingData);
+        numericalScaler.save(storageName);
+
+        CornerConstraintsEncoder.TrainingParameters ceParams = new CornerConstraintsEncoder.TrainingParameters();
+        CornerConstraintsEncoder categoricalEncoder = MLBuilder.create(ceParams, configuration);
+
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.save(storageName);
+        
+        MiniBatchKmeans.TrainingParameters param = new MiniBatchKmeans.TrainingParameters();
+        param.setK(2);
+        param.setBatchSize(20);
+        param.setMaxIterations(50);
+
+        MiniBatchKmeans instance = MLBuilder.create(param, configuration);
+        instance.fit(trainingData);
+        instance.save(storageName);
+
+        trainingData.close();
+        
+        instance.close();
+        numericalScaler.close();
+        categoricalEncoder.close();
+
+
+        numericalScaler = MLBuilder.load(MinMaxScaler.class, storageName, configuration);
+        categoricalEncoder = MLBuilder.load(CornerConstraintsEncoder.class, storageName, configuration);
+        instance = MLBuilder.load(MiniBatchKmeans.class, storageName, configuration);
+
+        assertEquals(50, instance.getModelParameters().getTotalIterations());
+
+        numericalScaler.transform(validationData);
+        categoricalEncoder.transform(validationData);
+        instance.predict(validationData);
+        ClusteringMetrics vm = new ClusteringMetrics(validationData);
+
+        double expResult = 1.0;
+        double result = vm.getPurity();
+        assertEquals(expResult, result, Constants.DOUBLE_ACCURACY_HIGH);
+
+        numericalScaler.delete();
+        categoricalEncoder.delete();
+        instance.delete();
+
+        validationData.close();
+    }
+
+    /**
+     * Test of partialFit method with a stream of Records, of class MiniBatchKmeans.
+     */
+    @Test
+    public void testPartialFitStream() {
+        logger.info("testPartialFitStream");
+
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.heartDiseaseClusters(configuration);
+        
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        MinMaxScaler numericalScaler = MLBuilder.create(new MinMaxScaler.TrainingParameters(), configuration);
+        numericalScaler.fit_transform(trainingData);
+        numericalScaler.transform(validationData);
+
+        CornerConstraintsEncoder categoricalEncoder = MLBuilder.create(new CornerConstraintsEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+        
+        MiniBatchKmeans.TrainingParameters param = new MiniBatchKmeans.TrainingParameters();
+        param.setK(2);
+        param.setBatchSize(20);
+
+        MiniBatchKmeans instance = MLBuilder.create(param, configuration);
+        
+        //the records are consumed in batches, without collecting the stream
+        int n = trainingData.size();
+        for(int epoch=0;epoch<5;epoch++) {
+            instance.partialFit(trainingData.stream());
+        }
+        
+        MiniBatchKmeans.ModelParameters modelParameters = instance.getModelParameters();
+        assertEquals(2, (int) modelParameters.getC());
+        int batchesPerEpoch = (int) Math.ceil(n/20.0);
+        assertEquals((int) Math.ceil((n-2)/20.0) + 4*batchesPerEpoch, modelParameters.getTotalIterations());
+        assertEquals(5*n, modelParameters.getClusterMap().values().stream().mapToInt(MiniBatchKmeans.Cluster::size).sum());
+
+        instance.predict(validationData);
+        ClusteringMetrics vm = new ClusteringMetrics(validationData);
+
+        double expResult = 1.0;
+        double result = vm.getPurity();
+        assertEquals(expResult, result, Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.close();
+        numericalScaler.close();
+        categoricalEncoder.close();
+        
+        trainingData.close();
+        validationData.close();
+    }
+
+    /**
+     * Test of updateClusterParameters method, of class MiniBatchKmeans.Cluster.
+     */
+    @Test
+    public void testUpdateClusterParameters() {
+        logger.info("testUpdateClusterParameters");
+
+        AssociativeArray xData = new AssociativeArray();
+        xData.put("x", 2.0);
+
+        MiniBatchKmeans.Cluster cluster = new MiniBatchKmeans.Cluster(0);
+        cluster.add(new Record(xData, null));
+        cluster.updateClusterParameters();
+        Record centroid = cluster.getCentroid();
+
+        //the centroid does not change until the next update
+        xData.put("x", 4.0);
+        cluster.add(new Record(xData, null));
+        assertEquals(2.0, centroid.getX().getDouble("x"), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(2.0, cluster.getCentroid().getX().getDouble("x"), Constants.DOUBLE_ACCURACY_HIGH);
+
+        cluster.updateClusterParameters();
+        assertEquals(3.0, cluster.getCentroid().getX().getDouble("x"), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for FeatureClassWeights.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class FeatureClassWeightsTest extends AbstractTest {
+
+    /**
+     * Test of the Map view of FeatureClassWeights.
+     */
+    @Test
+    public void testMapView() {
+        logger.info("testMapView");
+
+        assertMapView(new FeatureClassWeights());
+        assertMapView(new FeatureClassWeights(new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Test of the int-indexed methods of FeatureClassWeights.
+     */
+    @Test
+    public void testIndexedAccess() {
+        logger.info("testIndexedAccess");
+
+        assertIndexedAccess(new FeatureClassWeights());
+        assertIndexedAccess(new FeatureClassWeights(new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Test of the writes of FeatureClassWeights while the storage grows.
+     */
+    @Test
+    public void testConcurrentGrowth() {
+        logger.info("testConcurrentGrowth");
+
+        FeatureClassWeights weights = new FeatureClassWeights();
+        int c0 = weights.internClass("c0");
+        int n = 2000;
+        IntStream.range(0, 4*n).parallel().forEach(i -> {
+            int featureId = weights.internFeature("f" + (i%n)); //new ids force the storage to grow
+            weights.addWeight(featureId, c0, 1.0);
+        });
+
+        assertEquals(n, weights.size());
+        for(int f=0;f<n;f++) {
+            assertEquals(4.0, weights.getWeight(weights.getFeatureId("f" + f), c0), Constants.DOUBLE_ACCURACY_HIGH);
+        }
+    }
+
+    /**
+     * Checks the Map view of the provided empty weights.
+     *
+     * @param weights
+     */
+    private void assertMapView(FeatureClassWeights weights) {
+        Map<List<Object>, Double> expResult = new HashMap<>();
+        for(int f=0;f<50;f++) {
+            for(String c : Arrays.asList("a", "b", "c")) {
+                weights.put(Arrays.asList("feature" + f, c), f*1.0);
+                expResult.put(Arrays.asList("feature" + f, c), f*1.0);
+            }
+        }
+        weights.put(Arrays.asList("feature0", "d"), -1.0); //the addition of a new class changes the layout
+        expResult.put(Arrays.asList("feature0", "d"), -1.0);
+
+        assertEquals(expResult, weights);
+        assertEquals(expResult.size(), weights.size());
+        assertNull(weights.get(Arrays.asList("feature1", "d")));
+        assertEquals(10.0, weights.get(Arrays.asList("feature10", "b")), Constants.DOUBLE_ACCURACY_HIGH);
+
+        assertEquals(-1.0, weights.remove(Arrays.asList("feature0", "d")), Constants.DOUBLE_ACCURACY_HIGH);
+        expResult.remove(Arrays.asList("feature0", "d"));
+        assertEquals(expResult, weights);
+
+        weights.clear();
+        assertTrue(weights.isEmpty());
+    }
+
+    /**
+     * Checks the int-indexed methods of the provided empty weights.
+     *
+     * @param weights
+     */
+    private void assertIndexedAccess(FeatureClassWeights weights) {
+        int c0 = weights.internClass("c0");
+        int c1 = weights.internClass("c1");
+        int f0 = weights.internFeature("f0");
+        int f1 = weights.internFeature("f1");
+        weights.ensureCapacity();
+
+        assertFalse(weights.containsWeight(f0, c0));
+        assertEquals(0.0, weights.getWeight(f1, c1), Constants.DOUBLE_ACCURACY_HIGH);
+
+        weights.setWeight(f0, c0, 1.0);
+        weights.addWeight(f0, c1, 2.0);
+        weights.addWeight(f0, c1, 3.0);
+        assertEquals(2, weights.size());
+        assertEquals(5.0, weights.get(Arrays.asList("f0", "c1")), Constants.DOUBLE_ACCURACY_HIGH);
+
+        FeatureClassWeights copy = weights.copy();
+        copy.setWeight(f1, c0, 4.0);
+        assertEquals(copy.getFeatureId("f1"), f1);
+        assertFalse(weights.containsWeight(f1, c0));
+
+        int[] featureIds = new int[]{f0, f1, -1};
+        double[] values = new double[]{2.0, 0.5, 10.0};
+        assertEquals(4.0, copy.dotProduct(c0, featureIds, values, featureIds.length), Constants.DOUBLE_ACCURACY_HIGH);
+
+        weights.copyFrom(copy);
+        assertEquals(copy, weights);
+        assertTrue(weights.emptyCopy().isEmpty());
+        assertEquals(weights.isDense(), weights.emptyCopy().isDense());
+    }
+
+    /**
+     * Test of intern and getId methods, of class ObjectInterner.
+     */
+    @Test
+    public void testObjectInterner() {
+        logger.info("testObjectInterner");
+
+        ObjectInterner interner = new ObjectInterner();
+        for(int i=0;i<20;i++) { //more than the initial capacity
+            assertEquals(i, interner.intern("o" + i));
+        }
+        assertEquals(5, interner.intern("o5"));
+        assertEquals(20, interner.size());
+        assertEquals("o19", interner.getObject(19));
+        assertEquals(-1, interner.getId("missing"));
+        assertEquals(-1, interner.getId(null));
+
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> interner.intern(null));
+        assertEquals(20, interner.size());
+    }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.common.concurrency.ForkJoinStream;
+import com.datumbox.framework.common.concurrency.StreamMethods;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for GradientAccumulator.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class GradientAccumulatorTest extends AbstractTest {
+
+    /**
+     * Test of add and merge methods, of class GradientAccumulator.
+     */
+    @Test
+    public void testAddAndMerge() {
+        logger.info("testAddAndMerge");
+
+        int dimension = 1000;
+        GradientAccumulator sparse = new GradientAccumulator(dimension);
+        sparse.add(3, 1.0);
+        sparse.add(3, 2.0);
+        sparse.add(998, -1.0);
+
+        GradientAccumulator dense = new GradientAccumulator(dimension);
+        for(int i=0;i<dimension;i+=2) { //exceeds the sparse limit
+            dense.add(i, 0.5);
+        }
+
+        GradientAccumulator sum = sparse.merge(dense);
+        assertEquals(3.0, sum.get(3), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(0.5, sum.get(4), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(-0.5, sum.get(998), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(0.0, sum.get(5), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+    /**
+     * Test of collector method, of class GradientAccumulator.
+     */
+    @Test
+    public void testCollector() {
+        logger.info("testCollector");
+
+        int dimension = 500;
+        int n = 10000;
+        ForkJoinStream streamExecutor = new ForkJoinStream(getConfiguration().getConcurrencyConfiguration());
+        GradientAccumulator gradient = streamExecutor.collect(StreamMethods.stream(IntStream.range(0, n).boxed(), true), GradientAccumulator.collector(dimension, (accumulator, i) -> {
+            accumulator.add(i%dimension, 1.0);
+        }));
+
+        double[] total = new double[1];
+        gradient.forEachNonZero((i, v) -> {
+            assertEquals(n/dimension, v, Constants.DOUBLE_ACCURACY_HIGH);
+            total[0] += v;
+        });
+        assertEquals(n, total[0], Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+}
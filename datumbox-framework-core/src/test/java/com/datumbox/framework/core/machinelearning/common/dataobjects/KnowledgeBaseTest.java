@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.core.machinelearning.classification.MultinomialNaiveBayes;
+import com.datumbox.framework.core.machinelearning.preprocessing.OneHotEncoder;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for KnowledgeBase.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class KnowledgeBaseTest extends AbstractTest {
+
+    /**
+     * Test of saveAsync method, of class KnowledgeBase.
+     */
+    @Test
+    public void testSaveAsync() throws Exception {
+        logger.info("testSaveAsync");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsCategorical(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        String storageName = this.getClass().getSimpleName();
+
+        OneHotEncoder categoricalEncoder = MLBuilder.create(new OneHotEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+
+        MultinomialNaiveBayes instance = MLBuilder.create(new MultinomialNaiveBayes.TrainingParameters(), configuration);
+        instance.fit(trainingData);
+
+        CompletableFuture<Void> future = instance.saveAsync(storageName);
+
+        //the model keeps serving while it is written
+        Dataframe expData = validationData.copy();
+        instance.predict(expData);
+
+        //the model was copied when saveAsync() returned, so updating it does not affect the saved one
+        instance.partialFit(validationData);
+
+        future.get();
+        instance.close();
+
+        instance = MLBuilder.load(MultinomialNaiveBayes.class, storageName, configuration);
+        instance.predict(validationData);
+
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record r = expData.get(e.getKey());
+            assertEquals(r.getYPredicted(), e.getValue().getYPredicted());
+            assertEquals(r.getYPredictedProbabilities(), e.getValue().getYPredictedProbabilities());
+        }
+
+        instance.delete();
+
+        categoricalEncoder.close();
+        trainingData.close();
+        validationData.close();
+        expData.close();
+    }
+
+    /**
+     * Test of replacing a snapshot with saveAsync and of closing the model
+     * before the write completes, of class KnowledgeBase.
+     */
+    @Test
+    public void testSaveAsyncReplacesSnapshot() {
+        logger.info("testSaveAsyncReplacesSnapshot");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsCategorical(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        String storageName = this.getClass().getSimpleName() + "Snapshot";
+
+        OneHotEncoder categoricalEncoder = MLBuilder.create(new OneHotEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+
+        MultinomialNaiveBayes instance = MLBuilder.create(new MultinomialNaiveBayes.TrainingParameters(), configuration);
+        instance.fit(trainingData);
+
+        Path snapshot = ModelSnapshot.getPath(configuration.getStorageConfiguration(), storageName + configuration.getStorageConfiguration().getStorageNameSeparator() + MultinomialNaiveBayes.class.getSimpleName());
+        if(snapshot != null) {
+            instance.saveSnapshot(storageName);
+            assertTrue(Files.exists(snapshot));
+        }
+
+        Dataframe expData = validationData.copy();
+        instance.predict(expData);
+
+        //the close waits for the write and the old snapshot is removed once the storage is published
+        CompletableFuture<Void> future = instance.saveAsync(storageName);
+        instance.close();
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+        if(snapshot != null) {
+            assertFalse(Files.exists(snapshot));
+        }
+
+        instance = MLBuilder.load(MultinomialNaiveBayes.class, storageName, configuration);
+        assertFalse(instance.getModelParameters().getLogLikelihoods().isReadOnly());
+        instance.predict(validationData);
+
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record r = expData.get(e.getKey());
+            assertEquals(r.getYPredicted(), e.getValue().getYPredicted());
+        }
+
+        instance.delete();
+
+        categoricalEncoder.close();
+        trainingData.close();
+        validationData.close();
+        expData.close();
+    }
+
+    /**
+     * Test of saveAsync under the name of the loaded storage, of class
+     * KnowledgeBase.
+     */
+    @Test
+    public void testSaveAsyncSameName() throws Exception {
+        logger.info("testSaveAsyncSameName");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsCategorical(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        String storageName = this.getClass().getSimpleName() + "SameName";
+
+        OneHotEncoder categoricalEncoder = MLBuilder.create(new OneHotEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+
+        MultinomialNaiveBayes instance = MLBuilder.create(new MultinomialNaiveBayes.TrainingParameters(), configuration);
+        instance.fit(trainingData);
+        instance.save(storageName);
+        instance.close();
+
+        //the incremental workflow updates the loaded model and saves it under the same name
+        instance = MLBuilder.load(MultinomialNaiveBayes.class, storageName, configuration);
+        instance.partialFit(trainingData);
+        CompletableFuture<Void> future = instance.saveAsync(storageName);
+        future.get();
+
+        Dataframe expData = validationData.copy();
+        instance.predict(expData);
+        instance.close();
+
+        instance = MLBuilder.load(MultinomialNaiveBayes.class, storageName, configuration);
+        instance.predict(validationData);
+
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record r = expData.get(e.getKey());
+            assertEquals(r.getYPredicted(), e.getValue().getYPredicted());
+            assertEquals(r.getYPredictedProbabilities(), e.getValue().getYPredictedProbabilities());
+        }
+
+        instance.delete();
+
+        categoricalEncoder.close();
+        trainingData.close();
+        validationData.close();
+        expData.close();
+    }
+
+}
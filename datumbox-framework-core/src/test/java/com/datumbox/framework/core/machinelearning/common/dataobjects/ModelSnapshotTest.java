@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.common.dataobjects;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.core.machinelearning.classification.MultinomialNaiveBayes;
+import com.datumbox.framework.core.machinelearning.preprocessing.OneHotEncoder;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for ModelSnapshot.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class ModelSnapshotTest extends AbstractTest {
+
+    /**
+     * Test of loading a model which was saved as a snapshot.
+     */
+    @Test
+    public void testSaveSnapshot() {
+        logger.info("testSaveSnapshot");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.carsCategorical(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        String storageName = this.getClass().getSimpleName();
+
+        OneHotEncoder categoricalEncoder = MLBuilder.create(new OneHotEncoder.TrainingParameters(), configuration);
+        categoricalEncoder.fit_transform(trainingData);
+        categoricalEncoder.transform(validationData);
+
+        MultinomialNaiveBayes.TrainingParameters param = new MultinomialNaiveBayes.TrainingParameters();
+        param.setMultiProbabilityWeighted(true);
+
+        MultinomialNaiveBayes instance = MLBuilder.create(param, configuration);
+        instance.fit(trainingData);
+        instance.saveSnapshot(storageName);
+
+        Map<List<Object>, Double> expLogLikelihoods = new HashMap<>(instance.getModelParameters().getLogLikelihoods());
+        Dataframe expData = validationData.copy();
+        instance.predict(expData);
+
+        instance.close();
+
+
+        instance = MLBuilder.load(MultinomialNaiveBayes.class, storageName, configuration);
+
+        FeatureClassWeights logLikelihoods = instance.getModelParameters().getLogLikelihoods();
+        assertTrue(logLikelihoods.isReadOnly());
+        assertEquals(expLogLikelihoods, logLikelihoods);
+
+        instance.predict(validationData);
+
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            Record r = expData.get(e.getKey());
+            assertEquals(r.getYPredicted(), e.getValue().getYPredicted());
+            assertEquals(r.getYPredictedProbabilities(), e.getValue().getYPredictedProbabilities());
+        }
+
+        Path snapshot = ModelSnapshot.getPath(configuration.getStorageConfiguration(), storageName + configuration.getStorageConfiguration().getStorageNameSeparator() + MultinomialNaiveBayes.class.getSimpleName());
+        assertTrue(Files.exists(snapshot));
+
+        instance.delete();
+        assertFalse(Files.exists(snapshot));
+
+        categoricalEncoder.close();
+        trainingData.close();
+        validationData.close();
+        expData.close();
+    }
+
+    /**
+     * Test of the read-only weights of the snapshot.
+     */
+    @Test
+    public void testReadOnlyWeights() throws Exception {
+        logger.info("testReadOnlyWeights");
+
+        Configuration configuration = getConfiguration();
+
+        MultinomialNaiveBayes.TrainingParameters param = new MultinomialNaiveBayes.TrainingParameters();
+        MultinomialNaiveBayes instance = MLBuilder.create(param, configuration);
+        MultinomialNaiveBayes.ModelParameters modelParameters = instance.getModelParameters();
+
+        FeatureClassWeights weights = modelParameters.getLogLikelihoods();
+        for(int f=0;f<100;f++) {
+            weights.put(Arrays.asList("feature" + f, f%3), f*0.5);
+        }
+
+        Path file = Files.createTempFile(this.getClass().getSimpleName(), ModelSnapshot.FILE_EXTENSION);
+        ModelSnapshot.save(file, param, modelParameters);
+
+        FeatureClassWeights result = ((MultinomialNaiveBayes.ModelParameters) ModelSnapshot.open(file).getModelParameters()).getLogLikelihoods();
+        assertTrue(result.isReadOnly());
+        assertEquals(weights, result);
+        assertEquals(weights.getWeight(weights.getFeatureId("feature10"), weights.getClassId(1)), result.getWeight(result.getFeatureId("feature10"), result.getClassId(1)), Constants.DOUBLE_ACCURACY_HIGH);
+
+        TestUtils.assertThrows(UnsupportedOperationException.class, () -> result.setWeight(0, 0, 1.0));
+
+        //the rejected put must not intern the new feature in the shared dictionary
+        int numberOfFeatures = result.getFeatureDictionary().size();
+        TestUtils.assertThrows(UnsupportedOperationException.class, () -> result.put(Arrays.asList("newFeature", 0), 1.0));
+        assertEquals(numberOfFeatures, result.getFeatureDictionary().size());
+        assertEquals(-1, result.getFeatureId("newFeature"));
+
+        FeatureClassWeights copy = result.copy();
+        assertFalse(copy.isReadOnly());
+        copy.setWeight(0, 0, 1.0);
+        assertEquals(1.0, copy.getWeight(0, 0), Constants.DOUBLE_ACCURACY_HIGH);
+
+        Files.delete(file);
+        instance.close();
+    }
+
+    /**
+     * Test of rejecting the snapshot of a model without FeatureClassWeights.
+     */
+    @Test
+    public void testSaveWithoutWeights() throws Exception {
+        logger.info("testSaveWithoutWeights");
+
+        Configuration configuration = getConfiguration();
+
+        OneHotEncoder.TrainingParameters param = new OneHotEncoder.TrainingParameters();
+        OneHotEncoder instance = MLBuilder.create(param, configuration);
+
+        Path file = Files.createTempFile(this.getClass().getSimpleName(), ModelSnapshot.FILE_EXTENSION);
+        Files.delete(file);
+
+        TestUtils.assertThrows(UnsupportedOperationException.class, () -> ModelSnapshot.save(file, param, instance.getModelParameters()));
+        assertFalse(Files.exists(file));
+
+        instance.close();
+    }
+
+}
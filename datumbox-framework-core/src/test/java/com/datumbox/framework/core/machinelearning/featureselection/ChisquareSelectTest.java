@@ -16,17 +16,24 @@
 package com.datumbox.framework.core.machinelearning.featureselection;
 
 import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
 import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.Constants;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test cases for ChisquareSelect.
@@ -76,5 +83,121 @@ public class ChisquareSelectTest extends AbstractTest {
         trainingData.close();
         validationData.close();
     }
+
+    /**
+     * Test of transform method for a single Record, of class ChisquareSelect.
+     */
+    @Test
+    public void testTransformRecord() {
+        logger.info("testTransformRecord");
+        
+        Configuration configuration = getConfiguration();
+        
+        Dataframe[] data = Datasets.featureSelectorCategorical(configuration, 1000);
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+        
+        ChisquareSelect.TrainingParameters param = new ChisquareSelect.TrainingParameters();
+        param.setRareFeatureThreshold(2);
+        param.setMaxFeatures(5);
+        param.setALevel(0.05);
+        
+        ChisquareSelect instance = MLBuilder.create(param, configuration);
+        instance.fit(trainingData);
+        
+        Map<Integer, Record> result = new HashMap<>();
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            result.put(e.getKey(), instance.transform(e.getValue()));
+        }
+        
+        instance.transform(validationData);
+        
+        for(Map.Entry<Integer, Record> e : validationData.entries()) {
+            assertEquals(e.getValue().getX(), result.get(e.getKey()).getX());
+        }
+        
+        //the trained DataType of the column is used, even if the value of the record looks categorical
+        AssociativeArray xData = new AssociativeArray();
+        xData.put("has_boat", 1);
+        xData.put("has_dog", "1");
+        Record r = instance.transform(new Record(xData, null));
+        assertEquals(new HashSet<>(Arrays.asList("has_boat")), r.getX().keySet());
+        
+        instance.close();
+        
+        trainingData.close();
+        validationData.close();
+    }
     
+    /**
+     * Test of merge method, of class ChisquareSelect.
+     */
+    @Test
+    public void testMerge() {
+        logger.info("testMerge");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.featureSelectorCategorical(configuration, 1000);
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        Dataframe firstBatch = new Dataframe(configuration);
+        Dataframe secondBatch = new Dataframe(configuration);
+        for(Map.Entry<Integer, Record> e : trainingData.entries()) {
+            if(e.getKey()%2==0) {
+                firstBatch.add(e.getValue());
+            }
+            else {
+                secondBatch.add(e.getValue());
+            }
+        }
+
+        ChisquareSelect.TrainingParameters param = new ChisquareSelect.TrainingParameters();
+        param.setRareFeatureThreshold(2);
+        param.setMaxFeatures(5);
+        param.setALevel(0.05);
+
+        //a plain fit drops the counts
+        ChisquareSelect expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+        assertNull(expInstance.getModelParameters().getClassCounts());
+        assertTrue(expInstance.getModelParameters().getFeatureClassCounts().isEmpty());
+
+        String storageName = this.getClass().getSimpleName() + "Merge";
+        ChisquareSelect instance = MLBuilder.create(param, configuration);
+        instance.partialFit(firstBatch);
+        instance.save(storageName);
+        instance.close();
+
+        ChisquareSelect.TrainingParameters incrementalParam = new ChisquareSelect.TrainingParameters();
+        incrementalParam.setRareFeatureThreshold(2);
+        incrementalParam.setMaxFeatures(5);
+        incrementalParam.setALevel(0.05);
+        incrementalParam.setIncremental(true);
+
+        ChisquareSelect otherInstance = MLBuilder.create(incrementalParam, configuration);
+        otherInstance.fit(secondBatch);
+
+        instance = MLBuilder.load(ChisquareSelect.class, storageName, configuration);
+        instance.merge(otherInstance);
+
+        Map<Object, Double> expResult = expInstance.getModelParameters().getFeatureScores();
+        Map<Object, Double> result = instance.getModelParameters().getFeatureScores();
+        assertEquals(expResult.keySet(), result.keySet());
+        for(Map.Entry<Object, Double> e : expResult.entrySet()) {
+            assertEquals(e.getValue(), result.get(e.getKey()), Constants.DOUBLE_ACCURACY_HIGH);
+        }
+        assertEquals(trainingData.size(), instance.getModelParameters().getN().intValue());
+
+        instance.delete();
+        otherInstance.close();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+        validationData.close();
+    }
+
 }
@@ -17,13 +17,16 @@ package com.datumbox.framework.core.machinelearning.featureselection;
 
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.common.dataobjects.Record;
 import com.datumbox.framework.core.machinelearning.MLBuilder;
 import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.tests.Constants;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -75,5 +78,65 @@ public class TFIDFTest extends AbstractTest {
 
         validationData.close();
     }
-    
+
+    /**
+     * Test of partialFit method, of class TFIDF.
+     */
+    @Test
+    public void testPartialFit() {
+        logger.info("testPartialFit");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.featureSelectorTFIDF(configuration);
+
+        Dataframe trainingData = data[0];
+        Dataframe validationData = data[1];
+
+        Dataframe firstBatch = new Dataframe(configuration);
+        Dataframe secondBatch = new Dataframe(configuration);
+        for(Map.Entry<Integer, Record> e : trainingData.entries()) {
+            if(e.getKey()%2==0) {
+                firstBatch.add(e.getValue());
+            }
+            else {
+                secondBatch.add(e.getValue());
+            }
+        }
+
+        TFIDF.TrainingParameters param = new TFIDF.TrainingParameters();
+        param.setBinarized(false);
+        param.setMaxFeatures(3);
+
+        TFIDF expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+
+        String storageName = this.getClass().getSimpleName() + "Partial";
+        TFIDF instance = MLBuilder.create(param, configuration);
+        instance.partialFit(firstBatch);
+        instance.save(storageName);
+        instance.close();
+
+        instance = MLBuilder.load(TFIDF.class, storageName, configuration);
+        instance.partialFit(secondBatch);
+
+        Map<Object, Double> expResult = expInstance.getModelParameters().getFeatureScores();
+        Map<Object, Double> result = instance.getModelParameters().getFeatureScores();
+        assertEquals(expResult.keySet(), result.keySet());
+        for(Map.Entry<Object, Double> e : expResult.entrySet()) {
+            assertEquals(e.getValue(), result.get(e.getKey()), Constants.DOUBLE_ACCURACY_HIGH);
+        }
+
+        instance.transform(validationData);
+        assertEquals(new HashSet<>(Arrays.asList("important1", "important2", "important3")), validationData.getXDataTypes().keySet());
+
+        instance.delete();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+        validationData.close();
+    }
+
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.preprocessing;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for MaxAbsScaler.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MaxAbsScalerTest extends AbstractTest {
+
+    /**
+     * Test of partialFit method, of class MaxAbsScaler.
+     */
+    @Test
+    public void testPartialFit() {
+        logger.info("testPartialFit");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.scalerNumerical(configuration, 500);
+        Dataframe firstBatch = data[0];
+        Dataframe secondBatch = data[1];
+        Dataframe trainingData = data[2];
+
+        MaxAbsScaler.TrainingParameters param = new MaxAbsScaler.TrainingParameters();
+        param.setScaleResponse(true);
+
+        MaxAbsScaler expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+
+        MaxAbsScaler instance = MLBuilder.create(param, configuration);
+        instance.partialFit(firstBatch);
+        instance.partialFit(secondBatch);
+
+        assertStatistics(expInstance.getModelParameters(), instance.getModelParameters());
+
+        instance.close();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+    }
+
+    /**
+     * Test of merge method, of class MaxAbsScaler.
+     */
+    @Test
+    public void testMerge() {
+        logger.info("testMerge");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.scalerNumerical(configuration, 500);
+        Dataframe firstBatch = data[0];
+        Dataframe secondBatch = data[1];
+        Dataframe trainingData = data[2];
+
+        MaxAbsScaler.TrainingParameters param = new MaxAbsScaler.TrainingParameters();
+        param.setScaleResponse(true);
+
+        MaxAbsScaler expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+
+        String storageName = this.getClass().getSimpleName() + "Merge";
+        MaxAbsScaler instance = MLBuilder.create(param, configuration);
+        instance.fit(firstBatch);
+        instance.save(storageName);
+        instance.close();
+
+        MaxAbsScaler otherInstance = MLBuilder.create(param, configuration);
+        otherInstance.fit(secondBatch);
+
+        instance = MLBuilder.load(MaxAbsScaler.class, storageName, configuration);
+        instance.merge(otherInstance);
+
+        assertStatistics(expInstance.getModelParameters(), instance.getModelParameters());
+        assertEquals(7.0, instance.getModelParameters().getMaxAbsoluteColumnValues().get("single"), Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.delete();
+        otherInstance.close();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+    }
+
+    /**
+     * Asserts that the statistics of the two scalers are equal.
+     *
+     * @param expResult
+     * @param result
+     */
+    private void assertStatistics(MaxAbsScaler.ModelParameters expResult, MaxAbsScaler.ModelParameters result) {
+        TestUtils.assertDoubleMap(expResult.getMaxAbsoluteColumnValues(), result.getMaxAbsoluteColumnValues());
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.machinelearning.preprocessing;
+
+import com.datumbox.framework.common.Configuration;
+import com.datumbox.framework.core.Datasets;
+import com.datumbox.framework.core.common.dataobjects.Dataframe;
+import com.datumbox.framework.core.machinelearning.MLBuilder;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for StandardScaler.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class StandardScalerTest extends AbstractTest {
+
+    /**
+     * Test of partialFit method, of class StandardScaler.
+     */
+    @Test
+    public void testPartialFit() {
+        logger.info("testPartialFit");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.scalerNumerical(configuration, 500);
+        Dataframe firstBatch = data[0];
+        Dataframe secondBatch = data[1];
+        Dataframe trainingData = data[2];
+
+        StandardScaler.TrainingParameters param = new StandardScaler.TrainingParameters();
+        param.setScaleResponse(true);
+
+        StandardScaler expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+
+        StandardScaler instance = MLBuilder.create(param, configuration);
+        instance.partialFit(firstBatch);
+        instance.partialFit(secondBatch);
+
+        assertStatistics(expInstance.getModelParameters(), instance.getModelParameters());
+
+        instance.close();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+    }
+
+    /**
+     * Test of merge method, of class StandardScaler.
+     */
+    @Test
+    public void testMerge() {
+        logger.info("testMerge");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.scalerNumerical(configuration, 500);
+        Dataframe firstBatch = data[0];
+        Dataframe secondBatch = data[1];
+        Dataframe trainingData = data[2];
+
+        StandardScaler.TrainingParameters param = new StandardScaler.TrainingParameters();
+        param.setScaleResponse(true);
+
+        StandardScaler expInstance = MLBuilder.create(param, configuration);
+        expInstance.fit(trainingData);
+
+        String storageName = this.getClass().getSimpleName() + "Merge";
+        StandardScaler instance = MLBuilder.create(param, configuration);
+        instance.fit(firstBatch);
+        instance.save(storageName);
+        instance.close();
+
+        StandardScaler otherInstance = MLBuilder.create(param, configuration);
+        otherInstance.fit(secondBatch);
+
+        instance = MLBuilder.load(StandardScaler.class, storageName, configuration);
+        instance.merge(otherInstance);
+
+        assertStatistics(expInstance.getModelParameters(), instance.getModelParameters());
+
+        instance.delete();
+        otherInstance.close();
+        expInstance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+    }
+
+    /**
+     * Test of fit method on a column with a single value, of class StandardScaler.
+     */
+    @Test
+    public void testSingleValueColumn() {
+        logger.info("testSingleValueColumn");
+
+        Configuration configuration = getConfiguration();
+
+        Dataframe[] data = Datasets.scalerNumerical(configuration, 10);
+        Dataframe firstBatch = data[0];
+        Dataframe secondBatch = data[1];
+        Dataframe trainingData = data[2];
+
+        StandardScaler.TrainingParameters param = new StandardScaler.TrainingParameters();
+        StandardScaler instance = MLBuilder.create(param, configuration);
+        instance.fit(firstBatch);
+
+        StandardScaler.ModelParameters modelParameters = instance.getModelParameters();
+        assertEquals(7.0, modelParameters.getMeanColumnValues().get("single"), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(0.0, modelParameters.getStdColumnValues().get("single"), Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.transform(firstBatch);
+        assertEquals(1.0, firstBatch.get(0).getX().getDouble("single"), Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.close();
+
+        firstBatch.close();
+        secondBatch.close();
+        trainingData.close();
+    }
+
+    /**
+     * Asserts that the statistics of the two scalers are equal.
+     *
+     * @param expResult
+     * @param result
+     */
+    private void assertStatistics(StandardScaler.ModelParameters expResult, StandardScaler.ModelParameters result) {
+        TestUtils.assertDoubleMap(expResult.getCountColumnValues(), result.getCountColumnValues());
+        TestUtils.assertDoubleMap(expResult.getMeanColumnValues(), result.getMeanColumnValues());
+        TestUtils.assertDoubleMap(expResult.getStdColumnValues(), result.getStdColumnValues());
+        TestUtils.assertDoubleMap(expResult.getM2ColumnValues(), result.getM2ColumnValues());
+    }
+
+}
@@ -26,6 +26,7 @@ import com.datumbox.framework.core.machinelearning.modelselection.Validator;
 import com.datumbox.framework.core.machinelearning.modelselection.splitters.KFoldSplitter;
 import com.datumbox.framework.core.machinelearning.preprocessing.CornerConstraintsEncoder;
 import com.datumbox.framework.core.machinelearning.preprocessing.StandardScaler;
+import com.datumbox.framework.core.mathematics.optimizers.Adam;
 import com.datumbox.framework.tests.Constants;
 import com.datumbox.framework.core.Datasets;
 import com.datumbox.framework.tests.abstracts.AbstractTest;
@@ -47,6 +48,43 @@ public class NLMSTest extends AbstractTest {
     public void testPredict() {
         logger.info("testPredict");
         
+        NLMS.TrainingParameters param = new NLMS.TrainingParameters();
+        param.setTotalIterations(1600);
+        param.setL1(0.00000001);
+        
+        predict(param, this.getClass().getSimpleName(), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+
+    /**
+     * Test of predict method, of class NLMS, when the model is fitted with an optimizer.
+     */
+    @Test
+    public void testPredictWithOptimizer() {
+        logger.info("testPredictWithOptimizer");
+        
+        Adam optimizer = new Adam();
+        optimizer.setLearningRate(0.05);
+        optimizer.setBatchSize(8);
+        optimizer.setTolerance(1e-14);
+
+        NLMS.TrainingParameters param = new NLMS.TrainingParameters();
+        param.setTotalIterations(3000);
+        param.setOptimizer(optimizer);
+        
+        predict(param, this.getClass().getSimpleName() + "Optimizer", Constants.DOUBLE_ACCURACY_MEDIUM);
+    }
+
+
+    /**
+     * Fits the model with the provided parameters, stores and loads it and 
+     * checks its predictions on the validation set.
+     * 
+     * @param param
+     * @param storageName
+     * @param accuracy
+     */
+    private void predict(NLMS.TrainingParameters param, String storageName, double accuracy) {
         Configuration configuration = getConfiguration();
         
         Dataframe[] data = Datasets.regressionNumeric(configuration);
@@ -54,7 +92,6 @@ public class NLMSTest extends AbstractTest {
         Dataframe trainingData = data[0];
         Dataframe validationData = data[1];
         
-        String storageName = this.getClass().getSimpleName();
 
 
         StandardScaler.TrainingParameters nsParams = new StandardScaler.TrainingParameters();
@@ -69,11 +106,6 @@ public class NLMSTest extends AbstractTest {
         categoricalEncoder.fit_transform(trainingData);
         categoricalEncoder.save(storageName);
 
-        
-        NLMS.TrainingParameters param = new NLMS.TrainingParameters();
-        param.setTotalIterations(1600);
-        param.setL1(0.00000001);
-
 
 
         NLMS instance = MLBuilder.create(param, configuration);
@@ -98,7 +130,7 @@ public class NLMSTest extends AbstractTest {
         instance.predict(validationData);
 
         for(Record r : validationData) {
-            assertEquals(TypeInference.toDouble(r.getY()), TypeInference.toDouble(r.getYPredicted()), Constants.DOUBLE_ACCURACY_HIGH);
+            assertEquals(TypeInference.toDouble(r.getY()), TypeInference.toDouble(r.getYPredicted()), accuracy);
         }
 
         numericalScaler.delete();
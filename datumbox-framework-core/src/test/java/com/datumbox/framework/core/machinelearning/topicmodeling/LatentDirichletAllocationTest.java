@@ -90,7 +90,7 @@ public class LatentDirichletAllocationTest extends AbstractTest {
         ClassificationMetrics vm = new Validator<>(ClassificationMetrics.class, configuration)
                 .validate(new KFoldSplitter(1).split(reducedTrainingData), tp);
         
-        double expResult = 0.6843125117743629;
+        double expResult = 0.6779360800924144;
         double result = vm.getMacroF1();
         assertEquals(expResult, result, Constants.DOUBLE_ACCURACY_HIGH);
 
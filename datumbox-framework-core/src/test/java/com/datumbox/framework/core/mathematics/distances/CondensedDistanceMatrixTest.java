@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for CondensedDistanceMatrix.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class CondensedDistanceMatrixTest extends AbstractTest {
+    
+    /**
+     * Test of get and set methods, of class CondensedDistanceMatrix.
+     */
+    @Test
+    public void testGetSet() throws IOException {
+        logger.info("testGetSet");
+        
+        Path directory = Files.createTempDirectory("datumbox-distances-test");
+        int n = 50;
+        for(long maxInMemoryValues : new long[]{Long.MAX_VALUE, 0L}) {
+            try(CondensedDistanceMatrix instance = new CondensedDistanceMatrix(n, maxInMemoryValues, directory)) {
+                assertEquals(n, instance.size());
+                assertEquals(maxInMemoryValues==0L, instance.isMemoryMapped());
+                assertEquals(maxInMemoryValues==0L?1L:0L, countFiles(directory));
+                
+                for(int i=0;i<n;i++) {
+                    for(int j=i+1;j<n;j++) {
+                        instance.set(j, i, i*n+j);
+                    }
+                }
+                
+                for(int i=0;i<n;i++) {
+                    assertEquals(0.0, instance.get(i, i), Constants.DOUBLE_ACCURACY_HIGH);
+                    for(int j=i+1;j<n;j++) {
+                        assertEquals(i*n+j, instance.get(i, j), Constants.DOUBLE_ACCURACY_HIGH);
+                        assertEquals(i*n+j, instance.get(j, i), Constants.DOUBLE_ACCURACY_HIGH);
+                    }
+                }
+                
+                TestUtils.assertThrows(IndexOutOfBoundsException.class, () -> instance.get(0, n));
+            }
+            assertEquals(0L, countFiles(directory));
+        }
+        Files.delete(directory);
+    }
+    
+    /**
+     * Returns the number of files of the directory.
+     * 
+     * @param directory
+     * @return
+     * @throws IOException 
+     */
+    private long countFiles(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+    
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.distances;
+
+import com.datumbox.framework.common.dataobjects.AssociativeArray;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for SparseDistance.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SparseDistanceTest extends AbstractTest {
+    
+    private AssociativeArray getArray1() {
+        AssociativeArray array = new AssociativeArray();
+        array.put("a", 1.0);
+        array.put("c", true);
+        array.put("d", 7.0);
+        array.put("f", 2.5);
+        
+        return array;
+    }
+    
+    private AssociativeArray getArray2() {
+        AssociativeArray array = new AssociativeArray();
+        array.put("a", 3.0);
+        array.put("b", -2.0);
+        array.put("c", false);
+        array.put("d", 3.0);
+        array.put("e", 0.0);
+        
+        return array;
+    }
+    
+    private Map<Object, Double> getWeights() {
+        Map<Object, Double> weights = new HashMap<>();
+        weights.put("a", 0.5);
+        weights.put("b", 1.0);
+        weights.put("c", 2.0);
+        weights.put("d", 1.0);
+        weights.put("e", 3.0);
+        weights.put("f", 0.0);
+        
+        return weights;
+    }
+    
+    /**
+     * Test of of method, of class SparseVector.
+     */
+    @Test
+    public void testOf() {
+        logger.info("testOf");
+        
+        FeatureDictionary dictionary = new FeatureDictionary();
+        dictionary.intern("f");
+        dictionary.intern("d");
+        
+        SparseVector v = SparseVector.of(getArray1(), dictionary);
+        assertEquals(4, dictionary.size());
+        assertEquals(4, v.size());
+        for(int i=1;i<v.size();i++) {
+            assertTrue(v.indexAt(i-1)<v.indexAt(i));
+        }
+        assertEquals(2.5, v.get(dictionary.getId("f")), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(1.0, v.get(dictionary.getId("c")), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(1.0+1.0+7.0+2.5, v.getL1Norm(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(1.0+1.0+49.0+6.25, v.getSquaredNorm(), Constants.DOUBLE_ACCURACY_HIGH);
+        
+        //the zero and false values are skipped
+        SparseVector u = SparseVector.of(getArray2(), dictionary);
+        assertEquals(3, u.size());
+        assertEquals(5, dictionary.size());
+        
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> new SparseVector(new int[]{2, 1}, new double[]{1.0, 1.0}));
+    }
+    
+    /**
+     * Test of the pairwise kernels, of class SparseDistance.
+     */
+    @Test
+    public void testPairwise() {
+        logger.info("testPairwise");
+        
+        AssociativeArray a1 = getArray1();
+        AssociativeArray a2 = getArray2();
+        FeatureDictionary dictionary = new FeatureDictionary();
+        SparseVector v1 = SparseVector.of(a1, dictionary);
+        SparseVector v2 = SparseVector.of(a2, dictionary);
+        
+        assertEquals(Distance.euclidean(a1, a2), SparseDistance.euclidean(v1, v2), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(Distance.manhattan(a1, a2), SparseDistance.manhattan(v1, v2), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(Distance.maximum(a1, a2), SparseDistance.maximum(v1, v2), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(1.0*3.0+7.0*3.0, SparseDistance.dot(v1, v2), Constants.DOUBLE_ACCURACY_HIGH);
+        
+        Map<Object, Double> weights = getWeights();
+        double[] weightArray = new double[dictionary.size()];
+        for(Map.Entry<Object, Double> e : weights.entrySet()) {
+            Integer id = dictionary.getId(e.getKey());
+            if(id!=null) {
+                weightArray[id] = e.getValue();
+            }
+        }
+        assertEquals(Distance.euclideanWeighted(a1, a2, weights), SparseDistance.euclideanWeighted(v1, v2, weightArray), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(Distance.manhattanWeighted(a1, a2, weights), SparseDistance.manhattanWeighted(v1, v2, weightArray), Constants.DOUBLE_ACCURACY_HIGH);
+        
+        //scaling the values with the square roots of the weights gives the weighted euclidean distance
+        double[] multipliers = new double[weightArray.length];
+        for(int i=0;i<weightArray.length;i++) {
+            multipliers[i] = Math.sqrt(weightArray[i]);
+        }
+        SparseVector s1 = SparseVector.of(a1, dictionary, multipliers);
+        SparseVector s2 = SparseVector.of(a2, dictionary, multipliers);
+        assertEquals(Distance.euclideanWeighted(a1, a2, weights), SparseDistance.euclidean(s1, s2), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+    
+    /**
+     * Test of the batched kernels, of class SparseDistance.
+     */
+    @Test
+    public void testBatched() {
+        logger.info("testBatched");
+        
+        FeatureDictionary dictionary = new FeatureDictionary();
+        AssociativeArray a3 = new AssociativeArray();
+        a3.put("g", 4.0);
+        a3.put("a", -1.0);
+        SparseVector[] vectors = new SparseVector[]{SparseVector.of(getArray1(), dictionary), SparseVector.of(getArray2(), dictionary), SparseVector.of(a3, dictionary), SparseVector.of(new AssociativeArray(), dictionary)};
+        
+        double[] distances = new double[vectors.length];
+        for(SparseVector v : vectors) {
+            SparseDistance.euclidean(v, vectors, distances);
+            for(int k=0;k<vectors.length;k++) {
+                assertEquals(SparseDistance.euclidean(v, vectors[k]), distances[k], Constants.DOUBLE_ACCURACY_HIGH);
+            }
+            
+            SparseDistance.squaredEuclidean(v, vectors, distances);
+            for(int k=0;k<vectors.length;k++) {
+                assertEquals(SparseDistance.squaredEuclidean(v, vectors[k]), distances[k], Constants.DOUBLE_ACCURACY_HIGH);
+            }
+            
+            SparseDistance.manhattan(v, vectors, distances);
+            for(int k=0;k<vectors.length;k++) {
+                assertEquals(SparseDistance.manhattan(v, vectors[k]), distances[k], Constants.DOUBLE_ACCURACY_HIGH);
+            }
+            
+            SparseDistance.maximum(v, vectors, distances);
+            for(int k=0;k<vectors.length;k++) {
+                assertEquals(SparseDistance.maximum(v, vectors[k]), distances[k], Constants.DOUBLE_ACCURACY_HIGH);
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases which are shared by all the optimizers.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class AbstractOptimizerTest extends AbstractTest {
+
+    /**
+     * Test of minimize method, of class AbstractOptimizer.
+     */
+    @Test
+    public void testMinimize() {
+        logger.info("testMinimize");
+
+        List<AbstractOptimizer> optimizers = Arrays.asList(new StochasticGradientDescent(), new AdaGrad(), new Adam(), new LBFGS());
+        for(AbstractOptimizer instance : optimizers) {
+            instance.setTolerance(1e-12);
+
+            int maxIterations = instance instanceof LBFGS ? 100 : 2000;
+            double[] weights = new double[3];
+            double loss = instance.minimize(new LeastSquaresObjective(), weights, maxIterations);
+
+            assertEquals(instance.getClass().getSimpleName(), 0.0, loss, 1e-4);
+            for(int i=0;i<weights.length;i++) {
+                assertEquals(instance.getClass().getSimpleName(), LeastSquaresObjective.SOLUTION[i], weights[i], 1e-2);
+            }
+        }
+    }
+
+}
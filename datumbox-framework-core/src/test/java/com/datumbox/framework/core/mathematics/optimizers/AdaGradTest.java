@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for AdaGrad.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class AdaGradTest extends AbstractTest {
+
+    /**
+     * Test of the per-coordinate learning rates, of class AdaGrad. On a constant
+     * gradient the t-th update moves each weight by learningRate/sqrt(t)
+     * independently of the scale of its gradient.
+     */
+    @Test
+    public void testAccumulatedGradients() {
+        logger.info("testAccumulatedGradients");
+
+        AdaGrad instance = new AdaGrad();
+        instance.setBatchSize(0);
+        instance.setShuffle(false);
+
+        int steps = 5;
+        double[] weights = new double[LinearObjective.GRADIENT.length];
+        instance.minimize(new LinearObjective(10), weights, steps);
+
+        double sum = 0.0;
+        for(int t=1;t<=steps;t++) {
+            sum += 1.0/Math.sqrt(t);
+        }
+        for(int i=0;i<weights.length;i++) {
+            double expResult = -instance.getLearningRate()*Math.signum(LinearObjective.GRADIENT[i])*sum;
+            assertEquals(expResult, weights[i], Constants.DOUBLE_ACCURACY_HIGH);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Non-convex objective f(w) = (w1^2 - 1)^2 + (w2 - w1)^2 which has two minima
+ * at w = (1, 1) and w = (-1, -1). The curvature is negative around w1 = 0, so
+ * the curvature pairs of the quasi-Newton optimizers can be rejected there.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class DoubleWellObjective implements ObjectiveFunction {
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNumberOfExamples() {
+        return 1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getDimension() {
+        return 2;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double evaluate(double[] weights, int[] examples, int from, int to, double[] gradient) {
+        double well = weights[0]*weights[0] - 1.0;
+        double coupling = weights[1] - weights[0];
+        gradient[0] = 4.0*weights[0]*well - 2.0*coupling;
+        gradient[1] = 2.0*coupling;
+        return well*well + coupling*coupling;
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for LBFGS.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class LBFGSTest extends AbstractTest {
+
+    /**
+     * Test of the curvature history, of class LBFGS. The stored pairs should
+     * solve the quadratic problem in a handful of iterations.
+     */
+    @Test
+    public void testHistory() {
+        logger.info("testHistory");
+
+        LBFGS instance = new LBFGS();
+        instance.setTolerance(0.0);
+
+        double[] weights = new double[3];
+        instance.minimize(new LeastSquaresObjective(), weights, 10);
+
+        for(int i=0;i<weights.length;i++) {
+            assertEquals(LeastSquaresObjective.SOLUTION[i], weights[i], 1e-6);
+        }
+    }
+
+    /**
+     * Test of the curvature history on a non-convex problem, of class LBFGS. The
+     * pairs from the region of negative curvature are rejected and they should
+     * not corrupt the small history.
+     */
+    @Test
+    public void testRejectedPairs() {
+        logger.info("testRejectedPairs");
+
+        for(int memory=1;memory<=2;memory++) {
+            LBFGS instance = new LBFGS();
+            instance.setMemory(memory);
+            instance.setTolerance(0.0);
+
+            double[] weights = {0.1, 0.3};
+            double loss = instance.minimize(new DoubleWellObjective(), weights, 100);
+
+            assertEquals(0.0, loss, 1e-10);
+            assertEquals(1.0, Math.abs(weights[0]), 1e-5);
+            assertEquals(weights[0], weights[1], 1e-5);
+        }
+    }
+
+    /**
+     * Test of setMemory method, of class LBFGS.
+     */
+    @Test
+    public void testSetMemory() {
+        logger.info("testSetMemory");
+
+        LBFGS instance = new LBFGS();
+        instance.setMemory(1);
+        assertEquals(1, instance.getMemory());
+
+        boolean exceptionThrown = false;
+        try {
+            instance.setMemory(0);
+        }
+        catch(IllegalArgumentException ex) {
+            exceptionThrown = true;
+        }
+        assertTrue(exceptionThrown);
+    }
+
+}
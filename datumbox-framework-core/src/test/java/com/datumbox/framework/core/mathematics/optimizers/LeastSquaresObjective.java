@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import java.util.Arrays;
+
+/**
+ * Small least squares problem which is used to test the optimizers. The
+ * examples are generated from y = 3*x1 - 2*x2 + 1 so the minimum is at w = (3, -2, 1).
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class LeastSquaresObjective implements ObjectiveFunction {
+
+    /**
+     * The weights of the minimum.
+     */
+    public static final double[] SOLUTION = {3.0, -2.0, 1.0};
+
+    private final double[][] x;
+
+    private final double[] y;
+
+    /**
+     * Public constructor.
+     */
+    public LeastSquaresObjective() {
+        int n = 40;
+        x = new double[n][];
+        y = new double[n];
+        for(int i=0;i<n;i++) {
+            double x1 = (i%8)/4.0 - 1.0;
+            double x2 = (i/8)/2.0 - 1.0;
+            x[i] = new double[]{x1, x2, 1.0};
+            y[i] = SOLUTION[0]*x1 + SOLUTION[1]*x2 + SOLUTION[2];
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNumberOfExamples() {
+        return y.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getDimension() {
+        return SOLUTION.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double evaluate(double[] weights, int[] examples, int from, int to, double[] gradient) {
+        double loss = 0.0;
+        Arrays.fill(gradient, 0.0);
+        for(int p=from;p<to;p++) {
+            int i = examples[p];
+            double error = -y[i];
+            for(int j=0;j<weights.length;j++) {
+                error += weights[j]*x[i][j];
+            }
+            loss += error*error/2.0;
+            for(int j=0;j<weights.length;j++) {
+                gradient[j] += error*x[i][j];
+            }
+        }
+        int batchSize = to - from;
+        for(int j=0;j<weights.length;j++) {
+            gradient[j] /= batchSize;
+        }
+        return loss/batchSize;
+    }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+/**
+ * Linear objective f(w) = c*w which has the same gradient c on every example.
+ * The constant gradient makes the updates of the optimizers easy to compute
+ * by hand.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class LinearObjective implements ObjectiveFunction {
+
+    /**
+     * The gradient of the objective.
+     */
+    public static final double[] GRADIENT = {2.0, -0.5};
+
+    private final int n;
+
+    /**
+     * Public constructor.
+     *
+     * @param n
+     */
+    public LinearObjective(int n) {
+        this.n = n;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getNumberOfExamples() {
+        return n;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getDimension() {
+        return GRADIENT.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double evaluate(double[] weights, int[] examples, int from, int to, double[] gradient) {
+        double loss = 0.0;
+        for(int j=0;j<weights.length;j++) {
+            loss += GRADIENT[j]*weights[j];
+        }
+        System.arraycopy(GRADIENT, 0, gradient, 0, GRADIENT.length);
+        return loss;
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test cases for SparseGradient.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SparseGradientTest extends AbstractTest {
+
+    /**
+     * Test of add and clear methods, of class SparseGradient.
+     */
+    @Test
+    public void testAddAndClear() {
+        logger.info("testAddAndClear");
+
+        SparseGradient instance = new SparseGradient(10);
+        instance.add(7, 1.5);
+        instance.add(2, -1.0);
+        instance.add(7, 0.5);
+
+        assertEquals(2, instance.size());
+        assertEquals(7, instance.getIndex(0));
+        assertEquals(2, instance.getIndex(1));
+        assertEquals(2.0, instance.get(7), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(-1.0, instance.get(2), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(0.0, instance.get(0), Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.clear();
+        assertEquals(0, instance.size());
+        assertEquals(0.0, instance.get(7), Constants.DOUBLE_ACCURACY_HIGH);
+
+        instance.add(2, 3.0);
+        assertEquals(1, instance.size());
+        assertEquals(3.0, instance.get(2), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+    /**
+     * Test of the lazy updates of the stochastic optimizers. The weights which
+     * are not touched by any batch must not change.
+     */
+    @Test
+    public void testLazyUpdates() {
+        logger.info("testLazyUpdates");
+
+        //every example touches only the weight at its own position; the last weight is never touched
+        ObjectiveFunction objective = new ObjectiveFunction() {
+            @Override
+            public int getNumberOfExamples() {
+                return 3;
+            }
+
+            @Override
+            public int getDimension() {
+                return 4;
+            }
+
+            @Override
+            public double evaluate(double[] weights, int[] examples, int from, int to, double[] gradient) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public double evaluate(double[] weights, int[] examples, int from, int to, SparseGradient gradient) {
+                gradient.clear();
+                double loss = 0.0;
+                for(int p=from;p<to;p++) {
+                    int i = examples[p];
+                    double error = weights[i] - 1.0;
+                    loss += error*error/2.0;
+                    gradient.add(i, error/(to-from));
+                }
+                return loss/(to-from);
+            }
+        };
+
+        for(AbstractStochasticOptimizer instance : new AbstractStochasticOptimizer[]{new StochasticGradientDescent(), new AdaGrad(), new Adam()}) {
+            instance.setBatchSize(1);
+            double[] weights = {0.0, 0.0, 0.0, 0.5};
+            instance.minimize(objective, weights, 5);
+
+            for(int i=0;i<3;i++) {
+                assertTrue(weights[i] > 0.0);
+            }
+            assertEquals(0.5, weights[3], Constants.DOUBLE_ACCURACY_HIGH);
+        }
+    }
+
+}
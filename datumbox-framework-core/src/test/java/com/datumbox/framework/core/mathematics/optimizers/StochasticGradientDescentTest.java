@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.mathematics.optimizers;
+
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for StochasticGradientDescent.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class StochasticGradientDescentTest extends AbstractTest {
+
+    /**
+     * Test of the updates with and without momentum, of class StochasticGradientDescent.
+     * On a constant gradient the velocity of the t-th update is
+     * learningRate*gradient*(1-momentum^t)/(1-momentum).
+     */
+    @Test
+    public void testMomentum() {
+        logger.info("testMomentum");
+
+        int steps = 5;
+        for(double momentum : new double[]{0.0, 0.9}) {
+            StochasticGradientDescent instance = new StochasticGradientDescent();
+            instance.setBatchSize(0);
+            instance.setShuffle(false);
+            instance.setMomentum(momentum);
+
+            double[] weights = new double[LinearObjective.GRADIENT.length];
+            instance.minimize(new LinearObjective(10), weights, steps);
+
+            double sum = 0.0;
+            for(int t=1;t<=steps;t++) {
+                sum += momentum == 0.0 ? 1.0 : (1.0-Math.pow(momentum, t))/(1.0-momentum);
+            }
+            for(int i=0;i<weights.length;i++) {
+                double expResult = -instance.getLearningRate()*LinearObjective.GRADIENT[i]*sum;
+                assertEquals(expResult, weights[i], Constants.DOUBLE_ACCURACY_HIGH);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.core.statistics.descriptivestatistics;
+
+import com.datumbox.framework.common.dataobjects.FlatDataCollection;
+import com.datumbox.framework.common.utilities.RandomGenerator;
+import com.datumbox.framework.tests.Constants;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test cases for SummaryStatistics.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class SummaryStatisticsTest extends AbstractTest {
+
+    private FlatDataCollection generateFlatDataCollection() {
+        Object[] values = { -12.76, 9.07, 3.11, 0.99, -36.40, -34.18, 2.07, 50.85, 5.34, 2.08, 1.49, -19.01, 45.68, -11.80, -1.19, -34.63, -28.10,
+                35.33, 28.38, 24.60, 10.36, -12.01, 47.92, 3.34, 9.63, 44.09, 4.65, 2.04, 27.39, -14.52, 9.91, 36.45, -24.62, 2.99, -9.49, 2.14, -18.48, 38.69, 43.87, -20.56, null };
+
+        FlatDataCollection flatDataCollection = new FlatDataCollection(new ArrayList<>(Arrays.asList(values)));
+
+        return flatDataCollection;
+    }
+
+    /**
+     * Test of of method, of class SummaryStatistics.
+     */
+    @Test
+    public void testOf() {
+        logger.info("testOf");
+        SummaryStatistics result = SummaryStatistics.of(generateFlatDataCollection());
+        assertEquals(40L, result.getCount());
+        assertEquals(214.71, result.getSum(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(-36.4, result.getMin(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(50.85, result.getMax(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(5.36775, result.getMean(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(599.04258711538, result.getVariance(true), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(0.24686572127408, result.getSkewness(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(-0.74454696650836, result.getKurtosis(), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+    /**
+     * Test of combine method, of class SummaryStatistics.
+     */
+    @Test
+    public void testCombine() {
+        logger.info("testCombine");
+        FlatDataCollection flatDataCollection = generateFlatDataCollection();
+
+        SummaryStatistics first = new SummaryStatistics();
+        SummaryStatistics second = new SummaryStatistics();
+        int i = 0;
+        for(Object value : flatDataCollection) {
+            if(value != null) {
+                (i++<13?first:second).accept((Double)value);
+            }
+        }
+        first.combine(second);
+        first.combine(new SummaryStatistics());
+
+        SummaryStatistics expResult = SummaryStatistics.of(flatDataCollection);
+        assertEquals(expResult.getCount(), first.getCount());
+        assertEquals(expResult.getMin(), first.getMin(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getMax(), first.getMax(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getMean(), first.getMean(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getM2(), first.getM2(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getM3(), first.getM3(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getM4(), first.getM4(), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+    /**
+     * Test of of method on large collections, which are processed in parallel.
+     */
+    @Test
+    public void testOfParallel() {
+        logger.info("testOfParallel");
+        Random rnd = RandomGenerator.getThreadLocalRandom();
+
+        List<Object> values = new ArrayList<>();
+        SummaryStatistics expResult = new SummaryStatistics();
+        for(int i=0;i<100000;i++) {
+            double value = rnd.nextGaussian()*10.0 + 5.0;
+            values.add(value);
+            expResult.accept(value);
+        }
+
+        SummaryStatistics result = SummaryStatistics.of(new FlatDataCollection(values));
+        assertEquals(expResult.getCount(), result.getCount());
+        assertEquals(expResult.getMean(), result.getMean(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getVariance(true), result.getVariance(true), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getSkewness(), result.getSkewness(), Constants.DOUBLE_ACCURACY_HIGH);
+        assertEquals(expResult.getKurtosis(), result.getKurtosis(), Constants.DOUBLE_ACCURACY_HIGH);
+    }
+
+}
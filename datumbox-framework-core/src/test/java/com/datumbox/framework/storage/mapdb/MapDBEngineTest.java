@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.mapdb;
+
+import com.datumbox.framework.common.storage.collections.CachedMap;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the object caches of MapDBEngine.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MapDBEngineTest extends AbstractTest {
+
+    /**
+     * Test of writing the modified cached objects when the storage is renamed
+     * and closed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testObjectCacheFlush() throws Exception {
+        logger.info("testObjectCacheFlush");
+
+        MapDBConfiguration configuration = new MapDBConfiguration();
+        configuration.setObjectCacheSize(1024L * 1024L);
+
+        String storageName = "MapDBEngineTest";
+        String newStorageName = "MapDBEngineTestRenamed";
+        try (StorageEngine storageEngine = configuration.createStorageEngine(storageName)) {
+            Map<Integer, String> map = storageEngine.getBigMap("map", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, false);
+            assertTrue(map instanceof CachedMap);
+            for(int i=0;i<100;i++) {
+                map.put(i, "v" + i);
+            }
+            assertEquals(100, map.size());
+            assertEquals(0L, ((CachedMap<Integer, String>) map).getMetrics().getWriteBackCount());
+
+            storageEngine.rename(newStorageName);
+
+            map = storageEngine.getBigMap("map", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, false);
+            assertEquals(100, map.size());
+            map.put(0, "updated");
+            map.remove(1);
+        }
+
+        try (StorageEngine storageEngine = configuration.createStorageEngine(newStorageName)) {
+            Map<Integer, String> map = storageEngine.getBigMap("map", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, false);
+            assertEquals(99, map.size());
+            assertEquals("updated", map.get(0));
+            assertNull(map.get(1));
+            assertEquals("v99", map.get(99));
+            storageEngine.clear();
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for MappedMap and for the compaction of the OffHeapEngine.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MappedMapTest extends AbstractTest {
+
+    private Path directory;
+
+    /**
+     * Creates the directory of the maps.
+     *
+     * @throws IOException
+     */
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("MappedMapTest");
+    }
+
+    /**
+     * Deletes the directory of the maps.
+     *
+     * @throws IOException
+     */
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Test of reopening a persistent MappedMap of every type.
+     */
+    @Test
+    public void testReopen() {
+        logger.info("testReopen");
+
+        for(StorageEngine.MapType type : StorageEngine.MapType.values()) {
+            Path mapPath = directory.resolve(type.toString());
+            MappedMap<Integer, String> instance = new MappedMap<>(mapPath, Integer.class, String.class, type, 10, 4096, false, true);
+            for(int i=0;i<1000;i++) {
+                instance.put(i, "v" + i);
+            }
+            instance.put(5, "updated");
+            instance.remove(6);
+            instance.close();
+
+            instance = new MappedMap<>(mapPath, Integer.class, String.class, type, 10, 4096, false, true);
+            assertEquals(999, instance.size());
+            assertEquals("updated", instance.get(5));
+            assertNull(instance.get(6));
+            assertEquals("v999", instance.get(999));
+            if(type != StorageEngine.MapType.HASHMAP) {
+                assertEquals(Integer.valueOf(0), instance.keySet().iterator().next());
+            }
+            instance.put(1000, "v1000");
+            instance.close();
+
+            instance = new MappedMap<>(mapPath, Integer.class, String.class, type, 10, 4096, false, true);
+            assertEquals(1000, instance.size());
+            assertEquals("v1000", instance.get(1000));
+            instance.close();
+        }
+    }
+
+    /**
+     * Test of storing values which span multiple segments.
+     */
+    @Test
+    public void testSegmentGrowth() {
+        logger.info("testSegmentGrowth");
+
+        int maxSegmentSize = 4096;
+        MappedMap<String, double[]> instance = new MappedMap<>(directory.resolve("map"), String.class, double[].class, StorageEngine.MapType.HASHMAP, 0, maxSegmentSize, false, false);
+        int n = 100;
+        for(int i=0;i<n;i++) {
+            double[] value = new double[10*i];
+            Arrays.fill(value, i);
+            instance.put("k" + i, value);
+        }
+
+        assertEquals(n, instance.size());
+        assertTrue(Files.exists(directory.resolve("map").resolve("2.segment")));
+        for(int i=0;i<n;i++) {
+            double[] value = instance.get("k" + i);
+            assertEquals(10*i, value.length);
+            if(i>0) {
+                assertEquals(i, value[value.length-1], 0.0);
+            }
+        }
+        instance.close();
+    }
+
+    /**
+     * Test of the primitive index of the ARRAYMAP type.
+     */
+    @Test
+    public void testArrayMap() {
+        logger.info("testArrayMap");
+
+        MappedMap<Integer, String> instance = new MappedMap<>(directory.resolve("map"), Integer.class, String.class, StorageEngine.MapType.ARRAYMAP, 0, 4096, false, false);
+        instance.put(100000, "sparse");
+        instance.put(3, "three");
+        instance.put(0, "zero");
+        assertEquals(3, instance.size());
+        assertEquals(Arrays.asList(0, 3, 100000), new ArrayList<>(instance.keySet()));
+        assertNull(instance.get(4));
+        assertNull(instance.get(-1));
+        assertNull(instance.get("3"));
+
+        Iterator<Integer> it = instance.keySet().iterator();
+        it.next();
+        it.remove();
+        assertEquals(2, instance.size());
+        assertFalse(instance.containsKey(0));
+
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> instance.put(-1, "negative"));
+        instance.close();
+
+        TestUtils.assertThrows(IllegalArgumentException.class, () -> new MappedMap<>(directory.resolve("other"), String.class, String.class, StorageEngine.MapType.ARRAYMAP, 0, 4096, false, false));
+    }
+
+    /**
+     * Test of getGarbageRatio and compactTo methods, of class MappedMap.
+     */
+    @Test
+    public void testCompactTo() {
+        logger.info("testCompactTo");
+
+        for(StorageEngine.MapType type : StorageEngine.MapType.values()) {
+            MappedMap<Integer, String> instance = new MappedMap<>(directory.resolve(type + "map"), Integer.class, String.class, type, 10, 4096, false, true);
+            for(int i=0;i<1000;i++) {
+                instance.put(i, "v" + i);
+            }
+            double initialRatio = instance.getGarbageRatio();
+            for(int i=0;i<1000;i+=2) {
+                instance.remove(i);
+            }
+            for(int i=1;i<1000;i+=2) {
+                instance.put(i, "replaced by a longer value " + i);
+            }
+            assertTrue(instance.getGarbageRatio() > 0.3);
+            assertTrue(instance.getGarbageRatio() > initialRatio);
+
+            Path compactPath = directory.resolve(type + "compact");
+            instance.compactTo(compactPath);
+
+            instance = new MappedMap<>(compactPath, Integer.class, String.class, type, 10, 4096, false, true);
+            assertEquals(500, instance.size());
+            assertEquals(0.0, instance.getGarbageRatio(), 0.01);
+            for(int i=0;i<1000;i++) {
+                assertEquals(i%2==0?null:"replaced by a longer value " + i, instance.get(i));
+            }
+            instance.close();
+        }
+    }
+
+    /**
+     * Test of concurrent put, remove and get calls on a cached concurrent map.
+     * A removed key must never be served from the cache.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentPutRemove() throws Exception {
+        logger.info("testConcurrentPutRemove");
+
+        for(StorageEngine.MapType type : StorageEngine.MapType.values()) {
+            MappedMap<Integer, Integer> instance = new MappedMap<>(directory.resolve(type.toString()), Integer.class, Integer.class, type, 100, 1024*1024, true, false);
+            int keys = 50;
+            int threads = 4;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for(int t=0;t<threads;t++) {
+                    futures.add(executor.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for(int i=0;i<20000;i++) {
+                            int key = random.nextInt(keys);
+                            int op = random.nextInt(3);
+                            if(op == 0) {
+                                instance.put(key, key);
+                            }
+                            else if(op == 1) {
+                                instance.remove(key);
+                            }
+                            else {
+                                Integer value = instance.get(key);
+                                assertTrue(value == null || value == key);
+                            }
+                        }
+                    }));
+                }
+                for(Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            finally {
+                executor.shutdown();
+            }
+
+            int size = 0;
+            for(int key=0;key<keys;key++) {
+                if(instance.containsKey(key)) {
+                    assertEquals(Integer.valueOf(key), instance.get(key));
+                    size++;
+                }
+                else {
+                    assertNull(instance.get(key));
+                }
+            }
+            assertEquals(size, instance.size());
+            instance.close();
+        }
+    }
+
+    /**
+     * Test of concurrent put and get calls on the same key of a cached
+     * concurrent map. Once the writers finish, the cache must serve the value
+     * which is stored in the index.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentSameKeyPutGet() throws Exception {
+        logger.info("testConcurrentSameKeyPutGet");
+
+        for(StorageEngine.MapType type : StorageEngine.MapType.values()) {
+            MappedMap<Integer, Integer> instance = new MappedMap<>(directory.resolve(type.toString()), Integer.class, Integer.class, type, 100, 1024*1024, true, false);
+            int threads = 4;
+            int writes = 5000;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for(int round=0;round<20;round++) {
+                    List<Future<?>> futures = new ArrayList<>();
+                    for(int t=0;t<threads;t++) {
+                        int thread = t;
+                        futures.add(executor.submit(() -> {
+                            for(int i=0;i<writes;i++) {
+                                instance.put(0, thread*writes + i);
+                                Integer value = instance.get(0);
+                                assertTrue(value != null && value >= 0 && value < threads*writes);
+                            }
+                        }));
+                    }
+                    for(Future<?> future : futures) {
+                        future.get();
+                    }
+
+                    //the entries decode their value from the location in the index, bypassing the cache
+                    Integer stored = instance.entrySet().iterator().next().getValue();
+                    assertEquals(stored, instance.get(0));
+                }
+            }
+            finally {
+                executor.shutdown();
+            }
+            instance.close();
+        }
+    }
+
+    /**
+     * Test of the compaction of the persistent BigMaps, of class OffHeapEngine.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEngineCompaction() throws Exception {
+        logger.info("testEngineCompaction");
+
+        OffHeapConfiguration configuration = new OffHeapConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setCompactionThreshold(0.25);
+
+        String storageName = "MappedMapTest";
+        Path bigmaps = directory.resolve(storageName).resolve("bigmaps");
+        try (StorageEngine storageEngine = configuration.createStorageEngine(storageName)) {
+            Map<Integer, String> map = storageEngine.getBigMap("map", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, false);
+            Map<Integer, String> tmp = storageEngine.getBigMap("tmp", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, true);
+            for(int i=0;i<1000;i++) {
+                map.put(i, "v" + i);
+                tmp.put(i, "v" + i);
+            }
+            for(int i=0;i<900;i++) {
+                map.remove(i);
+            }
+
+            //the temporary maps are stored under the configured directory
+            try (Stream<Path> paths = Files.list(directory)) {
+                assertEquals(2L, paths.count());
+            }
+        }
+        long compactedSize;
+        try (Stream<Path> paths = Files.list(bigmaps.resolve("map"))) {
+            compactedSize = paths.filter(p -> p.toString().endsWith(".segment")).mapToLong(p -> p.toFile().length()).sum();
+        }
+        try (Stream<Path> paths = Files.list(bigmaps)) {
+            assertEquals(1L, paths.count());
+        }
+
+        try (StorageEngine storageEngine = configuration.createStorageEngine(storageName)) {
+            Map<Integer, String> map = storageEngine.getBigMap("map", Integer.class, String.class, StorageEngine.MapType.HASHMAP, StorageEngine.StorageHint.IN_DISK, false, false);
+            assertEquals(100, map.size());
+            for(int i=900;i<1000;i++) {
+                assertEquals("v" + i, map.get(i));
+            }
+            assertTrue(compactedSize > 0L);
+            storageEngine.clear();
+        }
+    }
+
+}
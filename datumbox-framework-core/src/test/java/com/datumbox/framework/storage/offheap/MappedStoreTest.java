@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.tests.abstracts.AbstractTest;
+import com.datumbox.framework.tests.utilities.TestUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for MappedStore.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class MappedStoreTest extends AbstractTest {
+
+    private Path directory;
+
+    /**
+     * Creates the directory of the store.
+     *
+     * @throws IOException
+     */
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("MappedStoreTest");
+    }
+
+    /**
+     * Deletes the directory of the store.
+     *
+     * @throws IOException
+     */
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Test of append and read methods, of class MappedStore, with records that
+     * span multiple segments.
+     */
+    @Test
+    public void testAppendRead() {
+        logger.info("testAppendRead");
+
+        int maxSegmentSize = 4096;
+        MappedStore instance = new MappedStore(directory, maxSegmentSize, 0);
+        List<Long> locations = new ArrayList<>();
+        for(int i=0;i<200;i++) {
+            locations.add(instance.append(encode("record" + i)));
+        }
+        //a record larger than the max segment size gets a segment of its own
+        String large = new String(new char[2*maxSegmentSize]).replace('\0', 'x');
+        long largeLocation = instance.append(encode(large));
+        long lastLocation = instance.append(encode("last"));
+
+        assertTrue(Files.exists(directory.resolve("1.segment")));
+        for(int i=0;i<200;i++) {
+            assertEquals("record" + i, instance.read(locations.get(i), MappedStoreTest::decode));
+        }
+        assertEquals(large, instance.read(largeLocation, MappedStoreTest::decode));
+        assertEquals("last", instance.read(lastLocation, MappedStoreTest::decode));
+        assertNotEquals(largeLocation >>> 32, lastLocation >>> 32);
+        assertTrue(instance.getUsedBytes() > 2*maxSegmentSize);
+        assertEquals(8 + "last".length(), instance.getRecordSize(lastLocation));
+
+        instance.close();
+    }
+
+    /**
+     * Test of overwrite method, of class MappedStore.
+     */
+    @Test
+    public void testOverwrite() {
+        logger.info("testOverwrite");
+
+        MappedStore instance = new MappedStore(directory, 4096, 0);
+        long location = instance.append(encode("value"));
+        assertTrue(instance.overwrite(location, encode("abc")));
+        assertEquals("abc", instance.read(location, MappedStoreTest::decode));
+        assertFalse(instance.overwrite(location, encode("longer value")));
+        assertEquals("abc", instance.read(location, MappedStoreTest::decode));
+        //the capacity of the record is kept after the smaller write
+        assertEquals(8 + "value".length(), instance.getRecordSize(location));
+
+        instance.close();
+    }
+
+    /**
+     * Test of reopening a MappedStore after it was closed.
+     */
+    @Test
+    public void testReopen() {
+        logger.info("testReopen");
+
+        MappedStore instance = new MappedStore(directory, 4096, 0);
+        List<Long> locations = new ArrayList<>();
+        for(int i=0;i<100;i++) {
+            locations.add(instance.append(encode("record" + i)));
+        }
+        int end = instance.getEnd();
+        long usedBytes = instance.getUsedBytes();
+        instance.close();
+
+        MappedStore closed = instance;
+        TestUtils.assertThrows(IllegalStateException.class, () -> closed.read(locations.get(0), MappedStoreTest::decode));
+
+        instance = new MappedStore(directory, 4096, end);
+        assertEquals(usedBytes, instance.getUsedBytes());
+        for(int i=0;i<100;i++) {
+            assertEquals("record" + i, instance.read(locations.get(i), MappedStoreTest::decode));
+        }
+        long location = instance.append(encode("new"));
+        assertFalse(locations.contains(location));
+        assertEquals("new", instance.read(location, MappedStoreTest::decode));
+        assertEquals("record99", instance.read(locations.get(99), MappedStoreTest::decode));
+
+        instance.close();
+    }
+
+    /**
+     * Test that the segments are unmapped when they grow and when the store
+     * closes. It reads the mappings of the process, so it runs only on Linux.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testUnmap() throws IOException {
+        logger.info("testUnmap");
+
+        Path maps = Paths.get("/proc/self/maps");
+        Assume.assumeTrue(Files.isReadable(maps));
+
+        MappedStore instance = new MappedStore(directory, 4*1024*1024, 0);
+        instance.append(encode("first"));
+        assertEquals(1, countMappings(maps));
+
+        //the segment is remapped with double size and the old mapping is released
+        instance.append(ByteBuffer.allocate(1024*1024));
+        assertEquals(1, countMappings(maps));
+
+        instance.close();
+        assertEquals(0, countMappings(maps));
+    }
+
+    private long countMappings(Path maps) throws IOException {
+        String segmentPath = directory.toRealPath().resolve("0.segment").toString();
+        try (Stream<String> lines = Files.lines(maps)) {
+            return lines.filter(line -> line.endsWith(segmentPath)).count();
+        }
+    }
+
+    private static ByteBuffer encode(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -18,9 +18,12 @@ package com.datumbox.framework.storage.inmemory;
 import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageEngine;
 import com.datumbox.framework.common.storage.abstracts.AbstractStorageEngine;
 import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.lang.ref.WeakReference;
@@ -95,7 +98,9 @@ public class InMemoryEngine extends AbstractFileStorageEngine<InMemoryConfigurat
             createDirectoryIfNotExists(rootPath);
 
             Path objectPath = new File(rootPath.toFile(), name).toPath();
-            Files.write(objectPath, DeepCopy.serialize(serializableObject));
+            try(OutputStream out = Files.newOutputStream(objectPath)) {
+                BinarySerializer.serialize(serializableObject, out);
+            }
         } 
         catch (IOException ex) {
             throw new UncheckedIOException(ex);
@@ -116,8 +121,9 @@ public class InMemoryEngine extends AbstractFileStorageEngine<InMemoryConfigurat
         T obj;
         try {
             Path objectPath = new File(getRootPath(storageName).toFile(), name).toPath();
-            Object serializableObject = DeepCopy.deserialize(Files.readAllBytes(objectPath));
-            obj = klass.cast(serializableObject);
+            try(InputStream in = Files.newInputStream(objectPath)) {
+                obj = klass.cast(BinarySerializer.deserialize(in));
+            }
         }
         catch (IOException ex) {
             throw new UncheckedIOException(ex);
@@ -162,6 +168,9 @@ public class InMemoryEngine extends AbstractFileStorageEngine<InMemoryConfigurat
         else if(MapType.TREEMAP.equals(type)) {
             m = isConcurrent?new ConcurrentSkipListMap<>():new TreeMap<>();
         }
+        else if(MapType.ARRAYMAP.equals(type)) {
+            m = newArrayMap(keyClass);
+        }
         else {
             throw new IllegalArgumentException("Unsupported MapType.");
         }
@@ -38,6 +38,10 @@ public class MapDBConfiguration extends AbstractFileStorageConfiguration {
 
     private boolean asynchronous = true;
 
+    private int stripes = 16;
+
+    private long objectCacheSize = 0L;
+
     /** {@inheritDoc} */
     @Override
     public StorageEngine createStorageEngine(String storageName) {
@@ -52,6 +56,8 @@ public class MapDBConfiguration extends AbstractFileStorageConfiguration {
         compressed = "true".equalsIgnoreCase(properties.getProperty("mapDBConfiguration.compressed"));
         hybridized = "true".equalsIgnoreCase(properties.getProperty("mapDBConfiguration.hybridized"));
         asynchronous = "true".equalsIgnoreCase(properties.getProperty("mapDBConfiguration.asynchronous"));
+        stripes = Integer.parseInt(properties.getProperty("mapDBConfiguration.stripes"));
+        objectCacheSize = Long.parseLong(properties.getProperty("mapDBConfiguration.objectCacheSize"));
     }
     
     /**
@@ -132,4 +138,49 @@ public class MapDBConfiguration extends AbstractFileStorageConfiguration {
         this.asynchronous = asynchronous;
     }
 
+    /**
+     * Getter for the number of stripes of the concurrent TREEMAPs.
+     *
+     * @return
+     */
+    public int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Setter for the number of stripes of the concurrent TREEMAPs. Every stripe
+     * is a separate BTreeMap with its own lock, so more stripes allow more threads
+     * to write in parallel. The setting affects only the newly created maps.
+     *
+     * @param stripes
+     */
+    public void setStripes(int stripes) {
+        if(stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive.");
+        }
+        this.stripes = stripes;
+    }
+
+    /**
+     * Getter for the size in bytes of the write-behind object cache of every IN_DISK map.
+     *
+     * @return
+     */
+    public long getObjectCacheSize() {
+        return objectCacheSize;
+    }
+
+    /**
+     * Setter for the size in bytes of the write-behind object cache of every IN_DISK map.
+     * The cache keeps the deserialized objects in memory and writes the modified ones
+     * back to MapDB in batches. Every IN_DISK map gets a cache of this size, so
+     * the total memory grows with the number of open maps. The cache is off by
+     * default; set it to 0 to turn it off.
+     *
+     * @param objectCacheSize
+     */
+    public void setObjectCacheSize(long objectCacheSize) {
+        this.objectCacheSize = objectCacheSize;
+    }
+
 }
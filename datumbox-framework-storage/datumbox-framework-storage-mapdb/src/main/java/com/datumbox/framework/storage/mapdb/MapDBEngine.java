@@ -17,10 +17,14 @@ package com.datumbox.framework.storage.mapdb;
 
 import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageEngine;
 import com.datumbox.framework.common.storage.abstracts.AbstractStorageEngine;
+import com.datumbox.framework.common.storage.collections.CachedMap;
 import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
 import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
 import org.mapdb.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
@@ -79,6 +83,26 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
      * library uses one default and one temporary storage.
      */
     private final Map<StorageType, DB> storageRegistry = new HashMap<>();
+
+    /**
+     * This map stores the write-behind object caches of the IN_DISK BigMaps by name.
+     */
+    private final Map<String, CachedMap<?,?>> cacheRegistry = new HashMap<>();
+
+    /**
+     * The MapDB serializer of all the classes without a dedicated serializer.
+     */
+    private static final Serializer<Object> BINARY_SERIALIZER = new BinarySerializerAdapter();
+
+    /**
+     * The separator between the name of a concurrent TREEMAP and the id of its stripes.
+     */
+    private static final String STRIPE_SEPARATOR = "#stripe";
+
+    /**
+     * The number of segments of the object caches of the concurrent maps.
+     */
+    private static final int OBJECT_CACHE_SEGMENTS = 16;
     
     /** 
      * @param storageName
@@ -97,6 +121,7 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
             return false;
         }
 
+        closeCacheRegistry(false);
         blockedStorageClose(StorageType.PRIMARY_STORAGE);
         blockedStorageClose(StorageType.SECONDARY_STORAGE);
 
@@ -123,14 +148,21 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
 
     /** {@inheritDoc} */
     @Override
+    @SuppressWarnings("unchecked")
     public <T extends Serializable> void saveObject(String name, T serializableObject) {
         assertConnectionOpen();
         DB storage = openStorage(StorageType.PRIMARY_STORAGE);
-        Atomic.Var<T> atomicVar = storage.getAtomicVar(name);
-
         Map<String, Object> objRefs = preSerializer(serializableObject);
 
-        atomicVar.set(serializableObject);
+        flushCacheRegistry();
+        if(storage.exists(name)) {
+            //the existing variables keep the serializer of their catalog entry, so the ones of older versions remain readable
+            storage.<T>getAtomicVar(name).set(serializableObject);
+        }
+        else {
+            //create the variable with its value; a null placeholder can reach the asynchronous writer, which rejects nulls
+            storage.createAtomicVar(name, serializableObject, (Serializer<T>) (Serializer<?>) BINARY_SERIALIZER);
+        }
         storage.commit();
 
         postSerializer(serializableObject, objRefs);
@@ -163,6 +195,7 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
         }
         super.close();
         
+        closeCacheRegistry(false);
         closeStorageRegistry();
         logger.trace("Closed storage {}", storageName);
     }
@@ -172,6 +205,7 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
     public void clear() {
         assertConnectionOpen();
         
+        closeCacheRegistry(true);
         closeStorageRegistry();
         
         try {
@@ -184,6 +218,7 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
     
     /** {@inheritDoc} */
     @Override
+    @SuppressWarnings("unchecked")
     public <K,V> Map<K,V> getBigMap(String name, Class<K> keyClass, Class<V> valueClass, StorageEngine.MapType type, StorageEngine.StorageHint storageHint, boolean isConcurrent, boolean isTemporary) {
         assertConnectionOpen();
         
@@ -195,12 +230,21 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
             else if(StorageEngine.MapType.TREEMAP.equals(type)) {
                 return isConcurrent?new ConcurrentSkipListMap<>():new TreeMap<>();
             }
+            else if(StorageEngine.MapType.ARRAYMAP.equals(type)) {
+                return newArrayMap(keyClass);
+            }
             else {
                 throw new IllegalArgumentException("Unsupported MapType.");
             }
         }
         else {
             //store in disk with optional LRU cache
+
+            //reuse the object cache if the map is already open
+            CachedMap<K,V> cachedMap = (CachedMap<K,V>) cacheRegistry.get(name);
+            if(cachedMap != null) {
+                return cachedMap;
+            }
             
             //first find if the particular collection exists and retrieve its storageType
             StorageType storageType = getStorageTypeFromName(name);
@@ -247,22 +291,45 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
                 .valueSerializer(getSerializerFromClass(valueClass))
                 .makeOrGet();
             }
-            else if(StorageEngine.MapType.TREEMAP.equals(type)) {
-                map = storage.createTreeMap(name)
-                .valuesOutsideNodesEnable()
-                .counterEnable()
-                .keySerializer(getBTreeKeySerializerFromClass(keyClass))
-                .valueSerializer(getSerializerFromClass(valueClass))
-                .makeOrGet();
+            else if(StorageEngine.MapType.TREEMAP.equals(type) || StorageEngine.MapType.ARRAYMAP.equals(type)) {
+                //the ARRAYMAP is not supported by MapDB; we fall back to a BTreeMap which also iterates the keys in order
+                if(StorageEngine.MapType.ARRAYMAP.equals(type)) {
+                    logger.debug("The ARRAYMAP type is not supported on disk; the map {} is stored as a TREEMAP", name);
+                }
+                Object existing = storage.exists(name)?storage.get(name):null;
+                if(existing instanceof Atomic.Integer || (existing == null && isConcurrent)) {
+                    //HOTFIX: There is a race condition in BTreeMap (MapDB v1.0.9 - https://github.com/jankotek/mapdb/issues/664). Remove it once it's patched.
+                    //The concurrent maps are split in stripes of BTreeMaps with separate locks; the number of stripes is stored under the name of the map.
+                    Atomic.Integer stripeCount = existing!=null?(Atomic.Integer)existing:storage.createAtomicInteger(name, storageConfiguration.getStripes());
+                    int n = stripeCount.get();
+                    List<NavigableMap<K,V>> stripes = new ArrayList<>(n);
+                    for(int i=0;i<n;i++) {
+                        stripes.add(createTreeMap(storage, getStripeName(name, i), keyClass, valueClass));
+                    }
+                    map = new StripedTreeMap<>(stripes);
+                }
+                else {
+                    map = createTreeMap(storage, name, keyClass, valueClass);
 
-                //HOTFIX: There is a race condition in BTreeMap (MapDB v1.0.9 - https://github.com/jankotek/mapdb/issues/664). Remove it once it's patched.
-                if(isConcurrent) {
-                    map = Collections.synchronizedMap(map);
+                    //the concurrent maps which were stored without stripes are synchronized
+                    if(isConcurrent) {
+                        map = Collections.synchronizedMap(map);
+                    }
                 }
             }
             else {
                 throw new IllegalArgumentException("Unsupported MapType.");
             }
+
+            //the uncached maps keep the recently used objects in a write-behind cache
+            if(storageType == StorageType.SECONDARY_STORAGE || storageType == StorageType.TEMP_SECONDARY_STORAGE) {
+                long objectCacheSize = storageConfiguration.getObjectCacheSize();
+                if(objectCacheSize > 0L) {
+                    cachedMap = new CachedMap<>(map, objectCacheSize, isConcurrent?OBJECT_CACHE_SEGMENTS:1);
+                    cacheRegistry.put(name, cachedMap);
+                    map = cachedMap;
+                }
+            }
             return map;
         }
     }   
@@ -271,12 +338,25 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
     @Override
     public <T extends Map> void dropBigMap(String name, T map) {
         assertConnectionOpen();
+
+        CachedMap<?,?> cachedMap = cacheRegistry.remove(name);
+        if(cachedMap != null) {
+            cachedMap.discard();
+        }
         
         StorageType storageType = getStorageTypeFromName(name);
         
         if(storageType != null) {
             DB storage = storageRegistry.get(storageType);
             if(isOpenStorage(storage)) {
+                Object existing = storage.get(name);
+                if(existing instanceof Atomic.Integer) {
+                    //delete the stripes of the map
+                    int n = ((Atomic.Integer) existing).get();
+                    for(int i=0;i<n;i++) {
+                        storage.delete(getStripeName(name, i));
+                    }
+                }
                 storage.delete(name);
             }
         }
@@ -290,13 +370,18 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
     /** {@inheritDoc} */
     @Override
     protected Set<Class> nonSerializableBigMaps() {
-        return new HashSet<>(Arrays.asList(HTreeMap.class, BTreeMap.class));
+        return new HashSet<>(Arrays.asList(HTreeMap.class, BTreeMap.class, StripedTreeMap.class, CachedMap.class));
     }
 
     //private methods of storage engine class
 
     /**
-     * Returns the appropriate Serializer (if one exists) else null.
+     * Returns the appropriate Serializer for the class. The classes without a
+     * dedicated MapDB serializer are written with the BinarySerializer. The
+     * serializer is used only when the map is created; MapDB records it in its
+     * catalog and the existing maps are reopened with the recorded one, so the
+     * maps which were written with the default serializer of older versions
+     * remain readable.
      *
      * @param klass
      * @return
@@ -314,11 +399,11 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
         else if(klass == String.class) {
             return Serializer.STRING;
         }
-        return null; //Default POJO serializer
+        return BINARY_SERIALIZER;
     }
 
     /**
-     * Returns the appropriate BTreeKeySerializer (if one exists) else null.
+     * Returns the appropriate BTreeKeySerializer for the class.
      *
      * @param klass
      * @return
@@ -333,7 +418,39 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
         else if(klass == String.class) {
             return BTreeKeySerializer.STRING;
         }
-        return null; //Default POJO serializer
+        return new BTreeKeySerializer.BasicKeySerializer(BINARY_SERIALIZER);
+    }
+
+    /**
+     * Creates or opens the BTreeMap with the provided name.
+     *
+     * @param storage
+     * @param name
+     * @param keyClass
+     * @param valueClass
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <K,V> BTreeMap<K,V> createTreeMap(DB storage, String name, Class<K> keyClass, Class<V> valueClass) {
+        return storage.createTreeMap(name)
+                .valuesOutsideNodesEnable()
+                .counterEnable()
+                .keySerializer(getBTreeKeySerializerFromClass(keyClass))
+                .valueSerializer(getSerializerFromClass(valueClass))
+                .makeOrGet();
+    }
+
+    /**
+     * Returns the name of a stripe of a concurrent TREEMAP.
+     *
+     * @param name
+     * @param stripeId
+     * @return
+     */
+    private String getStripeName(String name, int stripeId) {
+        return name + STRIPE_SEPARATOR + stripeId;
     }
 
     private boolean isOpenStorage(DB storage) {
@@ -414,6 +531,35 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
         return null; //either the Map has not created yet OR it is in memory
     }
     
+    /**
+     * Writes the modified objects of all the object caches to MapDB.
+     */
+    private void flushCacheRegistry() {
+        for(CachedMap<?,?> cachedMap : cacheRegistry.values()) {
+            cachedMap.flush();
+        }
+    }
+
+    /**
+     * Empties the object caches and removes them from the registry. The modified
+     * objects are written to MapDB unless they are discarded or their storage is
+     * already closed.
+     *
+     * @param discard
+     */
+    private void closeCacheRegistry(boolean discard) {
+        for(Map.Entry<String, CachedMap<?,?>> entry : cacheRegistry.entrySet()) {
+            CachedMap<?,?> cachedMap = entry.getValue();
+            if(discard || getStorageTypeFromName(entry.getKey()) == null) {
+                cachedMap.discard();
+            }
+            else {
+                cachedMap.flush();
+            }
+        }
+        cacheRegistry.clear();
+    }
+
     /**
      * It closes all the storageengines in the registry.
      */
@@ -445,15 +591,17 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
                 e = ((EngineWrapper) e).getWrappedEngine();
             }
 
-            //close and wait until the close on the underlying engine is also finished
+            //close and wait until the close on the underlying engine is also finished; the wait starts short and backs off
             storage.close();
+            long waitMillis = 1L;
             while (!e.isClosed()) {
                 logger.trace("Waiting for the engine to close");
                 try {
-                    TimeUnit.MILLISECONDS.sleep(100);
+                    TimeUnit.MILLISECONDS.sleep(waitMillis);
                 } catch (InterruptedException ex) {
                     throw new RuntimeException(ex);
                 }
+                waitMillis = Math.min(waitMillis*2L, 100L);
             }
 
             return true;
@@ -463,4 +611,33 @@ public class MapDBEngine extends AbstractFileStorageEngine<MapDBConfiguration> {
         }
     }
 
+    /**
+     * Adapts the BinarySerializer to the Serializer interface of MapDB. It is
+     * Serializable because MapDB stores the serializers in its catalog.
+     */
+    private static class BinarySerializerAdapter implements Serializer<Object>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /** {@inheritDoc} */
+        @Override
+        public void serialize(DataOutput out, Object value) throws IOException {
+            BinarySerializer.writeObject(out, value);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object deserialize(DataInput in, int available) throws IOException {
+            if(available == 0) {
+                return null;
+            }
+            return BinarySerializer.readObject(in);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int fixedSize() {
+            return -1;
+        }
+    }
+
 }
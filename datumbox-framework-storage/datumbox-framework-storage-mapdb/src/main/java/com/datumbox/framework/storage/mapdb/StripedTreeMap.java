@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.mapdb;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Concurrent ordered Map which splits its keys by hash into stripes of sorted maps,
+ * each guarded by its own read-write lock. It is used by the MapDBEngine to work
+ * around the race condition of the BTreeMap of MapDB without serializing all the
+ * threads on a single monitor: the writes of different stripes run in parallel and
+ * the reads of the same stripe share its lock. The iterators merge the stripes and
+ * return the keys in ascending order; they are weakly consistent.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <K>
+ * @param <V>
+ */
+class StripedTreeMap<K,V> extends AbstractMap<K,V> {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final NavigableMap<K,V>[] stripes;
+
+    private final ReadWriteLock[] locks;
+
+    private final Comparator<? super K> comparator;
+
+    private Set<Map.Entry<K,V>> entrySet;
+
+    private Set<K> keySet;
+
+    /**
+     * Constructor which receives the stripes of the map. All the stripes
+     * must use the same comparator.
+     *
+     * @param stripes
+     */
+    @SuppressWarnings("unchecked")
+    StripedTreeMap(List<? extends NavigableMap<K,V>> stripes) {
+        if(stripes.isEmpty()) {
+            throw new IllegalArgumentException("At least one stripe is required.");
+        }
+        this.stripes = stripes.toArray(new NavigableMap[stripes.size()]);
+
+        locks = new ReadWriteLock[this.stripes.length];
+        for(int i=0;i<locks.length;i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+
+        Comparator<? super K> c = this.stripes[0].comparator();
+        comparator = c!=null?c:(Comparator<? super K>) Comparator.naturalOrder();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        int size = 0;
+        for(int i=0;i<stripes.length;i++) {
+            locks[i].readLock().lock();
+            try {
+                size += stripes[i].size();
+            }
+            finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        for(int i=0;i<stripes.length;i++) {
+            locks[i].readLock().lock();
+            try {
+                if(!stripes[i].isEmpty()) {
+                    return false;
+                }
+            }
+            finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        int i = stripeOf(key);
+        locks[i].readLock().lock();
+        try {
+            return stripes[i].containsKey(key);
+        }
+        finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V get(Object key) {
+        int i = stripeOf(key);
+        locks[i].readLock().lock();
+        try {
+            return stripes[i].get(key);
+        }
+        finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V put(K key, V value) {
+        int i = stripeOf(key);
+        locks[i].writeLock().lock();
+        try {
+            return stripes[i].put(key, value);
+        }
+        finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int i = stripeOf(key);
+        locks[i].writeLock().lock();
+        try {
+            V previous = stripes[i].get(key);
+            if(previous == null) {
+                stripes[i].put(key, value);
+            }
+            return previous;
+        }
+        finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V remove(Object key) {
+        int i = stripeOf(key);
+        locks[i].writeLock().lock();
+        try {
+            return stripes[i].remove(key);
+        }
+        finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts all the entries of the provided map. The entries are grouped by stripe
+     * and every stripe is locked once for its whole batch.
+     *
+     * @param m
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<? extends K, ? extends V> m) {
+        Map<K,V>[] batches = new Map[stripes.length];
+        for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            K key = entry.getKey();
+            int i = stripeOf(key);
+            if(batches[i] == null) {
+                batches[i] = new LinkedHashMap<>();
+            }
+            batches[i].put(key, entry.getValue());
+        }
+
+        for(int i=0;i<stripes.length;i++) {
+            if(batches[i] != null) {
+                locks[i].writeLock().lock();
+                try {
+                    stripes[i].putAll(batches[i]);
+                }
+                finally {
+                    locks[i].writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        for(int i=0;i<stripes.length;i++) {
+            locks[i].writeLock().lock();
+            try {
+                stripes[i].clear();
+            }
+            finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        if(entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K,V>>() {
+                @Override
+                public int size() {
+                    return StripedTreeMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return StripedTreeMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    StripedTreeMap.this.clear();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K,V>> iterator() {
+                    return new MergeIterator(false);
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Returns the keys of the map. Its iterators do not read the values of the stripes.
+     *
+     * @return
+     */
+    @Override
+    public Set<K> keySet() {
+        if(keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @Override
+                public int size() {
+                    return StripedTreeMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return StripedTreeMap.this.isEmpty();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return StripedTreeMap.this.containsKey(o);
+                }
+
+                @Override
+                public void clear() {
+                    StripedTreeMap.this.clear();
+                }
+
+                @Override
+                public Iterator<K> iterator() {
+                    MergeIterator it = new MergeIterator(true);
+                    return new Iterator<K>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public K next() {
+                            return it.next().getKey();
+                        }
+
+                        @Override
+                        public void remove() {
+                            it.remove();
+                        }
+                    };
+                }
+            };
+        }
+        return keySet;
+    }
+
+    /**
+     * Returns the stripe of the key.
+     *
+     * @param key
+     * @return
+     */
+    private int stripeOf(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & Integer.MAX_VALUE) % stripes.length;
+    }
+
+    /**
+     * Iterator which merges the ordered iterators of the stripes. If only the keys
+     * are requested, the values of the entries are null.
+     */
+    private class MergeIterator implements Iterator<Map.Entry<K,V>> {
+        private final PriorityQueue<StripeCursor> queue = new PriorityQueue<>(stripes.length, (a, b) -> comparator.compare(a.entry.getKey(), b.entry.getKey()));
+
+        private K lastKey;
+
+        private MergeIterator(boolean keysOnly) {
+            for(int i=0;i<stripes.length;i++) {
+                StripeCursor cursor = new StripeCursor(i, keysOnly);
+                if(cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Map.Entry<K,V> next() {
+            StripeCursor cursor = queue.poll();
+            if(cursor == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K,V> entry = cursor.entry;
+            if(cursor.advance()) {
+                queue.add(cursor);
+            }
+            lastKey = entry.getKey();
+            return new AbstractMap.SimpleEntry<K,V>(entry) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public V setValue(V value) {
+                    StripedTreeMap.this.put(getKey(), value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void remove() {
+            if(lastKey == null) {
+                throw new IllegalStateException();
+            }
+            StripedTreeMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * Cursor over the entries of a single stripe. It reads the entries in small
+     * batches under the lock of the stripe and seeks after the last key on every
+     * batch, so no iterator of the stripe stays open between the calls.
+     */
+    private class StripeCursor {
+        private final int stripeId;
+        private final boolean keysOnly;
+        private final Deque<Map.Entry<K,V>> buffer = new ArrayDeque<>(BATCH_SIZE);
+        private K lastKey;
+        private boolean exhausted = false;
+        private Map.Entry<K,V> entry;
+
+        private StripeCursor(int stripeId, boolean keysOnly) {
+            this.stripeId = stripeId;
+            this.keysOnly = keysOnly;
+        }
+
+        private boolean advance() {
+            if(buffer.isEmpty() && !exhausted) {
+                fill();
+            }
+            entry = buffer.poll();
+            return entry != null;
+        }
+
+        private void fill() {
+            locks[stripeId].readLock().lock();
+            try {
+                NavigableMap<K,V> stripe = lastKey==null?stripes[stripeId]:stripes[stripeId].tailMap(lastKey, false);
+                if(keysOnly) {
+                    Iterator<K> it = stripe.keySet().iterator();
+                    while(buffer.size() < BATCH_SIZE && it.hasNext()) {
+                        lastKey = it.next();
+                        buffer.add(new AbstractMap.SimpleImmutableEntry<>(lastKey, null));
+                    }
+                    exhausted = !it.hasNext();
+                }
+                else {
+                    Iterator<Map.Entry<K,V>> it = stripe.entrySet().iterator();
+                    while(buffer.size() < BATCH_SIZE && it.hasNext()) {
+                        Map.Entry<K,V> e = it.next();
+                        lastKey = e.getKey();
+                        buffer.add(new AbstractMap.SimpleImmutableEntry<>(lastKey, e.getValue()));
+                    }
+                    exhausted = !it.hasNext();
+                }
+            }
+            finally {
+                locks[stripeId].readLock().unlock();
+            }
+        }
+    }
+
+}
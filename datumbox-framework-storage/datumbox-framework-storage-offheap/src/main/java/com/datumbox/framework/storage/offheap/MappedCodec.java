@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the values of the MappedMaps. The boxed primitives and the Strings are
+ * written with their raw fixed-size or UTF-8 representation, while all other
+ * classes are written with the BinarySerializer.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <T>
+ */
+abstract class MappedCodec<T> {
+
+    private static final MappedCodec<Integer> INTEGER = new MappedCodec<Integer>() {
+        @Override
+        ByteBuffer encode(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(0, value);
+        }
+
+        @Override
+        Integer decode(ByteBuffer buffer) {
+            return buffer.getInt(buffer.position());
+        }
+    };
+
+    private static final MappedCodec<Long> LONG = new MappedCodec<Long>() {
+        @Override
+        ByteBuffer encode(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(0, value);
+        }
+
+        @Override
+        Long decode(ByteBuffer buffer) {
+            return buffer.getLong(buffer.position());
+        }
+    };
+
+    private static final MappedCodec<Double> DOUBLE = new MappedCodec<Double>() {
+        @Override
+        ByteBuffer encode(Double value) {
+            return ByteBuffer.allocate(Double.BYTES).putDouble(0, value);
+        }
+
+        @Override
+        Double decode(ByteBuffer buffer) {
+            return buffer.getDouble(buffer.position());
+        }
+    };
+
+    private static final MappedCodec<Boolean> BOOLEAN = new MappedCodec<Boolean>() {
+        @Override
+        ByteBuffer encode(Boolean value) {
+            return ByteBuffer.allocate(1).put(0, value?(byte)1:(byte)0);
+        }
+
+        @Override
+        Boolean decode(ByteBuffer buffer) {
+            return buffer.get(buffer.position()) != 0;
+        }
+    };
+
+    private static final MappedCodec<String> STRING = new MappedCodec<String>() {
+        @Override
+        ByteBuffer encode(String value) {
+            return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    private static final MappedCodec<Object> OBJECT = new MappedCodec<Object>() {
+        @Override
+        ByteBuffer encode(Object value) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bos)) {
+                BinarySerializer.writeObject(out, value);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return ByteBuffer.wrap(bos.toByteArray());
+        }
+
+        @Override
+        Object decode(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                return BinarySerializer.readObject(in);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    };
+
+    /**
+     * Returns the codec of the provided class.
+     *
+     * @param klass
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    static <T> MappedCodec<T> forClass(Class<T> klass) {
+        if(klass == Integer.class) {
+            return (MappedCodec<T>) INTEGER;
+        }
+        else if(klass == Long.class) {
+            return (MappedCodec<T>) LONG;
+        }
+        else if(klass == Double.class) {
+            return (MappedCodec<T>) DOUBLE;
+        }
+        else if(klass == Boolean.class) {
+            return (MappedCodec<T>) BOOLEAN;
+        }
+        else if(klass == String.class) {
+            return (MappedCodec<T>) STRING;
+        }
+        return (MappedCodec<T>) OBJECT;
+    }
+
+    /**
+     * Encodes the value in a buffer which is ready to be read.
+     *
+     * @param value
+     * @return
+     */
+    abstract ByteBuffer encode(T value);
+
+    /**
+     * Decodes the value from the remaining bytes of the buffer.
+     *
+     * @param buffer
+     * @return
+     */
+    abstract T decode(ByteBuffer buffer);
+
+}
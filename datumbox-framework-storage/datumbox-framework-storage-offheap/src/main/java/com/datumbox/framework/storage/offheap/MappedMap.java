@@ -0,0 +1,762 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Map which keeps its values outside of the Java heap in a MappedStore. Only
+ * the index, which maps every key to the location of its value, is kept in
+ * memory. The HASHMAPs and TREEMAPs index the keys with a HashMap or TreeMap
+ * (or their concurrent versions), which hold every key boxed on the heap with a
+ * boxed Long location and an entry object, so their heap usage grows linearly
+ * with the number of keys. The ARRAYMAPs use a primitive array index which does
+ * not allocate any objects per key. The IN_CACHE maps also keep the recently
+ * used values in an LRU cache.
+ *
+ * The values of the non-concurrent maps are replaced in place when the new
+ * value fits in the space of the old one; otherwise it is appended to the store.
+ * The persistent maps write their index next to the segments when they are
+ * flushed, so that they can be opened again.
+ *
+ * The replaced and removed values stay in the store as garbage until the map
+ * is compacted with compactTo(), which copies the live values in a new directory.
+ * The getGarbageRatio() method reports the share of the store that is garbage.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ * @param <K>
+ * @param <V>
+ */
+class MappedMap<K,V> extends AbstractMap<K,V> {
+
+    private static final String INDEX_FILE = "index";
+
+    private final Path directory;
+
+    private final int maxSegmentSize;
+
+    private final boolean isPersistent;
+
+    private final boolean isConcurrent;
+
+    private final MappedIndex<K> index;
+
+    private final MappedCodec<V> valueCodec;
+
+    private final Map<Object, V> cache;
+
+    private final MappedStore store;
+
+    private final AtomicLong liveBytes = new AtomicLong(0L);
+
+    private Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Opens the map which is stored in the directory or creates a new one if
+     * the directory does not contain an index.
+     *
+     * @param directory
+     * @param keyClass
+     * @param valueClass
+     * @param type
+     * @param cacheSize
+     * @param maxSegmentSize
+     * @param isConcurrent
+     * @param isPersistent
+     */
+    @SuppressWarnings("unchecked")
+    MappedMap(Path directory, Class<K> keyClass, Class<V> valueClass, StorageEngine.MapType type, int cacheSize, int maxSegmentSize, boolean isConcurrent, boolean isPersistent) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.isPersistent = isPersistent;
+        this.isConcurrent = isConcurrent;
+
+        if(StorageEngine.MapType.HASHMAP.equals(type)) {
+            index = new MapIndex<>(isConcurrent?new ConcurrentHashMap<>():new HashMap<>());
+        }
+        else if(StorageEngine.MapType.TREEMAP.equals(type)) {
+            index = new MapIndex<>(isConcurrent?new ConcurrentSkipListMap<>():new TreeMap<>());
+        }
+        else if(StorageEngine.MapType.ARRAYMAP.equals(type)) {
+            if(keyClass != Integer.class) {
+                throw new IllegalArgumentException("The ARRAYMAP type supports only Integer keys.");
+            }
+            index = (MappedIndex<K>) new ArrayIndex();
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported MapType.");
+        }
+
+        valueCodec = MappedCodec.forClass(valueClass);
+
+        if(cacheSize > 0) {
+            cache = Collections.synchronizedMap(new LinkedHashMap<Object, V>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, V> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+        }
+        else {
+            cache = null;
+        }
+
+        int end = 0;
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if(Files.exists(indexPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+                end = in.readInt();
+                index.read(in);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        store = new MappedStore(directory, maxSegmentSize, end);
+
+        Iterator<Map.Entry<K,Long>> it = index.iterator();
+        while(it.hasNext()) {
+            liveBytes.addAndGet(store.getRecordSize(it.next().getValue()));
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return index.get(key) != MappedIndex.MISSING;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V get(Object key) {
+        if(cache != null) {
+            V value = cache.get(key);
+            if(value != null) {
+                return value;
+            }
+        }
+
+        long location = index.get(key);
+        if(location == MappedIndex.MISSING) {
+            return null;
+        }
+        V value = store.read(location, valueCodec::decode);
+        if(cache != null) {
+            cache.putIfAbsent(key, value);
+            //undo the caching if the key was removed or replaced in the meantime
+            if(index.get(key) != location) {
+                cache.remove(key, value);
+            }
+        }
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V put(K key, V value) {
+        return write(key, value, true);
+    }
+
+    /**
+     * Puts all the entries of the provided map without decoding the previous values.
+     *
+     * @param m
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            write(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public V remove(Object key) {
+        //the key leaves the index before the cache, so that a concurrent get() can not cache it again
+        long location = index.remove(key);
+        if(cache != null) {
+            cache.remove(key);
+        }
+        if(location == MappedIndex.MISSING) {
+            return null;
+        }
+        liveBytes.addAndGet(-store.getRecordSize(location));
+        return store.read(location, valueCodec::decode);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        index.clear();
+        liveBytes.set(0L);
+        if(cache != null) {
+            cache.clear();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        if(entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K,V>>() {
+                @Override
+                public int size() {
+                    return MappedMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    MappedMap.this.clear();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K,V>> iterator() {
+                    Iterator<Map.Entry<K,Long>> it = index.iterator();
+                    return new Iterator<Map.Entry<K,V>>() {
+                        private K lastKey;
+                        private long lastLocation;
+
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<K,V> next() {
+                            Map.Entry<K,Long> e = it.next();
+                            lastKey = e.getKey();
+                            lastLocation = e.getValue();
+                            return new MappedEntry(lastKey, lastLocation);
+                        }
+
+                        @Override
+                        public void remove() {
+                            it.remove();
+                            if(cache != null) {
+                                cache.remove(lastKey);
+                            }
+                            liveBytes.addAndGet(-store.getRecordSize(lastLocation));
+                        }
+                    };
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Getter for the directory of the map.
+     *
+     * @return
+     */
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns whether the map is stored after the storage closes.
+     *
+     * @return
+     */
+    boolean isPersistent() {
+        return isPersistent;
+    }
+
+    /**
+     * Returns the share of the bytes of the store which belong to replaced or
+     * removed values and to the unused tails of the segments.
+     *
+     * @return
+     */
+    double getGarbageRatio() {
+        long used = store.getUsedBytes();
+        if(used == 0L) {
+            return 0.0;
+        }
+        return Math.max(0.0, 1.0 - liveBytes.get()/(double)used);
+    }
+
+    /**
+     * Writes the modified segments and the index of the persistent maps to the disk.
+     * Nothing is written if the directory was deleted by another storage engine.
+     */
+    void flush() {
+        if(!isPersistent || !Files.isDirectory(directory)) {
+            return;
+        }
+        store.force();
+        writeIndex(directory, store.getEnd());
+    }
+
+    /**
+     * Flushes the map and releases its segments.
+     */
+    void close() {
+        flush();
+        store.close();
+        if(cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Copies the live values and the index of the map in the target directory,
+     * which can then replace the directory of the map, and closes the map. It
+     * must not be called while other threads use the map.
+     *
+     * @param target
+     */
+    void compactTo(Path target) {
+        MappedStore compacted = new MappedStore(target, maxSegmentSize, 0);
+        Iterator<Map.Entry<K,Long>> it = index.iterator();
+        while(it.hasNext()) {
+            Map.Entry<K,Long> e = it.next();
+            index.put(e.getKey(), store.read(e.getValue(), compacted::append));
+        }
+        compacted.close();
+        writeIndex(target, compacted.getEnd());
+
+        store.close();
+        if(cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Writes the end of the store and the index in the directory. The index
+     * is written in a temporary file which then replaces the old one.
+     *
+     * @param target
+     * @param end
+     */
+    private void writeIndex(Path target, int end) {
+        Path indexPath = target.resolve(INDEX_FILE);
+        Path tmpPath = target.resolve(INDEX_FILE + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                out.writeInt(end);
+                index.write(out);
+            }
+            Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Stores the value of the key and optionally returns the previous value.
+     *
+     * @param key
+     * @param value
+     * @param decodePrevious
+     * @return
+     */
+    private V write(K key, V value, boolean decodePrevious) {
+        if(key == null || value == null) {
+            throw new NullPointerException("Null keys and values are not supported.");
+        }
+        ByteBuffer data = valueCodec.encode(value);
+
+        V previous = null;
+        if(!isConcurrent) {
+            //replace the value in place if it fits; the concurrent maps always append because other threads might read the old value
+            long location = index.get(key);
+            if(location != MappedIndex.MISSING) {
+                if(decodePrevious) {
+                    previous = store.read(location, valueCodec::decode);
+                }
+                if(store.overwrite(location, data)) {
+                    if(cache != null) {
+                        cache.put(key, value);
+                    }
+                    return previous;
+                }
+            }
+        }
+
+        long newLocation = store.append(data);
+        liveBytes.addAndGet(store.getRecordSize(newLocation));
+        long oldLocation = index.put(key, newLocation);
+        if(cache != null) {
+            if(isConcurrent) {
+                //a racing writer might cache its value after our index update, so invalidate and let get() repopulate it after re-checking the location
+                cache.remove(key);
+            }
+            else {
+                cache.put(key, value);
+            }
+        }
+        if(oldLocation != MappedIndex.MISSING) {
+            liveBytes.addAndGet(-store.getRecordSize(oldLocation));
+        }
+        if(decodePrevious && previous == null && oldLocation != MappedIndex.MISSING) {
+            previous = store.read(oldLocation, valueCodec::decode);
+        }
+        return previous;
+    }
+
+    /**
+     * Entry of the map which decodes its value lazily.
+     */
+    private class MappedEntry implements Map.Entry<K,V> {
+        private final K key;
+        private final long location;
+        private V value;
+
+        private MappedEntry(K key, long location) {
+            this.key = key;
+            this.location = location;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public V getValue() {
+            if(value == null) {
+                value = store.read(location, valueCodec::decode);
+            }
+            return value;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public V setValue(V value) {
+            V previous = getValue();
+            write(key, value, false);
+            this.value = value;
+            return previous;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return key.equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * The index maps the keys to the locations of their values in the store.
+     *
+     * @param <K>
+     */
+    private static abstract class MappedIndex<K> {
+        static final long MISSING = -1L;
+
+        abstract long get(Object key);
+
+        abstract long put(K key, long location);
+
+        abstract long remove(Object key);
+
+        abstract int size();
+
+        abstract void clear();
+
+        abstract Iterator<Map.Entry<K,Long>> iterator();
+
+        abstract void writeKey(DataOutput out, K key) throws IOException;
+
+        abstract K readKey(DataInput in) throws IOException;
+
+        void write(DataOutput out) throws IOException {
+            out.writeInt(size());
+            Iterator<Map.Entry<K,Long>> it = iterator();
+            while(it.hasNext()) {
+                Map.Entry<K,Long> e = it.next();
+                writeKey(out, e.getKey());
+                out.writeLong(e.getValue());
+            }
+        }
+
+        void read(DataInput in) throws IOException {
+            int n = in.readInt();
+            for(int i=0;i<n;i++) {
+                put(readKey(in), in.readLong());
+            }
+        }
+    }
+
+    /**
+     * Index of the HASHMAPs and TREEMAPs which is backed by a Map of the JDK.
+     *
+     * @param <K>
+     */
+    private static class MapIndex<K> extends MappedIndex<K> {
+        private final Map<K,Long> locations;
+
+        private MapIndex(Map<K,Long> locations) {
+            this.locations = locations;
+        }
+
+        @Override
+        long get(Object key) {
+            Long location = locations.get(key);
+            return location!=null?location:MISSING;
+        }
+
+        @Override
+        long put(K key, long location) {
+            Long previous = locations.put(key, location);
+            return previous!=null?previous:MISSING;
+        }
+
+        @Override
+        long remove(Object key) {
+            Long previous = locations.remove(key);
+            return previous!=null?previous:MISSING;
+        }
+
+        @Override
+        int size() {
+            return locations.size();
+        }
+
+        @Override
+        void clear() {
+            locations.clear();
+        }
+
+        @Override
+        Iterator<Map.Entry<K,Long>> iterator() {
+            return locations.entrySet().iterator();
+        }
+
+        @Override
+        void writeKey(DataOutput out, K key) throws IOException {
+            BinarySerializer.writeObject(out, key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K readKey(DataInput in) throws IOException {
+            return (K) BinarySerializer.readObject(in);
+        }
+    }
+
+    /**
+     * Index of the ARRAYMAPs which stores the locations of the non-negative
+     * Integer keys in primitive array segments, similar to the SegmentedArrayMap.
+     * The locations are stored shifted by one so that zero marks a missing key.
+     */
+    private static class ArrayIndex extends MappedIndex<Integer> {
+        private static final int SEGMENT_BITS = 12;
+        private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+        private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+        private volatile AtomicLongArray[] segments = new AtomicLongArray[1];
+
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        @Override
+        long get(Object key) {
+            if(!(key instanceof Integer)) {
+                return MISSING;
+            }
+            int k = (Integer) key;
+            if(k < 0) {
+                return MISSING;
+            }
+            AtomicLongArray segment = getSegment(k >>> SEGMENT_BITS, false);
+            if(segment == null) {
+                return MISSING;
+            }
+            return segment.get(k & SEGMENT_MASK) - 1;
+        }
+
+        @Override
+        long put(Integer key, long location) {
+            int k = key;
+            if(k < 0) {
+                throw new IllegalArgumentException("Negative keys are not supported.");
+            }
+            long previous = getSegment(k >>> SEGMENT_BITS, true).getAndSet(k & SEGMENT_MASK, location + 1) - 1;
+            if(previous == MISSING) {
+                size.incrementAndGet();
+            }
+            return previous;
+        }
+
+        @Override
+        long remove(Object key) {
+            if(!(key instanceof Integer)) {
+                return MISSING;
+            }
+            int k = (Integer) key;
+            if(k < 0) {
+                return MISSING;
+            }
+            AtomicLongArray segment = getSegment(k >>> SEGMENT_BITS, false);
+            if(segment == null) {
+                return MISSING;
+            }
+            long previous = segment.getAndSet(k & SEGMENT_MASK, 0L) - 1;
+            if(previous != MISSING) {
+                size.decrementAndGet();
+            }
+            return previous;
+        }
+
+        @Override
+        int size() {
+            return size.get();
+        }
+
+        @Override
+        synchronized void clear() {
+            segments = new AtomicLongArray[1];
+            size.set(0);
+        }
+
+        @Override
+        Iterator<Map.Entry<Integer,Long>> iterator() {
+            return new Iterator<Map.Entry<Integer,Long>>() {
+                private final AtomicLongArray[] s = segments;
+                private int nextKey = advance(0);
+                private int lastKey = -1;
+
+                private int advance(int k) {
+                    while(k >>> SEGMENT_BITS < s.length) {
+                        AtomicLongArray segment = s[k >>> SEGMENT_BITS];
+                        if(segment == null) {
+                            k = ((k >>> SEGMENT_BITS) + 1) << SEGMENT_BITS;
+                        }
+                        else if(segment.get(k & SEGMENT_MASK) != 0L) {
+                            return k;
+                        }
+                        else {
+                            k++;
+                        }
+                    }
+                    return -1;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return nextKey != -1;
+                }
+
+                @Override
+                public Map.Entry<Integer,Long> next() {
+                    if(nextKey == -1) {
+                        throw new NoSuchElementException();
+                    }
+                    lastKey = nextKey;
+                    long location = s[lastKey >>> SEGMENT_BITS].get(lastKey & SEGMENT_MASK) - 1;
+                    nextKey = advance(lastKey + 1);
+                    return new AbstractMap.SimpleImmutableEntry<>(lastKey, location);
+                }
+
+                @Override
+                public void remove() {
+                    if(lastKey == -1) {
+                        throw new IllegalStateException();
+                    }
+                    ArrayIndex.this.remove(lastKey);
+                    lastKey = -1;
+                }
+            };
+        }
+
+        @Override
+        void writeKey(DataOutput out, Integer key) throws IOException {
+            out.writeInt(key);
+        }
+
+        @Override
+        Integer readKey(DataInput in) throws IOException {
+            return in.readInt();
+        }
+
+        private AtomicLongArray getSegment(int segmentId, boolean create) {
+            AtomicLongArray[] s = segments;
+            if(segmentId < s.length && s[segmentId] != null) {
+                return s[segmentId];
+            }
+            else if(!create) {
+                return null;
+            }
+
+            synchronized(this) {
+                s = segments;
+                if(segmentId >= s.length) {
+                    s = Arrays.copyOf(s, Math.max(segmentId + 1, s.length * 2));
+                }
+                if(s[segmentId] == null) {
+                    s[segmentId] = new AtomicLongArray(SEGMENT_SIZE);
+                }
+                segments = s;
+                return s[segmentId];
+            }
+        }
+    }
+
+}
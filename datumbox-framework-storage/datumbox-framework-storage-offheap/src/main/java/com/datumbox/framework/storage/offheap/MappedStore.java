@@ -0,0 +1,399 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Append-only log of records which is stored in memory-mapped segment files.
+ * Every record is written as [int capacity][int length][bytes] and it is addressed
+ * by its location, which holds the segment id in the high and the offset in the
+ * low 32 bits. The segments start small and double in size until they reach the
+ * maximum segment size; after that a new segment file is created.
+ *
+ * The appends are synchronized while the reads use absolute positions on
+ * duplicates of the mapped buffers and hold only the read side of a lock. The
+ * buffers which are replaced when a segment grows and the ones of a closed store
+ * are unmapped explicitly under the write side of the lock, so the files are
+ * released immediately instead of when the GC collects the buffers. The space of
+ * the replaced and removed records is not reused; the MappedMap reclaims it by
+ * copying its live records in a new store.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+class MappedStore {
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int INITIAL_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final String SEGMENT_EXTENSION = ".segment";
+
+    /**
+     * The Unsafe instance and its invokeCleaner() method which unmap a buffer,
+     * or null if they are not available in this JVM.
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            //the buffers will be unmapped by the GC
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+
+    private final int maxSegmentSize;
+
+    private volatile MappedByteBuffer[] segments;
+
+    private final ReentrantReadWriteLock mappingLock = new ReentrantReadWriteLock();
+
+    private int end;
+
+    /**
+     * Opens the store of the directory. If the directory contains segment files
+     * they are mapped and the new records are appended after the provided end of
+     * the last segment.
+     *
+     * @param directory
+     * @param maxSegmentSize
+     * @param end
+     */
+    MappedStore(Path directory, int maxSegmentSize, int end) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.end = end;
+
+        try {
+            Files.createDirectories(directory);
+
+            int n = 0;
+            while(Files.exists(getSegmentPath(n))) {
+                n++;
+            }
+            MappedByteBuffer[] mapped = new MappedByteBuffer[n];
+            for(int i=0;i<n;i++) {
+                Path segmentPath = getSegmentPath(i);
+                mapped[i] = map(segmentPath, Files.size(segmentPath));
+            }
+            segments = mapped;
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer to the log and returns the
+     * location of the record.
+     *
+     * @param data
+     * @return
+     */
+    synchronized long append(ByteBuffer data) {
+        int length = data.remaining();
+        reserve(HEADER_SIZE + (long)length);
+
+        MappedByteBuffer[] s = segments;
+        int segmentId = s.length - 1;
+        MappedByteBuffer segment = s[segmentId];
+
+        int offset = end;
+        segment.putInt(offset, length);
+        segment.putInt(offset + 4, length);
+        ByteBuffer out = segment.duplicate();
+        out.position(offset + HEADER_SIZE);
+        out.put(data);
+        end = offset + HEADER_SIZE + length;
+
+        return ((long)segmentId << 32) | offset;
+    }
+
+    /**
+     * Replaces the bytes of the record in place if they fit in its capacity.
+     * Returns false if the record is too small. It must not be used when
+     * other threads read the same record.
+     *
+     * @param location
+     * @param data
+     * @return
+     */
+    boolean overwrite(long location, ByteBuffer data) {
+        Lock lock = mappingLock.readLock();
+        lock.lock();
+        try {
+            MappedByteBuffer segment = getSegments()[(int)(location >>> 32)];
+            int offset = (int) location;
+            int length = data.remaining();
+            if(length > segment.getInt(offset)) {
+                return false;
+            }
+            segment.putInt(offset + 4, length);
+            ByteBuffer out = segment.duplicate();
+            out.position(offset + HEADER_SIZE);
+            out.put(data);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Passes a read-only view of the bytes of the record to the reader and
+     * returns its result. The view must not be used after the reader returns,
+     * because its buffer might be unmapped.
+     *
+     * @param location
+     * @param reader
+     * @param <T>
+     * @return
+     */
+    <T> T read(long location, Function<ByteBuffer, T> reader) {
+        Lock lock = mappingLock.readLock();
+        lock.lock();
+        try {
+            MappedByteBuffer segment = getSegments()[(int)(location >>> 32)];
+            int offset = (int) location;
+            int start = offset + HEADER_SIZE;
+
+            ByteBuffer in = segment.asReadOnlyBuffer();
+            in.limit(start + segment.getInt(offset + 4));
+            in.position(start);
+            return reader.apply(in);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that the record occupies in the store,
+     * including its header and any unused capacity.
+     *
+     * @param location
+     * @return
+     */
+    int getRecordSize(long location) {
+        Lock lock = mappingLock.readLock();
+        lock.lock();
+        try {
+            return HEADER_SIZE + getSegments()[(int)(location >>> 32)].getInt((int) location);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that were used by the appends, including the
+     * unused tails of the full segments.
+     *
+     * @return
+     */
+    synchronized long getUsedBytes() {
+        MappedByteBuffer[] s = getSegments();
+        long used = end;
+        for(int i=0;i<s.length-1;i++) {
+            used += s[i].capacity();
+        }
+        return used;
+    }
+
+    /**
+     * Getter for the end of the last segment.
+     *
+     * @return
+     */
+    synchronized int getEnd() {
+        return end;
+    }
+
+    /**
+     * Writes the modified pages of the segments to the disk.
+     */
+    synchronized void force() {
+        for(MappedByteBuffer segment : getSegments()) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Writes the segments to the disk and unmaps them. The files of the store
+     * can be deleted after this method returns.
+     */
+    synchronized void close() {
+        if(segments == null) {
+            return;
+        }
+        force();
+        MappedByteBuffer[] s = replaceSegments(null);
+        for(MappedByteBuffer segment : s) {
+            unmap(segment);
+        }
+    }
+
+    /**
+     * Ensures that the last segment can fit a record of the provided size,
+     * either by remapping it with double size or by creating a new segment.
+     *
+     * @param recordSize
+     */
+    private void reserve(long recordSize) {
+        MappedByteBuffer[] s = getSegments();
+        int last = s.length - 1;
+
+        long required = end + recordSize;
+        if(last >= 0) {
+            int capacity = s[last].capacity();
+            if(required <= capacity) {
+                return;
+            }
+            else if(required <= maxSegmentSize) {
+                long size = capacity;
+                while(size < required) {
+                    size *= 2;
+                }
+                MappedByteBuffer[] grown = Arrays.copyOf(s, s.length);
+                grown[last] = map(getSegmentPath(last), Math.min(size, maxSegmentSize));
+                replaceSegments(grown);
+                unmap(s[last]);
+                return;
+            }
+        }
+
+        //start a new segment; records larger than the max segment size get a segment of their own
+        long size = Math.min(INITIAL_SEGMENT_SIZE, maxSegmentSize);
+        while(size < recordSize) {
+            size *= 2;
+        }
+        size = Math.max(Math.min(size, maxSegmentSize), recordSize);
+        if(size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The record is too large to be stored in a segment.");
+        }
+
+        MappedByteBuffer[] grown = Arrays.copyOf(s, s.length + 1);
+        grown[s.length] = map(getSegmentPath(s.length), size);
+        segments = grown;
+        end = 0;
+    }
+
+    /**
+     * Replaces the segments under the write side of the mapping lock, so that
+     * no reader uses the previous buffers after this method returns, and
+     * returns the previous segments.
+     *
+     * @param replacement
+     * @return
+     */
+    private MappedByteBuffer[] replaceSegments(MappedByteBuffer[] replacement) {
+        Lock lock = mappingLock.writeLock();
+        lock.lock();
+        try {
+            MappedByteBuffer[] previous = segments;
+            segments = replacement;
+            return previous;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the mapped segments or throws an exception if the store is closed.
+     *
+     * @return
+     */
+    private MappedByteBuffer[] getSegments() {
+        MappedByteBuffer[] s = segments;
+        if(s == null) {
+            throw new IllegalStateException("The store is already closed.");
+        }
+        return s;
+    }
+
+    /**
+     * Returns the path of the segment file.
+     *
+     * @param segmentId
+     * @return
+     */
+    private Path getSegmentPath(int segmentId) {
+        return directory.resolve(segmentId + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * Maps the file in memory, extending it if it is smaller than the provided size.
+     *
+     * @param path
+     * @param size
+     * @return
+     */
+    private static MappedByteBuffer map(Path path, long size) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Unmaps the buffer, which must not be accessed afterwards. If the JVM does
+     * not support it, the buffer is unmapped by the GC.
+     *
+     * @param buffer
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if(INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        }
+        catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Failed to unmap the segment.", ex);
+        }
+    }
+
+}
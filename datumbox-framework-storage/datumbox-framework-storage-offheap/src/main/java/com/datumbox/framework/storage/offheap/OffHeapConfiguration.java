@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageConfiguration;
+import com.datumbox.framework.common.storage.interfaces.StorageEngine;
+
+import java.util.Properties;
+
+/**
+ * The OffHeapConfiguration class is used to configure the OffHeap storage
+ * and generate new storage engines. OffHeap storage keeps the values of the
+ * BigMaps outside of the Java heap in memory-mapped segment files, so large
+ * datasets neither fill the heap nor add GC pressure.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class OffHeapConfiguration extends AbstractFileStorageConfiguration {
+
+    private int cacheSize = 10000;
+
+    private int segmentSize = 128 * 1024 * 1024;
+
+    private double compactionThreshold = 0.5;
+
+    /** {@inheritDoc} */
+    @Override
+    public StorageEngine createStorageEngine(String storageName) {
+        return new OffHeapEngine(storageName, this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void load(Properties properties) {
+        directory = properties.getProperty("offHeapConfiguration.directory");
+        cacheSize = Integer.parseInt(properties.getProperty("offHeapConfiguration.cacheSize"));
+        segmentSize = Integer.parseInt(properties.getProperty("offHeapConfiguration.segmentSize"));
+        compactionThreshold = Double.parseDouble(properties.getProperty("offHeapConfiguration.compactionThreshold"));
+    }
+
+    /**
+     * Getter for the number of decoded values stored in the LRU cache of
+     * the IN_CACHE maps.
+     *
+     * @return
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Setter for the number of decoded values stored in the LRU cache of
+     * the IN_CACHE maps. Set it to 0 to turn off caching.
+     *
+     * @param cacheSize
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Getter for the maximum size in bytes of the memory-mapped segment files.
+     *
+     * @return
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Setter for the maximum size in bytes of the memory-mapped segment files.
+     * The segments start small and double in size until they reach this limit.
+     *
+     * @param segmentSize
+     */
+    public void setSegmentSize(int segmentSize) {
+        if(segmentSize <= 0) {
+            throw new IllegalArgumentException("The segment size must be positive.");
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Getter for the garbage ratio above which a persistent BigMap is compacted
+     * when the storage is closed or renamed.
+     *
+     * @return
+     */
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Setter for the garbage ratio above which a persistent BigMap is compacted
+     * when the storage is closed or renamed. Set it to 1 to turn off compaction.
+     *
+     * @param compactionThreshold
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        if(compactionThreshold < 0.0 || compactionThreshold > 1.0) {
+            throw new IllegalArgumentException("The compaction threshold must be between 0 and 1.");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+}
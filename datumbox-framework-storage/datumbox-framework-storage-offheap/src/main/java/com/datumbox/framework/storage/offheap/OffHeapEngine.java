@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2013-2018 Vasilis Vryniotis <bbriniotis@datumbox.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datumbox.framework.storage.offheap;
+
+import com.datumbox.framework.common.storage.abstracts.AbstractFileStorageEngine;
+import com.datumbox.framework.common.storage.abstracts.AbstractStorageEngine;
+import com.datumbox.framework.common.storage.interfaces.StorageConfiguration;
+import com.datumbox.framework.common.storage.serialization.BinarySerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+
+/**
+ * The OffHeapEngine is responsible for saving and loading data from files,
+ * creating BigMaps which keep their values outside of the Java heap and storing
+ * data. The IN_MEMORY BigMaps are stored in memory, while the IN_CACHE and IN_DISK
+ * ones are stored in memory-mapped segment files; the IN_CACHE maps maintain an LRU
+ * cache of decoded values. The objects are stored in serialized files.
+ *
+ * Only the values leave the heap: the HASHMAP and TREEMAP BigMaps keep an index
+ * of their boxed keys and Long locations in a Map of the JDK, so their heap usage
+ * still grows with the number of keys. The ARRAYMAPs use a primitive index.
+ *
+ * The persistent BigMaps whose garbage ratio exceeds the compaction threshold
+ * of the configuration are compacted when the storage is closed or renamed.
+ *
+ * @author Vasilis Vryniotis <bbriniotis@datumbox.com>
+ */
+public class OffHeapEngine extends AbstractFileStorageEngine<OffHeapConfiguration> {
+
+    /**
+     * The name of the directory under the root path which stores the persistent BigMaps.
+     */
+    private static final String BIGMAPS_DIRECTORY = "bigmaps";
+
+    /**
+     * The suffix of the directory in which a BigMap is compacted.
+     */
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    /**
+     * The suffix of the directory of a BigMap which was replaced by its compacted copy.
+     */
+    private static final String REPLACED_SUFFIX = ".replaced";
+
+    /**
+     * The registry stores all the open off-heap BigMaps by name.
+     */
+    private final Map<String, MappedMap<?,?>> mapRegistry = new HashMap<>();
+
+    /**
+     * The directory of the temporary BigMaps, which is deleted when the storage closes.
+     */
+    private Path tempDirectory;
+
+    /**
+     * @param storageName
+     * @param storageConfiguration
+     * @see AbstractStorageEngine#AbstractStorageEngine(String, StorageConfiguration)
+     */
+    protected OffHeapEngine(String storageName, OffHeapConfiguration storageConfiguration) {
+        super(storageName, storageConfiguration);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized boolean rename(String newStorageName) {
+        assertConnectionOpen();
+        if(storageName.equals(newStorageName)) {
+            return false;
+        }
+
+        closeMaps(false, true);
+
+        try {
+            moveDirectory(getRootPath(storageName), getRootPath(newStorageName));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        logger.trace("Renamed storage {} to {}", storageName, newStorageName);
+        storageName = newStorageName;
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean existsObject(String name) {
+        assertConnectionOpen();
+        return Files.isRegularFile(getRootPath(storageName).resolve(name));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized <T extends Serializable> void saveObject(String name, T serializableObject) {
+        assertConnectionOpen();
+
+        Map<String, Object> objRefs = preSerializer(serializableObject);
+        try {
+            Path rootPath = getRootPath(storageName);
+            createDirectoryIfNotExists(rootPath);
+
+            try(OutputStream out = Files.newOutputStream(rootPath.resolve(name))) {
+                BinarySerializer.serialize(serializableObject, out);
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        finally {
+            postSerializer(serializableObject, objRefs);
+        }
+
+        //persist the indexes so that the BigMaps can be opened again
+        for(MappedMap<?,?> map : mapRegistry.values()) {
+            map.flush();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public <T extends Serializable> T loadObject(String name, Class<T> klass) throws NoSuchElementException {
+        assertConnectionOpen();
+
+        if(!existsObject(name)) {
+            throw new NoSuchElementException("Can't find any object with name '"+name+"'");
+        }
+
+        T serializableObject;
+        try(InputStream in = Files.newInputStream(getRootPath(storageName).resolve(name))) {
+            serializableObject = klass.cast(BinarySerializer.deserialize(in));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        postDeserializer(serializableObject);
+
+        return serializableObject;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        if(isClosed()){
+            return;
+        }
+        super.close();
+
+        closeMaps(true, true);
+        deleteTempDirectory();
+        logger.trace("Closed storage {}", storageName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void clear() {
+        assertConnectionOpen();
+
+        closeMaps(true, false);
+        deleteTempDirectory();
+
+        try {
+            deleteDirectory(getRootPath(storageName), true);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <K,V> Map<K,V> getBigMap(String name, Class<K> keyClass, Class<V> valueClass, MapType type, StorageHint storageHint, boolean isConcurrent, boolean isTemporary) {
+        assertConnectionOpen();
+
+        if(storageHint == StorageHint.IN_MEMORY) {
+            //store in memory
+            if(MapType.HASHMAP.equals(type)) {
+                return isConcurrent?new ConcurrentHashMap<>():new HashMap<>();
+            }
+            else if(MapType.TREEMAP.equals(type)) {
+                return isConcurrent?new ConcurrentSkipListMap<>():new TreeMap<>();
+            }
+            else if(MapType.ARRAYMAP.equals(type)) {
+                return newArrayMap(keyClass);
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported MapType.");
+            }
+        }
+        else if(storageHint == StorageHint.IN_CACHE || storageHint == StorageHint.IN_DISK) {
+            //store off-heap; open the map if it already exists
+            MappedMap<K,V> map = (MappedMap<K,V>) mapRegistry.get(name);
+            if(map == null) {
+                int cacheSize = storageHint == StorageHint.IN_CACHE?storageConfiguration.getCacheSize():0;
+                Path mapPath = getMapPath(name, isTemporary);
+                if(!isTemporary) {
+                    recoverCompaction(mapPath);
+                }
+                map = new MappedMap<>(mapPath, keyClass, valueClass, type, cacheSize, storageConfiguration.getSegmentSize(), isConcurrent, !isTemporary);
+                mapRegistry.put(name, map);
+            }
+            return map;
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported StorageHint.");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public synchronized <T extends Map> void dropBigMap(String name, T map) {
+        assertConnectionOpen();
+
+        MappedMap<?,?> mappedMap = mapRegistry.remove(name);
+        if(mappedMap != null) {
+            mappedMap.close();
+            try {
+                deleteIfExistsRecursively(mappedMap.getDirectory());
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        else {
+            //the map is stored in memory
+            map.clear();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("rawtypes")
+    protected Set<Class> nonSerializableBigMaps() {
+        return Collections.singleton(MappedMap.class);
+    }
+
+    //private methods of storage engine class
+
+    /**
+     * Returns the directory of the BigMap.
+     *
+     * @param name
+     * @param isTemporary
+     * @return
+     */
+    private Path getMapPath(String name, boolean isTemporary) {
+        if(isTemporary) {
+            if(tempDirectory == null) {
+                try {
+                    Path directory = Paths.get(getDirectory());
+                    createDirectoryIfNotExists(directory);
+                    tempDirectory = Files.createTempDirectory(directory, "datumbox-offheap");
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return tempDirectory.resolve(name);
+        }
+        return getRootPath(storageName).resolve(BIGMAPS_DIRECTORY).resolve(name);
+    }
+
+    /**
+     * Closes the open BigMaps. The temporary BigMaps are closed only if requested
+     * and, if compaction is requested, the persistent ones are compacted when they
+     * contain too much garbage.
+     *
+     * @param includeTemporary
+     * @param compact
+     */
+    private void closeMaps(boolean includeTemporary, boolean compact) {
+        Iterator<MappedMap<?,?>> it = mapRegistry.values().iterator();
+        while(it.hasNext()) {
+            MappedMap<?,?> map = it.next();
+            if(compact && map.isPersistent() && Files.isDirectory(map.getDirectory()) && map.getGarbageRatio() > storageConfiguration.getCompactionThreshold()) {
+                compactMap(map);
+                it.remove();
+            }
+            else if(includeTemporary || map.isPersistent()) {
+                map.close();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Compacts the BigMap in a new directory, which then replaces the old one,
+     * and closes it.
+     *
+     * @param map
+     */
+    private void compactMap(MappedMap<?,?> map) {
+        Path directory = map.getDirectory();
+        Path compactDirectory = directory.resolveSibling(directory.getFileName() + COMPACT_SUFFIX);
+        Path replacedDirectory = directory.resolveSibling(directory.getFileName() + REPLACED_SUFFIX);
+        try {
+            deleteIfExistsRecursively(compactDirectory);
+            map.compactTo(compactDirectory);
+            Files.move(directory, replacedDirectory);
+            Files.move(compactDirectory, directory);
+            deleteIfExistsRecursively(replacedDirectory);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        logger.trace("Compacted BigMap {}", directory);
+    }
+
+    /**
+     * Completes or discards a compaction of the BigMap which was interrupted.
+     * The compacted copy is used only if it was complete, which is the case
+     * when the old directory was already moved away.
+     *
+     * @param directory
+     */
+    private void recoverCompaction(Path directory) {
+        Path compactDirectory = directory.resolveSibling(directory.getFileName() + COMPACT_SUFFIX);
+        Path replacedDirectory = directory.resolveSibling(directory.getFileName() + REPLACED_SUFFIX);
+        try {
+            if(!Files.exists(directory) && Files.exists(compactDirectory) && Files.exists(replacedDirectory)) {
+                Files.move(compactDirectory, directory);
+            }
+            deleteIfExistsRecursively(compactDirectory);
+            deleteIfExistsRecursively(replacedDirectory);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Deletes the directory of the temporary BigMaps.
+     */
+    private void deleteTempDirectory() {
+        if(tempDirectory != null) {
+            try {
+                deleteIfExistsRecursively(tempDirectory);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            tempDirectory = null;
+        }
+    }
+
+}
@@ -19,10 +19,13 @@ import com.datumbox.framework.common.ConfigurableFactory;
 import com.datumbox.framework.common.Configuration;
 import com.datumbox.framework.common.utilities.RandomGenerator;
 import com.datumbox.framework.tests.Constants;
+import org.junit.After;
 import org.junit.Before;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -37,6 +40,8 @@ public abstract class AbstractTest {
      */
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     
+    private final List<Configuration> configurations = new ArrayList<>();
+    
     /**
      * Public constructor of the Tests. It sets up the global seed in the RandomGenerator.
      */
@@ -54,11 +59,29 @@ public abstract class AbstractTest {
         //Reset the seed of the local Random before every method execution
         RandomGenerator.getThreadLocalRandom().setSeed(Constants.RANDOM_SEED);
     }
+    
+    /**
+     * This method is executed after every test. It releases the resources of
+     * the configurations that were built by the test.
+     */
+    @After
+    public void tearDown() {
+        for(Configuration configuration : configurations) {
+            configuration.close();
+        }
+        configurations.clear();
+    }
 
     /**
      * Builds a configuration object.
      */
     protected Configuration getConfiguration() {
+        Configuration configuration = buildConfiguration();
+        configurations.add(configuration);
+        return configuration;
+    }
+    
+    private Configuration buildConfiguration() {
         String storageEngine = System.getProperty("storageEngine");
         if(storageEngine == null) {
             return Configuration.getConfiguration();
@@ -72,6 +95,12 @@ public abstract class AbstractTest {
             else if("MapDB".equals(storageEngine)) {
                 p.setProperty("configuration.storageConfiguration", "com.datumbox.framework.storage.mapdb.MapDBConfiguration");
             }
+            else if("OffHeap".equals(storageEngine)) {
+                p.setProperty("configuration.storageConfiguration", "com.datumbox.framework.storage.offheap.OffHeapConfiguration");
+            }
+            else if("Instrumented".equals(storageEngine)) {
+                p.setProperty("configuration.storageConfiguration", "com.datumbox.framework.common.storage.instrumentation.InstrumentedStorageConfiguration");
+            }
             else {
                 throw new IllegalArgumentException("Unsupported option.");
             }
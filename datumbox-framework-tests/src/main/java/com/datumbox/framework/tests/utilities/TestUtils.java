@@ -20,7 +20,10 @@ import com.datumbox.framework.common.dataobjects.DataTable2D;
 import com.datumbox.framework.common.dataobjects.TypeInference;
 import com.datumbox.framework.tests.Constants;
 
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 /**
  * Utility methods used only by the JUnit tests.
@@ -63,4 +66,38 @@ public class TestUtils {
         }
     }
     
+    /**
+     * Assert method for Maps which store double values. Both maps must have
+     * the same keys.
+     * 
+     * @param expResult
+     * @param result 
+     */
+    public static void assertDoubleMap(Map<Object, Double> expResult, Map<Object, Double> result) {
+        assertEquals(expResult.keySet(), result.keySet());
+        for (Map.Entry<Object, Double> e : expResult.entrySet()) {
+            assertEquals(e.getValue(), result.get(e.getKey()), Constants.DOUBLE_ACCURACY_HIGH);
+        }
+    }
+    
+    /**
+     * Assert method which checks that the provided code throws an exception of
+     * the expected type.
+     * 
+     * @param expected
+     * @param code 
+     */
+    public static void assertThrows(Class<? extends Throwable> expected, Runnable code) {
+        try {
+            code.run();
+        }
+        catch (Throwable ex) {
+            if(expected.isInstance(ex)) {
+                return;
+            }
+            throw new AssertionError("Expected " + expected.getName() + " but " + ex.getClass().getName() + " was thrown.", ex);
+        }
+        fail("Expected " + expected.getName() + " to be thrown.");
+    }
+    
 }